@@ -0,0 +1,120 @@
+package mmf.publication.app.benchmark;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load test of the list endpoint under a burst of concurrent clients, run once per
+ * serving mode: Tomcat's platform thread pool, virtual threads behind the admission limiter, and
+ * virtual threads with the limiter switched off. Prints throughput, 503s and latency percentiles.
+ * <p>
+ * Usage: {@code AdmissionLoadTest [clients] [seconds]}
+ */
+public class AdmissionLoadTest {
+    private static final int PUBLICATIONS = 20_000;
+    private static final int POOL_SIZE = 10;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        // Started from a main method, devtools would relaunch the test in a second class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        System.out.printf("%-18s %9s %9s %7s %9s %9s %9s %9s%n",
+                "Mode", "Requests", "Req/s", "503s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        run("platform", clients, seconds, "spring.threads.virtual.enabled=false", "publication.admission.enabled=false");
+        run("virtual+admission", clients, seconds, "spring.threads.virtual.enabled=true", "publication.admission.enabled=true");
+        run("virtual", clients, seconds, "spring.threads.virtual.enabled=true", "publication.admission.enabled=false");
+        System.exit(0);
+    }
+
+    private static void run(String mode, int clients, int seconds, String... properties) throws Exception {
+        List<String> allProperties = new ArrayList<>(Arrays.asList(properties));
+        allProperties.add("spring.datasource.url=jdbc:h2:mem:load-" + mode + ";MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        allProperties.add("spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE);
+        allProperties.add("spring.datasource.hikari.connection-timeout=30000");
+
+        try (ConfigurableApplicationContext context = BenchmarkApplication.startServer(allProperties.toArray(String[]::new));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(10)).build()) {
+            BenchmarkApplication.seed(context, PUBLICATIONS, 60);
+            String base = "http://localhost:" + BenchmarkApplication.port(context) + "/api/publications";
+
+            load(client, base, clients, Math.max(2, seconds / 4), null);
+            Result result = new Result();
+            load(client, base, clients, seconds, result);
+            result.print(mode, seconds);
+        }
+    }
+
+    private static void load(HttpClient client, String base, int clients, int seconds, Result result) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                List<Long> latencies = new ArrayList<>();
+                while (System.nanoTime() < deadline) {
+                    int page = ThreadLocalRandom.current().nextInt(50);
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(base + "?status=ACTIVE&type=NEWS&size=20&page=" + page))
+                            .timeout(Duration.ofSeconds(60))
+                            .build();
+                    long start = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    latencies.add(System.nanoTime() - start);
+                    if (result != null && status != 200) {
+                        (status == 503 ? result.unavailable : result.failed).incrementAndGet();
+                    }
+                }
+                if (result != null) {
+                    result.add(latencies);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static final class Result {
+        private final List<Long> latencies = new ArrayList<>();
+        private final AtomicLong unavailable = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        private synchronized void add(List<Long> clientLatencies) {
+            latencies.addAll(clientLatencies);
+        }
+
+        private synchronized void print(String mode, int seconds) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("%-18s %9d %9.0f %7d %9.1f %9.1f %9.1f %9.1f%s%n", mode, sorted.length,
+                    (double) sorted.length / seconds, unavailable.get(),
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 1.0), failed.get() > 0 ? "  (" + failed.get() + " failed)" : "");
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
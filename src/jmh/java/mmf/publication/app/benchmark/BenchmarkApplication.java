@@ -0,0 +1,97 @@
+package mmf.publication.app.benchmark;
+
+import mmf.publication.app.Application;
+import mmf.publication.app.entity.AppUser;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Boots the application without a web server against the embedded H2 database configured in the
+ * test resources, and fills it with generated publications.
+ */
+final class BenchmarkApplication {
+    static final String[] WORDS = {
+            "spring", "java", "virtual", "thread", "database", "index", "query", "latency", "cache", "journal",
+            "news", "release", "update", "security", "performance", "memory", "garbage", "collector", "stream", "batch",
+            "kernel", "network", "socket", "buffer", "compiler", "runtime", "module", "service", "client", "server"
+    };
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return builder(properties).web(WebApplicationType.NONE).run();
+    }
+
+    /**
+     * Starts the application with its web server on a random port, see {@link #port}.
+     */
+    static ConfigurableApplicationContext startServer(String... properties) {
+        return builder(properties).web(WebApplicationType.SERVLET).properties("server.port=0", "management.server.port=0").run();
+    }
+
+    static int port(ConfigurableApplicationContext context) {
+        return ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    private static SpringApplicationBuilder builder(String... properties) {
+        return new SpringApplicationBuilder(Application.class)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "publication.views.journal-dir=target/benchmark-view-journal",
+                        "logging.level.root=WARN")
+                .properties(properties);
+    }
+
+    static void seed(ConfigurableApplicationContext context, int publicationCount, int descriptionWords) {
+        AppUser user = context.getBean(AppUserRepository.class).save(new AppUser("benchmark", "password", new ArrayList<>()));
+        PublicationRepository publicationRepository = context.getBean(PublicationRepository.class);
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+        List<Publication> batch = new ArrayList<>();
+        for (int i = 0; i < publicationCount; i++) {
+            Publication publication = new Publication();
+            publication.setTitle(randomText(random, 6));
+            publication.setDescription(randomText(random, descriptionWords));
+            publication.setType(random.nextBoolean() ? PublicationType.NEWS : PublicationType.JOURNAL);
+            publication.setStatus(random.nextInt(4) == 0 ? PublicationStatus.INACTIVE : PublicationStatus.ACTIVE);
+            publication.setPublishedAt(start.plusMinutes(i * 10L));
+            publication.setUpdatedAt(publication.getPublishedAt());
+            publication.setAppUser(user);
+            batch.add(publication);
+            if (batch.size() == 1000) {
+                publicationRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        publicationRepository.saveAll(batch);
+    }
+
+    static String randomText(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            // Zipf-like skew so some words are far more common than others
+            int rank = (int) Math.min(WORDS.length - 1, Math.floor(-Math.log(1 - random.nextDouble()) * 6));
+            text.append(WORDS[rank]);
+            if (random.nextInt(8) == 0) {
+                text.append(random.nextInt(1000));
+            }
+        }
+        return text.toString();
+    }
+}
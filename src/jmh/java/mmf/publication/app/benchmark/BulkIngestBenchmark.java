@@ -0,0 +1,120 @@
+package mmf.publication.app.benchmark;
+
+import mmf.publication.app.dto.BatchIngestResult;
+import mmf.publication.app.entity.AppUser;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.search.PublicationSearchIndex;
+import mmf.publication.app.service.IPublicationIngestService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingests a generated NDJSON stream through the bulk endpoint's service into the embedded H2
+ * database. The stream produces its lines on demand, so neither the input nor the ingest holds
+ * all rows in memory; the table and search index are emptied after every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class BulkIngestBenchmark {
+    private static final int USERS = 100;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private IPublicationIngestService ingestService;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start();
+        AppUserRepository appUserRepository = context.getBean(AppUserRepository.class);
+        for (int i = 0; i < USERS; i++) {
+            appUserRepository.save(new AppUser("user" + i, "password", new ArrayList<>()));
+        }
+        ingestService = context.getBean(IPublicationIngestService.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() {
+        context.getBean(JdbcTemplate.class).execute("TRUNCATE TABLE publication");
+        context.getBean(PublicationSearchIndex.class).rebuild();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BatchIngestResult ingest() throws IOException {
+        BatchIngestResult result = ingestService.ingest(new GeneratedNdjson(rows));
+        if (result.getAccepted() != rows) {
+            throw new IllegalStateException("Only " + result.getAccepted() + " of " + rows + " rows were ingested");
+        }
+        return result;
+    }
+
+    /**
+     * Publication lines with random titles, descriptions and users, generated as they are read.
+     */
+    private static final class GeneratedNdjson extends InputStream {
+        private final Random random = new Random(42);
+        private final int rows;
+        private int generated;
+        private byte[] line = new byte[0];
+        private int position;
+
+        private GeneratedNdjson(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read() {
+            if (position == line.length && !nextLine()) {
+                return -1;
+            }
+            return line[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (position == line.length && !nextLine()) {
+                return -1;
+            }
+            int count = Math.min(length, line.length - position);
+            System.arraycopy(line, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        private boolean nextLine() {
+            if (generated == rows) {
+                return false;
+            }
+            generated++;
+            String json = "{\"username\":\"user" + random.nextInt(USERS) +
+                    "\",\"title\":\"" + BenchmarkApplication.randomText(random, 6) +
+                    "\",\"description\":\"" + BenchmarkApplication.randomText(random, 40) +
+                    "\",\"type\":\"" + (random.nextBoolean() ? "NEWS" : "JOURNAL") +
+                    "\",\"status\":\"ACTIVE\"}\n";
+            line = json.getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+    }
+}
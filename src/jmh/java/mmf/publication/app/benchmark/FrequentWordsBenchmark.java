@@ -0,0 +1,69 @@
+package mmf.publication.app.benchmark;
+
+import mmf.publication.app.service.WordFrequencyCounter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Top-5 keyword extraction with the single-pass {@link WordFrequencyCounter} against the regex,
+ * HashMap and PriorityQueue implementation it replaced. Run with {@code -prof gc} to compare the
+ * allocation rates as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrequentWordsBenchmark {
+    @Param({"1024", "65536", "1048576"})
+    public int descriptionBytes;
+
+    private String description;
+    private WordFrequencyCounter counter;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(descriptionBytes + 32);
+        while (text.length() < descriptionBytes) {
+            text.append(BenchmarkApplication.randomText(random, 12)).append(random.nextBoolean() ? ". " : ",\n");
+        }
+        text.setLength(descriptionBytes);
+        description = text.toString();
+        counter = new WordFrequencyCounter();
+    }
+
+    @Benchmark
+    public Map<String, Integer> singlePass() {
+        return counter.topWords(description, 5);
+    }
+
+    @Benchmark
+    public Map<String, Integer> regex() {
+        String[] words = description.toLowerCase().replaceAll("[^a-zA-Z0-9 ]", "").split("\\s+");
+
+        Map<String, Integer> wordCount = new HashMap<>();
+        for (String word : words) {
+            if (!word.isEmpty()) {
+                wordCount.put(word, wordCount.getOrDefault(word, 0) + 1);
+            }
+        }
+
+        PriorityQueue<Map.Entry<String, Integer>> minHeap =
+                new PriorityQueue<>(Comparator.comparingInt(Map.Entry::getValue));
+        for (Map.Entry<String, Integer> entry : wordCount.entrySet()) {
+            minHeap.offer(entry);
+            if (minHeap.size() > 5) {
+                minHeap.poll();
+            }
+        }
+
+        return minHeap.stream()
+                .sorted((a, b) -> b.getValue().compareTo(a.getValue()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));
+    }
+}
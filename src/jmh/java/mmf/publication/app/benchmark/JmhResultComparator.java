@@ -0,0 +1,88 @@
+package mmf.publication.app.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files and flags regressions: a benchmark regressed when its score
+ * moved in the bad direction for its mode by more than the threshold and by more than the two
+ * error margins together. Exits with status 1 when anything regressed.
+ * <p>
+ * Usage: {@code JmhResultComparator <baseline.json> <candidate.json> [thresholdPercent]}
+ */
+public class JmhResultComparator {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: JmhResultComparator <baseline.json> <candidate.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> candidate = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Candidate", "Change");
+        for (Map.Entry<String, JsonNode> entry : candidate.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            JsonNode after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entry.getKey(), "-", score(after), "new");
+                continue;
+            }
+
+            double change = (score(after) - score(before)) / score(before);
+            boolean higherIsBetter = after.get("mode").asText().equals("thrpt");
+            double worsening = higherIsBetter ? -change : change;
+            double noise = (error(before) + error(after)) / score(before);
+            boolean regressed = worsening > threshold && worsening > noise;
+            if (regressed) {
+                regressions++;
+            }
+
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), score(before), score(after),
+                    change * 100, regressed ? "  REGRESSION" : "");
+        }
+
+        for (String missing : baseline.keySet()) {
+            if (!candidate.containsKey(missing)) {
+                System.out.printf("%-90s %14.3f %14s %9s%n", missing, score(baseline.get(missing)), "-", "missing");
+            }
+        }
+
+        System.out.printf("%d regression(s) above %.0f%%%n", regressions, threshold * 100);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.get("benchmark").asText());
+            JsonNode params = result.get("params");
+            if (params != null) {
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> param = fields.next();
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+                }
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static double score(JsonNode result) {
+        return result.get("primaryMetric").get("score").asDouble();
+    }
+
+    private static double error(JsonNode result) {
+        double error = result.get("primaryMetric").get("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
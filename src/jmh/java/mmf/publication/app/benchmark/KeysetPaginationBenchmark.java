@@ -0,0 +1,73 @@
+package mmf.publication.app.benchmark;
+
+import mmf.publication.app.dto.CursorPage;
+import mmf.publication.app.dto.PublicationCursor;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.service.IPublicationService;
+import mmf.publication.app.specifications.PublicationSpecification;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of fetching a page of 20 ACTIVE publications at increasing depths, once with
+ * {@code ?page=N} (OFFSET plus COUNT(*)) and once with a cursor pointing at the same position.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeysetPaginationBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final Sort SORT = Sort.by(Sort.Direction.DESC, "publishedAt");
+
+    @Param({"100000"})
+    public int publications;
+
+    @Param({"0", "1000", "25000"})
+    public int offset;
+
+    private ConfigurableApplicationContext context;
+    private IPublicationService publicationService;
+    private String cursor;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, publications, 20);
+        publicationService = context.getBean(IPublicationService.class);
+
+        if (offset > 0) {
+            Page<Publication> previous = context.getBean(PublicationRepository.class).findAll(
+                    PublicationSpecification.hasStatus(PublicationStatus.ACTIVE),
+                    PageRequest.of(0, 1, SORT.and(Sort.by(Sort.Direction.DESC, "id"))).withPage(offset - 1));
+            cursor = PublicationCursor.at(previous.getContent().get(0), SORT.iterator().next(), false).encode();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<PublicationDTO> offsetPage() {
+        return publicationService.getPublications(null, PublicationStatus.ACTIVE, null, null, null,
+                PageRequest.of(offset / PAGE_SIZE, PAGE_SIZE, SORT));
+    }
+
+    @Benchmark
+    public CursorPage<PublicationDTO> cursorPage() {
+        return publicationService.getPublicationsByCursor(null, PublicationStatus.ACTIVE, null, null, null,
+                cursor, PAGE_SIZE, SORT);
+    }
+}
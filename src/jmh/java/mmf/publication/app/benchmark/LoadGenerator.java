@@ -0,0 +1,370 @@
+package mmf.publication.app.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import mmf.publication.app.search.PublicationSearchIndex;
+import mmf.publication.app.stats.PublicationStatistics;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load test of the REST API. It boots the application with its web server against an
+ * embedded database, seeds it, and sends a production-shaped mix of requests. The mix covers view
+ * increments, single gets, filtered list pages, creates, updates and registrations. Requests arrive
+ * as a Poisson process at the given rate whether or not earlier ones have completed, each sent from
+ * a virtual thread of its own.
+ * <p>
+ * Latency is measured from the time a request was due to be sent, not from when it actually went
+ * out. A stalled server therefore shows up in every request that queued behind it, which a
+ * closed-loop client would leave out (coordinated omission). The time from the actual send is kept
+ * as the service time. Both go into an HdrHistogram per endpoint. The report is written as JSON,
+ * including each response time histogram in HdrHistogram's compressed base64 form, so runs can be
+ * compared or merged afterwards.
+ * <p>
+ * Usage: {@code LoadGenerator [requestsPerSecond] [seconds] [jpa|memory] [publications] [report.json]}
+ */
+public class LoadGenerator {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final int POOL_SIZE = 10;
+    private static final LocalDateTime FIRST_PUBLISHED = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    /**
+     * The requests of the mix, with their share of the traffic in percent.
+     */
+    private enum Endpoint {
+        VIEW("PATCH /api/publications/{id}/view", 35),
+        GET("GET /api/publications/{id}", 25),
+        LIST("GET /api/publications", 20),
+        CREATE("POST /api/publications/{username}", 8),
+        UPDATE("PATCH /api/publications/{id}", 8),
+        REGISTER("POST /api/auth/register", 4);
+
+        private final String path;
+        private final int share;
+
+        Endpoint(String path, int share) {
+            this.path = path;
+            this.share = share;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String storage = args.length > 2 ? args[2] : "jpa";
+        int publications = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+        File report = new File(args.length > 4 ? args[4] : "target/load-report.json");
+        // Started from a main method, devtools would relaunch the test in a second class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        try (ConfigurableApplicationContext context = BenchmarkApplication.startServer(
+                "spring.datasource.url=jdbc:h2:mem:load-generator;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                "publication.storage=" + storage);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(10)).build()) {
+            BenchmarkApplication.seed(context, publications, 60);
+            context.getBean(PublicationSearchIndex.class).rebuild();
+            context.getBean(PublicationStatistics.class).rebuild();
+
+            Workload workload = new Workload("http://localhost:" + BenchmarkApplication.port(context), publications);
+            run(client, workload, rate, Math.max(2, seconds / 4), new Results());
+            Results results = new Results();
+            run(client, workload, rate, seconds, results);
+
+            results.print(seconds);
+            write(report, results, rate, seconds, storage, publications);
+            System.out.println("Report written to " + report);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Sends requests for {@code seconds} and waits for the last of them to complete.
+     */
+    private static void run(HttpClient client, Workload workload, int rate, int seconds, Results results)
+            throws InterruptedException {
+        Random arrivals = new Random(42);
+        double meanGapNanos = 1_000_000_000.0 / rate;
+        AtomicInteger inFlight = new AtomicInteger();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        double due = start;
+        while (true) {
+            // Exponential gaps between arrivals make a Poisson process
+            due += -Math.log(1 - arrivals.nextDouble()) * meanGapNanos;
+            long intended = (long) due;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Endpoint endpoint = workload.pick();
+            HttpRequest request = workload.request(endpoint);
+            inFlight.incrementAndGet();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    send(client, request, endpoint, intended, results);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+
+        long drainDeadline = System.nanoTime() + HIGHEST_TRACKABLE_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void send(HttpClient client, HttpRequest request, Endpoint endpoint, long intended, Results results) {
+        long sent = System.nanoTime();
+        int status;
+        try {
+            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            status = -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long done = System.nanoTime();
+        results.record(endpoint, status, done - intended, done - sent);
+    }
+
+    private static void write(File file, Results results, int rate, int seconds, String storage, int publications)
+            throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", Instant.now().minusSeconds(seconds).toString());
+        report.put("requestsPerSecond", rate);
+        report.put("seconds", seconds);
+        report.put("storage", storage);
+        report.put("publications", publications);
+        report.put("processors", Runtime.getRuntime().availableProcessors());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("overall", results.overall.toReport(seconds));
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        results.byEndpoint.forEach((endpoint, stats) -> endpoints.put(endpoint.name().toLowerCase(), stats.toReport(seconds)));
+        report.put("endpoints", endpoints);
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+    }
+
+    /**
+     * Draws the requests of the mix against the seeded publications.
+     */
+    private static final class Workload {
+        private static final int TOTAL_SHARE = totalShare();
+
+        private final String base;
+        private final int publications;
+        private final AtomicLong sequence = new AtomicLong();
+
+        private Workload(String base, int publications) {
+            this.base = base;
+            this.publications = publications;
+        }
+
+        private static int totalShare() {
+            int total = 0;
+            for (Endpoint endpoint : Endpoint.values()) {
+                total += endpoint.share;
+            }
+            return total;
+        }
+
+        private Endpoint pick() {
+            int roll = ThreadLocalRandom.current().nextInt(TOTAL_SHARE);
+            for (Endpoint endpoint : Endpoint.values()) {
+                roll -= endpoint.share;
+                if (roll < 0) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalStateException("The shares add up to " + TOTAL_SHARE);
+        }
+
+        private HttpRequest request(Endpoint endpoint) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String publications = base + "/api/publications";
+            long id = random.nextLong(1, this.publications + 1);
+            return switch (endpoint) {
+                case VIEW -> builder(publications + "/" + id + "/view")
+                        .method("PATCH", HttpRequest.BodyPublishers.noBody()).build();
+                case GET -> builder(publications + "/" + id).GET().build();
+                case LIST -> builder(publications + "?" + listQuery(random)).GET().build();
+                case CREATE -> json(builder(publications + "/benchmark"), "POST",
+                        "{\"title\":\"Load " + sequence.incrementAndGet() + "\",\"description\":\""
+                                + BenchmarkApplication.randomText(random, 60) + "\",\"type\":\"NEWS\",\"status\":\"ACTIVE\"}");
+                case UPDATE -> json(builder(publications + "/" + id), "PATCH",
+                        "{\"title\":\"Updated " + sequence.incrementAndGet() + "\"}");
+                case REGISTER -> json(builder(base + "/api/auth/register"), "POST",
+                        "{\"username\":\"load-" + sequence.incrementAndGet() + "\",\"password\":\"password\"}");
+            };
+        }
+
+        /**
+         * One of the first pages, filtered by any combination of a search word, status, type and a
+         * month of publish dates.
+         */
+        private String listQuery(ThreadLocalRandom random) {
+            StringBuilder query = new StringBuilder("size=20&page=").append(random.nextInt(5));
+            if (random.nextInt(10) < 3) {
+                query.append("&search=").append(BenchmarkApplication.WORDS[random.nextInt(BenchmarkApplication.WORDS.length)]);
+            }
+            if (random.nextBoolean()) {
+                query.append("&status=ACTIVE");
+            }
+            if (random.nextBoolean()) {
+                query.append("&type=").append(random.nextBoolean() ? "NEWS" : "JOURNAL");
+            }
+            if (random.nextInt(10) < 4) {
+                // The seeded publications are ten minutes apart
+                LocalDateTime from = FIRST_PUBLISHED.plusMinutes(10L * random.nextInt(publications));
+                query.append("&startDate=").append(from).append("&endDate=").append(from.plusDays(30));
+            }
+            return query.toString();
+        }
+
+        private static HttpRequest.Builder builder(String uri) {
+            return HttpRequest.newBuilder(URI.create(uri)).timeout(Duration.ofNanos(HIGHEST_TRACKABLE_NANOS));
+        }
+
+        private static HttpRequest json(HttpRequest.Builder builder, String method, String body) {
+            return builder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body)).build();
+        }
+    }
+
+    private static final class Results {
+        private final Map<Endpoint, Stats> byEndpoint = new EnumMap<>(Endpoint.class);
+        private final Stats overall = new Stats("all");
+
+        private Results() {
+            for (Endpoint endpoint : Endpoint.values()) {
+                byEndpoint.put(endpoint, new Stats(endpoint.path));
+            }
+        }
+
+        private void record(Endpoint endpoint, int status, long responseNanos, long serviceNanos) {
+            byEndpoint.get(endpoint).record(status, responseNanos, serviceNanos);
+            overall.record(status, responseNanos, serviceNanos);
+        }
+
+        private void print(int seconds) {
+            System.out.printf("%-36s %9s %8s %7s %9s %9s %9s %9s %9s%n",
+                    "Endpoint", "Requests", "Req/s", "Errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            byEndpoint.values().forEach(stats -> stats.print(seconds));
+            overall.print(seconds);
+        }
+    }
+
+    private static final class Stats {
+        private final String path;
+        private final Histogram responseTimes = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        private final Histogram serviceTimes = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        private Stats(String path) {
+            this.path = path;
+        }
+
+        private void record(int status, long responseNanos, long serviceNanos) {
+            responseTimes.recordValue(Math.min(responseNanos, HIGHEST_TRACKABLE_NANOS));
+            serviceTimes.recordValue(Math.min(serviceNanos, HIGHEST_TRACKABLE_NANOS));
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+        }
+
+        /**
+         * Responses other than 2xx, and requests that failed before there was one.
+         */
+        private long errors() {
+            long errors = 0;
+            for (Map.Entry<Integer, LongAdder> status : statuses.entrySet()) {
+                if (status.getKey() < 200 || status.getKey() >= 300) {
+                    errors += status.getValue().sum();
+                }
+            }
+            return errors;
+        }
+
+        private void print(int seconds) {
+            long requests = responseTimes.getTotalCount();
+            System.out.printf("%-36s %9d %8.0f %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", path, requests,
+                    (double) requests / seconds, errors(), millis(responseTimes, 50), millis(responseTimes, 90),
+                    millis(responseTimes, 99), millis(responseTimes, 99.9), responseTimes.getMaxValue() / 1e6);
+        }
+
+        private Map<String, Object> toReport(int seconds) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("path", path);
+            report.put("requests", responseTimes.getTotalCount());
+            report.put("throughput", (double) responseTimes.getTotalCount() / seconds);
+            report.put("errors", errors());
+            Map<String, Long> statusCounts = new TreeMap<>();
+            statuses.forEach((status, count) -> statusCounts.put(status < 0 ? "failed" : status.toString(), count.sum()));
+            report.put("statuses", statusCounts);
+            report.put("responseTimeMs", percentiles(responseTimes));
+            report.put("serviceTimeMs", percentiles(serviceTimes));
+            report.put("responseTimeHistogram", encode(responseTimes));
+            return report;
+        }
+
+        private static Map<String, Double> percentiles(Histogram histogram) {
+            Map<String, Double> percentiles = new LinkedHashMap<>();
+            percentiles.put("mean", histogram.getTotalCount() == 0 ? 0 : histogram.getMean() / 1e6);
+            percentiles.put("p50", millis(histogram, 50));
+            percentiles.put("p90", millis(histogram, 90));
+            percentiles.put("p99", millis(histogram, 99));
+            percentiles.put("p99.9", millis(histogram, 99.9));
+            percentiles.put("max", histogram.getMaxValue() / 1e6);
+            return percentiles;
+        }
+
+        private static double millis(Histogram histogram, double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1e6;
+        }
+
+        private static String encode(Histogram histogram) {
+            ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+            return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package mmf.publication.app.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Jackson serialization of a {@code Page<PublicationDTO>} as the list endpoint returns it, with
+ * descriptions of about 1 KB and five keywords per publication, in each format the endpoint
+ * negotiates. Reading the page back goes to a tree, as a client without the DTO classes would.
+ * <p>
+ * Setup prints the payload size per format, as sent and gzipped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageSerializationBenchmark {
+    @Param({"20", "100", "500"})
+    public int pageSize;
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    private ObjectMapper objectMapper;
+    private Page<PublicationDTO> page;
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory(format)).build();
+        Random random = new Random(42);
+        LocalDateTime publishedAt = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        List<PublicationDTO> publications = new ArrayList<>(pageSize);
+        for (long id = 1; id <= pageSize; id++) {
+            Map<String, Integer> frequentWords = new LinkedHashMap<>();
+            for (int i = 0; i < 5; i++) {
+                frequentWords.put(BenchmarkApplication.WORDS[random.nextInt(BenchmarkApplication.WORDS.length)] + i, 10 - i);
+            }
+            publications.add(new PublicationDTO(id, BenchmarkApplication.randomText(random, 6),
+                    BenchmarkApplication.randomText(random, 150), random.nextInt(100_000), publishedAt.plusHours(id),
+                    publishedAt.plusHours(id + 1), PublicationType.NEWS, PublicationStatus.ACTIVE, frequentWords));
+        }
+        page = new PageImpl<>(publications, PageRequest.of(3, pageSize), 10_000);
+        payload = objectMapper.writeValueAsBytes(page);
+        System.out.printf("%n%s page of %d: %d bytes, %d gzipped%n", format, pageSize, payload.length, gzipped(payload));
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public JsonNode deserialize() throws Exception {
+        return objectMapper.readTree(payload);
+    }
+
+    /**
+     * The factories {@code BinaryFormatConfig} gives the message converters.
+     */
+    private static JsonFactory factory(String format) {
+        return switch (format) {
+            case "smile" -> SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build();
+            case "cbor" -> new CBORFactory();
+            default -> new JsonFactory();
+        };
+    }
+
+    private static int gzipped(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.size();
+    }
+}
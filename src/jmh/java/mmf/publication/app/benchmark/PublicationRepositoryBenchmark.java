@@ -0,0 +1,108 @@
+package mmf.publication.app.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.service.IPublicationService;
+import mmf.publication.app.service.ViewCountBuffer;
+import mmf.publication.app.specifications.PublicationSpecification;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository paths against the embedded H2 database, and against the in-memory storage with
+ * {@code storage=memory}: filtered list pages at a shallow and a deep offset, translating the
+ * composed specification into a criteria predicate, and recording views including the write-behind
+ * flush that turns them into SQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PublicationRepositoryBenchmark {
+    @Param({"50000"})
+    public int publications;
+
+    @Param({"jpa", "memory"})
+    public String storage;
+
+    private ConfigurableApplicationContext context;
+    private PublicationRepository publicationRepository;
+    private IPublicationService publicationService;
+    private ViewCountBuffer viewCountBuffer;
+    private EntityManager entityManager;
+    private Specification<Publication> filters;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start("publication.views.flush-interval-ms=3600000",
+                "publication.storage=" + storage);
+        BenchmarkApplication.seed(context, publications, 100);
+        publicationRepository = context.getBean(PublicationRepository.class);
+        publicationService = context.getBean(IPublicationService.class);
+        viewCountBuffer = context.getBean(ViewCountBuffer.class);
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+
+        LocalDateTime startDate = LocalDateTime.of(2020, 3, 1, 0, 0);
+        filters = Specification.where(PublicationSpecification.hasStatus(PublicationStatus.ACTIVE))
+                .and(PublicationSpecification.hasType(PublicationType.NEWS))
+                .and(PublicationSpecification.publishedBetween(startDate, startDate.plusMonths(6)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Publication> findAllFirstPage() {
+        return publicationRepository.findAll(filters, PageRequest.of(0, 20, Sort.by("publishedAt").descending()));
+    }
+
+    @Benchmark
+    public Page<Publication> findAllDeepPage() {
+        return publicationRepository.findAll(filters, PageRequest.of(400, 20, Sort.by("publishedAt").descending()));
+    }
+
+    @Benchmark
+    public Predicate specificationToPredicate() {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Publication> query = criteriaBuilder.createQuery(Publication.class);
+        Root<Publication> root = query.from(Publication.class);
+        return filters.toPredicate(root, query, criteriaBuilder);
+    }
+
+    @Benchmark
+    public void incrementViewCount() throws PublicationNotFoundException {
+        publicationService.incrementViewCount(ThreadLocalRandom.current().nextLong(1, publications + 1));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void incrementViewCountAndFlush() throws PublicationNotFoundException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 1000; i++) {
+            publicationService.incrementViewCount(random.nextLong(1, publications + 1));
+        }
+        viewCountBuffer.flush();
+    }
+}
@@ -0,0 +1,130 @@
+package mmf.publication.app.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mmf.publication.app.archive.PublicationArchive;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.search.PublicationSearchIndex;
+import mmf.publication.app.service.KeywordExtractor;
+import mmf.publication.app.service.LegacyKeywordMigration;
+import mmf.publication.app.service.PublicationCache;
+import mmf.publication.app.service.PublicationService;
+import mmf.publication.app.service.ViewCountBuffer;
+import mmf.publication.app.stats.PublicationStatistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of the service layer on its own: the repository is a plain dynamic proxy returning
+ * canned results (Mockito stubs would dominate the measurement), so {@code convertToDTO} measures
+ * {@code getPublication} converting one entity with caching disabled, {@code getCachedPublication}
+ * the same call served from the cache, and {@code getPublicationsWithAllFilters} the specification
+ * composition plus converting a page of 20.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PublicationServiceBenchmark {
+    private PublicationService publicationService;
+    private PublicationService cachedPublicationService;
+    private ViewCountBuffer viewCountBuffer;
+    private String description;
+    private final Pageable pageable = PageRequest.of(0, 20);
+    private final LocalDateTime startDate = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private final LocalDateTime endDate = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        description = BenchmarkApplication.randomText(random, 600);
+
+        List<Publication> publications = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            Publication publication = new Publication(id, BenchmarkApplication.randomText(random, 6), description, 10,
+                    startDate, startDate, PublicationType.NEWS, PublicationStatus.ACTIVE,
+                    Map.of("spring", 12, "java", 9, "thread", 7, "cache", 5, "index", 4));
+            publications.add(publication);
+        }
+        Optional<Publication> byId = Optional.of(publications.get(0));
+        Page<Publication> page = new PageImpl<>(publications, pageable, 1000);
+        PublicationRepository repository = (PublicationRepository) Proxy.newProxyInstance(
+                PublicationRepository.class.getClassLoader(), new Class<?>[]{PublicationRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> byId;
+                    case "findAll" -> page;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        String journalDir = Files.createTempDirectory("view-journal").toString();
+        // No legacy keyword table exists here, so the fallback reader never queries this database
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacy-keywords");
+        LegacyKeywordMigration legacyKeywords = new LegacyKeywordMigration(new JdbcTemplate(dataSource),
+                new DataSourceTransactionManager(dataSource), new SimpleMeterRegistry(), 500);
+        viewCountBuffer = new ViewCountBuffer(repository, event -> {
+        }, journalDir, 64, 500);
+        PublicationStatistics statistics = new PublicationStatistics(repository, viewCountBuffer,
+                new SimpleMeterRegistry());
+        PublicationArchive archive = new PublicationArchive(new JdbcTemplate(dataSource),
+                new DataSourceTransactionManager(dataSource), new SimpleMeterRegistry(), false);
+        publicationService = new PublicationService(repository, null, viewCountBuffer,
+                new PublicationSearchIndex(repository, archive, new SimpleMeterRegistry(), 1000, 1000),
+                event -> {
+                }, new KeywordExtractor(5, 0), new PublicationCache(new SimpleMeterRegistry(), 0),
+                legacyKeywords, null, null, null, statistics, null, archive);
+        cachedPublicationService = new PublicationService(repository, null, viewCountBuffer,
+                new PublicationSearchIndex(repository, archive, new SimpleMeterRegistry(), 1000, 1000),
+                event -> {
+                }, new KeywordExtractor(5, 0), new PublicationCache(new SimpleMeterRegistry(), 64 << 20),
+                legacyKeywords, null, null, null, statistics, null, archive);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        viewCountBuffer.close();
+    }
+
+    @Benchmark
+    public Map<String, Integer> findFrequentWordsOfPublication() {
+        return publicationService.findFrequentWordsOfPublication(description);
+    }
+
+    @Benchmark
+    public PublicationDTO convertToDTO() throws PublicationNotFoundException {
+        return publicationService.getPublication(1L);
+    }
+
+    @Benchmark
+    public PublicationDTO getCachedPublication() throws PublicationNotFoundException {
+        return cachedPublicationService.getPublication(1L);
+    }
+
+    @Benchmark
+    public Page<PublicationDTO> getPublicationsWithAllFilters() {
+        return publicationService.getPublications(null, PublicationStatus.ACTIVE, PublicationType.NEWS,
+                startDate, endDate, pageable);
+    }
+}
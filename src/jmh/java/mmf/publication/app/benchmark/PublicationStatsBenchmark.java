@@ -0,0 +1,59 @@
+package mmf.publication.app.benchmark;
+
+import mmf.publication.app.dto.PublicationStatsDTO;
+import mmf.publication.app.service.IPublicationService;
+import mmf.publication.app.stats.PublicationStatistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the stats endpoint's service call, which reads in-memory aggregates, against the
+ * {@code GROUP BY} scan that loads and reconciles them, at two table sizes. The publications are
+ * ten minutes apart, so 100,000 of them span about 700 publish days.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PublicationStatsBenchmark {
+    @Param({"1000", "100000"})
+    public int publications;
+
+    private ConfigurableApplicationContext context;
+    private IPublicationService publicationService;
+    private PublicationStatistics statistics;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, publications, 20);
+        publicationService = context.getBean(IPublicationService.class);
+        statistics = context.getBean(PublicationStatistics.class);
+        statistics.reconcile();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PublicationStatsDTO stats() {
+        return publicationService.getPublicationStats(null, null);
+    }
+
+    @Benchmark
+    public PublicationStatsDTO statsOfOneMonth() {
+        return publicationService.getPublicationStats(LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 31));
+    }
+
+    @Benchmark
+    public void reconcile() {
+        statistics.reconcile();
+    }
+}
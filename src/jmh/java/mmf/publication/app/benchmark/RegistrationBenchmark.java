@@ -0,0 +1,62 @@
+package mmf.publication.app.benchmark;
+
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.exceptions.UsernameTakenException;
+import mmf.publication.app.service.IAppUserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registration throughput from more callers than there are hashing threads: new usernames pay for
+ * a BCrypt hash of the configured strength on the hashing pool, taken ones should be turned away
+ * before hashing. The callers stay within the default hashing queue, so none of them is rejected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(32)
+@Fork(1)
+public class RegistrationBenchmark {
+    private static final int TAKEN_USERS = 1000;
+
+    @Param({"10"})
+    public int strength;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private IAppUserService appUserService;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start("publication.auth.bcrypt-strength=" + strength);
+        appUserService = context.getBean(IAppUserService.class);
+        for (int i = 0; i < TAKEN_USERS; i++) {
+            appUserService.registerUser(new AppUserDTO("taken" + i, "password"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean registerNew() {
+        return appUserService.registerUser(new AppUserDTO("user" + sequence.incrementAndGet(), "password")) != null;
+    }
+
+    @Benchmark
+    public boolean registerTaken() {
+        try {
+            appUserService.registerUser(new AppUserDTO("taken" + sequence.incrementAndGet() % TAKEN_USERS, "password"));
+            throw new IllegalStateException("A taken username was registered again");
+        } catch (UsernameTakenException e) {
+            return false;
+        }
+    }
+}
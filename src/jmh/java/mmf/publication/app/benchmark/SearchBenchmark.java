@@ -0,0 +1,73 @@
+package mmf.publication.app.benchmark;
+
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.search.PublicationSearchIndex;
+import mmf.publication.app.service.IPublicationService;
+import mmf.publication.app.specifications.PublicationSpecification;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency of the in-memory index against the {@code LIKE '%term%'} specification it replaces,
+ * both returning the first page of ACTIVE publications, ranked or newest first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"10000", "100000"})
+    public int publications;
+
+    @Param({"kernel", "compiler runtime"})
+    public String search;
+
+    private ConfigurableApplicationContext context;
+    private IPublicationService publicationService;
+    private PublicationRepository publicationRepository;
+    private final Pageable pageable = PageRequest.of(0, 20);
+    private final Pageable newestFirst = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "publishedAt"));
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, publications, 200);
+        context.getBean(PublicationSearchIndex.class).rebuild();
+        publicationService = context.getBean(IPublicationService.class);
+        publicationRepository = context.getBean(PublicationRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<PublicationDTO> index() {
+        return publicationService.getPublications(search, PublicationStatus.ACTIVE, null, null, null, pageable);
+    }
+
+    @Benchmark
+    public Page<PublicationDTO> indexNewestFirst() {
+        return publicationService.getPublications(search, PublicationStatus.ACTIVE, null, null, null, newestFirst);
+    }
+
+    @Benchmark
+    public Page<Publication> like() {
+        Specification<Publication> spec = Specification.where(PublicationSpecification.hasTitleOrDescriptionContaining(search))
+                .and(PublicationSpecification.hasStatus(PublicationStatus.ACTIVE));
+        return publicationRepository.findAll(spec, pageable);
+    }
+}
@@ -0,0 +1,163 @@
+package mmf.publication.app.benchmark;
+
+import mmf.publication.app.service.KeywordExtractor;
+import mmf.publication.app.similar.MinHashIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quality against speed of the MinHash similarity index for a few band and row layouts, next to
+ * the pairwise comparison of keyword sets it replaces. Publications are written about one of a
+ * few hundred topics, so those on the same topic share some of their five frequent words.
+ * <p>
+ * Setup prints, per layout, the recall of the true ten most similar publications (ties with the
+ * tenth included, at least {@link #MIN_SIMILARITY} similar), the share of returned publications
+ * that really are that similar, and the heap the index takes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimilarityBenchmark {
+    private static final double MIN_SIMILARITY = 0.2;
+    private static final int LIMIT = 10;
+    private static final int TOPICS = 500;
+    private static final int TOPIC_WORDS = 12;
+    private static final int VOCABULARY = 20_000;
+    private static final int QUALITY_QUERIES = 200;
+
+    @Param({"10000", "100000"})
+    public int publications;
+
+    @Param({"10x2", "20x2", "40x2", "16x3"})
+    public String bandsByRows;
+
+    private MinHashIndex index;
+    private List<Set<String>> keywords;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        KeywordExtractor extractor = new KeywordExtractor(5, 0);
+        String[] layout = bandsByRows.split("x");
+        index = new MinHashIndex(Integer.parseInt(layout[0]), Integer.parseInt(layout[1]), 2000, 42);
+        keywords = new ArrayList<>(publications);
+        for (int id = 0; id < publications; id++) {
+            Set<String> words = extractor.extract(description(random)).keySet();
+            keywords.add(words);
+            index.index(id, words);
+        }
+        reportQuality(new Random(7));
+    }
+
+    @Benchmark
+    public List<MinHashIndex.Match> minHash() {
+        return index.similar(nextId(), LIMIT, MIN_SIMILARITY);
+    }
+
+    @Benchmark
+    public List<Long> pairwise() {
+        return exactMostSimilar(nextId());
+    }
+
+    private int nextId() {
+        next = (next + 7919) % publications;
+        return next;
+    }
+
+    private void reportQuality(Random random) {
+        long expected = 0;
+        long found = 0;
+        long returned = 0;
+        long relevant = 0;
+        for (int i = 0; i < QUALITY_QUERIES; i++) {
+            int id = random.nextInt(publications);
+            List<long[]> exact = exactlySimilar(id);
+            // Any publication as similar as the tenth most similar one counts as a hit
+            double cutoff = exact.size() < LIMIT ? MIN_SIMILARITY : similarity(exact.get(LIMIT - 1));
+            Set<Long> hits = new HashSet<>();
+            for (long[] scored : exact) {
+                if (similarity(scored) >= cutoff) {
+                    hits.add(scored[1]);
+                }
+            }
+            expected += Math.min(LIMIT, hits.size());
+            for (MinHashIndex.Match match : index.similar(id, LIMIT, MIN_SIMILARITY)) {
+                returned++;
+                if (hits.contains(match.getId())) {
+                    found++;
+                }
+                if (MinHashIndex.jaccard(keywords.get(id), keywords.get((int) match.getId())) >= MIN_SIMILARITY) {
+                    relevant++;
+                }
+            }
+        }
+        System.out.printf("%n%s over %d publications: recall@%d %.3f, precision %.3f, index %d KiB%n",
+                bandsByRows, publications, LIMIT, expected == 0 ? 1.0 : (double) found / expected,
+                returned == 0 ? 1.0 : (double) relevant / returned, index.estimatedSizeInBytes() / 1024);
+    }
+
+    /**
+     * The ten most similar publications by exact Jaccard similarity, ties broken like the index does.
+     */
+    private List<Long> exactMostSimilar(int id) {
+        List<long[]> scored = exactlySimilar(id);
+        List<Long> ids = new ArrayList<>(LIMIT);
+        for (int i = 0; i < Math.min(LIMIT, scored.size()); i++) {
+            ids.add(scored.get(i)[1]);
+        }
+        return ids;
+    }
+
+    /**
+     * Every publication at least {@link #MIN_SIMILARITY} similar as {@code [similarity bits, id]},
+     * most similar first.
+     */
+    private List<long[]> exactlySimilar(int id) {
+        Set<String> words = keywords.get(id);
+        List<long[]> scored = new ArrayList<>();
+        for (int other = 0; other < publications; other++) {
+            if (other != id) {
+                double similarity = MinHashIndex.jaccard(words, keywords.get(other));
+                if (similarity >= MIN_SIMILARITY) {
+                    scored.add(new long[]{Double.doubleToLongBits(similarity), other});
+                }
+            }
+        }
+        scored.sort((a, b) -> a[0] != b[0]
+                ? Double.compare(similarity(b), similarity(a))
+                : Long.compare(b[1], a[1]));
+        return scored;
+    }
+
+    private static double similarity(long[] scored) {
+        return Double.longBitsToDouble(scored[0]);
+    }
+
+    /**
+     * Mostly words of one topic, the more common of them more often, with some words from anywhere.
+     */
+    private static String description(Random random) {
+        int topic = random.nextInt(TOPICS);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            if (random.nextInt(4) == 0) {
+                text.append("w").append(random.nextInt(VOCABULARY));
+            } else {
+                int rank = (int) Math.min(TOPIC_WORDS - 1, Math.floor(-Math.log(1 - random.nextDouble()) * 4));
+                text.append("t").append(topic).append("x").append(rank);
+            }
+            text.append(' ');
+        }
+        return text.toString();
+    }
+}
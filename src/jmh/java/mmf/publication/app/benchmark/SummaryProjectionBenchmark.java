@@ -0,0 +1,65 @@
+package mmf.publication.app.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.SummaryField;
+import mmf.publication.app.service.IPublicationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A list page of ACTIVE publications with descriptions of about 14 KB, fetched and serialized as
+ * whole publications and as summaries with a 200 character excerpt. Run with {@code -prof gc} to
+ * compare the bytes allocated per page as well as the latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SummaryProjectionBenchmark {
+    private static final Set<SummaryField> LIST_FIELDS =
+            EnumSet.of(SummaryField.TITLE, SummaryField.EXCERPT, SummaryField.PUBLISHED_AT, SummaryField.TYPE);
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private IPublicationService publicationService;
+    private ObjectMapper objectMapper;
+    private Pageable pageable;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, 5_000, 2_000);
+        publicationService = context.getBean(IPublicationService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        pageable = PageRequest.of(10, pageSize, Sort.by(Sort.Direction.DESC, "publishedAt"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] fullPage() throws Exception {
+        return objectMapper.writeValueAsBytes(publicationService.getPublications(null, PublicationStatus.ACTIVE,
+                null, null, null, pageable));
+    }
+
+    @Benchmark
+    public byte[] summaryPage() throws Exception {
+        return objectMapper.writeValueAsBytes(publicationService.getPublicationSummaries(null, PublicationStatus.ACTIVE,
+                null, null, null, LIST_FIELDS, 200, pageable));
+    }
+}
@@ -0,0 +1,68 @@
+package mmf.publication.app.benchmark;
+
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.service.ViewCountBuffer;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of recording a view. {@code singleLock} is the baseline of one lock around one map,
+ * {@code striped} is {@link ViewCountBuffer#increment(long)} with the journal sync and flush running in
+ * the background on their default intervals. {@code hotIds} concentrates the views on a handful of
+ * publications, like a front page does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ViewCountBufferBenchmark {
+    @Param({"10", "100000"})
+    public int hotIds;
+
+    private ViewCountBuffer viewCountBuffer;
+    private ScheduledExecutorService scheduler;
+    private final Map<Long, long[]> singleLockCounts = new HashMap<>();
+
+    @Setup
+    public void setup() throws IOException {
+        PublicationRepository repository = Mockito.mock(PublicationRepository.class, Mockito.withSettings().stubOnly());
+        String journalDir = Files.createTempDirectory("view-journal").toString();
+        viewCountBuffer = new ViewCountBuffer(repository, event -> {
+        }, journalDir, 64, 500);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(viewCountBuffer::syncJournal, 100, 100, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(viewCountBuffer::flush, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        scheduler.shutdownNow();
+        viewCountBuffer.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void striped() {
+        viewCountBuffer.increment(ThreadLocalRandom.current().nextLong(hotIds));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void singleLock() {
+        long id = ThreadLocalRandom.current().nextLong(hotIds);
+        synchronized (singleLockCounts) {
+            singleLockCounts.computeIfAbsent(id, key -> new long[1])[0]++;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package mmf.publication.app.archive;
+
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Which publications belong in the archive: those INACTIVE and left untouched for
+ * {@code inactiveFor}, and those published more than {@code maxAge} ago, optionally of some types
+ * only. Either rule is off when its duration is zero. A view counts as a touch, since it updates the
+ * publication's {@code updated_at}.
+ */
+public class ArchivePolicy {
+    private final Duration inactiveFor;
+    private final Duration maxAge;
+    private final Set<PublicationType> maxAgeTypes;
+
+    public ArchivePolicy(Duration inactiveFor, Duration maxAge, Collection<PublicationType> maxAgeTypes) {
+        if (inactiveFor.isNegative() || maxAge.isNegative()) {
+            throw new IllegalArgumentException("The archive durations cannot be negative");
+        }
+        this.inactiveFor = inactiveFor;
+        this.maxAge = maxAge;
+        this.maxAgeTypes = maxAgeTypes.isEmpty() ? EnumSet.allOf(PublicationType.class) : EnumSet.copyOf(maxAgeTypes);
+    }
+
+    public boolean isEmpty() {
+        return inactiveFor.isZero() && maxAge.isZero();
+    }
+
+    /**
+     * The SQL condition on the publication table selecting what is due for the archive at
+     * {@code now}, adding its parameters to {@code args}.
+     */
+    String condition(LocalDateTime now, List<Object> args) {
+        List<String> rules = new ArrayList<>();
+        if (!inactiveFor.isZero()) {
+            rules.add("(status = ? AND updated_at < ?)");
+            args.add(PublicationStatus.INACTIVE.name());
+            args.add(Timestamp.valueOf(now.minus(inactiveFor)));
+        }
+        if (!maxAge.isZero()) {
+            StringBuilder rule = new StringBuilder("(published_at < ?");
+            args.add(Timestamp.valueOf(now.minus(maxAge)));
+            if (maxAgeTypes.size() < PublicationType.values().length) {
+                List<String> placeholders = new ArrayList<>();
+                for (PublicationType type : maxAgeTypes) {
+                    placeholders.add("?");
+                    args.add(type.name());
+                }
+                rule.append(" AND type IN (").append(String.join(", ", placeholders)).append(")");
+            }
+            rules.add(rule.append(")").toString());
+        }
+        return rules.isEmpty() ? "1 = 0" : "(" + String.join(" OR ", rules) + ")";
+    }
+}
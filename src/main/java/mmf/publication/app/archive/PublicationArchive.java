@@ -0,0 +1,520 @@
+package mmf.publication.app.archive;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import mmf.publication.app.dto.PublicationSummaryDTO;
+import mmf.publication.app.entity.FrequentWordsConverter;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.KeywordState;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.enums.SummaryField;
+import mmf.publication.app.search.InvertedIndex;
+import mmf.publication.app.specifications.PublicationSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code publication_archive} table, the cold tier of the publications. Rows are moved there
+ * and back under the same id, each move in one transaction that locks the rows it takes, so a
+ * publication is always in exactly one of the tables.
+ * <p>
+ * To keep the archive out of the queries of current traffic, this remembers the range of publish
+ * dates archived per status and type. {@link #mayContain} answers from those ranges alone whether
+ * filters can match an archived row. The ranges widen with every move and are recomputed after every
+ * archiving run. Another instance's moves become visible here after this instance's next run.
+ */
+@Component
+public class PublicationArchive {
+    private static final Logger log = LoggerFactory.getLogger(PublicationArchive.class);
+    static final String COLUMNS = "id, title, description, description_hash, view_count, published_at, updated_at, " +
+            "type, status, frequent_words, keyword_state, version, app_user_id";
+    // Keywords still pending, or still in the legacy table, are written to the publication table later
+    private static final String KEYWORDS_SETTLED =
+            "frequent_words IS NOT NULL AND (keyword_state IS NULL OR keyword_state <> 'PENDING')";
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "id", "title", "title", "viewCount", "view_count", "publishedAt", "published_at",
+            "updatedAt", "updated_at", "type", "type", "status", "status");
+    private static final PublicationType[] TYPES = PublicationType.values();
+
+    private final FrequentWordsConverter frequentWordsConverter = new FrequentWordsConverter();
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Counter queries;
+    private final Counter restored;
+    // Serializes moves with recomputing the ranges, so a recomputation never loses a move's rows
+    private final ReentrantLock moveLock = new ReentrantLock();
+    // Publish dates archived, as [min, max] by status and type; null until loaded, when anything may be archived
+    private volatile LocalDateTime[][] ranges;
+
+    public PublicationArchive(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${publication.archive.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.queries = Counter.builder("publication.archive.queries")
+                .description("Reads that had to look in the archive")
+                .register(meterRegistry);
+        this.restored = Counter.builder("publication.archive.restored")
+                .description("Publications moved back from the archive to be changed")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        moveLock.lock();
+        try {
+            LocalDateTime[][] loaded = new LocalDateTime[PublicationStatus.values().length * TYPES.length][];
+            jdbcTemplate.query("SELECT status, type, MIN(published_at), MAX(published_at) FROM publication_archive " +
+                    "GROUP BY status, type", row -> {
+                loaded[slot(PublicationStatus.valueOf(row.getString(1)), PublicationType.valueOf(row.getString(2)))] =
+                        new LocalDateTime[]{row.getTimestamp(3).toLocalDateTime(), row.getTimestamp(4).toLocalDateTime()};
+            });
+            ranges = loaded;
+        } finally {
+            moveLock.unlock();
+        }
+    }
+
+    /**
+     * False only if no archived publication can match the filters; null filters match everything.
+     */
+    public boolean mayContain(PublicationStatus status, PublicationType type, LocalDateTime startDate, LocalDateTime endDate) {
+        if (!enabled) {
+            return false;
+        }
+        LocalDateTime[][] current = ranges;
+        if (current == null) {
+            return true;
+        }
+        for (PublicationStatus candidateStatus : PublicationStatus.values()) {
+            for (PublicationType candidateType : TYPES) {
+                LocalDateTime[] range = current[slot(candidateStatus, candidateType)];
+                if (range != null && (status == null || status == candidateStatus) && (type == null || type == candidateType)
+                        && (startDate == null || !range[1].isBefore(startDate))
+                        && (endDate == null || !range[0].isAfter(endDate))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public Optional<Publication> findById(long id) {
+        if (!mayContain(null, null, null, null)) {
+            return Optional.empty();
+        }
+        queries.increment();
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM publication_archive WHERE id = ?", this::mapRow, id)
+                .stream().findFirst();
+    }
+
+    public Optional<Long> findVersionById(long id) {
+        if (!mayContain(null, null, null, null)) {
+            return Optional.empty();
+        }
+        queries.increment();
+        return jdbcTemplate.queryForList("SELECT version FROM publication_archive WHERE id = ?", Long.class, id)
+                .stream().findFirst();
+    }
+
+    public List<Publication> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty() || !mayContain(null, null, null, null)) {
+            return List.of();
+        }
+        queries.increment();
+        return namedJdbcTemplate.query("SELECT " + COLUMNS + " FROM publication_archive WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids), this::mapRow);
+    }
+
+    /**
+     * Up to {@code limit} archived publications matching the filters from {@code offset} on, in the
+     * given order or else by id. The search matches titles and descriptions like the database
+     * search of the publication table does, for when the search index is not ready.
+     */
+    public List<Publication> findAll(String search, PublicationStatus status, PublicationType type,
+                                     LocalDateTime startDate, LocalDateTime endDate,
+                                     long offset, int limit, Sort sort) {
+        List<Object> args = new ArrayList<>();
+        List<String> conditions = conditions(args, search, null, status, type, startDate, endDate);
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM publication_archive");
+        where(sql, conditions);
+        orderBy(sql, sort.isSorted() ? sort : Sort.by("id"));
+        sql.append(" LIMIT ? OFFSET ?");
+        args.add(limit);
+        args.add(offset);
+        queries.increment();
+        return jdbcTemplate.query(sql.toString(), this::mapRow, args.toArray());
+    }
+
+    /**
+     * Up to {@code limit} archived publications matching the filters strictly after the row with
+     * {@code afterValue} and {@code afterId} in {@code sort}, or from the first one if
+     * {@code afterValue} is null. The sort is by id, or by a cursor property and then id in the same
+     * direction. Non-null {@code ids} stand in for the search, as the hits of the search index do.
+     */
+    public List<Publication> findAfter(String search, Collection<Long> ids, PublicationStatus status, PublicationType type,
+                                       LocalDateTime startDate, LocalDateTime endDate,
+                                       Sort sort, Comparable<?> afterValue, long afterId, int limit) {
+        if (ids != null && ids.isEmpty()) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>();
+        List<String> conditions = conditions(args, search, ids, status, type, startDate, endDate);
+        if (afterValue != null) {
+            Sort.Order order = sort.iterator().next();
+            String column = sortColumn(order.getProperty());
+            String beyond = order.isAscending() ? " > ?" : " < ?";
+            if (column.equals("id")) {
+                conditions.add("id" + beyond);
+                args.add(afterId);
+            } else {
+                Object value = afterValue instanceof LocalDateTime dateTime ? Timestamp.valueOf(dateTime) : afterValue;
+                conditions.add("(" + column + beyond + " OR (" + column + " = ? AND id" + beyond + "))");
+                args.add(value);
+                args.add(value);
+                args.add(afterId);
+            }
+        }
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM publication_archive");
+        where(sql, conditions);
+        orderBy(sql, sort);
+        sql.append(" LIMIT ?");
+        args.add(limit);
+        queries.increment();
+        return jdbcTemplate.query(sql.toString(), this::mapRow, args.toArray());
+    }
+
+    /**
+     * The ids of up to {@code limit} publications of both tables matching the filters from
+     * {@code offset} on, in the given order and then by id. The database sorts and pages the union
+     * of the tables, so only the ids of the page are read however deep it is. Non-null {@code ids}
+     * stand in for the search, as the hits of the search index do.
+     */
+    public List<Long> findIdsWithCurrent(String search, Collection<Long> ids, PublicationStatus status, PublicationType type,
+                                         LocalDateTime startDate, LocalDateTime endDate,
+                                         Sort sort, long offset, int limit) {
+        if (ids != null && ids.isEmpty()) {
+            return List.of();
+        }
+        Sort byIdLast = sort.getOrderFor("id") == null ? sort.and(Sort.by("id")) : sort;
+        List<String> columns = new ArrayList<>();
+        for (Sort.Order order : byIdLast) {
+            String column = sortColumn(order.getProperty());
+            if (!columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+        String select = "SELECT " + String.join(", ", columns) + " FROM ";
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT id FROM (").append(select).append("publication");
+        where(sql, conditions(args, search, ids, status, type, startDate, endDate));
+        sql.append(" UNION ALL ").append(select).append("publication_archive");
+        where(sql, conditions(args, search, ids, status, type, startDate, endDate));
+        sql.append(") AS publications");
+        orderBy(sql, byIdLast);
+        sql.append(" LIMIT ? OFFSET ?");
+        args.add(limit);
+        args.add(offset);
+        queries.increment();
+        return jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+    }
+
+    /**
+     * The summaries of up to {@code limit} archived publications matching the filters from
+     * {@code offset} on, by id, reading only the columns of the fields.
+     */
+    public List<PublicationSummaryDTO> findSummaries(String search, PublicationStatus status, PublicationType type,
+                                                     LocalDateTime startDate, LocalDateTime endDate,
+                                                     Set<SummaryField> fields, int excerptLength, long offset, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(summarySelect(fields, excerptLength));
+        where(sql, conditions(args, search, null, status, type, startDate, endDate));
+        sql.append(" ORDER BY id LIMIT ? OFFSET ?");
+        args.add(limit);
+        args.add(offset);
+        queries.increment();
+        return jdbcTemplate.query(sql.toString(), (row, rowNum) -> mapSummary(row, fields, excerptLength), args.toArray());
+    }
+
+    public List<PublicationSummaryDTO> findSummariesById(Collection<Long> ids, Set<SummaryField> fields, int excerptLength) {
+        if (ids.isEmpty() || !mayContain(null, null, null, null)) {
+            return List.of();
+        }
+        queries.increment();
+        return namedJdbcTemplate.query(summarySelect(fields, excerptLength) + " WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids), (row, rowNum) -> mapSummary(row, fields, excerptLength));
+    }
+
+    public long count(String search, PublicationStatus status, PublicationType type,
+                      LocalDateTime startDate, LocalDateTime endDate) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM publication_archive");
+        where(sql, conditions(args, search, null, status, type, startDate, endDate));
+        queries.increment();
+        Long count = jdbcTemplate.queryForObject(sql.toString(), Long.class, args.toArray());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * The order of {@link #findAll} as a comparator, for merging archived publications with those of
+     * the publication table.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Comparator<Publication> comparator(Sort sort) {
+        Comparator<Publication> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            String property = order.getProperty();
+            sortColumn(property);
+            Comparator<Publication> byProperty = Comparator.comparing(
+                    publication -> (Comparable) sortValue(publication, property),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    private static Comparable<?> sortValue(Publication publication, String property) {
+        return switch (property) {
+            case "id" -> publication.getId();
+            case "title" -> publication.getTitle();
+            case "viewCount" -> publication.getViewCount();
+            case "publishedAt" -> publication.getPublishedAt();
+            case "updatedAt" -> publication.getUpdatedAt();
+            // Enums are stored, and so sorted, by name
+            case "type" -> publication.getType() == null ? null : publication.getType().name();
+            case "status" -> publication.getStatus() == null ? null : publication.getStatus().name();
+            default -> throw new IllegalArgumentException("The archive cannot sort by " + property);
+        };
+    }
+
+    /**
+     * Moves the next publications after {@code afterId} the policy selects at {@code now}, at most
+     * {@code batchSize} of them, in one transaction.
+     *
+     * @return the ids moved, ascending
+     */
+    List<Long> moveBatch(ArchivePolicy policy, LocalDateTime now, long afterId, int batchSize) {
+        moveLock.lock();
+        try {
+            List<Object[]> moved = transactionTemplate.execute(status -> {
+                List<Object> args = new ArrayList<>();
+                args.add(afterId);
+                String condition = policy.condition(now, args);
+                args.add(batchSize);
+                List<Object[]> rows = jdbcTemplate.query("SELECT id, status, type, published_at FROM publication " +
+                                "WHERE id > ? AND " + condition + " AND " + KEYWORDS_SETTLED + " ORDER BY id LIMIT ? FOR UPDATE",
+                        (row, rowNum) -> new Object[]{row.getLong(1), PublicationStatus.valueOf(row.getString(2)),
+                                PublicationType.valueOf(row.getString(3)), row.getTimestamp(4).toLocalDateTime()},
+                        args.toArray());
+                if (rows.isEmpty()) {
+                    return rows;
+                }
+
+                List<Long> ids = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    ids.add((Long) row[0]);
+                }
+                MapSqlParameterSource params = new MapSqlParameterSource("ids", ids)
+                        .addValue("archivedAt", Timestamp.valueOf(LocalDateTime.now()));
+                namedJdbcTemplate.update("INSERT INTO publication_archive (" + COLUMNS + ", archived_at) SELECT " +
+                        COLUMNS + ", :archivedAt FROM publication WHERE id IN (:ids)", params);
+                namedJdbcTemplate.update("DELETE FROM publication WHERE id IN (:ids)", params);
+                return rows;
+            });
+
+            List<Long> ids = new ArrayList<>(moved.size());
+            for (Object[] row : moved) {
+                ids.add((Long) row[0]);
+                widen((PublicationStatus) row[1], (PublicationType) row[2], (LocalDateTime) row[3]);
+            }
+            return ids;
+        } finally {
+            moveLock.unlock();
+        }
+    }
+
+    /**
+     * Moves the publication back to the publication table, if it is archived.
+     *
+     * @return false if it was not in the archive
+     */
+    public boolean restore(long id) {
+        if (!mayContain(null, null, null, null)) {
+            return false;
+        }
+        Boolean moved = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.queryForList("SELECT id FROM publication_archive WHERE id = ? FOR UPDATE", Long.class, id).isEmpty()) {
+                return false;
+            }
+            jdbcTemplate.update("INSERT INTO publication (" + COLUMNS + ") SELECT " + COLUMNS +
+                    " FROM publication_archive WHERE id = ?", id);
+            jdbcTemplate.update("DELETE FROM publication_archive WHERE id = ?", id);
+            return true;
+        });
+        if (Boolean.TRUE.equals(moved)) {
+            restored.increment();
+            log.debug("Publication {} restored from the archive", id);
+            return true;
+        }
+        return false;
+    }
+
+    private void widen(PublicationStatus status, PublicationType type, LocalDateTime publishedAt) {
+        LocalDateTime[][] current = ranges;
+        if (current == null) {
+            return;
+        }
+        LocalDateTime[][] widened = current.clone();
+        LocalDateTime[] range = widened[slot(status, type)];
+        widened[slot(status, type)] = range == null ? new LocalDateTime[]{publishedAt, publishedAt} :
+                new LocalDateTime[]{publishedAt.isBefore(range[0]) ? publishedAt : range[0],
+                        publishedAt.isAfter(range[1]) ? publishedAt : range[1]};
+        ranges = widened;
+    }
+
+    private static int slot(PublicationStatus status, PublicationType type) {
+        return status.ordinal() * TYPES.length + type.ordinal();
+    }
+
+    private static List<String> conditions(List<Object> args, String search, Collection<Long> ids,
+                                           PublicationStatus status, PublicationType type,
+                                           LocalDateTime startDate, LocalDateTime endDate) {
+        List<String> conditions = new ArrayList<>();
+        if (ids != null) {
+            conditions.add("id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")");
+            args.addAll(ids);
+        } else if (search != null && !search.isEmpty()) {
+            // Every word somewhere, as PublicationSpecification.hasTitleOrDescriptionContaining matches
+            List<String> words = InvertedIndex.tokenize(search);
+            if (words.isEmpty()) {
+                conditions.add("1 = 0");
+            }
+            for (String word : words) {
+                conditions.add("(LOWER(title) LIKE ? ESCAPE '" + PublicationSpecification.LIKE_ESCAPE +
+                        "' OR LOWER(description) LIKE ? ESCAPE '" + PublicationSpecification.LIKE_ESCAPE + "')");
+                String pattern = PublicationSpecification.containing(word);
+                args.add(pattern);
+                args.add(pattern);
+            }
+        }
+        if (status != null) {
+            conditions.add("status = ?");
+            args.add(status.name());
+        }
+        if (type != null) {
+            conditions.add("type = ?");
+            args.add(type.name());
+        }
+        if (startDate != null) {
+            conditions.add("published_at >= ?");
+            args.add(Timestamp.valueOf(startDate));
+        }
+        if (endDate != null) {
+            conditions.add("published_at <= ?");
+            args.add(Timestamp.valueOf(endDate));
+        }
+        return conditions;
+    }
+
+    private static void where(StringBuilder sql, List<String> conditions) {
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+    }
+
+    private static void orderBy(StringBuilder sql, Sort sort) {
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(sortColumn(order.getProperty()) + (order.isAscending() ? " ASC" : " DESC"));
+        }
+        sql.append(" ORDER BY ").append(String.join(", ", orders));
+    }
+
+    private static String sortColumn(String property) {
+        String column = SORT_COLUMNS.get(property);
+        if (column == null) {
+            throw new IllegalArgumentException("The archive cannot sort by " + property);
+        }
+        return column;
+    }
+
+    private static String summarySelect(Set<SummaryField> fields, int excerptLength) {
+        StringBuilder select = new StringBuilder("SELECT id");
+        for (SummaryField field : fields) {
+            select.append(", ").append(field == SummaryField.EXCERPT ?
+                    // One character more than the excerpt tells whether the description goes on
+                    "SUBSTRING(description, 1, " + (excerptLength + 1) + ") AS excerpt" :
+                    sortColumn(field.getProperty()));
+        }
+        return select.append(" FROM publication_archive").toString();
+    }
+
+    private static PublicationSummaryDTO mapSummary(ResultSet row, Set<SummaryField> fields, int excerptLength)
+            throws SQLException {
+        PublicationSummaryDTO summary = new PublicationSummaryDTO(row.getLong("id"));
+        for (SummaryField field : fields) {
+            switch (field) {
+                case TITLE -> summary.setTitle(row.getString("title"));
+                case EXCERPT -> {
+                    String excerpt = row.getString("excerpt");
+                    boolean truncated = excerpt.length() > excerptLength;
+                    summary.setExcerpt(truncated ? excerpt.substring(0, excerptLength) : excerpt, truncated);
+                }
+                case VIEW_COUNT -> summary.setViewCount(row.getInt("view_count"));
+                case PUBLISHED_AT -> summary.setPublishedAt(row.getTimestamp("published_at").toLocalDateTime());
+                case UPDATED_AT -> summary.setUpdatedAt(row.getTimestamp("updated_at").toLocalDateTime());
+                case TYPE -> summary.setType(PublicationType.valueOf(row.getString("type")));
+                case STATUS -> summary.setStatus(PublicationStatus.valueOf(row.getString("status")));
+            }
+        }
+        return summary;
+    }
+
+    private Publication mapRow(ResultSet row, int rowNum) throws SQLException {
+        Publication publication = new Publication(row.getLong("id"), row.getString("title"), row.getString("description"),
+                row.getInt("view_count"), row.getTimestamp("published_at").toLocalDateTime(),
+                row.getTimestamp("updated_at").toLocalDateTime(), PublicationType.valueOf(row.getString("type")),
+                PublicationStatus.valueOf(row.getString("status")),
+                frequentWordsConverter.convertToEntityAttribute(row.getString("frequent_words")));
+        String keywordState = row.getString("keyword_state");
+        publication.setKeywordState(keywordState == null ? null : KeywordState.valueOf(keywordState));
+        publication.setVersion(row.getLong("version"));
+        return publication;
+    }
+}
@@ -0,0 +1,111 @@
+package mmf.publication.app.archive;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.events.PublicationsArchivedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves the publications the {@link ArchivePolicy} selects to the {@link PublicationArchive} in
+ * the background. Each run walks the publication table by id in batches of {@code batchSize}, one
+ * transaction each, pausing {@code batchPause} between them so the moves never crowd out current
+ * traffic. A run stops after {@code maxBatchesPerRun} batches and the next one resumes from the
+ * last id moved; once a walk reaches the end of the table the next starts over. A batch either
+ * moves entirely or not at all, so a crash at any point loses nothing.
+ * <p>
+ * An update of an archived publication moves it back, and the next walk takes it again if the
+ * policy still selects it.
+ */
+@Component
+public class PublicationArchiver {
+    private static final Logger log = LoggerFactory.getLogger(PublicationArchiver.class);
+
+    private final PublicationArchive archive;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ArchivePolicy policy;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long batchPauseMillis;
+    private final Counter movedCounter;
+    private final Timer batchTimer;
+    private final AtomicLong lastId = new AtomicLong();
+
+    public PublicationArchiver(PublicationArchive archive, ApplicationEventPublisher eventPublisher,
+                               MeterRegistry meterRegistry,
+                               @Value("${publication.archive.inactive-for:0d}") Duration inactiveFor,
+                               @Value("${publication.archive.max-age:0d}") Duration maxAge,
+                               @Value("${publication.archive.max-age-types:}") List<PublicationType> maxAgeTypes,
+                               @Value("${publication.archive.batch-size:500}") int batchSize,
+                               @Value("${publication.archive.max-batches-per-run:100}") int maxBatchesPerRun,
+                               @Value("${publication.archive.batch-pause:100ms}") Duration batchPause) {
+        this.archive = archive;
+        this.eventPublisher = eventPublisher;
+        this.policy = new ArchivePolicy(inactiveFor, maxAge, maxAgeTypes);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.batchPauseMillis = batchPause.toMillis();
+        this.movedCounter = Counter.builder("publication.archive.moved")
+                .description("Publications moved to the archive")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("publication.archive.batch")
+                .description("Time to move one batch of publications to the archive")
+                .register(meterRegistry);
+        meterRegistry.gauge("publication.archive.position", lastId);
+    }
+
+    /**
+     * Runs up to {@code maxBatchesPerRun} batches and recomputes the archive's date ranges.
+     *
+     * @return the number of publications moved
+     */
+    @Scheduled(initialDelayString = "${publication.archive.interval-ms:60000}",
+            fixedDelayString = "${publication.archive.interval-ms:60000}")
+    public synchronized int archive() {
+        if (!archive.isEnabled() || policy.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        int moved = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                if (batch > 0 && batchPauseMillis > 0) {
+                    Thread.sleep(batchPauseMillis);
+                }
+                List<Long> ids = batchTimer.record(() -> archive.moveBatch(policy, now, lastId.get(), batchSize));
+                if (ids.isEmpty()) {
+                    lastId.set(0);
+                    break;
+                }
+                lastId.set(ids.get(ids.size() - 1));
+                moved += ids.size();
+                movedCounter.increment(ids.size());
+                eventPublisher.publishEvent(new PublicationsArchivedEvent(ids));
+                if (ids.size() < batchSize) {
+                    lastId.set(0);
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            archive.refresh();
+        }
+        if (moved > 0) {
+            log.info("Moved {} publications to the archive in {} ms", moved, (System.nanoTime() - start) / 1_000_000);
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,90 @@
+package mmf.publication.app.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import mmf.publication.app.datasource.ReplicaRoutingDataSource;
+import mmf.publication.app.service.PublicationCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Admits requests to {@code /api/*} through an {@link AdmissionControlFilter}. Reads answered from
+ * memory (the statistics, trending keywords, cached publications) and view increments, which only
+ * touch the view buffer, skip it; exports and bulk ingests share {@code max-streaming} permits
+ * taken out of the pool, the other requests the rest of it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "publication.admission.enabled", matchIfMissing = true)
+public class AdmissionControlConfig {
+    private static final int DEFAULT_POOL_SIZE = 10;
+    private static final Pattern PUBLICATION_PATH = Pattern.compile("/api/publications/(\\d{1,18})");
+    private static final Pattern VIEW_PATH = Pattern.compile("/api/publications/\\d+/view");
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            DataSource dataSource, MeterRegistry meterRegistry, PublicationCache publicationCache,
+            @Value("${publication.admission.max-concurrent:0}") int maxConcurrent,
+            @Value("${publication.admission.max-streaming:2}") int maxStreaming,
+            @Value("${publication.admission.max-queue:200}") int maxQueue,
+            @Value("${publication.admission.max-wait-ms:1000}") long maxWaitMillis) {
+        // By default admit as many requests as the pool has connections left after the streams
+        if (maxConcurrent <= 0) {
+            maxConcurrent = Math.max(1, poolSize(dataSource) - maxStreaming);
+        }
+
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(maxConcurrent, maxStreaming, maxQueue, maxWaitMillis,
+                        request -> isAnsweredFromMemory(request, publicationCache), AdmissionControlConfig::isStreaming,
+                        meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    private static boolean isAnsweredFromMemory(HttpServletRequest request, PublicationCache publicationCache) {
+        String path = path(request);
+        if (HttpMethod.PATCH.matches(request.getMethod())) {
+            return VIEW_PATH.matcher(path).matches();
+        }
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return false;
+        }
+        if (path.equals("/api/publications/stats") || path.equals("/api/keywords/trending")) {
+            return true;
+        }
+        Matcher publication = PUBLICATION_PATH.matcher(path);
+        return publication.matches() && publicationCache.contains(Long.parseLong(publication.group(1)));
+    }
+
+    private static boolean isStreaming(HttpServletRequest request) {
+        String path = path(request);
+        return (HttpMethod.GET.matches(request.getMethod()) && path.equals("/api/publications/export"))
+                || (HttpMethod.POST.matches(request.getMethod()) && path.equals("/api/publications/batch"));
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        if (dataSource instanceof LazyConnectionDataSourceProxy proxy) {
+            dataSource = proxy.getTargetDataSource();
+        }
+        // Writes, and reads while the replica is down, all need a primary connection
+        if (dataSource instanceof ReplicaRoutingDataSource routing) {
+            dataSource = routing.getPrimary();
+        }
+        // Hikari reports -1 until the pool has started and settled its defaults
+        int poolSize = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 0;
+        return poolSize > 0 ? poolSize : DEFAULT_POOL_SIZE;
+    }
+}
@@ -0,0 +1,140 @@
+package mmf.publication.app.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Lets at most as many requests run as there are database connections. Further requests wait in
+ * a bounded FIFO queue for up to {@code maxWaitMillis}, which costs next to nothing on virtual
+ * threads, and are turned away with 503 when the queue is full or the wait runs out, instead of
+ * piling up inside the connection pool where nobody can see them.
+ * <p>
+ * Requests that never touch the database skip the filter. Streaming requests hold their connection
+ * for as long as the stream runs, so they get permits of their own and cannot starve short ones.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private final Lane requests;
+    private final Lane streams;
+    private final Predicate<HttpServletRequest> exempt;
+    private final Predicate<HttpServletRequest> streaming;
+    private final int maxQueue;
+    private final long maxWaitMillis;
+    private final Timer waitTimer;
+
+    public AdmissionControlFilter(int maxConcurrent, int maxQueue, long maxWaitMillis, MeterRegistry meterRegistry) {
+        this(maxConcurrent, 0, maxQueue, maxWaitMillis, request -> false, request -> false, meterRegistry);
+    }
+
+    public AdmissionControlFilter(int maxConcurrent, int maxStreaming, int maxQueue, long maxWaitMillis,
+                                  Predicate<HttpServletRequest> exempt, Predicate<HttpServletRequest> streaming,
+                                  MeterRegistry meterRegistry) {
+        this.maxQueue = maxQueue;
+        this.maxWaitMillis = maxWaitMillis;
+        this.exempt = exempt;
+        this.streaming = streaming;
+        this.waitTimer = Timer.builder("publication.admission.wait")
+                .description("Time requests waited to be admitted")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.requests = new Lane(maxConcurrent, Counter.builder("publication.admission.rejected")
+                .description("Requests turned away with 503")
+                .register(meterRegistry));
+        this.streams = new Lane(maxStreaming, Counter.builder("publication.admission.streaming.rejected")
+                .description("Streaming requests turned away with 503")
+                .register(meterRegistry));
+        Gauge.builder("publication.admission.queue", requests.waiting, AtomicInteger::get)
+                .description("Requests waiting to be admitted")
+                .register(meterRegistry);
+        Gauge.builder("publication.admission.active", requests, Lane::active)
+                .description("Requests currently admitted")
+                .register(meterRegistry);
+        Gauge.builder("publication.admission.streaming.active", streams, Lane::active)
+                .description("Streaming requests currently admitted")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (exempt.test(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Lane lane = streaming.test(request) ? streams : requests;
+        if (!admit(lane)) {
+            lane.rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server is busy, retry later");
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            lane.permits.release();
+        }
+    }
+
+    private boolean admit(Lane lane) {
+        if (lane.permits.tryAcquire()) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return true;
+        }
+        if (lane.waiting.incrementAndGet() > maxQueue) {
+            lane.waiting.decrementAndGet();
+            return false;
+        }
+
+        long start = System.nanoTime();
+        try {
+            return lane.permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lane.waiting.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public int getMaxConcurrent() {
+        return requests.maxConcurrent;
+    }
+
+    public int getMaxStreaming() {
+        return streams.maxConcurrent;
+    }
+
+    private static final class Lane {
+        private final Semaphore permits;
+        private final int maxConcurrent;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Counter rejected;
+
+        private Lane(int maxConcurrent, Counter rejected) {
+            this.permits = new Semaphore(maxConcurrent, true);
+            this.maxConcurrent = maxConcurrent;
+            this.rejected = rejected;
+        }
+
+        private int active() {
+            return maxConcurrent - permits.availablePermits();
+        }
+    }
+}
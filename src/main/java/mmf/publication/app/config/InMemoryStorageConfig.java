@@ -0,0 +1,35 @@
+package mmf.publication.app.config;
+
+import mmf.publication.app.repository.memory.InMemoryPublicationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Keeps publications in memory instead of the database with {@code publication.storage=memory},
+ * for load tests of the service layer at sizes a test database cannot hold. Users stay in the
+ * configured database, for which an embedded one will do; the database-backed repository is still
+ * created but no longer injected.
+ */
+@Configuration
+@ConditionalOnProperty(name = "publication.storage", havingValue = "memory")
+public class InMemoryStorageConfig {
+    /**
+     * The keyword pipeline and the archive write to the tables directly, so they cannot run on top of this.
+     */
+    @Bean
+    @Primary
+    public InMemoryPublicationRepository inMemoryPublicationRepository(
+            @Value("${publication.keywords.async:false}") boolean asyncKeywords,
+            @Value("${publication.archive.enabled:false}") boolean archive) {
+        if (asyncKeywords) {
+            throw new IllegalStateException("publication.keywords.async cannot be enabled with publication.storage=memory");
+        }
+        if (archive) {
+            throw new IllegalStateException("publication.archive.enabled cannot be set with publication.storage=memory");
+        }
+        return new InMemoryPublicationRepository();
+    }
+}
@@ -0,0 +1,84 @@
+package mmf.publication.app.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import mmf.publication.app.datasource.ReadYourWritesFilter;
+import mmf.publication.app.datasource.Replica;
+import mmf.publication.app.datasource.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+/**
+ * Sends read-only transactions to a replica once {@code publication.datasource.replica.url} is set.
+ * The primary keeps its usual {@code spring.datasource} settings; the replica pool takes its
+ * settings from {@code publication.datasource.replica.hikari} and the primary's credentials unless
+ * it has its own.
+ */
+@Configuration
+@ConditionalOnProperty(name = "publication.datasource.replica.url")
+public class ReplicaRoutingConfig {
+    private static final Pattern VIEW_PATH = Pattern.compile("/api/publications/\\d+/view");
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public Replica replica(
+            Environment environment, MeterRegistry meterRegistry,
+            @Value("${publication.datasource.replica.url}") String url,
+            @Value("${publication.datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${publication.datasource.replica.password:${spring.datasource.password:}}") String password,
+            @Value("${publication.datasource.replica.validation-timeout:1s}") Duration validationTimeout) {
+        HikariDataSource pool = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url).username(username).password(password).build();
+        pool.setPoolName("replica");
+        pool.setReadOnly(true);
+        Binder.get(environment).bind("publication.datasource.replica.hikari", Bindable.ofInstance(pool));
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new Replica(pool, validationTimeout, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, Replica replica, MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryDataSource, replica, meterRegistry));
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${publication.datasource.replica.sticky-window:5s}") Duration stickyWindow) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(stickyWindow, ReplicaRoutingConfig::isViewCount));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    /**
+     * A view only adds to the pending count, which every read includes whichever database serves it.
+     */
+    private static boolean isViewCount(HttpServletRequest request) {
+        return "PATCH".equals(request.getMethod()) && VIEW_PATH.matcher(request.getRequestURI()).matches();
+    }
+}
@@ -0,0 +1,25 @@
+package mmf.publication.app.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mmf.publication.app.metrics.RequestMetricsFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class RequestMetricsConfig {
+    @Bean
+    public FilterRegistrationBean<RequestMetricsFilter> requestMetricsFilter(
+            MeterRegistry meterRegistry,
+            @Value("${publication.metrics.slow-request.enabled:false}") boolean slowLogEnabled,
+            @Value("${publication.metrics.slow-request.threshold:500ms}") Duration slowThreshold,
+            @Value("${publication.metrics.slow-request.max-statements:50}") int maxLoggedStatements) {
+        FilterRegistrationBean<RequestMetricsFilter> registration = new FilterRegistrationBean<>(
+                new RequestMetricsFilter(meterRegistry, slowLogEnabled, slowThreshold, maxLoggedStatements));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
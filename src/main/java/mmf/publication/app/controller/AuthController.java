@@ -1,13 +1,18 @@
 package mmf.publication.app.controller;
 
 import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.exceptions.UsernameTakenException;
 import mmf.publication.app.service.AppUserService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -19,7 +24,17 @@ public class AuthController {
 
     @PostMapping("/register")
     public ResponseEntity<String> register(@RequestBody AppUserDTO userDTO) {
-        appUserService.registerUser(userDTO);
+        try {
+            appUserService.registerUser(userDTO);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        } catch (UsernameTakenException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        } catch (RejectedExecutionException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Server is busy, retry later");
+        }
         return ResponseEntity.ok("User registered successfully!");
     }
 }
@@ -0,0 +1,41 @@
+package mmf.publication.app.controller;
+
+import mmf.publication.app.dto.TrendingKeywordDTO;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.service.IPublicationService;
+import org.springframework.format.annotation.DurationFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/keywords")
+public class KeywordController {
+    private static final int MAX_TRENDING_LIMIT = 100;
+
+    private final IPublicationService publicationService;
+
+    public KeywordController(IPublicationService publicationService) {
+        this.publicationService = publicationService;
+    }
+
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingKeywordDTO>> getTrendingKeywords(
+            @RequestParam(required = false) PublicationType type,
+            @RequestParam(defaultValue = "1h") @DurationFormat(style = DurationFormat.Style.SIMPLE) Duration window,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_TRENDING_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(publicationService.getTrendingKeywords(type, window, limit));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
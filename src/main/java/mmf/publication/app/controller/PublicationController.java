@@ -1,41 +1,87 @@
 package mmf.publication.app.controller;
 
+import mmf.publication.app.dto.BatchIngestResult;
+import mmf.publication.app.dto.CursorPage;
 import mmf.publication.app.dto.PublicationDTO;
 import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.dto.PublicationStatsDTO;
+import mmf.publication.app.dto.PublicationSummaryDTO;
+import mmf.publication.app.dto.SimilarPublicationDTO;
+import mmf.publication.app.enums.ExportFormat;
 import mmf.publication.app.enums.PublicationStatus;
 import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.enums.SummaryField;
 import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.service.IPublicationIngestService;
 import mmf.publication.app.service.IPublicationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/publications")
 public class PublicationController {
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+    private static final int MAX_EXCERPT_LENGTH = 2000;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_SIMILAR_LIMIT = 100;
+    private static final String SMILE_VALUE = "application/x-jackson-smile";
+    private static final String CBOR_VALUE = "application/cbor";
 
     private final IPublicationService publicationService;
+    private final IPublicationIngestService publicationIngestService;
 
     @Autowired
-    public PublicationController(IPublicationService publicationService) {
+    public PublicationController(IPublicationService publicationService, IPublicationIngestService publicationIngestService) {
         this.publicationService = publicationService;
+        this.publicationIngestService = publicationIngestService;
     }
 
+    /**
+     * A client that sends the ETag it holds gets 304 after a version lookup, without the
+     * publication being loaded or serialized. The tag is weak; to update, a client sends the
+     * version of the body in quotes as {@code If-Match}.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<PublicationDTO> getPublication(@PathVariable Long id) {
+    public ResponseEntity<PublicationDTO> getPublication(
+            @PathVariable Long id, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            WebRequest request) {
         try {
+            if (ifNoneMatch != null && request.checkNotModified(PublicationETags.weak(publicationService.getPublicationVersion(id)))) {
+                return null;
+            }
             PublicationDTO publication = publicationService.getPublication(id);
-            return ResponseEntity.ok(publication);
+            return ResponseEntity.ok().eTag(PublicationETags.weak(publication.getVersion()))
+                    .varyBy(HttpHeaders.ACCEPT).body(publication);
         } catch (PublicationNotFoundException ex) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Answered in JSON, Smile or CBOR as the {@code Accept} header asks; the ETag follows the
+     * publications rather than the bytes, so the response varies by {@code Accept} for caches.
+     */
     @GetMapping
     public ResponseEntity<Page<PublicationDTO>> getPublications(
             @RequestParam(required = false) String search,
@@ -44,29 +90,182 @@ public class PublicationController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             Pageable pageable) {
-        return ResponseEntity.ok(publicationService.getPublications(search, status, type, startDate, endDate, pageable));
+        // Spring answers If-None-Match from the ETag before the page is serialized
+        try {
+            Page<PublicationDTO> page = publicationService.getPublications(search, status, type, startDate, endDate, pageable);
+            return ResponseEntity.ok()
+                    .eTag(PublicationETags.of(page.getContent(), page.getTotalElements(), page.getNumber(), page.getSize()))
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(page);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * The same filters as the list, answered with summaries: only the requested {@code fields}
+     * (all of them by default) and an excerpt of the description cut by the database.
+     */
+    @GetMapping("/summaries")
+    public ResponseEntity<Page<PublicationSummaryDTO>> getPublicationSummaries(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) PublicationStatus status,
+            @RequestParam(required = false) PublicationType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(defaultValue = "200") int excerptLength,
+            Pageable pageable) {
+        if (excerptLength < 1 || excerptLength > MAX_EXCERPT_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+        Set<SummaryField> summaryFields = EnumSet.allOf(SummaryField.class);
+        if (fields != null && !fields.isEmpty()) {
+            summaryFields = EnumSet.noneOf(SummaryField.class);
+            try {
+                for (String field : fields) {
+                    summaryFields.add(SummaryField.fromProperty(field.trim()));
+                }
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        try {
+            return ResponseEntity.ok(publicationService.getPublicationSummaries(search, status, type, startDate, endDate,
+                    summaryFields, excerptLength, pageable));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<PublicationStatsDTO> getPublicationStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(publicationService.getPublicationStats(from, to));
+    }
+
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<PublicationDTO>> getPublicationsByCursor(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) PublicationStatus status,
+            @RequestParam(required = false) PublicationType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Sort sort) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            CursorPage<PublicationDTO> page = publicationService.getPublicationsByCursor(search, status, type,
+                    startDate, endDate, cursor, size, sort);
+            return ResponseEntity.ok()
+                    .eTag(PublicationETags.of(page.getContent(), page.getNextCursor(), page.getPreviousCursor()))
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(page);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/export")
+    public void exportPublications(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) PublicationStatus status,
+            @RequestParam(required = false) PublicationType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) Long afterId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"publications." + format.name().toLowerCase() + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            GZIPOutputStream gzip = new GZIPOutputStream(response.getOutputStream(), EXPORT_BUFFER_SIZE);
+            publicationService.exportPublications(search, status, type, startDate, endDate, afterId, format, gzip);
+            gzip.finish();
+        } else {
+            publicationService.exportPublications(search, status, type, startDate, endDate, afterId, format,
+                    response.getOutputStream());
+        }
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BatchIngestResult> ingestPublications(InputStream ndjson) throws IOException {
+        return ResponseEntity.ok(publicationIngestService.ingest(ndjson));
     }
 
     @PostMapping("/{username}")
     public ResponseEntity<PublicationDTO> createPublication(@RequestBody PublicationRequest request, @PathVariable String username) {
-        return ResponseEntity.ok(publicationService.createPublication(request, username));
+        PublicationDTO publication = publicationService.createPublication(request, username);
+        return ResponseEntity.ok().eTag(PublicationETags.of(publication.getVersion())).body(publication);
     }
 
+    /**
+     * With {@code If-Match}, the update only goes through if the publication is still at that
+     * version and otherwise fails with 412; without it, an update that races another one fails
+     * with 409 rather than silently overwriting it.
+     */
     @PutMapping("/{id}")
     public ResponseEntity<PublicationDTO> updatePublication(
-            @PathVariable Long id, @RequestBody PublicationRequest request) {
+            @PathVariable Long id, @RequestBody PublicationRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            return ResponseEntity.ok(publicationService.updatePublication(id, request));
+            return updated(publicationService.updatePublication(id, request, expectedVersion(ifMatch)));
         } catch (PublicationNotFoundException ex) {
             return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException | OptimisticLockingFailureException ex) {
+            return conflict(ifMatch);
+        }
+    }
+
+    /**
+     * Changes only the fields present in the body, so a client can change the title or status
+     * without sending the description back.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json",
+            SMILE_VALUE, CBOR_VALUE})
+    public ResponseEntity<PublicationDTO> patchPublication(
+            @PathVariable Long id, @RequestBody PublicationRequest patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            return updated(publicationService.patchPublication(id, patch, expectedVersion(ifMatch)));
+        } catch (PublicationNotFoundException ex) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException | OptimisticLockingFailureException ex) {
+            return conflict(ifMatch);
         }
     }
 
     @PatchMapping("/{id}/status")
     public ResponseEntity<PublicationDTO> updatePublicationStatus(
-            @PathVariable Long id, @RequestParam PublicationStatus status) {
+            @PathVariable Long id, @RequestParam PublicationStatus status,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            return updated(publicationService.updatePublicationStatus(id, status, expectedVersion(ifMatch)));
+        } catch (PublicationNotFoundException ex) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException | OptimisticLockingFailureException ex) {
+            return conflict(ifMatch);
+        }
+    }
+
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<SimilarPublicationDTO>> getSimilarPublications(
+            @PathVariable Long id, @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_SIMILAR_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
         try {
-            return ResponseEntity.ok(publicationService.updatePublicationStatus(id, status));
+            return ResponseEntity.ok(publicationService.getSimilarPublications(id, limit));
         } catch (PublicationNotFoundException ex) {
             return ResponseEntity.notFound().build();
         }
@@ -74,7 +273,23 @@ public class PublicationController {
 
     @PatchMapping("/{id}/view")
     public ResponseEntity<Void> incrementViewCount(@PathVariable Long id) {
-        publicationService.incrementViewCount(id);
-        return ResponseEntity.noContent().build();
+        try {
+            publicationService.incrementViewCount(id);
+            return ResponseEntity.noContent().build();
+        } catch (PublicationNotFoundException ex) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private static Long expectedVersion(String ifMatch) {
+        return ifMatch == null ? null : PublicationETags.expectedVersion(ifMatch);
+    }
+
+    private static ResponseEntity<PublicationDTO> updated(PublicationDTO publication) {
+        return ResponseEntity.ok().eTag(PublicationETags.of(publication.getVersion())).body(publication);
+    }
+
+    private static ResponseEntity<PublicationDTO> conflict(String ifMatch) {
+        return ResponseEntity.status(ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED).build();
     }
 }
@@ -0,0 +1,69 @@
+package mmf.publication.app.controller;
+
+import mmf.publication.app.dto.PublicationDTO;
+
+import java.util.List;
+
+/**
+ * ETags made of publication versions. View counts are left out on purpose: they change with every
+ * flush of the view buffer without changing the version, and a tag that followed them would hardly
+ * ever let a client reuse its copy.
+ */
+final class PublicationETags {
+    private PublicationETags() {
+    }
+
+    /**
+     * The strong tag of a version, the only kind {@code If-Match} accepts.
+     */
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * The tag of a version as it is read. It is weak for the same reasons as a page's tag;
+     * {@code If-None-Match} compares weakly, so it still matches the strong tag of the same version.
+     */
+    static String weak(long version) {
+        return "W/" + of(version);
+    }
+
+    /**
+     * A tag for a whole page, made of the ids and versions in order and whatever else decides the
+     * page, such as its total or cursors. It is weak, since the same publications may come back as
+     * JSON, Smile or CBOR, gzipped or not, and Tomcat never compresses a response with a strong tag.
+     */
+    static String of(List<PublicationDTO> publications, Object... page) {
+        long hash = 0xcbf29ce484222325L;
+        for (PublicationDTO publication : publications) {
+            hash = mix(hash, publication.getId());
+            hash = mix(hash, publication.getVersion());
+        }
+        for (Object part : page) {
+            hash = mix(hash, part == null ? 0 : part.hashCode());
+        }
+        return "W/\"p" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * The version an {@code If-Match} header asks for, or null if it matches any version.
+     *
+     * @throws IllegalArgumentException if the header does not hold a tag of this class
+     */
+    static Long expectedVersion(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new IllegalArgumentException("Not a publication ETag: " + ifMatch);
+        }
+        return Long.parseLong(tag.substring(1, tag.length() - 1));
+    }
+
+    private static long mix(long hash, long value) {
+        hash ^= value;
+        hash *= 0x100000001b3L;
+        return hash ^ (hash >>> 29);
+    }
+}
@@ -0,0 +1,79 @@
+package mmf.publication.app.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Keeps a client on the primary for {@code window} after it writes, so it reads its own writes even
+ * while the replica lags behind. Every request that may write sets a cookie holding the time the
+ * window ends; requests carrying a cookie that has not yet run out are served from the primary.
+ * The cookie is set before the request runs, as the response may be committed by the time it ends;
+ * a failed write only costs the client a few reads from the primary. Writes whose effect the client
+ * does not read back right away, such as counting a view, are passed to the constructor and leave
+ * the client on the replica.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    public static final String COOKIE_NAME = "primary-until";
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final Duration window;
+    private final Predicate<HttpServletRequest> unobserved;
+
+    public ReadYourWritesFilter(Duration window) {
+        this(window, request -> false);
+    }
+
+    public ReadYourWritesFilter(Duration window, Predicate<HttpServletRequest> unobserved) {
+        this.window = window;
+        this.unobserved = unobserved;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (!SAFE_METHODS.contains(request.getMethod()) && !unobserved.test(request)) {
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now + window.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            response.addCookie(cookie);
+        } else if (stickyUntil(request) <= now) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ReplicaRoutingDataSource.stickToPrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.release();
+        }
+    }
+
+    private static long stickyUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (cookie.getName().equals(COOKIE_NAME)) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,105 @@
+package mmf.publication.app.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * The replica's connection pool and whether reads may go to it. A periodic check opens a replica
+ * connection and validates it; the replica is taken out of rotation as soon as a check or a routed
+ * connection fails, and put back by the first check that succeeds.
+ * <p>
+ * The pool is deliberately not a {@link DataSource} bean, so the application's health does not go
+ * down with the replica while the primary serves its reads.
+ */
+public class Replica implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(Replica.class);
+
+    private final HikariDataSource pool;
+    private final int validationTimeoutSeconds;
+    private volatile boolean up = true;
+
+    public Replica(HikariDataSource pool, Duration validationTimeout, MeterRegistry meterRegistry) {
+        this.pool = pool;
+        this.validationTimeoutSeconds = (int) Math.max(1, validationTimeout.toSeconds());
+        Gauge.builder("publication.datasource.replica.up", this, replica -> replica.up ? 1 : 0)
+                .description("Whether reads are being sent to the replica")
+                .register(meterRegistry);
+    }
+
+    public DataSource getDataSource() {
+        return pool;
+    }
+
+    /**
+     * A pooled connection that fails validation most likely outlived a replica restart, like the rest
+     * of the pool, so all of them are retired and the check tried once more on a fresh connection.
+     */
+    @Scheduled(fixedDelayString = "${publication.datasource.replica.health-check-interval-ms:5000}")
+    public void check() {
+        boolean valid = validate() || validate();
+        if (valid && !up) {
+            log.info("The replica is reachable again, sending reads to it");
+        } else if (!valid && up) {
+            log.warn("The replica failed its health check, reading from the primary until it recovers");
+        }
+        if (valid) {
+            up = true;
+        } else {
+            markDown();
+        }
+    }
+
+    private boolean validate() {
+        Connection connection;
+        try {
+            connection = pool.getConnection();
+        } catch (SQLException e) {
+            return false;
+        }
+        try {
+            if (connection.isValid(validationTimeoutSeconds)) {
+                connection.close();
+                return true;
+            }
+        } catch (SQLException e) {
+            // Retired below
+        }
+        pool.evictConnection(connection);
+        retireConnections();
+        return false;
+    }
+
+    public boolean isUp() {
+        return up;
+    }
+
+    /**
+     * Also retires the pooled connections, so the next check judges the replica on fresh ones.
+     */
+    void markDown() {
+        up = false;
+        retireConnections();
+    }
+
+    private void retireConnections() {
+        HikariPoolMXBean poolBean = pool.getHikariPoolMXBean();
+        if (poolBean != null) {
+            poolBean.softEvictConnections();
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
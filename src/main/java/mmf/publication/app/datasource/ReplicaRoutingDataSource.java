@@ -0,0 +1,132 @@
+package mmf.publication.app.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections of read-only transactions to the replica and everything else to the primary.
+ * A read still goes to the primary while the current request sticks to it, see
+ * {@link ReadYourWritesFilter}, and while the {@link Replica} is found unusable; a replica
+ * connection that cannot be opened also falls back to the primary and marks the replica down.
+ * <p>
+ * The read-only flag is only known once the transaction has started, so this data source has to sit
+ * behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which waits for
+ * the first statement before asking for a connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final ThreadLocal<Boolean> STICKY = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final Replica replica;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter fallbacks;
+
+    public ReplicaRoutingDataSource(DataSource primary, Replica replica, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.primaryConnections = connections(meterRegistry, Target.PRIMARY);
+        this.replicaConnections = connections(meterRegistry, Target.REPLICA);
+        this.fallbacks = Counter.builder("publication.datasource.fallbacks")
+                .description("Read-only connections sent to the primary because the replica could not serve them")
+                .register(meterRegistry);
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica.getDataSource()));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Makes the rest of the current request read from the primary, so it sees what this client just wrote.
+     */
+    static void stickToPrimary() {
+        STICKY.set(Boolean.TRUE);
+    }
+
+    static void release() {
+        STICKY.remove();
+    }
+
+    /**
+     * Runs {@code read} against the primary, for reads that outlive the request, such as cache
+     * loads, and so must not capture a lagging replica row.
+     */
+    public static <T> T readFromPrimary(Supplier<T> read) {
+        Boolean sticky = STICKY.get();
+        STICKY.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (sticky == null) {
+                STICKY.remove();
+            }
+        }
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Target.PRIMARY) {
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.getDataSource().getConnection();
+            replicaConnections.increment();
+            return connection;
+        } catch (SQLException e) {
+            log.warn("Could not connect to the replica, reading from the primary until it recovers", e);
+            replica.markDown();
+            fallbacks.increment();
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+    }
+
+    /**
+     * Explicit credentials are the primary's; the replica pool only knows its own.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        primaryConnections.increment();
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || STICKY.get() != null) {
+            return Target.PRIMARY;
+        }
+        if (!replica.isUp()) {
+            fallbacks.increment();
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    private static Counter connections(MeterRegistry meterRegistry, Target target) {
+        return Counter.builder("publication.datasource.connections")
+                .description("Connections handed out by the read/write routing")
+                .tag("target", target.name().toLowerCase())
+                .register(meterRegistry);
+    }
+
+    private enum Target {
+        PRIMARY,
+        REPLICA
+    }
+}
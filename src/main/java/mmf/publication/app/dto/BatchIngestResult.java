@@ -0,0 +1,60 @@
+package mmf.publication.app.dto;
+
+import java.util.List;
+
+public class BatchIngestResult {
+    private final long received;
+    private final long accepted;
+    private final long rejected;
+    private final List<LineError> errors;
+    private final long elapsedMillis;
+
+    public BatchIngestResult(long received, long accepted, long rejected, List<LineError> errors, long elapsedMillis) {
+        this.received = received;
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.errors = errors;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * The first rejected lines with the reason; {@link #getRejected()} counts all of them.
+     */
+    public List<LineError> getErrors() {
+        return errors;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public static class LineError {
+        private final long line;
+        private final String message;
+
+        public LineError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
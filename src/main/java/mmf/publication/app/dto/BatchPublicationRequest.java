@@ -0,0 +1,27 @@
+package mmf.publication.app.dto;
+
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+
+/**
+ * One line of a bulk ingest: a publication and the user who publishes it.
+ */
+public class BatchPublicationRequest extends PublicationRequest {
+    private String username;
+
+    public BatchPublicationRequest() {
+    }
+
+    public BatchPublicationRequest(String username, String title, String description, PublicationType type, PublicationStatus status) {
+        super(title, description, type, status);
+        this.username = username;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+}
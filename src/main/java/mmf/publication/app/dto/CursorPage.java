@@ -0,0 +1,41 @@
+package mmf.publication.app.dto;
+
+import java.util.List;
+
+public class CursorPage<T> {
+    private final List<T> content;
+    private final int size;
+    private final String nextCursor;
+    private final String previousCursor;
+
+    public CursorPage(List<T> content, int size, String nextCursor, String previousCursor) {
+        this.content = content;
+        this.size = size;
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean isHasPrevious() {
+        return previousCursor != null;
+    }
+}
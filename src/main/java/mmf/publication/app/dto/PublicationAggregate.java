@@ -0,0 +1,45 @@
+package mmf.publication.app.dto;
+
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+
+import java.time.LocalDate;
+
+/**
+ * The number of publications sharing a status, type and publish day, and their summed views.
+ */
+public class PublicationAggregate {
+    private final PublicationStatus status;
+    private final PublicationType type;
+    private final LocalDate publishDay;
+    private final long count;
+    private final long views;
+
+    public PublicationAggregate(PublicationStatus status, PublicationType type, LocalDate publishDay, long count, long views) {
+        this.status = status;
+        this.type = type;
+        this.publishDay = publishDay;
+        this.count = count;
+        this.views = views;
+    }
+
+    public PublicationStatus getStatus() {
+        return status;
+    }
+
+    public PublicationType getType() {
+        return type;
+    }
+
+    public LocalDate getPublishDay() {
+        return publishDay;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getViews() {
+        return views;
+    }
+}
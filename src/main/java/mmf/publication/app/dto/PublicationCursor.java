@@ -0,0 +1,90 @@
+package mmf.publication.app.dto;
+
+import mmf.publication.app.entity.Publication;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Position in a keyset-paginated list: the sort key and id of the row at the edge of the page and
+ * the direction to continue in. Clients only see it as an opaque URL-safe string.
+ */
+public class PublicationCursor {
+    public static final Set<String> SORT_PROPERTIES = Set.of("publishedAt", "updatedAt", "id");
+
+    private final String property;
+    private final Sort.Direction direction;
+    private final Comparable<?> value;
+    private final long id;
+    private final boolean backward;
+
+    public PublicationCursor(String property, Sort.Direction direction, Comparable<?> value, long id, boolean backward) {
+        this.property = property;
+        this.direction = direction;
+        this.value = value;
+        this.id = id;
+        this.backward = backward;
+    }
+
+    public static PublicationCursor at(Publication publication, Sort.Order order, boolean backward) {
+        Comparable<?> value = switch (order.getProperty()) {
+            case "publishedAt" -> publication.getPublishedAt();
+            case "updatedAt" -> publication.getUpdatedAt();
+            default -> publication.getId();
+        };
+        return new PublicationCursor(order.getProperty(), order.getDirection(), value, publication.getId(), backward);
+    }
+
+    public static PublicationCursor decode(String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        if (parts.length != 5 || !SORT_PROPERTIES.contains(parts[0])) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+
+        try {
+            Comparable<?> value = parts[0].equals("id") ? Long.valueOf(parts[2]) : LocalDateTime.parse(parts[2]);
+            return new PublicationCursor(parts[0], Sort.Direction.fromString(parts[1]), value,
+                    Long.parseLong(parts[3]), parts[4].equals("B"));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    public String encode() {
+        String cursor = property + "|" + direction + "|" + value + "|" + id + "|" + (backward ? "B" : "F");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Sort.Order getOrder() {
+        return new Sort.Order(direction, property);
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public Comparable<?> getValue() {
+        return value;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public boolean isBackward() {
+        return backward;
+    }
+}
@@ -1,5 +1,6 @@
 package mmf.publication.app.dto;
 
+import mmf.publication.app.enums.KeywordState;
 import mmf.publication.app.enums.PublicationStatus;
 import mmf.publication.app.enums.PublicationType;
 
@@ -16,6 +17,18 @@ public class PublicationDTO {
     private PublicationType type;
     private PublicationStatus status;
     private Map<String, Integer> frequentWords;
+    private KeywordState keywordState = KeywordState.READY;
+    private long version;
+
+    public PublicationDTO(Long id, String title, String description, int viewCount, LocalDateTime publishedAt, LocalDateTime updatedAt, PublicationType type, PublicationStatus status, Map<String, Integer> frequentWords, KeywordState keywordState, long version) {
+        this(id, title, description, viewCount, publishedAt, updatedAt, type, status, frequentWords, keywordState);
+        this.version = version;
+    }
+
+    public PublicationDTO(Long id, String title, String description, int viewCount, LocalDateTime publishedAt, LocalDateTime updatedAt, PublicationType type, PublicationStatus status, Map<String, Integer> frequentWords, KeywordState keywordState) {
+        this(id, title, description, viewCount, publishedAt, updatedAt, type, status, frequentWords);
+        this.keywordState = keywordState;
+    }
 
     public PublicationDTO(Long id, String title, String description, int viewCount, LocalDateTime publishedAt, LocalDateTime updatedAt, PublicationType type, PublicationStatus status, Map<String, Integer> frequentWords) {
         this.id = id;
@@ -75,4 +88,19 @@ public class PublicationDTO {
     public Map<String, Integer> getFrequentWords() {
         return frequentWords;
     }
+
+    /**
+     * PENDING while keywords are still being extracted in the background; the frequent words are
+     * then those of the previous description, or null for a new publication.
+     */
+    public KeywordState getKeywordState() {
+        return keywordState;
+    }
+
+    /**
+     * Version of the publication's content, which its ETag is made of.
+     */
+    public long getVersion() {
+        return version;
+    }
 }
@@ -0,0 +1,60 @@
+package mmf.publication.app.dto;
+
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public class PublicationStatsDTO {
+    private final long total;
+    private final Map<PublicationStatus, Long> byStatus;
+    private final Map<PublicationType, Long> byType;
+    private final Map<LocalDate, Long> byPublishDay;
+    private final long totalViews;
+    private final LocalDateTime reconciledAt;
+
+    public PublicationStatsDTO(long total, Map<PublicationStatus, Long> byStatus, Map<PublicationType, Long> byType,
+                               Map<LocalDate, Long> byPublishDay, long totalViews, LocalDateTime reconciledAt) {
+        this.total = total;
+        this.byStatus = byStatus;
+        this.byType = byType;
+        this.byPublishDay = byPublishDay;
+        this.totalViews = totalViews;
+        this.reconciledAt = reconciledAt;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public Map<PublicationStatus, Long> getByStatus() {
+        return byStatus;
+    }
+
+    public Map<PublicationType, Long> getByType() {
+        return byType;
+    }
+
+    /**
+     * Publications per publish day in date order; days without publications are left out.
+     */
+    public Map<LocalDate, Long> getByPublishDay() {
+        return byPublishDay;
+    }
+
+    /**
+     * Every view recorded, including those not yet flushed to the database.
+     */
+    public long getTotalViews() {
+        return totalViews;
+    }
+
+    /**
+     * When the statistics were last checked against the database, or null if they never were.
+     */
+    public LocalDateTime getReconciledAt() {
+        return reconciledAt;
+    }
+}
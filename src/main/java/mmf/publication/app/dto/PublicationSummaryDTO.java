@@ -0,0 +1,122 @@
+package mmf.publication.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.enums.SummaryField;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * The requested columns of a publication and the start of its description; the fields that were
+ * not requested are null and left out of the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PublicationSummaryDTO {
+    private final Long id;
+    private String title;
+    private String excerpt;
+    private Boolean truncated;
+    private Integer viewCount;
+    private LocalDateTime publishedAt;
+    private LocalDateTime updatedAt;
+    private PublicationType type;
+    private PublicationStatus status;
+
+    public PublicationSummaryDTO(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * The summary of a loaded publication, for rows the summary queries cannot reach.
+     */
+    public static PublicationSummaryDTO of(Publication publication, Set<SummaryField> fields, int excerptLength) {
+        PublicationSummaryDTO summary = new PublicationSummaryDTO(publication.getId());
+        for (SummaryField field : fields) {
+            switch (field) {
+                case TITLE -> summary.setTitle(publication.getTitle());
+                case EXCERPT -> {
+                    String description = publication.getDescription();
+                    boolean truncated = description.length() > excerptLength;
+                    summary.setExcerpt(truncated ? description.substring(0, excerptLength) : description, truncated);
+                }
+                case VIEW_COUNT -> summary.setViewCount(publication.getViewCount());
+                case PUBLISHED_AT -> summary.setPublishedAt(publication.getPublishedAt());
+                case UPDATED_AT -> summary.setUpdatedAt(publication.getUpdatedAt());
+                case TYPE -> summary.setType(publication.getType());
+                case STATUS -> summary.setStatus(publication.getStatus());
+            }
+        }
+        return summary;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    /**
+     * Whether the description goes on beyond the excerpt.
+     */
+    public Boolean getTruncated() {
+        return truncated;
+    }
+
+    public void setExcerpt(String excerpt, boolean truncated) {
+        this.excerpt = excerpt;
+        this.truncated = truncated;
+    }
+
+    public Integer getViewCount() {
+        return viewCount;
+    }
+
+    public void setViewCount(Integer viewCount) {
+        this.viewCount = viewCount;
+    }
+
+    public LocalDateTime getPublishedAt() {
+        return publishedAt;
+    }
+
+    public void setPublishedAt(LocalDateTime publishedAt) {
+        this.publishedAt = publishedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public PublicationType getType() {
+        return type;
+    }
+
+    public void setType(PublicationType type) {
+        this.type = type;
+    }
+
+    public PublicationStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(PublicationStatus status) {
+        this.status = status;
+    }
+}
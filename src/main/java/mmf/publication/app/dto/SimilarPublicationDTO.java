@@ -0,0 +1,52 @@
+package mmf.publication.app.dto;
+
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+
+import java.time.LocalDateTime;
+
+public class SimilarPublicationDTO {
+    private final Long id;
+    private final String title;
+    private final PublicationType type;
+    private final PublicationStatus status;
+    private final LocalDateTime publishedAt;
+    private final double similarity;
+
+    public SimilarPublicationDTO(Long id, String title, PublicationType type, PublicationStatus status,
+                                 LocalDateTime publishedAt, double similarity) {
+        this.id = id;
+        this.title = title;
+        this.type = type;
+        this.status = status;
+        this.publishedAt = publishedAt;
+        this.similarity = similarity;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public PublicationType getType() {
+        return type;
+    }
+
+    public PublicationStatus getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getPublishedAt() {
+        return publishedAt;
+    }
+
+    /**
+     * The estimated Jaccard similarity of the two publications' frequent words, between 0 and 1.
+     */
+    public double getSimilarity() {
+        return similarity;
+    }
+}
@@ -0,0 +1,31 @@
+package mmf.publication.app.dto;
+
+public class TrendingKeywordDTO {
+    private final String keyword;
+    private final long count;
+    private final long maxError;
+
+    public TrendingKeywordDTO(String keyword, long count, long maxError) {
+        this.keyword = keyword;
+        this.count = count;
+        this.maxError = maxError;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * Estimated number of publications saved with this keyword in the window; never too low.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * How far {@link #getCount()} may exceed the true count, with the configured confidence.
+     */
+    public long getMaxError() {
+        return maxError;
+    }
+}
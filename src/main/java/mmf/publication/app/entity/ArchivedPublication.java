@@ -0,0 +1,69 @@
+package mmf.publication.app.entity;
+
+import jakarta.persistence.*;
+import mmf.publication.app.enums.KeywordState;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+
+import java.time.LocalDateTime;
+
+/**
+ * A row of {@code publication_archive}, the cold tier {@link mmf.publication.app.archive.PublicationArchiver}
+ * moves publications to: the columns of {@link Publication} under the same id, and the time the row
+ * was moved. It is mapped so that the schema is created and updated along with the publication
+ * table; {@link mmf.publication.app.archive.PublicationArchive} reads and writes it with plain SQL.
+ */
+@Entity
+@Table(name = "publication_archive", indexes = {
+        @Index(name = "idx_publication_archive_published_at", columnList = "publishedAt, id"),
+        @Index(name = "idx_publication_archive_status_type_published_at", columnList = "status, type, publishedAt, id")
+})
+public class ArchivedPublication {
+    @Id
+    private Long id;
+
+    @Column(nullable = false, length = 255)
+    private String title;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String description;
+
+    @Column(name = "description_hash", length = 64)
+    private String descriptionHash;
+
+    @Column(nullable = false)
+    private int viewCount;
+
+    @Column(nullable = false)
+    private LocalDateTime publishedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PublicationType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PublicationStatus status;
+
+    @Column(name = "frequent_words", columnDefinition = "TEXT")
+    private String frequentWords;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "keyword_state", length = 16)
+    private KeywordState keywordState;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "app_user_id", nullable = false)
+    private Long appUserId;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+
+    protected ArchivedPublication() {
+    }
+}
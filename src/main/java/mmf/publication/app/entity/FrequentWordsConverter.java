@@ -0,0 +1,46 @@
+package mmf.publication.app.entity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores a publication's frequent words in a single column as compact JSON, such as
+ * {@code {"java":9,"spring":7}}, keeping their most-frequent-first order. A {@code null} column
+ * means the words have not been moved over from the legacy {@code publication_keywords} table yet.
+ */
+@Converter
+public class FrequentWordsConverter implements AttributeConverter<Map<String, Integer>, String> {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, Integer>> TYPE = new TypeReference<>() {
+    };
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, Integer> frequentWords) {
+        if (frequentWords == null) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsString(frequentWords);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot encode frequent words", e);
+        }
+    }
+
+    @Override
+    public Map<String, Integer> convertToEntityAttribute(String column) {
+        if (column == null) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(column, TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot decode frequent words " + column, e);
+        }
+    }
+}
@@ -1,14 +1,30 @@
 package mmf.publication.app.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+import mmf.publication.app.enums.KeywordState;
 import mmf.publication.app.enums.PublicationStatus;
 import mmf.publication.app.enums.PublicationType;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Entity
-@Table(name = "publication")
+@Table(name = "publication", indexes = {
+        @Index(name = "idx_publication_published_at", columnList = "publishedAt, id"),
+        @Index(name = "idx_publication_status_published_at", columnList = "status, publishedAt, id"),
+        @Index(name = "idx_publication_type_published_at", columnList = "type, publishedAt, id"),
+        @Index(name = "idx_publication_status_type_published_at", columnList = "status, type, publishedAt, id"),
+        @Index(name = "idx_publication_keyword_state", columnList = "keyword_state, id")
+})
+// Updates write the changed columns only, so a new title does not send the description again
+@DynamicUpdate
 public class Publication {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,6 +36,10 @@ public class Publication {
     @Column(columnDefinition = "TEXT", nullable = false)
     private String description;
 
+    // SHA-256 of the description, null for rows saved before it was introduced
+    @Column(name = "description_hash", length = 64)
+    private String descriptionHash;
+
     @Column(nullable = false)
     private int viewCount;
 
@@ -37,13 +57,21 @@ public class Publication {
     @Column(nullable = false)
     private PublicationStatus status;
 
-    @ElementCollection
-    @CollectionTable(name = "publication_keywords", joinColumns = @JoinColumn(name = "publication_id"))
-    @MapKeyColumn(name = "keyword")
-    @Column(name = "frequency")
+    @Convert(converter = FrequentWordsConverter.class)
+    @Column(name = "frequent_words", columnDefinition = "TEXT")
     private Map<String, Integer> frequentWords;
 
-    @ManyToOne
+    @Enumerated(EnumType.STRING)
+    @Column(name = "keyword_state", length = 16)
+    private KeywordState keywordState = KeywordState.READY;
+
+    // Raised by every change to the content, but not by view count flushes
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "app_user_id", nullable = false)
     private AppUser appUser;
 
@@ -58,7 +86,7 @@ public class Publication {
     public Publication(Long id, String title, String description, int viewCount, LocalDateTime publishedAt, LocalDateTime updatedAt, PublicationType type, PublicationStatus status, Map<String, Integer> frequentWords) {
         this.id = id;
         this.title = title;
-        this.description = description;
+        setDescription(description);
         this.viewCount = viewCount;
         this.publishedAt = publishedAt;
         this.updatedAt = updatedAt;
@@ -69,7 +97,7 @@ public class Publication {
 
     public Publication(String title, String description, int viewCount, LocalDateTime publishedAt, LocalDateTime updatedAt, PublicationType type, PublicationStatus status, Map<String, Integer> frequentWords) {
         this.title = title;
-        this.description = description;
+        setDescription(description);
         this.viewCount = viewCount;
         this.publishedAt = publishedAt;
         this.updatedAt = updatedAt;
@@ -78,6 +106,26 @@ public class Publication {
         this.frequentWords = frequentWords;
     }
 
+    /**
+     * A copy of every column, with the same user. The keywords are copied too, so changing either
+     * publication leaves the other as it was.
+     */
+    public Publication(Publication other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.description = other.description;
+        this.descriptionHash = other.descriptionHash;
+        this.viewCount = other.viewCount;
+        this.publishedAt = other.publishedAt;
+        this.updatedAt = other.updatedAt;
+        this.type = other.type;
+        this.status = other.status;
+        this.frequentWords = other.frequentWords == null ? null : new LinkedHashMap<>(other.frequentWords);
+        this.keywordState = other.keywordState;
+        this.version = other.version;
+        this.appUser = other.appUser;
+    }
+
     public Long getId() {
         return id;
     }
@@ -100,6 +148,41 @@ public class Publication {
 
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionHash = hashOf(description);
+    }
+
+    /**
+     * Sets the description unless it is the one stored already, telling which it was. Comparing
+     * hashes spares comparing long descriptions character by character.
+     */
+    public boolean updateDescription(String description) {
+        String hash = hashOf(description);
+        boolean unchanged = descriptionHash != null ? descriptionHash.equals(hash)
+                : this.description != null && this.description.equals(description);
+        if (unchanged) {
+            // Fills in the hash of rows saved before there was one
+            descriptionHash = hash;
+            return false;
+        }
+        this.description = description;
+        this.descriptionHash = hash;
+        return true;
+    }
+
+    public String getDescriptionHash() {
+        return descriptionHash;
+    }
+
+    public static String hashOf(String description) {
+        if (description == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(description.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every Java platform supports SHA-256", e);
+        }
     }
 
     public int getViewCount() {
@@ -158,6 +241,25 @@ public class Publication {
         this.frequentWords = frequentWords;
     }
 
+    /**
+     * Rows written before the column existed hold null, and their keywords are ready.
+     */
+    public KeywordState getKeywordState() {
+        return keywordState == null ? KeywordState.READY : keywordState;
+    }
+
+    public void setKeywordState(KeywordState keywordState) {
+        this.keywordState = keywordState;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public void incrementViewCount() {
         this.viewCount++;
     }
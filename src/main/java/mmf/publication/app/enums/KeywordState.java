@@ -0,0 +1,6 @@
+package mmf.publication.app.enums;
+
+public enum KeywordState {
+    PENDING,
+    READY
+}
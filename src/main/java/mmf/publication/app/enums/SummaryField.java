@@ -0,0 +1,37 @@
+package mmf.publication.app.enums;
+
+/**
+ * The columns a publication summary can be made of, named after the JSON properties they fill.
+ * The id is always included.
+ */
+public enum SummaryField {
+    TITLE("title"),
+    EXCERPT("excerpt"),
+    VIEW_COUNT("viewCount"),
+    PUBLISHED_AT("publishedAt"),
+    UPDATED_AT("updatedAt"),
+    TYPE("type"),
+    STATUS("status");
+
+    private final String property;
+
+    SummaryField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no field has this property name
+     */
+    public static SummaryField fromProperty(String property) {
+        for (SummaryField field : values()) {
+            if (field.property.equals(property)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown summary field: " + property);
+    }
+}
@@ -0,0 +1,29 @@
+package mmf.publication.app.events;
+
+import mmf.publication.app.entity.Publication;
+
+public class PublicationSavedEvent {
+    private final Publication publication;
+    private final boolean contentChanged;
+
+    public PublicationSavedEvent(Publication publication) {
+        this(publication, true);
+    }
+
+    public PublicationSavedEvent(Publication publication, boolean contentChanged) {
+        this.publication = publication;
+        this.contentChanged = contentChanged;
+    }
+
+    public Publication getPublication() {
+        return publication;
+    }
+
+    /**
+     * False when the description, and with it the keywords, is as before; the title, type or
+     * status may have changed.
+     */
+    public boolean isContentChanged() {
+        return contentChanged;
+    }
+}
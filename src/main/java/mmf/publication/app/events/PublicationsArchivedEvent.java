@@ -0,0 +1,18 @@
+package mmf.publication.app.events;
+
+import java.util.List;
+
+/**
+ * Publications moved from the publication table to the archive, committed already.
+ */
+public class PublicationsArchivedEvent {
+    private final List<Long> publicationIds;
+
+    public PublicationsArchivedEvent(List<Long> publicationIds) {
+        this.publicationIds = publicationIds;
+    }
+
+    public List<Long> getPublicationIds() {
+        return publicationIds;
+    }
+}
@@ -0,0 +1,28 @@
+package mmf.publication.app.events;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public class ViewCountsFlushedEvent {
+    private final Map<Long, Long> viewCountDeltas;
+    private final LocalDateTime updatedAt;
+
+    public ViewCountsFlushedEvent(Map<Long, Long> viewCountDeltas, LocalDateTime updatedAt) {
+        this.viewCountDeltas = viewCountDeltas;
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * The views added to each publication's {@code view_count} column.
+     */
+    public Map<Long, Long> getViewCountDeltas() {
+        return viewCountDeltas;
+    }
+
+    /**
+     * The update time the flush gave the publications.
+     */
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
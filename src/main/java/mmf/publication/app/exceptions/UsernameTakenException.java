@@ -0,0 +1,7 @@
+package mmf.publication.app.exceptions;
+
+public class UsernameTakenException extends RuntimeException {
+    public UsernameTakenException(String username) {
+        super("Username " + username + " is already taken!");
+    }
+}
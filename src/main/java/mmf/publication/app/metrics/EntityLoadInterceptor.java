@@ -0,0 +1,15 @@
+package mmf.publication.app.metrics;
+
+import org.hibernate.Interceptor;
+import org.hibernate.type.Type;
+
+/**
+ * Counts every entity Hibernate loads towards the current request's {@link RequestStatistics}.
+ */
+public class EntityLoadInterceptor implements Interceptor {
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        RequestStatistics.recordEntityLoaded();
+        return false;
+    }
+}
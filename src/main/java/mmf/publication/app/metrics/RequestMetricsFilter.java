@@ -0,0 +1,98 @@
+package mmf.publication.app.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Collects the {@link RequestStatistics} of every request and records them per endpoint as
+ * {@code publication.request.statements}, {@code .entities} and {@code .keyword-rows}. When the
+ * slow-request log is enabled, requests that take at least {@code slowThreshold} are logged with
+ * their service calls, the arguments those were given and the SQL they ran.
+ */
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(RequestMetricsFilter.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean slowLogEnabled;
+    private final long slowThresholdNanos;
+    private final int maxLoggedStatements;
+
+    public RequestMetricsFilter(MeterRegistry meterRegistry, boolean slowLogEnabled, Duration slowThreshold,
+                                int maxLoggedStatements) {
+        this.meterRegistry = meterRegistry;
+        this.slowLogEnabled = slowLogEnabled;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.maxLoggedStatements = maxLoggedStatements;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestStatistics statistics = RequestStatistics.begin(slowLogEnabled, maxLoggedStatements);
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            RequestStatistics.end();
+            record(request, statistics);
+            if (slowLogEnabled && elapsed >= slowThresholdNanos) {
+                logSlowRequest(request, response, statistics, elapsed);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestStatistics statistics) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", pattern == null ? "UNKNOWN" : pattern.toString());
+        summary("publication.request.statements", "SQL statements run per request", tags)
+                .record(statistics.getStatementCount());
+        summary("publication.request.entities", "Entities loaded per request", tags)
+                .record(statistics.getEntitiesLoaded());
+        summary("publication.request.keyword-rows", "Rows of publication_keywords touched per request", tags)
+                .record(statistics.getKeywordRows());
+    }
+
+    private DistributionSummary summary(String name, String description, Tags tags) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static void logSlowRequest(HttpServletRequest request, HttpServletResponse response,
+                                       RequestStatistics statistics, long elapsed) {
+        StringBuilder message = new StringBuilder()
+                .append("Slow request ").append(request.getMethod()).append(' ').append(request.getRequestURI());
+        if (request.getQueryString() != null) {
+            message.append('?').append(request.getQueryString());
+        }
+        message.append(" took ").append(elapsed / 1_000_000).append(" ms, status ").append(response.getStatus())
+                .append(", ").append(statistics.getStatementCount()).append(" statements, ")
+                .append(statistics.getEntitiesLoaded()).append(" entities loaded");
+        for (String call : statistics.getServiceCalls()) {
+            message.append("\n  call: ").append(call);
+        }
+        for (String sql : statistics.getStatements()) {
+            message.append("\n  sql: ").append(sql);
+        }
+        int omitted = statistics.getStatementCount() - statistics.getStatements().size();
+        if (omitted > 0) {
+            message.append("\n  ... ").append(omitted).append(" more statements");
+        }
+        log.warn(message.toString());
+    }
+}
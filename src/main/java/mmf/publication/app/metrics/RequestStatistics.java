@@ -0,0 +1,98 @@
+package mmf.publication.app.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What one request did to the database, collected on the thread that serves it: the statements
+ * Hibernate prepared, the entities it loaded and the legacy keyword rows it touched. With
+ * {@code capture} set, the service calls with their arguments and the first statements are kept
+ * as well, for the slow-request log. Work handed to other threads is not counted.
+ */
+public final class RequestStatistics {
+    private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+    private final boolean capture;
+    private final int maxStatements;
+    private final List<String> serviceCalls = new ArrayList<>();
+    private final List<String> statements = new ArrayList<>();
+    private int statementCount;
+    private int entitiesLoaded;
+    private long keywordRows;
+
+    private RequestStatistics(boolean capture, int maxStatements) {
+        this.capture = capture;
+        this.maxStatements = maxStatements;
+    }
+
+    static RequestStatistics begin(boolean capture, int maxStatements) {
+        RequestStatistics statistics = new RequestStatistics(capture, maxStatements);
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * The statistics of the request served by this thread, or null outside of a request.
+     */
+    public static RequestStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static void recordStatement(String sql) {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statementCount++;
+            if (statistics.capture && statistics.statements.size() < statistics.maxStatements) {
+                statistics.statements.add(sql);
+            }
+        }
+    }
+
+    public static void recordEntityLoaded() {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.entitiesLoaded++;
+        }
+    }
+
+    public static void recordKeywordRows(long rows) {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.keywordRows += rows;
+        }
+    }
+
+    public boolean isCapturing() {
+        return capture;
+    }
+
+    public void recordServiceCall(String call) {
+        if (capture) {
+            serviceCalls.add(call);
+        }
+    }
+
+    public List<String> getServiceCalls() {
+        return serviceCalls;
+    }
+
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public int getEntitiesLoaded() {
+        return entitiesLoaded;
+    }
+
+    public long getKeywordRows() {
+        return keywordRows;
+    }
+}
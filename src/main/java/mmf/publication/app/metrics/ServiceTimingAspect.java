@@ -0,0 +1,82 @@
+package mmf.publication.app.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.temporal.Temporal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every {@link mmf.publication.app.service.IPublicationService} method as
+ * {@code publication.service}, tagged with the method and the exception it ended with, if any.
+ * Repository calls are timed by Spring Data's own {@code spring.data.repository.invocations}.
+ * While a request is captured for the slow-request log, the calls and their arguments are kept.
+ */
+@Aspect
+@Component
+public class ServiceTimingAspect {
+    private static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public ServiceTimingAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* mmf.publication.app.service.IPublicationService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null && statistics.isCapturing()) {
+            statistics.recordServiceCall(describe(signature, joinPoint.getArgs()));
+        }
+
+        long start = System.nanoTime();
+        String exception = NO_EXCEPTION;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            timer(signature.getName(), exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String method, String exception) {
+        return timers.computeIfAbsent(method + '/' + exception, key -> Timer.builder("publication.service")
+                .description("Time spent in publication service methods")
+                .tag("method", method)
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static String describe(MethodSignature signature, Object[] args) {
+        String[] names = signature.getParameterNames();
+        StringBuilder call = new StringBuilder(signature.getName()).append('(');
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                call.append(", ");
+            }
+            // Streams and the like say nothing useful about themselves
+            Object arg = args[i];
+            String value = arg == null || arg instanceof CharSequence || arg instanceof Number || arg instanceof Enum<?>
+                    || arg instanceof Temporal || arg instanceof Duration || arg instanceof Pageable || arg instanceof Sort
+                    ? String.valueOf(arg) : arg.getClass().getSimpleName();
+            call.append(names == null ? "arg" + i : names[i]).append('=').append(value);
+        }
+        return call.append(')').toString();
+    }
+}
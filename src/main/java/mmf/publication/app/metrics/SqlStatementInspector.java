@@ -0,0 +1,14 @@
+package mmf.publication.app.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts every statement Hibernate prepares towards the current request's {@link RequestStatistics}.
+ */
+public class SqlStatementInspector implements StatementInspector {
+    @Override
+    public String inspect(String sql) {
+        RequestStatistics.recordStatement(sql);
+        return sql;
+    }
+}
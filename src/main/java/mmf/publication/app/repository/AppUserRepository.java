@@ -2,9 +2,20 @@ package mmf.publication.app.repository;
 
 import mmf.publication.app.entity.AppUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface AppUserRepository extends JpaRepository<AppUser, Long> {
     Optional<AppUser> findByUsername(String username);
+
+    boolean existsByUsername(String username);
+
+    @Query("select u.id from AppUser u where u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    List<AppUser> findByUsernameIn(Collection<String> usernames);
 }
@@ -1,8 +1,32 @@
 package mmf.publication.app.repository;
 
 import mmf.publication.app.entity.Publication;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface PublicationRepository extends JpaRepository<Publication, Long>, JpaSpecificationExecutor<Publication> {
+import java.util.List;
+import java.util.Optional;
+
+public interface PublicationRepository extends JpaRepository<Publication, Long>, JpaSpecificationExecutor<Publication>, PublicationRepositoryCustom {
+    /**
+     * Not read-only like the inherited lookups, so that the updates and the keyword pipeline, which
+     * read a publication to write it back, read it from the primary. Read-only service methods
+     * still take it to the replica, since it joins their transaction.
+     */
+    @Override
+    @Transactional
+    Optional<Publication> findById(Long id);
+
+    @Override
+    @Transactional
+    List<Publication> findAllById(Iterable<Long> ids);
+
+    List<Publication> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query("select p.version from Publication p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
 }
@@ -0,0 +1,63 @@
+package mmf.publication.app.repository;
+
+import mmf.publication.app.dto.PublicationAggregate;
+import mmf.publication.app.dto.PublicationSummaryDTO;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.SummaryField;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public interface PublicationRepositoryCustom {
+    /**
+     * Adds the deltas to the view counts, in the publication table or in the archive, and sets the
+     * update time of every publication they reach to {@code updatedAt}.
+     */
+    void addViewCounts(Map<Long, Long> viewCountDeltas, LocalDateTime updatedAt);
+
+    /**
+     * The first {@code size} matches in the given order, without the {@code COUNT(*)} query a
+     * {@link org.springframework.data.domain.Page} needs. One extra row is fetched to tell whether
+     * more follow.
+     */
+    Slice<Publication> findSlice(Specification<Publication> spec, Sort sort, int size);
+
+    /**
+     * Inserts new publications with one JDBC batch and sets their generated ids. Bypasses the
+     * persistence context, which cannot batch inserts of {@code IDENTITY} ids.
+     */
+    void insertAll(List<Publication> publications);
+
+    /**
+     * Passes every match to {@code action} in the given order, reading them through a forward-only
+     * cursor {@code fetchSize} rows at a time and detaching each one afterwards, so the persistence
+     * context never grows. Must run inside a transaction.
+     */
+    void scroll(Specification<Publication> spec, Sort sort, int fetchSize, Consumer<Publication> action);
+
+    /**
+     * A page of summaries made of the id and the given fields only. The excerpt is cut from the
+     * description by the database, so the description itself is never read into memory.
+     */
+    Page<PublicationSummaryDTO> findSummaries(Specification<Publication> spec, Set<SummaryField> fields,
+                                              int excerptLength, Pageable pageable);
+
+    /**
+     * The summaries of the given publications, in no particular order.
+     */
+    List<PublicationSummaryDTO> findSummariesById(Collection<Long> ids, Set<SummaryField> fields, int excerptLength);
+
+    /**
+     * The publications counted by status, type and publish day, in no particular order.
+     */
+    List<PublicationAggregate> aggregateByStatusTypeAndPublishDay();
+}
@@ -0,0 +1,272 @@
+package mmf.publication.app.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import mmf.publication.app.dto.PublicationAggregate;
+import mmf.publication.app.dto.PublicationSummaryDTO;
+import mmf.publication.app.entity.FrequentWordsConverter;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.enums.SummaryField;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class PublicationRepositoryCustomImpl implements PublicationRepositoryCustom {
+    private static final String ADD_VIEW_COUNT_SQL =
+            "UPDATE publication SET view_count = view_count + ?, updated_at = ? WHERE id = ?";
+    private static final String ADD_ARCHIVED_VIEW_COUNT_SQL =
+            "UPDATE publication_archive SET view_count = view_count + ?, updated_at = ? WHERE id = ?";
+    private static final String INSERT_SQL = "INSERT INTO publication (title, description, description_hash, " +
+            "view_count, published_at, updated_at, type, status, frequent_words, keyword_state, version, app_user_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Archived publications still count
+    private static final String AGGREGATE_SQL =
+            "SELECT status, type, publish_day, SUM(publications), SUM(views) FROM (" +
+            "SELECT status, type, CAST(published_at AS DATE) AS publish_day, COUNT(*) AS publications, " +
+            "COALESCE(SUM(view_count), 0) AS views FROM publication GROUP BY status, type, CAST(published_at AS DATE) " +
+            "UNION ALL " +
+            "SELECT status, type, CAST(published_at AS DATE), COUNT(*), COALESCE(SUM(view_count), 0) " +
+            "FROM publication_archive GROUP BY status, type, CAST(published_at AS DATE)" +
+            ") tiers GROUP BY status, type, publish_day";
+
+    private final FrequentWordsConverter frequentWordsConverter = new FrequentWordsConverter();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public PublicationRepositoryCustomImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional
+    public void addViewCounts(Map<Long, Long> viewCountDeltas, LocalDateTime updatedAt) {
+        if (viewCountDeltas.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(updatedAt);
+        List<Object[]> batchArgs = new ArrayList<>(viewCountDeltas.size());
+        for (Map.Entry<Long, Long> delta : viewCountDeltas.entrySet()) {
+            batchArgs.add(new Object[]{delta.getValue(), now, delta.getKey()});
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(ADD_VIEW_COUNT_SQL, batchArgs);
+        // Views of publications archived since they were counted
+        List<Object[]> archivedArgs = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                archivedArgs.add(batchArgs.get(i));
+            }
+        }
+        if (!archivedArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_ARCHIVED_VIEW_COUNT_SQL, archivedArgs);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(List<Publication> publications) {
+        if (publications.isEmpty()) {
+            return;
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        Publication publication = publications.get(i);
+                        statement.setString(1, publication.getTitle());
+                        statement.setString(2, publication.getDescription());
+                        statement.setString(3, publication.getDescriptionHash());
+                        statement.setInt(4, publication.getViewCount());
+                        statement.setTimestamp(5, Timestamp.valueOf(publication.getPublishedAt()));
+                        statement.setTimestamp(6, Timestamp.valueOf(publication.getUpdatedAt()));
+                        statement.setString(7, publication.getType().name());
+                        statement.setString(8, publication.getStatus().name());
+                        statement.setString(9, frequentWordsConverter.convertToDatabaseColumn(publication.getFrequentWords()));
+                        statement.setString(10, publication.getKeywordState().name());
+                        statement.setLong(11, publication.getVersion());
+                        statement.setLong(12, publication.getAppUser().getId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return publications.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < publications.size(); i++) {
+            publications.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    @Override
+    public Slice<Publication> findSlice(Specification<Publication> spec, Sort sort, int size) {
+        List<Publication> publications = entityManager.createQuery(criteriaQuery(spec, sort))
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        boolean hasNext = publications.size() > size;
+        return new SliceImpl<>(hasNext ? publications.subList(0, size) : publications, PageRequest.of(0, size, sort), hasNext);
+    }
+
+    @Override
+    public void scroll(Specification<Publication> spec, Sort sort, int fetchSize, Consumer<Publication> action) {
+        try (Stream<Publication> publications = entityManager.createQuery(criteriaQuery(spec, sort))
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            publications.forEach(publication -> {
+                action.accept(publication);
+                entityManager.detach(publication);
+            });
+        }
+    }
+
+    @Override
+    public Page<PublicationSummaryDTO> findSummaries(Specification<Publication> spec, Set<SummaryField> fields,
+                                                     int excerptLength, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Publication> root = query.from(Publication.class);
+        query.multiselect(summarySelections(root, criteriaBuilder, fields, excerptLength));
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<PublicationSummaryDTO> summaries = toSummaries(typedQuery.getResultList(), fields, excerptLength);
+        return PageableExecutionUtils.getPage(summaries, pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<PublicationSummaryDTO> findSummariesById(Collection<Long> ids, Set<SummaryField> fields, int excerptLength) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Publication> root = query.from(Publication.class);
+        query.multiselect(summarySelections(root, criteriaBuilder, fields, excerptLength));
+        query.where(root.get("id").in(ids));
+        return toSummaries(entityManager.createQuery(query).getResultList(), fields, excerptLength);
+    }
+
+    @Override
+    public List<PublicationAggregate> aggregateByStatusTypeAndPublishDay() {
+        return jdbcTemplate.query(AGGREGATE_SQL, (row, rowNum) -> {
+            Date day = row.getDate(3);
+            return new PublicationAggregate(PublicationStatus.valueOf(row.getString(1)),
+                    PublicationType.valueOf(row.getString(2)), day == null ? null : day.toLocalDate(),
+                    row.getLong(4), row.getLong(5));
+        });
+    }
+
+    private long count(Specification<Publication> spec) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Publication> root = query.from(Publication.class);
+        query.select(criteriaBuilder.count(root));
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static List<Selection<?>> summarySelections(Root<Publication> root, CriteriaBuilder criteriaBuilder,
+                                                         Set<SummaryField> fields, int excerptLength) {
+        List<Selection<?>> selections = new ArrayList<>(fields.size() + 1);
+        selections.add(root.get("id").alias("id"));
+        for (SummaryField field : fields) {
+            if (field == SummaryField.EXCERPT) {
+                // One character more than the excerpt tells whether the description goes on
+                selections.add(criteriaBuilder.substring(root.get("description"), 1, excerptLength + 1)
+                        .alias(field.getProperty()));
+            } else {
+                selections.add(root.get(field.getProperty()).alias(field.getProperty()));
+            }
+        }
+        return selections;
+    }
+
+    private static List<PublicationSummaryDTO> toSummaries(List<Tuple> rows, Set<SummaryField> fields, int excerptLength) {
+        List<PublicationSummaryDTO> summaries = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            PublicationSummaryDTO summary = new PublicationSummaryDTO(row.get("id", Long.class));
+            for (SummaryField field : fields) {
+                switch (field) {
+                    case TITLE -> summary.setTitle(row.get("title", String.class));
+                    case EXCERPT -> {
+                        String excerpt = row.get("excerpt", String.class);
+                        boolean truncated = excerpt.length() > excerptLength;
+                        summary.setExcerpt(truncated ? excerpt.substring(0, excerptLength) : excerpt, truncated);
+                    }
+                    case VIEW_COUNT -> summary.setViewCount(row.get("viewCount", Integer.class));
+                    case PUBLISHED_AT -> summary.setPublishedAt(row.get("publishedAt", LocalDateTime.class));
+                    case UPDATED_AT -> summary.setUpdatedAt(row.get("updatedAt", LocalDateTime.class));
+                    case TYPE -> summary.setType(row.get("type", PublicationType.class));
+                    case STATUS -> summary.setStatus(row.get("status", PublicationStatus.class));
+                }
+            }
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    private CriteriaQuery<Publication> criteriaQuery(Specification<Publication> spec, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Publication> query = criteriaBuilder.createQuery(Publication.class);
+        Root<Publication> root = query.from(Publication.class);
+
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        return query;
+    }
+}
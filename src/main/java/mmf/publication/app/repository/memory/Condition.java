@@ -0,0 +1,349 @@
+package mmf.publication.app.repository.memory;
+
+import mmf.publication.app.entity.Publication;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * A specification's predicate, recorded by {@link SpecificationCompiler} so it can be evaluated
+ * against publications in memory and inspected for the parts an index can answer. Comparisons
+ * follow SQL: one with a null on either side never holds.
+ */
+abstract class Condition {
+    static final Condition TRUE = new Constant(true);
+    static final Condition FALSE = new Constant(false);
+
+    abstract boolean test(Publication publication);
+
+    /**
+     * The conditions that all have to hold for this one to hold; just this one unless it is a conjunction.
+     */
+    List<Condition> conjuncts() {
+        return List.of(this);
+    }
+
+    /**
+     * Orders values the way the database does, enums by their stored name.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object left, Object right) {
+        if (left instanceof Enum<?> && !(right instanceof Enum<?>)) {
+            left = ((Enum<?>) left).name();
+        }
+        if (right instanceof Enum<?> && !(left instanceof Enum<?>)) {
+            right = ((Enum<?>) right).name();
+        }
+        if (left instanceof Enum<?> leftEnum && right instanceof Enum<?> rightEnum) {
+            return leftEnum.name().compareTo(rightEnum.name());
+        }
+        if (left instanceof Number leftNumber && right instanceof Number rightNumber) {
+            if (left instanceof Double || left instanceof Float || right instanceof Double || right instanceof Float) {
+                return Double.compare(leftNumber.doubleValue(), rightNumber.doubleValue());
+            }
+            return Long.compare(leftNumber.longValue(), rightNumber.longValue());
+        }
+        return ((Comparable) left).compareTo(right);
+    }
+
+    /**
+     * A value a condition compares: a column, a constant or a function of one of them.
+     */
+    abstract static class Operand {
+        abstract Object value(Publication publication);
+    }
+
+    static final class Attribute extends Operand {
+        private final String property;
+        private final Function<Publication, Object> getter;
+
+        Attribute(String property) {
+            this.property = property;
+            this.getter = switch (property) {
+                case "id" -> Publication::getId;
+                case "title" -> Publication::getTitle;
+                case "description" -> Publication::getDescription;
+                case "descriptionHash" -> Publication::getDescriptionHash;
+                case "viewCount" -> Publication::getViewCount;
+                case "publishedAt" -> Publication::getPublishedAt;
+                case "updatedAt" -> Publication::getUpdatedAt;
+                case "type" -> Publication::getType;
+                case "status" -> Publication::getStatus;
+                case "keywordState" -> Publication::getKeywordState;
+                case "version" -> Publication::getVersion;
+                default -> throw new IllegalArgumentException(
+                        "Unable to locate attribute '" + property + "' the in-memory storage can compare");
+            };
+        }
+
+        String property() {
+            return property;
+        }
+
+        @Override
+        Object value(Publication publication) {
+            return getter.apply(publication);
+        }
+    }
+
+    static final class Literal extends Operand {
+        private final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        Object value() {
+            return value;
+        }
+
+        @Override
+        Object value(Publication publication) {
+            return value;
+        }
+    }
+
+    static final class CaseConversion extends Operand {
+        private final Operand operand;
+        private final boolean upper;
+
+        CaseConversion(Operand operand, boolean upper) {
+            this.operand = operand;
+            this.upper = upper;
+        }
+
+        @Override
+        Object value(Publication publication) {
+            Object value = operand.value(publication);
+            if (value == null) {
+                return null;
+            }
+            return upper ? value.toString().toUpperCase(Locale.ROOT) : value.toString().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    static final class Constant extends Condition {
+        private final boolean value;
+
+        private Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean test(Publication publication) {
+            return value;
+        }
+
+        @Override
+        List<Condition> conjuncts() {
+            return value ? List.of() : List.of(this);
+        }
+    }
+
+    static final class Junction extends Condition {
+        private final boolean conjunction;
+        private final Condition[] conditions;
+
+        Junction(boolean conjunction, List<Condition> conditions) {
+            this.conjunction = conjunction;
+            this.conditions = conditions.toArray(Condition[]::new);
+        }
+
+        @Override
+        boolean test(Publication publication) {
+            for (Condition condition : conditions) {
+                if (condition.test(publication) != conjunction) {
+                    return !conjunction;
+                }
+            }
+            return conjunction;
+        }
+
+        @Override
+        List<Condition> conjuncts() {
+            if (!conjunction) {
+                return List.of(this);
+            }
+            List<Condition> conjuncts = new ArrayList<>();
+            for (Condition condition : conditions) {
+                conjuncts.addAll(condition.conjuncts());
+            }
+            return conjuncts;
+        }
+    }
+
+    static final class Negation extends Condition {
+        private final Condition condition;
+
+        Negation(Condition condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        boolean test(Publication publication) {
+            return !condition.test(publication);
+        }
+    }
+
+    enum Operator {
+        EQUAL, NOT_EQUAL, LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL;
+
+        boolean holds(int comparison) {
+            return switch (this) {
+                case EQUAL -> comparison == 0;
+                case NOT_EQUAL -> comparison != 0;
+                case LESS_THAN -> comparison < 0;
+                case LESS_THAN_OR_EQUAL -> comparison <= 0;
+                case GREATER_THAN -> comparison > 0;
+                case GREATER_THAN_OR_EQUAL -> comparison >= 0;
+            };
+        }
+    }
+
+    static final class Comparison extends Condition {
+        private final Operand left;
+        private final Operator operator;
+        private final Operand right;
+
+        Comparison(Operand left, Operator operator, Operand right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        /**
+         * The compared column if this compares a column with a constant, else null.
+         */
+        String property() {
+            return left instanceof Attribute attribute && right instanceof Literal ? attribute.property() : null;
+        }
+
+        Operator operator() {
+            return operator;
+        }
+
+        Object constant() {
+            return ((Literal) right).value();
+        }
+
+        @Override
+        boolean test(Publication publication) {
+            Object leftValue = left.value(publication);
+            Object rightValue = right.value(publication);
+            return leftValue != null && rightValue != null && operator.holds(compare(leftValue, rightValue));
+        }
+    }
+
+    static final class Membership extends Condition {
+        private final Operand operand;
+        private final Set<Object> values;
+
+        Membership(Operand operand, Collection<?> values) {
+            this.operand = operand;
+            this.values = new HashSet<>(values);
+        }
+
+        String property() {
+            return operand instanceof Attribute attribute ? attribute.property() : null;
+        }
+
+        Set<Object> values() {
+            return values;
+        }
+
+        @Override
+        boolean test(Publication publication) {
+            Object value = operand.value(publication);
+            if (value == null) {
+                return false;
+            }
+            if (value instanceof Number number && !values.contains(value)) {
+                // Ids may be given as any kind of number
+                for (Object candidate : values) {
+                    if (candidate instanceof Number && compare(number, candidate) == 0) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return values.contains(value);
+        }
+    }
+
+    static final class Like extends Condition {
+        private final Operand operand;
+        // Set for the usual %text% pattern, which needs no regular expression
+        private final String contained;
+        private final Pattern pattern;
+
+        /**
+         * @param escape the character that makes the next one of the pattern literal, or null
+         */
+        Like(Operand operand, String pattern, Character escape) {
+            this.operand = operand;
+            String inner = pattern.length() >= 2 && pattern.startsWith("%") && pattern.endsWith("%")
+                    ? pattern.substring(1, pattern.length() - 1) : null;
+            if (inner != null && inner.indexOf('%') < 0 && inner.indexOf('_') < 0
+                    && (escape == null || inner.indexOf(escape) < 0)) {
+                this.contained = inner;
+                this.pattern = null;
+            } else {
+                this.contained = null;
+                this.pattern = toRegex(pattern, escape);
+            }
+        }
+
+        private static Pattern toRegex(String pattern, Character escape) {
+            StringBuilder regex = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (escape != null && c == escape && i + 1 < pattern.length()) {
+                    literal.append(pattern.charAt(++i));
+                } else if (c == '%' || c == '_') {
+                    if (!literal.isEmpty()) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    regex.append(c == '%' ? ".*" : ".");
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (!literal.isEmpty()) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+
+        @Override
+        boolean test(Publication publication) {
+            Object value = operand.value(publication);
+            if (value == null) {
+                return false;
+            }
+            return contained != null ? value.toString().contains(contained) : pattern.matcher(value.toString()).matches();
+        }
+    }
+
+    static final class NullCheck extends Condition {
+        private final Operand operand;
+        private final boolean isNull;
+
+        NullCheck(Operand operand, boolean isNull) {
+            this.operand = operand;
+            this.isNull = isNull;
+        }
+
+        @Override
+        boolean test(Publication publication) {
+            return (operand.value(publication) == null) == isNull;
+        }
+    }
+}
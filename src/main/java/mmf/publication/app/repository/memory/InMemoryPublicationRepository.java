@@ -0,0 +1,874 @@
+package mmf.publication.app.repository.memory;
+
+import jakarta.persistence.EntityNotFoundException;
+import mmf.publication.app.dto.PublicationAggregate;
+import mmf.publication.app.dto.PublicationSummaryDTO;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.enums.SummaryField;
+import mmf.publication.app.repository.PublicationRepository;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Keeps publications in memory behind the same contract as the database-backed repository, so the
+ * service layer can be load-tested at millions of rows without a database. Next to the id map it
+ * keeps the indexes the database has: a bitmap of ids per status and per type, and a sorted map
+ * ordered by {@code (publishedAt, id)}. A specification is recorded by {@link SpecificationCompiler};
+ * its status and type equalities intersect the bitmaps, and its ranges on {@code publishedAt} and
+ * {@code id} narrow the sorted maps, before the remaining rows are tested against it. Pages sorted by
+ * {@code id} or {@code publishedAt} are read in index order and stop once full; other orders sort
+ * every match.
+ * <p>
+ * Stored rows are never changed in place: a write replaces a row with a new copy, and callers get
+ * copies too, just as they get detached entities from the database. Lookups by id therefore need
+ * no lock, while index scans share a read lock that writers take exclusively. Ids are generated
+ * from 1 and double as bit positions, so they stay within the range of an {@code int}.
+ */
+public class InMemoryPublicationRepository implements PublicationRepository {
+    private final ConcurrentSkipListMap<Long, Publication> byId = new ConcurrentSkipListMap<>();
+    // A tree rather than a skip list: the lock guards it anyway, and a skip list walks backwards,
+    // as every newest-first page does, by searching for each previous entry anew
+    private final TreeMap<PublishedKey, Publication> byPublishedAt = new TreeMap<>();
+    private final Map<PublicationStatus, BitSet> byStatus = new EnumMap<>(PublicationStatus.class);
+    private final Map<PublicationType, BitSet> byType = new EnumMap<>(PublicationType.class);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long lastId;
+
+    public InMemoryPublicationRepository() {
+        for (PublicationStatus status : PublicationStatus.values()) {
+            byStatus.put(status, new BitSet());
+        }
+        for (PublicationType type : PublicationType.values()) {
+            byType.put(type, new BitSet());
+        }
+    }
+
+    @Override
+    public <S extends Publication> S save(S entity) {
+        lock.writeLock().lock();
+        try {
+            store(entity);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return entity;
+    }
+
+    @Override
+    public <S extends Publication> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (S entity : entities) {
+                store(entity);
+                saved.add(entity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return saved;
+    }
+
+    @Override
+    public <S extends Publication> S saveAndFlush(S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public <S extends Publication> List<S> saveAllAndFlush(Iterable<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void insertAll(List<Publication> publications) {
+        lock.writeLock().lock();
+        try {
+            for (Publication publication : publications) {
+                publication.setId(nextId());
+                index(new Publication(publication));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void addViewCounts(Map<Long, Long> viewCountDeltas, LocalDateTime updatedAt) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Long> delta : viewCountDeltas.entrySet()) {
+                Publication stored = byId.get(delta.getKey());
+                if (stored != null) {
+                    Publication viewed = new Publication(stored);
+                    viewed.setViewCount((int) (stored.getViewCount() + delta.getValue()));
+                    viewed.setUpdatedAt(updatedAt);
+                    replace(stored, viewed);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Publication> findById(Long id) {
+        return Optional.ofNullable(byId.get(id)).map(Publication::new);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return byId.containsKey(id);
+    }
+
+    @Override
+    public Optional<Long> findVersionById(Long id) {
+        return Optional.ofNullable(byId.get(id)).map(Publication::getVersion);
+    }
+
+    @Override
+    public Publication getReferenceById(Long id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException("Publication with id " + id + " does not exist"));
+    }
+
+    @Override
+    @Deprecated
+    public Publication getOne(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    @Deprecated
+    public Publication getById(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    public List<Publication> findAllById(Iterable<Long> ids) {
+        List<Publication> publications = new ArrayList<>();
+        for (Long id : ids) {
+            Publication stored = byId.get(id);
+            if (stored != null) {
+                publications.add(new Publication(stored));
+            }
+        }
+        return publications;
+    }
+
+    @Override
+    public List<Publication> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit) {
+        List<Publication> publications = new ArrayList<>();
+        Iterator<Publication> rows = byId.tailMap(id, false).values().iterator();
+        while (rows.hasNext() && (limit.isUnlimited() || publications.size() < limit.max())) {
+            publications.add(new Publication(rows.next()));
+        }
+        return publications;
+    }
+
+    @Override
+    public long count() {
+        return byId.size();
+    }
+
+    @Override
+    public List<Publication> findAll() {
+        return findAll((Specification<Publication>) null);
+    }
+
+    @Override
+    public List<Publication> findAll(Sort sort) {
+        return findAll((Specification<Publication>) null, sort);
+    }
+
+    @Override
+    public Page<Publication> findAll(Pageable pageable) {
+        return findAll((Specification<Publication>) null, pageable);
+    }
+
+    @Override
+    public Optional<Publication> findOne(Specification<Publication> spec) {
+        List<Publication> matches = select(spec, Sort.unsorted(), 0, 2);
+        if (matches.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1);
+        }
+        return matches.stream().findFirst();
+    }
+
+    @Override
+    public List<Publication> findAll(Specification<Publication> spec) {
+        return findAll(spec, Sort.unsorted());
+    }
+
+    @Override
+    public List<Publication> findAll(Specification<Publication> spec, Sort sort) {
+        return select(spec, sort, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Page<Publication> findAll(Specification<Publication> spec, Pageable pageable) {
+        lock.readLock().lock();
+        try {
+            Plan plan = plan(spec);
+            List<Publication> content = pageable.isPaged()
+                    ? copies(select(plan, pageable.getSort(), pageable.getOffset(), pageable.getPageSize()))
+                    : copies(select(plan, Sort.unsorted(), 0, Integer.MAX_VALUE));
+            return PageableExecutionUtils.getPage(content, pageable, () -> count(plan));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Slice<Publication> findSlice(Specification<Publication> spec, Sort sort, int size) {
+        List<Publication> publications = select(spec, sort, 0, size + 1);
+        boolean hasNext = publications.size() > size;
+        return new SliceImpl<>(hasNext ? publications.subList(0, size) : publications, PageRequest.of(0, size, sort), hasNext);
+    }
+
+    /**
+     * Collects the matches before passing them on, so {@code action} runs without the lock and may write.
+     */
+    @Override
+    public void scroll(Specification<Publication> spec, Sort sort, int fetchSize, Consumer<Publication> action) {
+        List<Publication> rows;
+        lock.readLock().lock();
+        try {
+            rows = select(plan(spec), sort, 0, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (Publication row : rows) {
+            action.accept(new Publication(row));
+        }
+    }
+
+    @Override
+    public long count(Specification<Publication> spec) {
+        lock.readLock().lock();
+        try {
+            return count(plan(spec));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(Specification<Publication> spec) {
+        return !select(spec, Sort.unsorted(), 0, 1).isEmpty();
+    }
+
+    @Override
+    public Page<PublicationSummaryDTO> findSummaries(Specification<Publication> spec, Set<SummaryField> fields,
+                                                     int excerptLength, Pageable pageable) {
+        lock.readLock().lock();
+        try {
+            Plan plan = plan(spec);
+            List<Publication> rows = pageable.isPaged()
+                    ? select(plan, pageable.getSort(), pageable.getOffset(), pageable.getPageSize())
+                    : select(plan, Sort.unsorted(), 0, Integer.MAX_VALUE);
+            List<PublicationSummaryDTO> summaries = new ArrayList<>(rows.size());
+            for (Publication row : rows) {
+                summaries.add(PublicationSummaryDTO.of(row, fields, excerptLength));
+            }
+            return PageableExecutionUtils.getPage(summaries, pageable, () -> count(plan));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<PublicationSummaryDTO> findSummariesById(Collection<Long> ids, Set<SummaryField> fields, int excerptLength) {
+        List<PublicationSummaryDTO> summaries = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Publication stored = byId.get(id);
+            if (stored != null) {
+                summaries.add(PublicationSummaryDTO.of(stored, fields, excerptLength));
+            }
+        }
+        return summaries;
+    }
+
+    @Override
+    public List<PublicationAggregate> aggregateByStatusTypeAndPublishDay() {
+        Map<PublicationStatus, Map<PublicationType, Map<LocalDate, long[]>>> groups = new EnumMap<>(PublicationStatus.class);
+        for (Publication row : byId.values()) {
+            long[] group = groups.computeIfAbsent(row.getStatus(), status -> new EnumMap<>(PublicationType.class))
+                    .computeIfAbsent(row.getType(), type -> new HashMap<>())
+                    .computeIfAbsent(row.getPublishedAt().toLocalDate(), day -> new long[2]);
+            group[0]++;
+            group[1] += row.getViewCount();
+        }
+
+        List<PublicationAggregate> aggregates = new ArrayList<>();
+        groups.forEach((status, types) -> types.forEach((type, days) -> days.forEach((day, group) ->
+                aggregates.add(new PublicationAggregate(status, type, day, group[0], group[1])))));
+        return aggregates;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Publication entity) {
+        deleteById(entity.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<Long> ids) {
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Publication> entities) {
+        List<Long> ids = new ArrayList<>();
+        entities.forEach(entity -> ids.add(entity.getId()));
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<Publication> entities) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAll() {
+        lock.writeLock().lock();
+        try {
+            byId.clear();
+            byPublishedAt.clear();
+            byStatus.values().forEach(BitSet::clear);
+            byType.values().forEach(BitSet::clear);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    @Override
+    public long delete(Specification<Publication> spec) {
+        lock.writeLock().lock();
+        try {
+            List<Publication> rows = select(plan(spec), Sort.unsorted(), 0, Integer.MAX_VALUE);
+            rows.forEach(row -> remove(row.getId()));
+            return rows.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public <S extends Publication, R> R findBy(Specification<Publication> spec,
+                                               Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw new UnsupportedOperationException("The in-memory storage does not run fluent queries");
+    }
+
+    @Override
+    public <S extends Publication> Optional<S> findOne(Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Publication> List<S> findAll(Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Publication> List<S> findAll(Example<S> example, Sort sort) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Publication> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Publication> long count(Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Publication> boolean exists(Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Publication, R> R findBy(Example<S> example,
+                                               Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw queryByExample();
+    }
+
+    private static UnsupportedOperationException queryByExample() {
+        return new UnsupportedOperationException("The in-memory storage does not query by example");
+    }
+
+    /**
+     * Inserts a new publication, or writes back a changed one, raising its version and update time
+     * like the database does. A stale or unknown version is rejected the same way too.
+     */
+    private void store(Publication entity) {
+        if (entity.getId() == null) {
+            entity.setId(nextId());
+            index(new Publication(entity));
+            return;
+        }
+
+        Publication stored = byId.get(entity.getId());
+        if (stored == null || stored.getVersion() != entity.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Publication.class, entity.getId());
+        }
+        if (unchanged(stored, entity)) {
+            return;
+        }
+        entity.setVersion(entity.getVersion() + 1);
+        entity.setUpdatedAt(LocalDateTime.now());
+        replace(stored, new Publication(entity));
+    }
+
+    private static boolean unchanged(Publication stored, Publication entity) {
+        return Objects.equals(stored.getTitle(), entity.getTitle())
+                && Objects.equals(stored.getDescription(), entity.getDescription())
+                && stored.getViewCount() == entity.getViewCount()
+                && Objects.equals(stored.getPublishedAt(), entity.getPublishedAt())
+                && Objects.equals(stored.getUpdatedAt(), entity.getUpdatedAt())
+                && stored.getType() == entity.getType()
+                && stored.getStatus() == entity.getStatus()
+                && Objects.equals(stored.getFrequentWords(), entity.getFrequentWords())
+                && stored.getKeywordState() == entity.getKeywordState()
+                && stored.getAppUser() == entity.getAppUser();
+    }
+
+    private long nextId() {
+        if (lastId == Integer.MAX_VALUE) {
+            throw new IllegalStateException("The in-memory storage is full");
+        }
+        return ++lastId;
+    }
+
+    private void index(Publication row) {
+        int bit = row.getId().intValue();
+        byId.put(row.getId(), row);
+        byPublishedAt.put(new PublishedKey(row.getPublishedAt(), row.getId()), row);
+        byStatus.get(row.getStatus()).set(bit);
+        byType.get(row.getType()).set(bit);
+    }
+
+    private void unindex(Publication row) {
+        int bit = row.getId().intValue();
+        byPublishedAt.remove(new PublishedKey(row.getPublishedAt(), row.getId()));
+        byStatus.get(row.getStatus()).clear(bit);
+        byType.get(row.getType()).clear(bit);
+    }
+
+    private void replace(Publication stored, Publication row) {
+        unindex(stored);
+        index(row);
+    }
+
+    private void remove(Long id) {
+        Publication stored = byId.remove(id);
+        if (stored != null) {
+            unindex(stored);
+        }
+    }
+
+    private List<Publication> select(Specification<Publication> spec, Sort sort, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return copies(select(plan(spec), sort, offset, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Publication> copies(List<Publication> rows) {
+        List<Publication> copies = new ArrayList<>(rows.size());
+        for (Publication row : rows) {
+            copies.add(new Publication(row));
+        }
+        return copies;
+    }
+
+    /**
+     * The stored rows from {@code offset} on, at most {@code limit} of them. Must hold the read lock.
+     */
+    private List<Publication> select(Plan plan, Sort sort, long offset, int limit) {
+        Order requested = Order.of(sort);
+        Order source = plan.source(requested);
+        List<Publication> rows = new ArrayList<>();
+        if (requested == source) {
+            long[] skipped = {0};
+            scan(plan, source, row -> {
+                if (skipped[0] < offset) {
+                    skipped[0]++;
+                    return true;
+                }
+                rows.add(row);
+                return rows.size() < limit;
+            });
+            return rows;
+        }
+
+        scan(plan, source, rows::add);
+        rows.sort(comparator(sort));
+        int from = (int) Math.min(offset, rows.size());
+        return rows.subList(from, (int) Math.min(rows.size(), from + (long) limit));
+    }
+
+    private long count(Plan plan) {
+        if (plan.answeredByBitmap()) {
+            return plan.bitmap == null ? byId.size() : plan.bitmap.cardinality();
+        }
+        long[] count = {0};
+        scan(plan, plan.source(null), row -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    /**
+     * Passes the matches in the order of the index that serves them until {@code visitor} returns false.
+     */
+    private void scan(Plan plan, Order source, Predicate<Publication> visitor) {
+        if (plan.empty) {
+            return;
+        }
+        if (plan.ids != null) {
+            List<Long> ids = new ArrayList<>(plan.ids);
+            ids.sort(source == Order.ID_DESCENDING ? Comparator.reverseOrder() : Comparator.naturalOrder());
+            for (Long id : ids) {
+                Publication row = byId.get(id);
+                if (row != null && plan.matches(row) && !visitor.test(row)) {
+                    return;
+                }
+            }
+        } else if (source == Order.PUBLISHED_AT_ASCENDING || source == Order.PUBLISHED_AT_DESCENDING) {
+            NavigableMap<PublishedKey, Publication> range = byPublishedAt;
+            if (plan.publishedFrom != null) {
+                range = range.tailMap(plan.publishedFrom, true);
+            }
+            if (plan.publishedTo != null) {
+                range = range.headMap(plan.publishedTo, true);
+            }
+            if (source == Order.PUBLISHED_AT_DESCENDING) {
+                range = range.descendingMap();
+            }
+            for (Publication row : range.values()) {
+                if (plan.matches(row) && !visitor.test(row)) {
+                    return;
+                }
+            }
+        } else if (plan.bitmap != null) {
+            int from = (int) Math.max(plan.idFrom, 0);
+            int to = (int) Math.min(plan.idTo, Integer.MAX_VALUE - 1);
+            if (source == Order.ID_DESCENDING) {
+                for (int bit = plan.bitmap.previousSetBit(to); bit >= from; bit = plan.bitmap.previousSetBit(bit - 1)) {
+                    Publication row = byId.get((long) bit);
+                    if (row != null && plan.matches(row) && !visitor.test(row)) {
+                        return;
+                    }
+                }
+            } else {
+                for (int bit = plan.bitmap.nextSetBit(from); bit >= 0 && bit <= to; bit = plan.bitmap.nextSetBit(bit + 1)) {
+                    Publication row = byId.get((long) bit);
+                    if (row != null && plan.matches(row) && !visitor.test(row)) {
+                        return;
+                    }
+                }
+            }
+        } else {
+            NavigableMap<Long, Publication> range = byId.subMap(plan.idFrom, true, plan.idTo, true);
+            if (source == Order.ID_DESCENDING) {
+                range = range.descendingMap();
+            }
+            for (Publication row : range.values()) {
+                if (plan.matches(row) && !visitor.test(row)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Works out which index narrows the rows a specification can match. Must hold the read lock,
+     * since the bitmaps are combined right away.
+     */
+    private Plan plan(Specification<Publication> spec) {
+        Plan plan = new Plan(SpecificationCompiler.compile(spec));
+        for (Condition conjunct : plan.condition.conjuncts()) {
+            if (conjunct == Condition.FALSE) {
+                plan.empty = true;
+            } else if (conjunct instanceof Condition.Comparison comparison && comparison.property() != null) {
+                plan.narrow(comparison);
+            } else if (conjunct instanceof Condition.Membership membership && "id".equals(membership.property())) {
+                plan.narrow(membership);
+            } else {
+                plan.indexed = false;
+            }
+        }
+        return plan;
+    }
+
+    private static Comparator<Publication> comparator(Sort sort) {
+        Comparator<Publication> comparator = null;
+        for (Sort.Order order : sort) {
+            Condition.Attribute attribute = new Condition.Attribute(order.getProperty());
+            Comparator<Object> values = order.isIgnoreCase()
+                    ? (left, right) -> Condition.compare(left.toString().toLowerCase(), right.toString().toLowerCase())
+                    : Condition::compare;
+            // Nulls come first in ascending order, as in MySQL
+            Comparator<Publication> next = Comparator.comparing(attribute::value, Comparator.nullsFirst(values));
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator == null ? Comparator.comparing(Publication::getId) : comparator;
+    }
+
+    /**
+     * The orders rows can be read in without sorting them.
+     */
+    private enum Order {
+        ID_ASCENDING, ID_DESCENDING, PUBLISHED_AT_ASCENDING, PUBLISHED_AT_DESCENDING;
+
+        /**
+         * @return null if no index holds the rows in this order
+         */
+        static Order of(Sort sort) {
+            List<Sort.Order> orders = sort.toList();
+            if (orders.isEmpty()) {
+                return ID_ASCENDING;
+            }
+            Sort.Order first = orders.get(0);
+            if (first.isIgnoreCase() || orders.size() > 2) {
+                return null;
+            }
+            if (orders.size() == 2) {
+                Sort.Order second = orders.get(1);
+                if (!second.getProperty().equals("id") || second.getDirection() != first.getDirection()) {
+                    return null;
+                }
+            }
+            return switch (first.getProperty()) {
+                case "id" -> orders.size() == 1 ? (first.isAscending() ? ID_ASCENDING : ID_DESCENDING) : null;
+                case "publishedAt" -> first.isAscending() ? PUBLISHED_AT_ASCENDING : PUBLISHED_AT_DESCENDING;
+                default -> null;
+            };
+        }
+    }
+
+    /**
+     * The part of a specification the indexes can answer: the intersection of the bitmaps it names,
+     * the ids it lists and its bounds on {@code publishedAt} and {@code id}.
+     */
+    private final class Plan {
+        private final Condition condition;
+        private boolean empty;
+        private BitSet bitmap;
+        private Set<Long> ids;
+        private long idFrom = Long.MIN_VALUE;
+        private long idTo = Long.MAX_VALUE;
+        private PublishedKey publishedFrom;
+        private PublishedKey publishedTo;
+        // Whether the indexes answer the whole specification, so rows need not be tested against it
+        private boolean indexed = true;
+
+        private Plan(Condition condition) {
+            this.condition = condition;
+        }
+
+        private void narrow(Condition.Comparison comparison) {
+            Object constant = comparison.constant();
+            Condition.Operator operator = comparison.operator();
+            switch (comparison.property()) {
+                case "status" -> {
+                    if (operator == Condition.Operator.EQUAL && constant instanceof PublicationStatus status) {
+                        intersect(byStatus.get(status));
+                        return;
+                    }
+                }
+                case "type" -> {
+                    if (operator == Condition.Operator.EQUAL && constant instanceof PublicationType type) {
+                        intersect(byType.get(type));
+                        return;
+                    }
+                }
+                case "publishedAt" -> {
+                    if (constant instanceof LocalDateTime at && operator != Condition.Operator.NOT_EQUAL) {
+                        if (operator != Condition.Operator.LESS_THAN && operator != Condition.Operator.LESS_THAN_OR_EQUAL) {
+                            PublishedKey from = new PublishedKey(at, operator == Condition.Operator.GREATER_THAN ? Long.MAX_VALUE : Long.MIN_VALUE);
+                            publishedFrom = publishedFrom == null || from.compareTo(publishedFrom) > 0 ? from : publishedFrom;
+                        }
+                        if (operator != Condition.Operator.GREATER_THAN && operator != Condition.Operator.GREATER_THAN_OR_EQUAL) {
+                            PublishedKey to = new PublishedKey(at, operator == Condition.Operator.LESS_THAN ? Long.MIN_VALUE : Long.MAX_VALUE);
+                            publishedTo = publishedTo == null || to.compareTo(publishedTo) < 0 ? to : publishedTo;
+                        }
+                        empty |= publishedFrom != null && publishedTo != null && publishedFrom.compareTo(publishedTo) > 0;
+                        return;
+                    }
+                }
+                case "id" -> {
+                    if (constant instanceof Number number && operator != Condition.Operator.NOT_EQUAL) {
+                        long id = number.longValue();
+                        if (operator != Condition.Operator.LESS_THAN && operator != Condition.Operator.LESS_THAN_OR_EQUAL) {
+                            idFrom = Math.max(idFrom, operator == Condition.Operator.GREATER_THAN ? id + 1 : id);
+                        }
+                        if (operator != Condition.Operator.GREATER_THAN && operator != Condition.Operator.GREATER_THAN_OR_EQUAL) {
+                            idTo = Math.min(idTo, operator == Condition.Operator.LESS_THAN ? id - 1 : id);
+                        }
+                        empty |= idFrom > idTo;
+                        return;
+                    }
+                }
+                default -> {
+                }
+            }
+            indexed = false;
+        }
+
+        private void narrow(Condition.Membership membership) {
+            Set<Long> listed = new HashSet<>();
+            for (Object value : membership.values()) {
+                if (value instanceof Number number) {
+                    listed.add(number.longValue());
+                }
+            }
+            if (ids != null) {
+                listed.retainAll(ids);
+            }
+            ids = listed;
+            empty |= ids.isEmpty();
+        }
+
+        private void intersect(BitSet other) {
+            if (bitmap == null) {
+                bitmap = (BitSet) other.clone();
+            } else {
+                bitmap.and(other);
+            }
+        }
+
+        /**
+         * Whether the bitmap alone tells the matches apart, so its cardinality counts them.
+         */
+        private boolean answeredByBitmap() {
+            return indexed && !empty && ids == null && publishedFrom == null && publishedTo == null
+                    && idFrom == Long.MIN_VALUE && idTo == Long.MAX_VALUE;
+        }
+
+        /**
+         * The index to read the rows from, in the requested order if it holds them in that order.
+         */
+        private Order source(Order requested) {
+            if (ids != null) {
+                return requested == Order.ID_DESCENDING ? Order.ID_DESCENDING : Order.ID_ASCENDING;
+            }
+            boolean byPublishedAt = requested == Order.PUBLISHED_AT_ASCENDING || requested == Order.PUBLISHED_AT_DESCENDING;
+            if (publishedFrom != null || publishedTo != null || byPublishedAt) {
+                return byPublishedAt ? requested : Order.PUBLISHED_AT_ASCENDING;
+            }
+            return requested == Order.ID_DESCENDING ? Order.ID_DESCENDING : Order.ID_ASCENDING;
+        }
+
+        private boolean matches(Publication row) {
+            long id = row.getId();
+            if (id < idFrom || id > idTo || (bitmap != null && !bitmap.get((int) id))) {
+                return false;
+            }
+            if (!indexed) {
+                return condition.test(row);
+            }
+            // Only the scan of the publishedAt index leaves out the rows beyond its bounds by itself
+            return (publishedFrom == null || publishedFrom.compareTo(row.getPublishedAt(), id) <= 0)
+                    && (publishedTo == null || publishedTo.compareTo(row.getPublishedAt(), id) >= 0);
+        }
+    }
+
+    /**
+     * Orders the rows like the {@code (publishedAt, id)} index of the database.
+     */
+    private static final class PublishedKey implements Comparable<PublishedKey> {
+        private final LocalDateTime publishedAt;
+        private final long id;
+
+        private PublishedKey(LocalDateTime publishedAt, long id) {
+            this.publishedAt = publishedAt;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(PublishedKey other) {
+            return compareTo(other.publishedAt, other.id);
+        }
+
+        private int compareTo(LocalDateTime otherPublishedAt, long otherId) {
+            int byTime = publishedAt.compareTo(otherPublishedAt);
+            return byTime != 0 ? byTime : Long.compare(id, otherId);
+        }
+    }
+}
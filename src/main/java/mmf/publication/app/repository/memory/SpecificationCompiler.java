@@ -0,0 +1,226 @@
+package mmf.publication.app.repository.memory;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import mmf.publication.app.entity.Publication;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Turns a {@link Specification} into a {@link Condition} by handing it a criteria builder that
+ * records what it is asked for instead of building a query. It covers the comparisons, {@code like},
+ * {@code in}, null checks and junctions the specifications of this application are made of; anything
+ * else is rejected, so a specification can never silently match more than it does in the database.
+ */
+final class SpecificationCompiler {
+    private static final Root<?> ROOT = proxy(Root.class, SpecificationCompiler::root);
+    private static final CriteriaQuery<?> QUERY = proxy(CriteriaQuery.class, (method, args) -> {
+        throw unsupported("CriteriaQuery", method);
+    });
+    private static final CriteriaBuilder BUILDER = proxy(CriteriaBuilder.class, SpecificationCompiler::build);
+
+    private SpecificationCompiler() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static Condition compile(Specification<Publication> spec) {
+        if (spec == null) {
+            return Condition.TRUE;
+        }
+        Predicate predicate = spec.toPredicate((Root<Publication>) ROOT, QUERY, BUILDER);
+        return predicate == null ? Condition.TRUE : condition(predicate);
+    }
+
+    private static Object root(Method method, Object[] args) {
+        if (method.getName().equals("get") && args.length == 1 && args[0] instanceof String property) {
+            return expression(new Condition.Attribute(property));
+        }
+        throw unsupported("Root", method);
+    }
+
+    private static Object build(Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "conjunction" -> predicate(Condition.TRUE);
+            case "disjunction" -> predicate(Condition.FALSE);
+            case "and" -> predicate(new Condition.Junction(true, conditions(args)));
+            case "or" -> predicate(new Condition.Junction(false, conditions(args)));
+            case "not" -> predicate(new Condition.Negation(condition(args[0])));
+            case "equal" -> comparison(args, Condition.Operator.EQUAL);
+            case "notEqual" -> comparison(args, Condition.Operator.NOT_EQUAL);
+            case "lessThan", "lt" -> comparison(args, Condition.Operator.LESS_THAN);
+            case "lessThanOrEqualTo", "le" -> comparison(args, Condition.Operator.LESS_THAN_OR_EQUAL);
+            case "greaterThan", "gt" -> comparison(args, Condition.Operator.GREATER_THAN);
+            case "greaterThanOrEqualTo", "ge" -> comparison(args, Condition.Operator.GREATER_THAN_OR_EQUAL);
+            case "between" -> predicate(new Condition.Junction(true, List.of(
+                    new Condition.Comparison(operand(args[0]), Condition.Operator.GREATER_THAN_OR_EQUAL, operand(args[1])),
+                    new Condition.Comparison(operand(args[0]), Condition.Operator.LESS_THAN_OR_EQUAL, operand(args[2])))));
+            case "like", "notLike" -> {
+                if (args.length != 2 && !(args.length == 3 && args[2] instanceof Character)) {
+                    throw unsupported("CriteriaBuilder", method);
+                }
+                Object pattern = args[1] instanceof String ? args[1] : literal(args[1]);
+                Condition like = new Condition.Like(operand(args[0]), (String) pattern,
+                        args.length == 3 ? (Character) args[2] : null);
+                yield predicate(method.getName().equals("like") ? like : new Condition.Negation(like));
+            }
+            case "lower" -> expression(new Condition.CaseConversion(operand(args[0]), false));
+            case "upper" -> expression(new Condition.CaseConversion(operand(args[0]), true));
+            case "isNull" -> predicate(new Condition.NullCheck(operand(args[0]), true));
+            case "isNotNull" -> predicate(new Condition.NullCheck(operand(args[0]), false));
+            case "literal" -> expression(new Condition.Literal(args[0]));
+            default -> throw unsupported("CriteriaBuilder", method);
+        };
+    }
+
+    private static Object comparison(Object[] args, Condition.Operator operator) {
+        return predicate(new Condition.Comparison(operand(args[0]), operator, operand(args[1])));
+    }
+
+    /**
+     * The methods of an expression; {@code self} is the proxy they were called on.
+     */
+    private static Object express(Condition.Operand operand, Object self, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "in" -> {
+                List<Object> values = new ArrayList<>();
+                for (Object arg : flatten(args)) {
+                    values.add(arg instanceof Expression<?> ? literal(arg) : arg);
+                }
+                yield predicate(new Condition.Membership(operand, values));
+            }
+            case "isNull" -> predicate(new Condition.NullCheck(operand, true));
+            case "isNotNull" -> predicate(new Condition.NullCheck(operand, false));
+            case "alias", "as" -> self;
+            default -> throw unsupported("Expression", method);
+        };
+    }
+
+    private static Object predicate(Condition condition) {
+        Node node = new Node(condition, null);
+        return Proxy.newProxyInstance(Predicate.class.getClassLoader(), new Class<?>[]{Predicate.class}, node);
+    }
+
+    private static Object expression(Condition.Operand operand) {
+        Node node = new Node(null, operand);
+        return Proxy.newProxyInstance(Path.class.getClassLoader(), new Class<?>[]{Path.class}, node);
+    }
+
+    private static List<Condition> conditions(Object[] args) {
+        List<Condition> conditions = new ArrayList<>();
+        for (Object arg : flatten(args)) {
+            conditions.add(condition(arg));
+        }
+        return conditions;
+    }
+
+    private static List<Object> flatten(Object[] args) {
+        List<Object> flat = new ArrayList<>();
+        for (Object arg : args) {
+            if (arg instanceof Object[] array) {
+                flat.addAll(Arrays.asList(array));
+            } else if (arg instanceof Collection<?> collection) {
+                flat.addAll(collection);
+            } else {
+                flat.add(arg);
+            }
+        }
+        return flat;
+    }
+
+    private static Condition condition(Object predicate) {
+        if (Proxy.isProxyClass(predicate.getClass()) && Proxy.getInvocationHandler(predicate) instanceof Node node
+                && node.condition != null) {
+            return node.condition;
+        }
+        throw new UnsupportedOperationException("Not a predicate of the in-memory storage: " + predicate);
+    }
+
+    private static Condition.Operand operand(Object value) {
+        if (value instanceof Expression<?>) {
+            if (Proxy.isProxyClass(value.getClass()) && Proxy.getInvocationHandler(value) instanceof Node node
+                    && node.operand != null) {
+                return node.operand;
+            }
+            throw new UnsupportedOperationException("Not an expression of the in-memory storage: " + value);
+        }
+        return new Condition.Literal(value);
+    }
+
+    private static Object literal(Object expression) {
+        if (operand(expression) instanceof Condition.Literal literal) {
+            return literal.value();
+        }
+        throw new UnsupportedOperationException("The in-memory storage only takes constants here: " + expression);
+    }
+
+    private static UnsupportedOperationException unsupported(String type, Method method) {
+        return new UnsupportedOperationException("The in-memory storage cannot evaluate " + type + "." + method.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object[] arguments = args == null ? new Object[0] : args;
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, arguments, type.getSimpleName());
+            }
+            return handler.handle(method, arguments);
+        });
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args, String description) {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> description;
+        };
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args);
+    }
+
+    /**
+     * A recorded predicate, or a recorded expression.
+     */
+    private static final class Node implements InvocationHandler {
+        private final Condition condition;
+        private final Condition.Operand operand;
+
+        private Node(Condition condition, Condition.Operand operand) {
+            this.condition = condition;
+            this.operand = operand;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            Object[] arguments = args == null ? new Object[0] : args;
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, arguments, condition != null ? "Predicate" : "Expression");
+            }
+            if (condition == null) {
+                return express(operand, proxy, method, arguments);
+            }
+            return switch (method.getName()) {
+                case "not" -> predicate(new Condition.Negation(condition));
+                case "isNegated" -> false;
+                case "getOperator" -> Predicate.BooleanOperator.AND;
+                case "getExpressions" -> List.of();
+                case "alias", "as" -> proxy;
+                default -> throw unsupported("Predicate", method);
+            };
+        }
+    }
+}
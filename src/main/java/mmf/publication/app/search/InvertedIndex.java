@@ -0,0 +1,467 @@
+package mmf.publication.app.search;
+
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Term dictionary over publication titles and descriptions. Every term maps to a compressed
+ * {@link PostingList}; every document keeps the fields the list filters need, so a search is
+ * answered without touching the database. A document matches when every query term is a prefix
+ * of one of its terms, so "search as you type" queries keep working; unlike the {@code LIKE}
+ * search of the database, a term inside a word ("base" in "database") does not match. Archived
+ * documents stay indexed, flagged with their {@link Tier}, so the archive is searched the same way.
+ */
+public class InvertedIndex {
+    private final NavigableMap<String, PostingList> dictionary = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void index(long id, String title, String description, PublicationStatus status,
+                      PublicationType type, LocalDateTime publishedAt) {
+        index(id, title, description, status, type, publishedAt, false);
+    }
+
+    public void index(long id, String title, String description, PublicationStatus status,
+                      PublicationType type, LocalDateTime publishedAt, boolean archived) {
+        Map<String, int[]> frequencies = new HashMap<>();
+        for (String term : tokenize(title)) {
+            frequencies.computeIfAbsent(term, key -> new int[1])[0]++;
+        }
+        for (String term : tokenize(description)) {
+            frequencies.computeIfAbsent(term, key -> new int[1])[0]++;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+            String[] terms = new String[frequencies.size()];
+            int i = 0;
+            for (Map.Entry<String, int[]> frequency : frequencies.entrySet()) {
+                terms[i++] = frequency.getKey();
+                dictionary.computeIfAbsent(frequency.getKey(), key -> new PostingList())
+                        .add(id, frequency.getValue()[0]);
+            }
+            documents.put(id, new Document(status, type, publishedAt, terms, archived));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flags an indexed document as archived, keeping its terms.
+     */
+    public void archive(long id) {
+        lock.writeLock().lock();
+        try {
+            Document document = documents.get(id);
+            if (document != null && !document.archived) {
+                documents.put(id, new Document(document.status, document.type, document.publishedAt, document.terms, true));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            dictionary.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the documents containing every term of the query and matching the filters, ordered by
+     * the summed frequency of the matched terms, highest first, then by id, newest first.
+     * A {@code null} filter matches everything.
+     */
+    public List<Long> search(String query, PublicationStatus status, PublicationType type,
+                             LocalDateTime startDate, LocalDateTime endDate) {
+        return search(query, status, type, startDate, endDate, Tier.CURRENT);
+    }
+
+    public List<Long> search(String query, PublicationStatus status, PublicationType type,
+                             LocalDateTime startDate, LocalDateTime endDate, Tier tier) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<long[]> hits = new ArrayList<>();
+            forEachMatch(queryTerms, status, type, startDate, endDate, tier, 0, (docId, score) -> {
+                hits.add(new long[]{docId, score});
+                return true;
+            });
+            hits.sort((a, b) -> a[1] != b[1] ? Long.compare(b[1], a[1]) : Long.compare(b[0], a[0]));
+
+            List<Long> ids = new ArrayList<>(hits.size());
+            for (long[] hit : hits) {
+                ids.add(hit[0]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code limit} matches from {@code offset} on in the order of a key the index holds, ties
+     * broken by id, and the number of all matches. Only those of the page are kept while the
+     * matches are walked, so no list of every hit is built.
+     */
+    public SortedHits search(String query, PublicationStatus status, PublicationType type,
+                             LocalDateTime startDate, LocalDateTime endDate,
+                             SortKey key, boolean ascending, boolean idAscending, long offset, int limit) {
+        return search(query, status, type, startDate, endDate, key, ascending, idAscending, offset, limit, Tier.CURRENT);
+    }
+
+    public SortedHits search(String query, PublicationStatus status, PublicationType type,
+                             LocalDateTime startDate, LocalDateTime endDate,
+                             SortKey key, boolean ascending, boolean idAscending, long offset, int limit, Tier tier) {
+        return page(query, status, type, startDate, endDate, tier, key, ascending, idAscending, null, offset, limit);
+    }
+
+    /**
+     * The first {@code limit} matches strictly after {@code afterKey} and {@code afterId} in the
+     * order of the key, ties broken by id in the same direction. In ascending id order the walk
+     * starts after {@code afterId} and stops once the page is full.
+     */
+    public List<Long> searchAfter(String query, PublicationStatus status, PublicationType type,
+                                  LocalDateTime startDate, LocalDateTime endDate,
+                                  SortKey key, boolean ascending, long afterKey, long afterId, int limit) {
+        return searchAfter(query, status, type, startDate, endDate, key, ascending, afterKey, afterId, limit, Tier.CURRENT);
+    }
+
+    public List<Long> searchAfter(String query, PublicationStatus status, PublicationType type,
+                                  LocalDateTime startDate, LocalDateTime endDate,
+                                  SortKey key, boolean ascending, long afterKey, long afterId, int limit, Tier tier) {
+        return page(query, status, type, startDate, endDate, tier, key, ascending, ascending,
+                new long[]{afterKey, afterId}, 0, limit).getIds();
+    }
+
+    private SortedHits page(String query, PublicationStatus status, PublicationType type,
+                            LocalDateTime startDate, LocalDateTime endDate, Tier tier, SortKey key, boolean ascending,
+                            boolean idAscending, long[] after, long offset, int limit) {
+        List<String> queryTerms = tokenize(query);
+        int window = (int) Math.min(Integer.MAX_VALUE - 8, offset + limit);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return new SortedHits(List.of(), 0);
+        }
+
+        Comparator<long[]> order = (a, b) -> a[0] != b[0] ?
+                (ascending ? Long.compare(a[0], b[0]) : Long.compare(b[0], a[0])) :
+                (idAscending ? Long.compare(a[1], b[1]) : Long.compare(b[1], a[1]));
+        // Matches arrive in ascending id order, so then the first ones found are the page
+        boolean inIdOrder = key == SortKey.ID && ascending && after != null;
+        lock.readLock().lock();
+        try {
+            // The last of the window on top, to be dropped when a match sorts before it
+            PriorityQueue<long[]> page = new PriorityQueue<>(Math.min(window, 1024) + 1, order.reversed());
+            int[] total = {0};
+            forEachMatch(queryTerms, status, type, startDate, endDate, tier, inIdOrder ? after[1] + 1 : 0, (docId, score) -> {
+                long[] hit = {key.of(docId, documents.get(docId)), docId};
+                if (after != null && order.compare(hit, after) <= 0) {
+                    return true;
+                }
+                total[0]++;
+                if (page.size() < window) {
+                    page.add(hit);
+                } else if (order.compare(hit, page.peek()) < 0) {
+                    page.poll();
+                    page.add(hit);
+                }
+                return !inIdOrder || page.size() < window;
+            });
+
+            long[][] sorted = page.toArray(new long[0][]);
+            Arrays.sort(sorted, order);
+            List<Long> ids = new ArrayList<>(Math.max(0, (int) Math.min(limit, sorted.length - offset)));
+            for (long i = offset; i < sorted.length; i++) {
+                ids.add(sorted[(int) i][1]);
+            }
+            return new SortedHits(ids, total[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int documentCount() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return dictionary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rough heap footprint: posting bytes plus object, key and reference overhead of the dictionary
+     * and the per-document fields.
+     */
+    public long estimatedSizeInBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Map.Entry<String, PostingList> term : dictionary.entrySet()) {
+                bytes += 40 + 2L * term.getKey().length() + 48 + term.getValue().sizeInBytes();
+            }
+            for (Document document : documents.values()) {
+                bytes += 72 + 8L * document.terms.length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into lower-cased runs of letters and digits.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            } else if (!term.isEmpty()) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (!term.isEmpty()) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    /**
+     * Walks the documents holding every query term, in id order from {@code fromId} on, and passes
+     * those matching the filters with their summed term frequency until the consumer returns false.
+     * Terms are intersected by leaping every term's postings to the largest id seen so far.
+     */
+    private void forEachMatch(List<String> queryTerms, PublicationStatus status, PublicationType type,
+                              LocalDateTime startDate, LocalDateTime endDate, Tier tier, long fromId,
+                              MatchConsumer consumer) {
+        List<TermPostings> terms = new ArrayList<>(queryTerms.size());
+        for (String queryTerm : queryTerms) {
+            TermPostings postings = new TermPostings(dictionary.subMap(queryTerm, true,
+                    queryTerm + Character.MAX_VALUE, false).values());
+            if (postings.documentCount == 0) {
+                return;
+            }
+            terms.add(postings);
+        }
+        // The rarest term leads, so the others leap the furthest
+        terms.sort(Comparator.comparingLong(postings -> postings.documentCount));
+
+        long target = fromId;
+        next:
+        while (true) {
+            for (TermPostings postings : terms) {
+                if (!postings.advanceTo(target)) {
+                    return;
+                }
+                if (postings.docId != target) {
+                    target = postings.docId;
+                    continue next;
+                }
+            }
+
+            int score = 0;
+            for (TermPostings postings : terms) {
+                score += postings.frequency;
+            }
+            if (documents.get(target).matches(status, type, startDate, endDate, tier) && !consumer.accept(target, score)) {
+                return;
+            }
+            target++;
+        }
+    }
+
+    private void removeUnlocked(long id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms) {
+            PostingList postings = dictionary.get(term);
+            if (postings != null && postings.remove(id) && postings.isEmpty()) {
+                dictionary.remove(term);
+            }
+        }
+    }
+
+    private static final class Document {
+        private final PublicationStatus status;
+        private final PublicationType type;
+        private final LocalDateTime publishedAt;
+        private final String[] terms;
+        private final boolean archived;
+
+        private Document(PublicationStatus status, PublicationType type, LocalDateTime publishedAt, String[] terms,
+                         boolean archived) {
+            this.status = status;
+            this.type = type;
+            this.publishedAt = publishedAt;
+            this.terms = terms;
+            this.archived = archived;
+        }
+
+        private boolean matches(PublicationStatus status, PublicationType type,
+                                LocalDateTime startDate, LocalDateTime endDate, Tier tier) {
+            return (tier == Tier.ALL || archived == (tier == Tier.ARCHIVED))
+                    && (status == null || status == this.status)
+                    && (type == null || type == this.type)
+                    && (startDate == null || (publishedAt != null && !publishedAt.isBefore(startDate)))
+                    && (endDate == null || (publishedAt != null && !publishedAt.isAfter(endDate)));
+        }
+    }
+
+    /**
+     * The documents a search looks at: those of the publication table, the archived ones, or both.
+     */
+    public enum Tier {
+        CURRENT, ARCHIVED, ALL
+    }
+
+    /**
+     * Keys of a document the index can order matches by. The view count and update time change
+     * without the document being indexed again, so they are left to the database.
+     */
+    public enum SortKey {
+        ID, PUBLISHED_AT;
+
+        private long of(long docId, Document document) {
+            return this == ID ? docId : of(document.publishedAt);
+        }
+
+        /**
+         * The key of a publication time at the microseconds the database keeps, publications
+         * without one sorting first as in the database.
+         */
+        public static long of(LocalDateTime publishedAt) {
+            return publishedAt == null ? Long.MIN_VALUE :
+                    publishedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + publishedAt.getNano() / 1000;
+        }
+    }
+
+    /**
+     * One page of matches in key order and the number of all matches.
+     */
+    public static final class SortedHits {
+        private final List<Long> ids;
+        private final int total;
+
+        public SortedHits(List<Long> ids, int total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    private interface MatchConsumer {
+        boolean accept(long docId, int score);
+    }
+
+    /**
+     * The union of the posting lists of every term a query term is a prefix of, walked in id order.
+     */
+    private static final class TermPostings {
+        private final PriorityQueue<PostingList.Cursor> cursors =
+                new PriorityQueue<>(Comparator.comparingLong(PostingList.Cursor::docId));
+        private final List<PostingList.Cursor> behind = new ArrayList<>();
+        private final long documentCount;
+        private long docId = Long.MIN_VALUE;
+        private int frequency;
+
+        private TermPostings(Collection<PostingList> postingLists) {
+            long count = 0;
+            for (PostingList postings : postingLists) {
+                behind.add(postings.cursor());
+                count += postings.documentCount();
+            }
+            this.documentCount = count;
+        }
+
+        /**
+         * Moves to the first document of at least {@code target} in any of the lists, summing the
+         * frequencies of the lists holding it.
+         */
+        private boolean advanceTo(long target) {
+            if (docId >= target && docId != Long.MIN_VALUE) {
+                return true;
+            }
+            while (!cursors.isEmpty() && cursors.peek().docId() < target) {
+                behind.add(cursors.poll());
+            }
+            for (PostingList.Cursor cursor : behind) {
+                if (cursor.advanceTo(target)) {
+                    cursors.add(cursor);
+                }
+            }
+            behind.clear();
+            if (cursors.isEmpty()) {
+                return false;
+            }
+
+            docId = cursors.peek().docId();
+            frequency = 0;
+            while (!cursors.isEmpty() && cursors.peek().docId() == docId) {
+                PostingList.Cursor cursor = cursors.poll();
+                frequency += cursor.frequency();
+                behind.add(cursor);
+            }
+            cursors.addAll(behind);
+            behind.clear();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package mmf.publication.app.search;
+
+import java.util.Arrays;
+
+/**
+ * Documents containing one term, ordered by id and stored in blocks of up to {@value #BLOCK_SIZE}
+ * variable-length deltas: each posting is {@code varint(docId - previousDocId) varint(frequency)}.
+ * Appending a document newer than every posting is O(1); any other change re-encodes only the
+ * block holding it, and a {@link Cursor} skips whole blocks by their id range.
+ */
+final class PostingList {
+    static final int BLOCK_SIZE = 128;
+
+    private Block[] blocks = new Block[1];
+    private int blockCount;
+    private int documentCount;
+
+    interface PostingConsumer {
+        void accept(long docId, int frequency);
+    }
+
+    void add(long docId, int frequency) {
+        Block last = blockCount == 0 ? null : blocks[blockCount - 1];
+        if (last == null || docId > last.lastDocId) {
+            if (last == null || last.count == BLOCK_SIZE) {
+                last = new Block();
+                insertBlock(blockCount, last);
+            }
+            last.append(docId, frequency);
+            documentCount++;
+            return;
+        }
+
+        int index = blockFor(docId);
+        Block block = blocks[index];
+        long[] docIds = new long[block.count + 1];
+        int[] frequencies = new int[block.count + 1];
+        int count = block.decode(docIds, frequencies);
+        int position = Arrays.binarySearch(docIds, 0, count, docId);
+        if (position >= 0) {
+            frequencies[position] = frequency;
+        } else {
+            position = -position - 1;
+            System.arraycopy(docIds, position, docIds, position + 1, count - position);
+            System.arraycopy(frequencies, position, frequencies, position + 1, count - position);
+            docIds[position] = docId;
+            frequencies[position] = frequency;
+            count++;
+            documentCount++;
+        }
+
+        if (count <= BLOCK_SIZE) {
+            blocks[index] = Block.of(docIds, frequencies, 0, count);
+        } else {
+            int half = count / 2;
+            blocks[index] = Block.of(docIds, frequencies, 0, half);
+            insertBlock(index + 1, Block.of(docIds, frequencies, half, count));
+        }
+    }
+
+    boolean remove(long docId) {
+        if (blockCount == 0) {
+            return false;
+        }
+        int index = blockFor(docId);
+        Block block = blocks[index];
+        if (docId < block.firstDocId || docId > block.lastDocId) {
+            return false;
+        }
+
+        long[] docIds = new long[block.count];
+        int[] frequencies = new int[block.count];
+        int count = block.decode(docIds, frequencies);
+        int position = Arrays.binarySearch(docIds, 0, count, docId);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(docIds, position + 1, docIds, position, count - position - 1);
+        System.arraycopy(frequencies, position + 1, frequencies, position, count - position - 1);
+        count--;
+        documentCount--;
+
+        if (count == 0) {
+            System.arraycopy(blocks, index + 1, blocks, index, blockCount - index - 1);
+            blocks[--blockCount] = null;
+        } else {
+            blocks[index] = Block.of(docIds, frequencies, 0, count);
+        }
+        return true;
+    }
+
+    void forEach(PostingConsumer consumer) {
+        for (int i = 0; i < blockCount; i++) {
+            blocks[i].forEach(consumer);
+        }
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    int documentCount() {
+        return documentCount;
+    }
+
+    boolean isEmpty() {
+        return documentCount == 0;
+    }
+
+    int sizeInBytes() {
+        int bytes = 16 + 8 * blocks.length;
+        for (int i = 0; i < blockCount; i++) {
+            bytes += 48 + blocks[i].data.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * The last block whose first id is not above {@code docId}, or the first block.
+     */
+    private int blockFor(long docId) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (blocks[middle].firstDocId <= docId) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private void insertBlock(int index, Block block) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blocks.length << 1);
+        }
+        System.arraycopy(blocks, index, blocks, index + 1, blockCount - index);
+        blocks[index] = block;
+        blockCount++;
+    }
+
+    /**
+     * Walks the postings forward in id order. Before the first {@link #advanceTo} it is positioned
+     * before every posting.
+     */
+    final class Cursor {
+        private int block;
+        private int position;
+        private int remaining;
+        private long docId = Long.MIN_VALUE;
+        private int frequency;
+        private boolean exhausted;
+
+        /**
+         * Moves to the first posting with an id of at least {@code target}, staying put if the
+         * current one already is.
+         *
+         * @return false once no such posting is left
+         */
+        boolean advanceTo(long target) {
+            if (exhausted) {
+                return false;
+            }
+            if (docId >= target && docId != Long.MIN_VALUE) {
+                return true;
+            }
+            while (block < blockCount && blocks[block].lastDocId < target) {
+                block++;
+                position = 0;
+                remaining = 0;
+            }
+            while (block < blockCount) {
+                Block current = blocks[block];
+                if (position == 0 && remaining == 0) {
+                    remaining = current.count;
+                    docId = 0;
+                }
+                while (remaining > 0) {
+                    position = current.read(position, this);
+                    remaining--;
+                    if (docId >= target) {
+                        if (remaining == 0) {
+                            block++;
+                            position = 0;
+                        }
+                        return true;
+                    }
+                }
+                block++;
+                position = 0;
+            }
+            exhausted = true;
+            return false;
+        }
+
+        long docId() {
+            return docId;
+        }
+
+        int frequency() {
+            return frequency;
+        }
+    }
+
+    private static final class Block {
+        private byte[] data = new byte[16];
+        private int length;
+        private int count;
+        private long firstDocId;
+        private long lastDocId;
+
+        private static Block of(long[] docIds, int[] frequencies, int from, int to) {
+            Block block = new Block();
+            block.data = new byte[Math.max(16, (to - from) * 3)];
+            for (int i = from; i < to; i++) {
+                block.append(docIds[i], frequencies[i]);
+            }
+            return block;
+        }
+
+        private void append(long docId, int frequency) {
+            if (count == 0) {
+                firstDocId = docId;
+            }
+            ensureCapacity(length + 20);
+            writeVarLong(docId - (count == 0 ? 0 : lastDocId));
+            writeVarLong(frequency);
+            lastDocId = docId;
+            count++;
+        }
+
+        private int decode(long[] docIds, int[] frequencies) {
+            int[] decoded = {0};
+            forEach((docId, frequency) -> {
+                docIds[decoded[0]] = docId;
+                frequencies[decoded[0]++] = frequency;
+            });
+            return decoded[0];
+        }
+
+        private void forEach(PostingConsumer consumer) {
+            int position = 0;
+            long docId = 0;
+            while (position < length) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                int frequency = 0;
+                shift = 0;
+                do {
+                    b = data[position++];
+                    frequency |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                docId += delta;
+                consumer.accept(docId, frequency);
+            }
+        }
+
+        /**
+         * Decodes the posting at {@code position} into the cursor, whose id holds the previous one.
+         *
+         * @return the position of the next posting
+         */
+        private int read(int position, Cursor cursor) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            int frequency = 0;
+            shift = 0;
+            do {
+                b = data[position++];
+                frequency |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            cursor.docId += delta;
+            cursor.frequency = frequency;
+            return position;
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > data.length) {
+                data = Arrays.copyOf(data, Math.max(capacity, data.length + (data.length >> 1)));
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package mmf.publication.app.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import mmf.publication.app.archive.PublicationArchive;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.events.PublicationSavedEvent;
+import mmf.publication.app.events.PublicationsArchivedEvent;
+import mmf.publication.app.repository.PublicationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps an {@link InvertedIndex} in step with the publication table and the archive: it is rebuilt
+ * from the database once the application is up and updated whenever a publication is saved or
+ * archived. Searches look at the publication table alone unless they ask for another
+ * {@link InvertedIndex.Tier}. Until the
+ * rebuild finishes {@link #isReady()} is false and searches should fall back to the database.
+ * Publications saved while the rebuild runs are indexed by their event and skipped by the rebuild,
+ * whose copy may predate the save.
+ */
+@Component
+public class PublicationSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(PublicationSearchIndex.class);
+
+    private final InvertedIndex index = new InvertedIndex();
+    private final PublicationRepository publicationRepository;
+    private final PublicationArchive publicationArchive;
+    private final int rebuildBatchSize;
+    private final int maxSortedHits;
+    private final Timer queryTimer;
+    private final Object updateLock = new Object();
+    private Set<Long> changedDuringRebuild;
+    private volatile boolean ready;
+
+    public PublicationSearchIndex(PublicationRepository publicationRepository, PublicationArchive publicationArchive,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${publication.search.rebuild-batch-size:1000}") int rebuildBatchSize,
+                                  @Value("${publication.search.max-sorted-hits:1000}") int maxSortedHits) {
+        this.publicationRepository = publicationRepository;
+        this.publicationArchive = publicationArchive;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.maxSortedHits = maxSortedHits;
+        this.queryTimer = Timer.builder("publication.search.query")
+                .description("Time to answer a search from the in-memory index")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("publication.search.index.documents", index, InvertedIndex::documentCount)
+                .register(meterRegistry);
+        Gauge.builder("publication.search.index.terms", index, InvertedIndex::termCount)
+                .register(meterRegistry);
+        Gauge.builder("publication.search.index.size", index, InvertedIndex::estimatedSizeInBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        synchronized (updateLock) {
+            ready = false;
+            index.clear();
+            changedDuringRebuild = new HashSet<>();
+        }
+
+        try {
+            long lastId = 0;
+            List<Publication> batch;
+            do {
+                batch = publicationRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(rebuildBatchSize));
+                synchronized (updateLock) {
+                    for (Publication publication : batch) {
+                        if (!changedDuringRebuild.contains(publication.getId())) {
+                            index(publication, false);
+                        }
+                        lastId = publication.getId();
+                    }
+                }
+            } while (batch.size() == rebuildBatchSize);
+
+            if (publicationArchive.mayContain(null, null, null, null)) {
+                Sort byId = Sort.by("id");
+                lastId = 0;
+                do {
+                    batch = publicationArchive.findAfter(null, null, null, null, null, null, byId, lastId, lastId, rebuildBatchSize);
+                    synchronized (updateLock) {
+                        for (Publication publication : batch) {
+                            if (!changedDuringRebuild.contains(publication.getId())) {
+                                index(publication, true);
+                            }
+                            lastId = publication.getId();
+                        }
+                    }
+                } while (batch.size() == rebuildBatchSize);
+            }
+        } finally {
+            synchronized (updateLock) {
+                changedDuringRebuild = null;
+            }
+        }
+
+        ready = true;
+        log.info("Search index rebuilt with {} publications and {} terms in {} ms", index.documentCount(),
+                index.termCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @EventListener
+    public void onPublicationSaved(PublicationSavedEvent event) {
+        synchronized (updateLock) {
+            changed(event.getPublication().getId());
+            index(event.getPublication(), false);
+        }
+    }
+
+    /**
+     * Archived publications stay indexed, flagged so that only searches of the archive find them.
+     * A publication moved back is saved, and so indexed as current again.
+     */
+    @EventListener
+    public void onPublicationsArchived(PublicationsArchivedEvent event) {
+        synchronized (updateLock) {
+            for (Long id : event.getPublicationIds()) {
+                index.archive(id);
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<Long> search(String query, PublicationStatus status, PublicationType type,
+                             LocalDateTime startDate, LocalDateTime endDate) {
+        return search(query, status, type, startDate, endDate, InvertedIndex.Tier.CURRENT);
+    }
+
+    public List<Long> search(String query, PublicationStatus status, PublicationType type,
+                             LocalDateTime startDate, LocalDateTime endDate, InvertedIndex.Tier tier) {
+        return queryTimer.record(() -> index.search(query, status, type, startDate, endDate, tier));
+    }
+
+    /**
+     * True if the index can order hits by {@code sort} itself: by id, or by publication time and
+     * then optionally id.
+     */
+    public boolean canSort(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        return !orders.isEmpty() && orders.size() <= 2 && sortKey(orders.get(0)) != null
+                && (orders.size() == 1 || (orders.get(0).getProperty().equals("publishedAt")
+                && orders.get(1).getProperty().equals("id")));
+    }
+
+    /**
+     * One page of hits in an order {@link #canSort} accepts, and the number of all hits.
+     */
+    public InvertedIndex.SortedHits search(String query, PublicationStatus status, PublicationType type,
+                                           LocalDateTime startDate, LocalDateTime endDate,
+                                           Sort sort, long offset, int limit) {
+        return search(query, status, type, startDate, endDate, sort, offset, limit, InvertedIndex.Tier.CURRENT);
+    }
+
+    public InvertedIndex.SortedHits search(String query, PublicationStatus status, PublicationType type,
+                                           LocalDateTime startDate, LocalDateTime endDate,
+                                           Sort sort, long offset, int limit, InvertedIndex.Tier tier) {
+        List<Sort.Order> orders = sort.toList();
+        Sort.Order order = orders.get(0);
+        boolean idAscending = orders.size() == 2 ? orders.get(1).isAscending() : order.isAscending();
+        return queryTimer.record(() -> index.search(query, status, type, startDate, endDate,
+                sortKey(order), order.isAscending(), idAscending, offset, limit, tier));
+    }
+
+    /**
+     * Up to {@code limit} hits strictly after the row with {@code afterValue} and {@code afterId}, or
+     * from the first one if {@code afterValue} is null, in an order {@link #canSort} accepts whose
+     * id tie-break runs the same way.
+     */
+    public List<Long> searchAfter(String query, PublicationStatus status, PublicationType type,
+                                  LocalDateTime startDate, LocalDateTime endDate,
+                                  Sort sort, Comparable<?> afterValue, long afterId, int limit) {
+        return searchAfter(query, status, type, startDate, endDate, sort, afterValue, afterId, limit,
+                InvertedIndex.Tier.CURRENT);
+    }
+
+    public List<Long> searchAfter(String query, PublicationStatus status, PublicationType type,
+                                  LocalDateTime startDate, LocalDateTime endDate,
+                                  Sort sort, Comparable<?> afterValue, long afterId, int limit,
+                                  InvertedIndex.Tier tier) {
+        Sort.Order order = sort.toList().get(0);
+        InvertedIndex.SortKey key = sortKey(order);
+        if (afterValue == null) {
+            return search(query, status, type, startDate, endDate, sort, 0, limit, tier).getIds();
+        }
+        long afterKey = afterValue instanceof LocalDateTime publishedAt ? InvertedIndex.SortKey.of(publishedAt) : (Long) afterValue;
+        return queryTimer.record(() -> index.searchAfter(query, status, type, startDate, endDate,
+                key, order.isAscending(), afterKey, afterId, limit, tier));
+    }
+
+    /**
+     * The hits for the database to order by a sort the index cannot apply. Their ids end up in
+     * one {@code IN} list, so a search with more than {@code publication.search.max-sorted-hits}
+     * of them is refused rather than sent.
+     *
+     * @throws IllegalArgumentException if there are more hits than that
+     */
+    public List<Long> searchForSorting(String query, PublicationStatus status, PublicationType type,
+                                       LocalDateTime startDate, LocalDateTime endDate) {
+        return searchForSorting(query, status, type, startDate, endDate, InvertedIndex.Tier.CURRENT);
+    }
+
+    public List<Long> searchForSorting(String query, PublicationStatus status, PublicationType type,
+                                       LocalDateTime startDate, LocalDateTime endDate, InvertedIndex.Tier tier) {
+        List<Long> hits = search(query, status, type, startDate, endDate, tier);
+        if (hits.size() > maxSortedHits) {
+            throw new IllegalArgumentException("The search matches " + hits.size() + " publications, more than the " +
+                    maxSortedHits + " that can be sorted other than by publishedAt or id");
+        }
+        return hits;
+    }
+
+    private static InvertedIndex.SortKey sortKey(Sort.Order order) {
+        return switch (order.getProperty()) {
+            case "id" -> InvertedIndex.SortKey.ID;
+            case "publishedAt" -> InvertedIndex.SortKey.PUBLISHED_AT;
+            default -> null;
+        };
+    }
+
+    private void changed(long id) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(id);
+        }
+    }
+
+    private void index(Publication publication, boolean archived) {
+        index.index(publication.getId(), publication.getTitle(), publication.getDescription(),
+                publication.getStatus(), publication.getType(), publication.getPublishedAt(), archived);
+    }
+}
@@ -1,30 +1,98 @@
 package mmf.publication.app.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import mmf.publication.app.dto.AppUserDTO;
 import mmf.publication.app.entity.AppUser;
+import mmf.publication.app.exceptions.UsernameTakenException;
 import mmf.publication.app.repository.AppUserRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Optional;
 
 @Service
 public class AppUserService implements IAppUserService {
+    // Cached for usernames that do not exist, so repeated lookups of them skip the database as well
+    private static final long UNKNOWN_USER = -1;
+    // The length of app_user.username
+    private static final int MAX_USERNAME_LENGTH = 50;
+
     private final AppUserRepository appUserRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final UsernameFilter usernameFilter;
+    private final Cache<String, Long> userIds;
 
-    public AppUserService(AppUserRepository appUserRepository, PasswordEncoder passwordEncoder) {
+    public AppUserService(AppUserRepository appUserRepository, PasswordHasher passwordHasher,
+                          UsernameFilter usernameFilter, MeterRegistry meterRegistry,
+                          @Value("${publication.users.cache.max-size:10000}") long maxSize,
+                          @Value("${publication.users.cache.ttl:1h}") Duration ttl,
+                          @Value("${publication.users.cache.negative-ttl:30s}") Duration negativeTtl) {
         this.appUserRepository = appUserRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
+        this.usernameFilter = usernameFilter;
+        this.userIds = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Long>() {
+                    @Override
+                    public long expireAfterCreate(String username, Long id, long currentTime) {
+                        return (id == UNKNOWN_USER ? negativeTtl : ttl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String username, Long id, long currentTime, long currentDuration) {
+                        return expireAfterCreate(username, id, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String username, Long id, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userIds, "userIds");
     }
 
     @Override
     public AppUser registerUser(AppUserDTO userDTO) {
+        String username = userDTO.getUsername();
+        if (username == null || username.isBlank() || username.length() > MAX_USERNAME_LENGTH) {
+            throw new IllegalArgumentException("The username must be 1 to " + MAX_USERNAME_LENGTH + " characters long");
+        }
+        if (userDTO.getPassword() == null || userDTO.getPassword().isEmpty()) {
+            throw new IllegalArgumentException("The password must not be empty");
+        }
+        // Turn away a taken username before spending a hash on it; the filter spares the
+        // lookup for names it has never seen, which is most of them
+        if (usernameFilter.mightContain(username) && appUserRepository.existsByUsername(username)) {
+            throw new UsernameTakenException(username);
+        }
+
         AppUser appUser = new AppUser();
-        appUser.setUsername(userDTO.getUsername());
-        appUser.setPassword(passwordEncoder.encode(userDTO.getPassword()));
-        return appUserRepository.save(appUser);
+        appUser.setUsername(username);
+        appUser.setPassword(passwordHasher.hash(userDTO.getPassword()));
+        AppUser savedUser;
+        try {
+            savedUser = appUserRepository.save(appUser);
+        } catch (DataIntegrityViolationException e) {
+            // Registered concurrently under the same name, the unique key has the last word
+            if (e.getCause() instanceof ConstraintViolationException violation
+                    && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE) {
+                throw new UsernameTakenException(username);
+            }
+            throw e;
+        }
+        usernameFilter.add(username);
+        userIds.put(savedUser.getUsername(), savedUser.getId());
+        return savedUser;
     }
 
     @Override
@@ -37,4 +105,13 @@ public class AppUserService implements IAppUserService {
             throw new UsernameNotFoundException("User with username " + username + " does not exist!");
         }
     }
+
+    @Override
+    public AppUser getReferenceByUsername(String username) {
+        long id = userIds.get(username, key -> appUserRepository.findIdByUsername(key).orElse(UNKNOWN_USER));
+        if (id == UNKNOWN_USER) {
+            throw new UsernameNotFoundException("User with username " + username + " does not exist!");
+        }
+        return appUserRepository.getReferenceById(id);
+    }
 }
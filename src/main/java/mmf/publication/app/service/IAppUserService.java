@@ -4,7 +4,18 @@ import mmf.publication.app.dto.AppUserDTO;
 import mmf.publication.app.entity.AppUser;
 
 public interface IAppUserService {
+    /**
+     * @throws IllegalArgumentException if the username is missing or too long, or the password is empty
+     * @throws mmf.publication.app.exceptions.UsernameTakenException if the username is registered already
+     * @throws java.util.concurrent.RejectedExecutionException if too many passwords are waiting to be hashed
+     */
     AppUser registerUser(AppUserDTO userDTO);
 
     AppUser findByUsername(String username);
+
+    /**
+     * A reference to the user that only carries its id, enough to save an association, resolved
+     * from a cache of usernames where possible.
+     */
+    AppUser getReferenceByUsername(String username);
 }
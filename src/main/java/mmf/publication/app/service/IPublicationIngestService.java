@@ -0,0 +1,10 @@
+package mmf.publication.app.service;
+
+import mmf.publication.app.dto.BatchIngestResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface IPublicationIngestService {
+    BatchIngestResult ingest(InputStream ndjson) throws IOException;
+}
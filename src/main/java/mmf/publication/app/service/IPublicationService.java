@@ -1,15 +1,29 @@
 package mmf.publication.app.service;
 
+import mmf.publication.app.dto.CursorPage;
 import mmf.publication.app.dto.PublicationDTO;
 import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.dto.PublicationStatsDTO;
+import mmf.publication.app.dto.PublicationSummaryDTO;
+import mmf.publication.app.dto.SimilarPublicationDTO;
+import mmf.publication.app.dto.TrendingKeywordDTO;
+import mmf.publication.app.enums.ExportFormat;
 import mmf.publication.app.enums.PublicationStatus;
 import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.enums.SummaryField;
 import mmf.publication.app.exceptions.PublicationNotFoundException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public interface IPublicationService {
     PublicationDTO createPublication(PublicationRequest request, String username);
@@ -18,14 +32,85 @@ public interface IPublicationService {
                                          PublicationType type, LocalDateTime startDate,
                                          LocalDateTime endDate, Pageable pageable);
 
-    PublicationDTO updatePublication(Long id, PublicationRequest request) throws PublicationNotFoundException;
+    /**
+     * Like {@link #getPublications}, but reads only the given fields and an excerpt of at most
+     * {@code excerptLength} characters of the description instead of whole publications.
+     */
+    Page<PublicationSummaryDTO> getPublicationSummaries(String search, PublicationStatus status,
+                                                        PublicationType type, LocalDateTime startDate,
+                                                        LocalDateTime endDate, Set<SummaryField> fields,
+                                                        int excerptLength, Pageable pageable);
 
-    PublicationDTO updatePublicationStatus(Long id, PublicationStatus status) throws PublicationNotFoundException;
+    CursorPage<PublicationDTO> getPublicationsByCursor(String search, PublicationStatus status,
+                                                       PublicationType type, LocalDateTime startDate,
+                                                       LocalDateTime endDate, String cursor, int size, Sort sort);
 
+    /**
+     * Writes every publication matching the filters with an id above {@code afterId} to {@code out}
+     * in id order, and returns how many were written.
+     */
+    long exportPublications(String search, PublicationStatus status, PublicationType type,
+                            LocalDateTime startDate, LocalDateTime endDate, Long afterId,
+                            ExportFormat format, OutputStream out) throws IOException;
 
-    void incrementViewCount(Long id);
+    default PublicationDTO updatePublication(Long id, PublicationRequest request) throws PublicationNotFoundException {
+        return updatePublication(id, request, null);
+    }
+
+    /**
+     * @param expectedVersion the version the caller last saw, or null to overwrite whichever is stored
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the publication is at
+     *                                                                   another version, or changes before the update is written
+     */
+    PublicationDTO updatePublication(Long id, PublicationRequest request, Long expectedVersion)
+            throws PublicationNotFoundException;
+
+    /**
+     * Like {@link #updatePublication(Long, PublicationRequest, Long)}, but leaves the fields that are
+     * null in {@code patch} as they are.
+     */
+    PublicationDTO patchPublication(Long id, PublicationRequest patch, Long expectedVersion)
+            throws PublicationNotFoundException;
+
+    default PublicationDTO updatePublicationStatus(Long id, PublicationStatus status) throws PublicationNotFoundException {
+        return updatePublicationStatus(id, status, null);
+    }
+
+    /**
+     * @see #updatePublication(Long, PublicationRequest, Long)
+     */
+    PublicationDTO updatePublicationStatus(Long id, PublicationStatus status, Long expectedVersion)
+            throws PublicationNotFoundException;
+
+
+    void incrementViewCount(Long id) throws PublicationNotFoundException;
 
     Map<String, Integer> findFrequentWordsOfPublication(String publicationDescription);
 
+    /**
+     * The most used keywords of publications of {@code type}, or of any type, saved within the last
+     * {@code window}.
+     *
+     * @throws IllegalArgumentException if the window is not positive or longer than the retention
+     */
+    List<TrendingKeywordDTO> getTrendingKeywords(PublicationType type, Duration window, int limit);
+
+    /**
+     * Up to {@code limit} publications whose frequent words resemble those of the given one, most
+     * similar first, found through a MinHash index rather than by comparing every publication.
+     */
+    List<SimilarPublicationDTO> getSimilarPublications(Long id, int limit) throws PublicationNotFoundException;
+
+    /**
+     * Counts by status, type and publish day and the total views, from in-memory aggregates that
+     * never touch the database; publish days are limited to {@code from} and {@code to} when given.
+     */
+    PublicationStatsDTO getPublicationStats(LocalDate from, LocalDate to);
+
     PublicationDTO getPublication(Long id) throws PublicationNotFoundException;
+
+    /**
+     * The version of the publication's content, from the cache or else without loading the publication.
+     */
+    long getPublicationVersion(Long id) throws PublicationNotFoundException;
 }
\ No newline at end of file
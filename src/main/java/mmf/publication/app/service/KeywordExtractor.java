@@ -0,0 +1,51 @@
+package mmf.publication.app.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Finds the most frequent words of a publication description with a {@link WordFrequencyCounter}
+ * borrowed from a small pool, so buffers are reused across requests. Requests run on virtual
+ * threads, one per request, so per-thread counters would never be reused; when every pooled counter
+ * is busy, one sized to the description is used once instead.
+ */
+@Component
+public class KeywordExtractor {
+    private final int keywordCount;
+    private final BlockingQueue<WordFrequencyCounter> counters;
+
+    public KeywordExtractor(@Value("${publication.keywords.count:" + PublicationService.FREQUENT_WORDS_COUNT + "}") int keywordCount,
+                            @Value("${publication.keywords.counter-pool-size:0}") int counterPoolSize) {
+        this.keywordCount = keywordCount;
+        int poolSize = counterPoolSize > 0 ? counterPoolSize : Runtime.getRuntime().availableProcessors();
+        this.counters = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            counters.add(new WordFrequencyCounter());
+        }
+    }
+
+    public Map<String, Integer> extract(String description) {
+        if (description == null || description.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        WordFrequencyCounter counter = counters.poll();
+        if (counter == null) {
+            return new WordFrequencyCounter(Locale.getDefault(), description.length()).topWords(description, keywordCount);
+        }
+        try {
+            return counter.topWords(description, keywordCount);
+        } finally {
+            counters.add(counter);
+        }
+    }
+
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+}
@@ -0,0 +1,313 @@
+package mmf.publication.app.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import mmf.publication.app.entity.FrequentWordsConverter;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.KeywordState;
+import mmf.publication.app.events.PublicationSavedEvent;
+import mmf.publication.app.repository.PublicationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background keyword extraction for publications saved with {@link KeywordState#PENDING}. Ids wait
+ * in a bounded in-memory queue; a dispatcher thread takes them in batches, extracts the keywords
+ * on a pool of workers and writes them back with one JDBC batch per transaction, then publishes a
+ * {@link PublicationSavedEvent} for every publication it completed. The write is guarded by the
+ * hash of the description it was extracted from, so it never overwrites the keywords of a newer
+ * description.
+ * <p>
+ * The state column, not the queue, is what must be processed: a failed batch is retried with
+ * backoff and otherwise left pending, and a periodic sweep queues pending publications that are
+ * not queued, such as those of a previous run. When the queue is full, {@link #shouldDefer()} tells
+ * writers to extract inline instead, which slows them down to the rate the pipeline can keep up with.
+ */
+@Component
+public class KeywordPipeline {
+    private static final Logger log = LoggerFactory.getLogger(KeywordPipeline.class);
+    // Rows saved before descriptions were hashed are matched by the description itself
+    private static final String WRITE_BACK_SQL = "UPDATE publication SET frequent_words = ?, keyword_state = ?, " +
+            "description_hash = ?, version = version + 1 WHERE id = ? AND keyword_state = ? " +
+            "AND (description_hash = ? OR description_hash IS NULL AND description = ?)";
+
+    private final PublicationRepository publicationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final KeywordExtractor keywordExtractor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FrequentWordsConverter converter = new FrequentWordsConverter();
+    private final boolean enabled;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final BlockingQueue<Long> queue;
+    // Enqueue time of every queued id, which also keeps an id from being queued twice
+    private final Map<Long, Long> queued = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private final Timer queueLag;
+    private final Timer batchTimer;
+    private final Counter retries;
+    private final Counter failures;
+    private final Counter inlineExtractions;
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public KeywordPipeline(PublicationRepository publicationRepository, JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager, KeywordExtractor keywordExtractor,
+                           ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                           @Value("${publication.keywords.async:false}") boolean enabled,
+                           @Value("${publication.keywords.pipeline.queue-capacity:10000}") int queueCapacity,
+                           @Value("${publication.keywords.pipeline.batch-size:100}") int batchSize,
+                           @Value("${publication.keywords.pipeline.workers:4}") int workerCount,
+                           @Value("${publication.keywords.pipeline.max-attempts:3}") int maxAttempts,
+                           @Value("${publication.keywords.pipeline.retry-delay-ms:500}") long retryDelayMillis) {
+        this.publicationRepository = publicationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.keywordExtractor = keywordExtractor;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelayMillis;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.workers = Executors.newFixedThreadPool(workerCount, Thread.ofPlatform()
+                .name("keyword-worker-", 0).daemon().factory());
+
+        Gauge.builder("publication.keywords.queue.size", queue, BlockingQueue::size)
+                .description("Publications waiting for keyword extraction")
+                .register(meterRegistry);
+        Gauge.builder("publication.keywords.queue.oldest", this, KeywordPipeline::oldestQueuedMillis)
+                .description("Time the longest waiting publication has been queued")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.queueLag = Timer.builder("publication.keywords.queue.lag")
+                .description("Time from queuing a publication to taking it for extraction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("publication.keywords.batch")
+                .description("Time to extract and store the keywords of one batch")
+                .register(meterRegistry);
+        this.retries = Counter.builder("publication.keywords.retries").register(meterRegistry);
+        this.failures = Counter.builder("publication.keywords.failures")
+                .description("Publications left pending after every attempt failed")
+                .register(meterRegistry);
+        this.inlineExtractions = Counter.builder("publication.keywords.inline")
+                .description("Publications whose keywords were extracted inline because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        dispatcher = Thread.ofPlatform().name("keyword-pipeline").daemon().start(this::dispatch);
+        sweep();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            dispatcher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * Whether a writer should save the publication as pending and {@link #submit} it rather than
+     * extract its keywords itself: the pipeline is enabled and has room in its queue.
+     */
+    public boolean shouldDefer() {
+        if (!enabled) {
+            return false;
+        }
+        if (queue.size() < queueCapacity) {
+            return true;
+        }
+        inlineExtractions.increment();
+        return false;
+    }
+
+    /**
+     * Queues a pending publication, after the surrounding transaction commits if there is one.
+     * Returns false if the queue is full; the publication then waits for the next sweep.
+     */
+    public boolean submit(long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(id);
+                }
+            });
+            return true;
+        }
+        return enqueue(id);
+    }
+
+    /**
+     * Queues pending publications that are not queued yet, as far as the queue has room.
+     */
+    @Scheduled(fixedDelayString = "${publication.keywords.pipeline.sweep-interval-ms:30000}")
+    public void sweep() {
+        int swept = 0;
+        long lastId = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM publication WHERE keyword_state = ? AND id > ? ORDER BY id LIMIT ?",
+                    Long.class, KeywordState.PENDING.name(), lastId, batchSize);
+            for (Long id : ids) {
+                if (!queued.containsKey(id) && !enqueue(id)) {
+                    log.info("Keyword queue is full after sweeping {} pending publications", swept);
+                    return;
+                }
+                swept++;
+                lastId = id;
+            }
+        } while (ids.size() == batchSize);
+    }
+
+    private boolean enqueue(long id) {
+        if (queued.putIfAbsent(id, System.nanoTime()) != null) {
+            return true;
+        }
+        if (!queue.offer(id)) {
+            queued.remove(id);
+            return false;
+        }
+        return true;
+    }
+
+    private void dispatch() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Long first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            for (Long id : batch) {
+                // Dequeued before reading the row, so a later update queues the publication again
+                Long enqueuedAt = queued.remove(id);
+                if (enqueuedAt != null) {
+                    queueLag.record(now - enqueuedAt, TimeUnit.NANOSECONDS);
+                }
+            }
+            if (!processWithRetries(batch)) {
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Returns false if the thread was interrupted while waiting to retry.
+     */
+    private boolean processWithRetries(List<Long> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                batchTimer.record(() -> process(batch));
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    failures.increment(batch.size());
+                    log.error("Could not store the keywords of {} publications after {} attempts, leaving them " +
+                            "for the next sweep", batch.size(), attempt, e);
+                    return true;
+                }
+                retries.increment();
+                log.warn("Could not store the keywords of {} publications, retrying: {}", batch.size(), e.toString());
+            }
+
+            try {
+                Thread.sleep(retryDelayMillis << (attempt - 1));
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+    }
+
+    private void process(List<Long> ids) {
+        List<Publication> publications = new ArrayList<>(ids.size());
+        for (Publication publication : publicationRepository.findAllById(ids)) {
+            if (publication.getKeywordState() == KeywordState.PENDING) {
+                publications.add(publication);
+            }
+        }
+        if (publications.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<Map<String, Integer>>> extractions = new ArrayList<>(publications.size());
+        for (Publication publication : publications) {
+            extractions.add(CompletableFuture.supplyAsync(
+                    () -> keywordExtractor.extract(publication.getDescription()), workers));
+        }
+        List<Object[]> updates = new ArrayList<>(publications.size());
+        for (int i = 0; i < publications.size(); i++) {
+            Publication publication = publications.get(i);
+            publication.setFrequentWords(extractions.get(i).join());
+            publication.setKeywordState(KeywordState.READY);
+            String storedHash = publication.getDescriptionHash();
+            updates.add(new Object[]{converter.convertToDatabaseColumn(publication.getFrequentWords()),
+                    KeywordState.READY.name(),
+                    storedHash != null ? storedHash : Publication.hashOf(publication.getDescription()), publication.getId(),
+                    KeywordState.PENDING.name(), storedHash, storedHash == null ? publication.getDescription() : null});
+        }
+
+        int[] updated = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(WRITE_BACK_SQL, updates));
+        for (int i = 0; i < publications.size(); i++) {
+            // 0 means the description changed meanwhile and the publication is queued again;
+            // a rewritten MySQL batch reports SUCCESS_NO_INFO for the rows it did write
+            if (updated[i] != 0) {
+                eventPublisher.publishEvent(new PublicationSavedEvent(publications.get(i)));
+            }
+        }
+    }
+
+    private double oldestQueuedMillis() {
+        Long head = queue.peek();
+        Long enqueuedAt = head == null ? null : queued.get(head);
+        return enqueuedAt == null ? 0 : (System.nanoTime() - enqueuedAt) / 1_000_000.0;
+    }
+}
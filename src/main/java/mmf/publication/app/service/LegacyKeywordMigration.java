@@ -0,0 +1,158 @@
+package mmf.publication.app.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import mmf.publication.app.entity.FrequentWordsConverter;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.metrics.RequestStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves frequent words out of the legacy {@code publication_keywords} join table into the
+ * {@code frequent_words} column. Once the application is up, publications whose column is still
+ * null are migrated in batches, each in its own transaction, and their legacy rows deleted. Until
+ * the migration has finished, {@link #frequentWordsOf(Publication)} reads the legacy table for
+ * publications that have not been moved yet.
+ */
+@Component
+public class LegacyKeywordMigration {
+    private static final Logger log = LoggerFactory.getLogger(LegacyKeywordMigration.class);
+    private static final String LEGACY_TABLE = "publication_keywords";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FrequentWordsConverter converter = new FrequentWordsConverter();
+    private final int batchSize;
+    private final Counter rowsRead;
+    private final Counter rowsDeleted;
+    private volatile boolean pending;
+
+    public LegacyKeywordMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${publication.keywords.migration-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.rowsRead = Counter.builder("publication.keywords.legacy.rows")
+                .description("Rows of the legacy keyword table touched")
+                .tag("operation", "read")
+                .register(meterRegistry);
+        this.rowsDeleted = Counter.builder("publication.keywords.legacy.rows")
+                .description("Rows of the legacy keyword table touched")
+                .tag("operation", "delete")
+                .register(meterRegistry);
+        this.pending = legacyTableExists();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        pending = legacyTableExists();
+        if (!pending) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int migrated = 0;
+        long lastId = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM publication WHERE frequent_words IS NULL AND id > ? ORDER BY id LIMIT ?",
+                    Long.class, lastId, batchSize);
+            if (!ids.isEmpty()) {
+                List<Long> batch = ids;
+                transactionTemplate.executeWithoutResult(status -> migrateBatch(batch));
+                migrated += ids.size();
+                lastId = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == batchSize);
+
+        pending = false;
+        log.info("Moved the frequent words of {} publications out of {} in {} ms", migrated, LEGACY_TABLE,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * The publication's frequent words, from the legacy table if they have not been migrated yet.
+     */
+    public Map<String, Integer> frequentWordsOf(Publication publication) {
+        Map<String, Integer> frequentWords = publication.getFrequentWords();
+        if (frequentWords != null || !pending || publication.getId() == null) {
+            return frequentWords;
+        }
+        return readLegacy(List.of(publication.getId())).getOrDefault(publication.getId(), Collections.emptyMap());
+    }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    private void migrateBatch(List<Long> ids) {
+        Map<Long, Map<String, Integer>> frequentWords = readLegacy(ids);
+
+        List<Object[]> updates = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            updates.add(new Object[]{
+                    converter.convertToDatabaseColumn(frequentWords.getOrDefault(id, Collections.emptyMap())), id});
+        }
+        // Publications saved since the batch was read already have their words in the column
+        jdbcTemplate.batchUpdate("UPDATE publication SET frequent_words = ? WHERE id = ? AND frequent_words IS NULL", updates);
+        int deleted = namedJdbcTemplate.update("DELETE FROM " + LEGACY_TABLE + " WHERE publication_id IN (:ids)",
+                Map.of("ids", ids));
+        rowsDeleted.increment(deleted);
+        RequestStatistics.recordKeywordRows(deleted);
+    }
+
+    private Map<Long, Map<String, Integer>> readLegacy(Collection<Long> ids) {
+        Map<Long, Map<String, Integer>> frequentWords = new HashMap<>();
+        int[] rows = {0};
+        namedJdbcTemplate.query("SELECT publication_id, keyword, frequency FROM " + LEGACY_TABLE +
+                        " WHERE publication_id IN (:ids) ORDER BY publication_id, frequency DESC, keyword",
+                Map.of("ids", ids),
+                row -> {
+                    rows[0]++;
+                    frequentWords.computeIfAbsent(row.getLong(1), id -> new LinkedHashMap<>())
+                            .put(row.getString(2), row.getInt(3));
+                });
+        rowsRead.increment(rows[0]);
+        RequestStatistics.recordKeywordRows(rows[0]);
+        return frequentWords;
+    }
+
+    private boolean legacyTableExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // Unquoted names are stored upper case by some databases and lower case by others
+            for (String name : new String[]{LEGACY_TABLE, LEGACY_TABLE.toUpperCase()}) {
+                try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, name, new String[]{"TABLE"})) {
+                    if (tables.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+}
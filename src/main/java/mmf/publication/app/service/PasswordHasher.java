@@ -0,0 +1,92 @@
+package mmf.publication.app.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes passwords on a small pool of platform threads with a bounded queue. BCrypt is CPU-bound
+ * by design, so running it on the request's virtual thread would let a burst of registrations
+ * occupy every carrier thread; here at most {@code threads} hashes run at once, and once
+ * {@code queueCapacity} more are waiting, further ones are rejected instead of queued.
+ */
+@Component
+public class PasswordHasher {
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                          @Value("${publication.auth.hashing.threads:0}") int threads,
+                          @Value("${publication.auth.hashing.queue-capacity:64}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        // By default one thread per core, the most that can hash in parallel anyway
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hasher-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = Timer.builder("publication.auth.hashing")
+                .description("Time from submitting a password to receiving its hash")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("publication.auth.hashing.rejected")
+                .description("Passwords not hashed because the hashing queue was full")
+                .register(meterRegistry);
+        Gauge.builder("publication.auth.hashing.queue", executor, pool -> pool.getQueue().size())
+                .description("Passwords waiting to be hashed")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Hashes the password on the hashing pool and waits for the result.
+     *
+     * @throws RejectedExecutionException if the hashing queue is full
+     */
+    public String hash(String rawPassword) {
+        long start = System.nanoTime();
+        Future<String> hash;
+        try {
+            hash = executor.submit(() -> passwordEncoder.encode(rawPassword));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+
+        try {
+            return hash.get();
+        } catch (InterruptedException e) {
+            hash.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Could not hash a password", e.getCause());
+        } finally {
+            hashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package mmf.publication.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.events.PublicationSavedEvent;
+import mmf.publication.app.events.ViewCountsFlushedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of publications by id, bounded by the estimated heap footprint of the cached
+ * DTOs. Caffeine's W-TinyLFU admission keeps a burst of one-off reads, such as a crawler walking
+ * every id, from evicting the publications that are read all the time.
+ * <p>
+ * Cached DTOs hold the {@code view_count} column as it was loaded; callers add the views still
+ * pending in the {@link ViewCountBuffer}. When those views are flushed, the cached entries take
+ * them over in place, so the publications read the most stay cached. Entries are invalidated when
+ * the publication is saved; Caffeine runs a load and an invalidation of the same id one after the
+ * other, so a load that read the row before the change is always discarded.
+ */
+@Component
+public class PublicationCache {
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int DTO_SIZE = 72;
+    private static final int LONG_SIZE = 16;
+    private static final int DATE_TIME_SIZE = 72;
+    private static final int MAP_SIZE = 64;
+    private static final int MAP_ENTRY_SIZE = 56;
+
+    private final Cache<Long, PublicationDTO> cache;
+
+    @Autowired
+    public PublicationCache(MeterRegistry meterRegistry,
+                            @Value("${publication.cache.max-size-bytes:67108864}") long maxSizeBytes) {
+        this(meterRegistry, maxSizeBytes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs eviction and other maintenance on {@code executor}; tests pass the calling thread.
+     */
+    PublicationCache(MeterRegistry meterRegistry, long maxSizeBytes, Executor executor) {
+        this.cache = Caffeine.newBuilder()
+                .executor(executor)
+                .maximumWeight(maxSizeBytes)
+                .weigher((Long id, PublicationDTO publication) -> estimateSize(publication))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "publications");
+        Gauge.builder("publication.cache.size", this, PublicationCache::estimatedSizeInBytes)
+                .description("Estimated heap used by cached publications")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached publication, or the one {@code loader} returns, which is cached unless it is null.
+     */
+    public PublicationDTO get(long id, Function<Long, PublicationDTO> loader) {
+        return cache.get(id, loader);
+    }
+
+    /**
+     * The cached publication, or null without loading it.
+     */
+    public PublicationDTO getIfPresent(long id) {
+        return cache.getIfPresent(id);
+    }
+
+    /**
+     * True if the publication is cached, without counting a hit or a miss.
+     */
+    public boolean contains(long id) {
+        return cache.asMap().containsKey(id);
+    }
+
+    public void invalidate(long id) {
+        cache.invalidate(id);
+    }
+
+    @EventListener
+    public void onPublicationSaved(PublicationSavedEvent event) {
+        Long id = event.getPublication().getId();
+        if (id != null) {
+            invalidate(id);
+        }
+    }
+
+    @EventListener
+    public void onViewCountsFlushed(ViewCountsFlushedEvent event) {
+        event.getViewCountDeltas().forEach((id, delta) -> cache.asMap().computeIfPresent(id, (key, publication) ->
+                new PublicationDTO(publication.getId(), publication.getTitle(), publication.getDescription(),
+                        (int) (publication.getViewCount() + delta), publication.getPublishedAt(), event.getUpdatedAt(),
+                        publication.getType(), publication.getStatus(), publication.getFrequentWords(),
+                        publication.getKeywordState(), publication.getVersion())));
+    }
+
+    public long estimatedSizeInBytes() {
+        return cache.policy().eviction().orElseThrow().weightedSize().orElse(0);
+    }
+
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    static int estimateSize(PublicationDTO publication) {
+        long size = ENTRY_OVERHEAD + DTO_SIZE + LONG_SIZE
+                + estimateSize(publication.getTitle())
+                + estimateSize(publication.getDescription())
+                + estimateSize(publication.getPublishedAt())
+                + estimateSize(publication.getUpdatedAt());
+
+        Map<String, Integer> frequentWords = publication.getFrequentWords();
+        if (frequentWords != null) {
+            size += MAP_SIZE;
+            for (String word : frequentWords.keySet()) {
+                size += MAP_ENTRY_SIZE + LONG_SIZE + estimateSize(word);
+            }
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    private static long estimateSize(String value) {
+        // String header and its byte array; non-Latin-1 text takes two bytes per char
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    private static long estimateSize(LocalDateTime value) {
+        return value == null ? 0 : DATE_TIME_SIZE;
+    }
+}
@@ -0,0 +1,299 @@
+package mmf.publication.app.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mmf.publication.app.archive.PublicationArchive;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.ExportFormat;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.specifications.PublicationSpecification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Writes every publication matching a specification, or listed by an {@link IdSource}, to a stream
+ * in id order, as NDJSON or CSV.
+ * Rows come from a forward-only database cursor and are written as they arrive, so heap use stays
+ * flat however many rows match. Archived publications are read a chunk at a time and written
+ * between them.
+ */
+@Component
+public class PublicationExporter {
+    static final String CSV_HEADER = "id,title,description,viewCount,publishedAt,updatedAt,type,status,frequentWords";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PublicationRepository publicationRepository;
+    private final PublicationArchive publicationArchive;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public PublicationExporter(PublicationRepository publicationRepository, PublicationArchive publicationArchive,
+                               ObjectMapper objectMapper, @Value("${publication.export.fetch-size:1000}") int fetchSize) {
+        this.publicationRepository = publicationRepository;
+        this.publicationArchive = publicationArchive;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Writes the matching publications and returns how many there were. The stream is flushed but
+     * not closed.
+     */
+    @Transactional(readOnly = true)
+    public long export(Specification<Publication> spec, ExportFormat format, OutputStream out,
+                       Function<Publication, PublicationDTO> converter) throws IOException {
+        return write(format, out, converter, row -> publicationRepository.scroll(spec, Sort.by("id"), fetchSize, row));
+    }
+
+    /**
+     * Writes the matching publications together with the archived ones {@code archived} hands out,
+     * a chunk of at most the fetch size at a time.
+     */
+    @Transactional(readOnly = true)
+    public long export(Specification<Publication> spec, ArchivedRows archived, ExportFormat format, OutputStream out,
+                       Function<Publication, PublicationDTO> converter) throws IOException {
+        return write(format, out, converter, row -> {
+            ArchivedCursor pending = new ArchivedCursor(archived);
+            publicationRepository.scroll(spec, Sort.by("id"), fetchSize, publication -> {
+                pending.writeBefore(publication.getId(), row);
+                row.accept(publication);
+            });
+            pending.writeBefore(Long.MAX_VALUE, row);
+        });
+    }
+
+    /**
+     * Writes the publications whose ids {@code ids} hands out, a chunk of at most the fetch size at
+     * a time, so that no more than one chunk of ids is ever held or sent to the database. With
+     * {@code withArchived}, ids missing from the publication table are looked up in the archive.
+     */
+    @Transactional(readOnly = true)
+    public long export(IdSource ids, boolean withArchived, ExportFormat format, OutputStream out,
+                       Function<Publication, PublicationDTO> converter) throws IOException {
+        return write(format, out, converter, row -> {
+            long lastId = 0;
+            List<Long> chunk;
+            do {
+                chunk = ids.idsAfter(lastId, fetchSize);
+                if (!chunk.isEmpty()) {
+                    Deque<Publication> archived = new ArrayDeque<>();
+                    if (withArchived) {
+                        List<Publication> found = new ArrayList<>(publicationArchive.findAllById(chunk));
+                        found.sort(Comparator.comparing(Publication::getId));
+                        archived.addAll(found);
+                    }
+                    publicationRepository.scroll(PublicationSpecification.hasIdIn(chunk), Sort.by("id"), fetchSize, publication -> {
+                        while (!archived.isEmpty() && archived.peekFirst().getId() < publication.getId()) {
+                            row.accept(archived.pollFirst());
+                        }
+                        row.accept(publication);
+                    });
+                    archived.forEach(row);
+                    lastId = chunk.get(chunk.size() - 1);
+                }
+            } while (chunk.size() == fetchSize);
+        });
+    }
+
+    /**
+     * Ids to export in ascending order.
+     */
+    public interface IdSource {
+        /**
+         * Up to {@code limit} ids greater than {@code afterId}, ascending.
+         */
+        List<Long> idsAfter(long afterId, int limit);
+    }
+
+    /**
+     * Archived publications to write among those of the publication table.
+     */
+    public interface ArchivedRows {
+        /**
+         * Up to {@code limit} archived publications with ids greater than {@code afterId}, ascending.
+         */
+        List<Publication> after(long afterId, int limit);
+    }
+
+    /**
+     * Reads the archived publications ahead a chunk at a time, to write each before the first row
+     * of the publication table with a larger id.
+     */
+    private final class ArchivedCursor {
+        private final ArchivedRows archived;
+        private final Deque<Publication> chunk = new ArrayDeque<>();
+        private long lastId;
+        private boolean exhausted;
+
+        private ArchivedCursor(ArchivedRows archived) {
+            this.archived = archived;
+        }
+
+        private void writeBefore(long id, Consumer<Publication> row) {
+            while (true) {
+                if (chunk.isEmpty()) {
+                    if (exhausted) {
+                        return;
+                    }
+                    List<Publication> next = archived.after(lastId, fetchSize);
+                    exhausted = next.size() < fetchSize;
+                    if (next.isEmpty()) {
+                        return;
+                    }
+                    chunk.addAll(next);
+                    lastId = next.get(next.size() - 1).getId();
+                }
+                if (chunk.peekFirst().getId() >= id) {
+                    return;
+                }
+                row.accept(chunk.pollFirst());
+            }
+        }
+    }
+
+    private long write(ExportFormat format, OutputStream out, Function<Publication, PublicationDTO> converter,
+                       Consumer<Consumer<Publication>> source) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        RowWriter rows = format == ExportFormat.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+        long[] count = {0};
+        try {
+            source.accept(publication -> {
+                try {
+                    rows.write(converter.apply(publication));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        rows.flush();
+        return count[0];
+    }
+
+    private interface RowWriter {
+        void write(PublicationDTO publication) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(Writer writer) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(PublicationDTO publication) throws IOException {
+            objectMapper.writeValue(generator, publication);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        private CsvRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(CSV_HEADER);
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(PublicationDTO publication) throws IOException {
+            writer.write(String.valueOf(publication.getId()));
+            writer.write(',');
+            writeField(publication.getTitle());
+            writer.write(',');
+            writeField(publication.getDescription());
+            writer.write(',');
+            writer.write(String.valueOf(publication.getViewCount()));
+            writer.write(',');
+            writeField(publication.getPublishedAt() == null ? null : publication.getPublishedAt().toString());
+            writer.write(',');
+            writeField(publication.getUpdatedAt() == null ? null : publication.getUpdatedAt().toString());
+            writer.write(',');
+            writeField(publication.getType() == null ? null : publication.getType().name());
+            writer.write(',');
+            writeField(publication.getStatus() == null ? null : publication.getStatus().name());
+            writer.write(',');
+            writeField(frequentWords(publication.getFrequentWords()));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+
+        private static String frequentWords(Map<String, Integer> frequentWords) {
+            if (frequentWords == null) {
+                return null;
+            }
+            StringBuilder joined = new StringBuilder();
+            for (Map.Entry<String, Integer> word : frequentWords.entrySet()) {
+                if (!joined.isEmpty()) {
+                    joined.append(' ');
+                }
+                joined.append(word.getKey()).append(':').append(word.getValue());
+            }
+            return joined.toString();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package mmf.publication.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import mmf.publication.app.dto.BatchIngestResult;
+import mmf.publication.app.dto.BatchPublicationRequest;
+import mmf.publication.app.entity.AppUser;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.events.PublicationSavedEvent;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.stats.PublicationStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates publications from a stream of newline-delimited JSON, one {@link BatchPublicationRequest}
+ * per line. Lines are read and written in chunks, so memory use depends on the chunk size rather
+ * than on the input. Each chunk resolves its unknown usernames with one query, extracts keywords in
+ * parallel and is inserted with a single JDBC batch. Invalid lines are skipped and reported with
+ * their line number; the rest of the input is still ingested.
+ */
+@Service
+public class PublicationIngestService implements IPublicationIngestService {
+    private static final Logger log = LoggerFactory.getLogger(PublicationIngestService.class);
+    private static final int MAX_TITLE_LENGTH = 255;
+    private static final int MAX_CACHED_USERS = 10_000;
+
+    private final PublicationRepository publicationRepository;
+    private final AppUserRepository appUserRepository;
+    private final KeywordExtractor keywordExtractor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PublicationStatistics statistics;
+    private final ObjectReader lineReader;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public PublicationIngestService(PublicationRepository publicationRepository, AppUserRepository appUserRepository,
+                                    KeywordExtractor keywordExtractor, ApplicationEventPublisher eventPublisher,
+                                    PublicationStatistics statistics,
+                                    ObjectMapper objectMapper,
+                                    @Value("${publication.ingest.batch-size:1000}") int batchSize,
+                                    @Value("${publication.ingest.max-reported-errors:100}") int maxReportedErrors) {
+        this.publicationRepository = publicationRepository;
+        this.appUserRepository = appUserRepository;
+        this.keywordExtractor = keywordExtractor;
+        this.eventPublisher = eventPublisher;
+        this.statistics = statistics;
+        this.lineReader = objectMapper.readerFor(BatchPublicationRequest.class);
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    @Override
+    public BatchIngestResult ingest(InputStream ndjson) throws IOException {
+        long start = System.nanoTime();
+        Ingestion ingestion = new Ingestion();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+
+        List<Line> chunk = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank()) {
+                continue;
+            }
+
+            ingestion.received++;
+            try {
+                BatchPublicationRequest request = lineReader.readValue(text);
+                if (request != null) {
+                    chunk.add(new Line(lineNumber, request));
+                } else {
+                    ingestion.reject(lineNumber, "Malformed line: expected a JSON object");
+                }
+            } catch (JsonProcessingException e) {
+                ingestion.reject(lineNumber, "Malformed line: " + e.getOriginalMessage());
+            }
+
+            if (chunk.size() == batchSize) {
+                ingestion.write(chunk);
+                chunk.clear();
+            }
+        }
+        ingestion.write(chunk);
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Ingested {} of {} publications in {} ms", ingestion.accepted, ingestion.received, elapsedMillis);
+        return new BatchIngestResult(ingestion.received, ingestion.accepted, ingestion.rejected, ingestion.errors,
+                elapsedMillis);
+    }
+
+    private static String validate(BatchPublicationRequest request) {
+        if (request.getUsername() == null || request.getUsername().isBlank()) {
+            return "username is required";
+        }
+        if (request.getTitle() == null || request.getTitle().isBlank()) {
+            return "title is required";
+        }
+        if (request.getTitle().length() > MAX_TITLE_LENGTH) {
+            return "title is longer than " + MAX_TITLE_LENGTH + " characters";
+        }
+        if (request.getDescription() == null) {
+            return "description is required";
+        }
+        if (request.getType() == null) {
+            return "type is required";
+        }
+        if (request.getStatus() == null) {
+            return "status is required";
+        }
+        return null;
+    }
+
+    private static final class Line {
+        private final long number;
+        private final BatchPublicationRequest request;
+
+        private Line(long number, BatchPublicationRequest request) {
+            this.number = number;
+            this.request = request;
+        }
+    }
+
+    /**
+     * Counters and the username cache of one ingest request.
+     */
+    private class Ingestion {
+        private final List<BatchIngestResult.LineError> errors = new ArrayList<>();
+        // Unknown usernames are cached as null so they are looked up only once as well
+        private final Map<String, AppUser> users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AppUser> eldest) {
+                return size() > MAX_CACHED_USERS;
+            }
+        };
+        private long received;
+        private long accepted;
+        private long rejected;
+
+        private void write(List<Line> chunk) {
+            resolveUsers(chunk);
+
+            List<Line> lines = new ArrayList<>(chunk.size());
+            List<Publication> publications = new ArrayList<>(chunk.size());
+            LocalDateTime now = LocalDateTime.now();
+            for (Line line : chunk) {
+                BatchPublicationRequest request = line.request;
+                String error = validate(request);
+                AppUser user = error == null ? users.get(request.getUsername()) : null;
+                if (error == null && user == null) {
+                    error = "User with username " + request.getUsername() + " does not exist";
+                }
+                if (error != null) {
+                    reject(line.number, error);
+                    continue;
+                }
+
+                Publication publication = new Publication(request.getTitle(), request.getDescription(), 0, now, now,
+                        request.getType(), request.getStatus(), null);
+                publication.setAppUser(user);
+                lines.add(line);
+                publications.add(publication);
+            }
+
+            publications.parallelStream().forEach(publication ->
+                    publication.setFrequentWords(keywordExtractor.extract(publication.getDescription())));
+
+            try {
+                publicationRepository.insertAll(publications);
+            } catch (DataAccessException e) {
+                String message = "Could not store publication: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                lines.forEach(line -> reject(line.number, message));
+                return;
+            }
+
+            accepted += publications.size();
+            for (Publication publication : publications) {
+                statistics.recordCreated(publication);
+                eventPublisher.publishEvent(new PublicationSavedEvent(publication));
+            }
+        }
+
+        private void resolveUsers(List<Line> chunk) {
+            Set<String> unknown = new HashSet<>();
+            for (Line line : chunk) {
+                String username = line.request.getUsername();
+                if (username != null && !users.containsKey(username)) {
+                    unknown.add(username);
+                }
+            }
+            if (unknown.isEmpty()) {
+                return;
+            }
+
+            for (AppUser user : appUserRepository.findByUsernameIn(unknown)) {
+                users.put(user.getUsername(), user);
+                unknown.remove(user.getUsername());
+            }
+            unknown.forEach(username -> users.put(username, null));
+        }
+
+        private void reject(long lineNumber, String message) {
+            rejected++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new BatchIngestResult.LineError(lineNumber, message));
+            }
+        }
+    }
+}
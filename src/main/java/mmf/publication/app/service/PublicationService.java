@@ -1,43 +1,310 @@
 package mmf.publication.app.service;
 
+import mmf.publication.app.archive.PublicationArchive;
+import mmf.publication.app.datasource.ReplicaRoutingDataSource;
+import mmf.publication.app.dto.CursorPage;
+import mmf.publication.app.dto.PublicationCursor;
 import mmf.publication.app.dto.PublicationDTO;
 import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.dto.PublicationStatsDTO;
+import mmf.publication.app.dto.PublicationSummaryDTO;
+import mmf.publication.app.dto.SimilarPublicationDTO;
+import mmf.publication.app.dto.TrendingKeywordDTO;
 import mmf.publication.app.entity.AppUser;
 import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.ExportFormat;
+import mmf.publication.app.enums.KeywordState;
 import mmf.publication.app.enums.PublicationStatus;
 import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.enums.SummaryField;
+import mmf.publication.app.events.PublicationSavedEvent;
 import mmf.publication.app.exceptions.PublicationNotFoundException;
 import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.search.InvertedIndex;
+import mmf.publication.app.search.PublicationSearchIndex;
+import mmf.publication.app.similar.MinHashIndex;
+import mmf.publication.app.similar.PublicationSimilarityIndex;
 import mmf.publication.app.specifications.PublicationSpecification;
+import mmf.publication.app.stats.PublicationStatistics;
+import mmf.publication.app.trending.TrendingKeywords;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class PublicationService implements IPublicationService {
     public static final int FREQUENT_WORDS_COUNT = 5;
     private final PublicationRepository publicationRepository;
     private final AppUserService appUserService;
-
-    public PublicationService(PublicationRepository publicationRepository, AppUserService appUserService) {
+    private final ViewCountBuffer viewCountBuffer;
+    private final PublicationSearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final KeywordExtractor keywordExtractor;
+    private final PublicationCache publicationCache;
+    private final LegacyKeywordMigration legacyKeywords;
+    private final PublicationExporter publicationExporter;
+    private final TrendingKeywords trendingKeywords;
+    private final KeywordPipeline keywordPipeline;
+    private final PublicationStatistics statistics;
+    private final PublicationSimilarityIndex similarityIndex;
+    private final PublicationArchive publicationArchive;
+
+    public PublicationService(PublicationRepository publicationRepository, AppUserService appUserService,
+                              ViewCountBuffer viewCountBuffer, PublicationSearchIndex searchIndex,
+                              ApplicationEventPublisher eventPublisher, KeywordExtractor keywordExtractor,
+                              PublicationCache publicationCache, LegacyKeywordMigration legacyKeywords,
+                              PublicationExporter publicationExporter, TrendingKeywords trendingKeywords,
+                              KeywordPipeline keywordPipeline, PublicationStatistics statistics,
+                              PublicationSimilarityIndex similarityIndex, PublicationArchive publicationArchive) {
         this.publicationRepository = publicationRepository;
         this.appUserService = appUserService;
+        this.viewCountBuffer = viewCountBuffer;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
+        this.keywordExtractor = keywordExtractor;
+        this.publicationCache = publicationCache;
+        this.legacyKeywords = legacyKeywords;
+        this.publicationExporter = publicationExporter;
+        this.trendingKeywords = trendingKeywords;
+        this.keywordPipeline = keywordPipeline;
+        this.statistics = statistics;
+        this.similarityIndex = similarityIndex;
+        this.publicationArchive = publicationArchive;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<PublicationDTO> getPublications(String search, PublicationStatus status, PublicationType type,
                                                 LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+        return publications(search, status, type, startDate, endDate, pageable).map(this::convertToDTO);
+    }
+
+    /**
+     * The matching publications of the publication table, and of the archive when it may hold some.
+     */
+    private Page<Publication> publications(String search, PublicationStatus status, PublicationType type,
+                                           LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+        boolean archived = publicationArchive.mayContain(status, type, startDate, endDate);
+        boolean hasSearch = search != null && !search.isEmpty();
+        if (hasSearch && searchIndex.isReady()) {
+            return searchPublications(search, status, type, startDate, endDate, pageable,
+                    archived ? InvertedIndex.Tier.ALL : InvertedIndex.Tier.CURRENT);
+        }
+        if (archived) {
+            return withArchived(search, status, type, startDate, endDate, pageable);
+        }
+
+        Specification<Publication> spec = filterSpecification(search, status, type, startDate, endDate);
+        return publicationRepository.findAll(spec, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<PublicationSummaryDTO> getPublicationSummaries(String search, PublicationStatus status, PublicationType type,
+                                                               LocalDateTime startDate, LocalDateTime endDate,
+                                                               Set<SummaryField> fields, int excerptLength, Pageable pageable) {
+        Page<PublicationSummaryDTO> summaries;
+        boolean archived = publicationArchive.mayContain(status, type, startDate, endDate);
+        InvertedIndex.Tier tier = archived ? InvertedIndex.Tier.ALL : InvertedIndex.Tier.CURRENT;
+        boolean hasSearch = search != null && !search.isEmpty();
+        Sort sort = pageable.getSort();
+        if (hasSearch && searchIndex.isReady() && sort.isUnsorted()) {
+            // Keep the ranking of the index, as searchPublications does
+            Page<Long> page = slice(rankedHits(search, status, type, startDate, endDate, tier), pageable);
+            summaries = new PageImpl<>(summariesInOrder(page.getContent(), fields, excerptLength), pageable,
+                    page.getTotalElements());
+        } else if (hasSearch && searchIndex.isReady() && searchIndex.canSort(sort)) {
+            // Only the page of hits leaves the index, as in searchPublications
+            InvertedIndex.SortedHits page = searchIndex.search(search, status, type, startDate, endDate, sort,
+                    pageable.isPaged() ? pageable.getOffset() : 0, pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE,
+                    tier);
+            summaries = new PageImpl<>(summariesInOrder(page.getIds(), fields, excerptLength), pageable, page.getTotal());
+        } else if (archived && sort.isSorted()) {
+            Page<Long> page = idsWithArchived(search, status, type, startDate, endDate, pageable);
+            summaries = new PageImpl<>(summariesInOrder(page.getContent(), fields, excerptLength), pageable,
+                    page.getTotalElements());
+        } else if (archived) {
+            summaries = summariesWithArchived(search, status, type, startDate, endDate, fields, excerptLength, pageable);
+        } else {
+            // Any other sort is left to the database, with the hits capped by filterSpecification
+            Specification<Publication> spec = filterSpecification(search, status, type, startDate, endDate);
+            summaries = publicationRepository.findSummaries(spec, fields, excerptLength, pageable);
+        }
+
+        if (fields.contains(SummaryField.VIEW_COUNT)) {
+            for (PublicationSummaryDTO summary : summaries) {
+                summary.setViewCount((int) (summary.getViewCount() + viewCountBuffer.pendingViews(summary.getId())));
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * The summaries of the given ids in their order, looked up in the archive when they are not in
+     * the publication table.
+     */
+    private List<PublicationSummaryDTO> summariesInOrder(List<Long> ids, Set<SummaryField> fields, int excerptLength) {
+        Map<Long, PublicationSummaryDTO> summariesById = new HashMap<>();
+        for (PublicationSummaryDTO summary : publicationRepository.findSummariesById(ids, fields, excerptLength)) {
+            summariesById.put(summary.getId(), summary);
+        }
+        if (summariesById.size() < ids.size()) {
+            List<Long> missing = new ArrayList<>();
+            for (Long id : ids) {
+                if (!summariesById.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            for (PublicationSummaryDTO summary : publicationArchive.findSummariesById(missing, fields, excerptLength)) {
+                summariesById.put(summary.getId(), summary);
+            }
+        }
+
+        List<PublicationSummaryDTO> summaries = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            PublicationSummaryDTO summary = summariesById.get(id);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<PublicationDTO> getPublicationsByCursor(String search, PublicationStatus status, PublicationType type,
+                                                              LocalDateTime startDate, LocalDateTime endDate,
+                                                              String cursor, int size, Sort sort) {
+        PublicationCursor position = (cursor == null || cursor.isEmpty()) ? null : PublicationCursor.decode(cursor);
+        Sort.Order order = position != null ? position.getOrder() : keysetOrder(sort);
+        boolean backward = position != null && position.isBackward();
+
+        // Walking backward scans in the reverse order and flips the rows afterwards
+        Sort.Direction scanDirection = backward ?
+                (order.isAscending() ? Sort.Direction.DESC : Sort.Direction.ASC) :
+                order.getDirection();
+        Sort scanSort = order.getProperty().equals("id") ?
+                Sort.by(scanDirection, "id") :
+                Sort.by(scanDirection, order.getProperty(), "id");
+
+        boolean archived = publicationArchive.mayContain(status, type, startDate, endDate);
+        boolean hasSearch = search != null && !search.isEmpty();
+        Comparable<?> afterValue = position == null ? null : position.getValue();
+        long afterId = position == null ? 0 : position.getId();
+        List<Publication> publications;
+        boolean hasMore;
+        if (hasSearch && searchIndex.isReady() && searchIndex.canSort(scanSort)) {
+            // The index finds the page past the cursor itself, so only its rows are loaded
+            List<Long> ids = searchIndex.searchAfter(search, status, type, startDate, endDate, scanSort,
+                    afterValue, afterId, size + 1, archived ? InvertedIndex.Tier.ALL : InvertedIndex.Tier.CURRENT);
+            hasMore = ids.size() > size;
+            publications = findAllInOrder(ids.subList(0, Math.min(size, ids.size())));
+        } else {
+            Specification<Publication> spec = filterSpecification(search, status, type, startDate, endDate);
+            if (position != null) {
+                spec = spec.and(position.getValue() instanceof LocalDateTime value ?
+                        PublicationSpecification.isBeyondKey(order.getProperty(), order.getDirection(), value, position.getId(), backward) :
+                        PublicationSpecification.isBeyondKey(order.getProperty(), order.getDirection(), (Long) position.getValue(), position.getId(), backward));
+            }
+            Slice<Publication> slice = publicationRepository.findSlice(spec, scanSort, size);
+            publications = new ArrayList<>(slice.getContent());
+            hasMore = slice.hasNext();
+            if (archived) {
+                // The archive's page past the same key, merged in; a search matches there as it does above
+                List<Long> archivedHits = hasSearch && searchIndex.isReady() ?
+                        searchIndex.searchForSorting(search, status, type, startDate, endDate, InvertedIndex.Tier.ARCHIVED) : null;
+                publications.addAll(publicationArchive.findAfter(search, archivedHits, status, type, startDate, endDate,
+                        scanSort, afterValue, afterId, size + 1));
+                publications.sort(PublicationArchive.comparator(scanSort));
+                if (publications.size() > size) {
+                    hasMore = true;
+                    publications = new ArrayList<>(publications.subList(0, size));
+                }
+            }
+        }
+        if (backward) {
+            Collections.reverse(publications);
+        }
+
+        String nextCursor = null;
+        String previousCursor = null;
+        if (!publications.isEmpty()) {
+            Publication first = publications.get(0);
+            Publication last = publications.get(publications.size() - 1);
+            if (backward || hasMore) {
+                nextCursor = PublicationCursor.at(last, order, false).encode();
+            }
+            if (backward ? hasMore : position != null) {
+                previousCursor = PublicationCursor.at(first, order, true).encode();
+            }
+        }
+
+        List<PublicationDTO> content = new ArrayList<>(publications.size());
+        for (Publication publication : publications) {
+            content.add(convertToDTO(publication));
+        }
+        return new CursorPage<>(content, size, nextCursor, previousCursor);
+    }
+
+    @Override
+    public long exportPublications(String search, PublicationStatus status, PublicationType type,
+                                   LocalDateTime startDate, LocalDateTime endDate, Long afterId,
+                                   ExportFormat format, OutputStream out) throws IOException {
+        boolean archived = publicationArchive.mayContain(status, type, startDate, endDate);
+        long first = afterId == null ? 0 : afterId;
+        Sort byId = Sort.by("id");
+        if (search != null && !search.isEmpty() && searchIndex.isReady()) {
+            // The index hands out the hits a chunk at a time in id order, from after afterId on
+            InvertedIndex.Tier tier = archived ? InvertedIndex.Tier.ALL : InvertedIndex.Tier.CURRENT;
+            return publicationExporter.export((lastId, limit) -> {
+                long after = Math.max(first, lastId);
+                return searchIndex.searchAfter(search, status, type, startDate, endDate, byId, after, after, limit, tier);
+            }, archived, format, out, this::convertToDTO);
+        }
+        Specification<Publication> spec = filterSpecification(search, status, type, startDate, endDate)
+                .and(PublicationSpecification.hasIdGreaterThan(afterId));
+        if (archived) {
+            return publicationExporter.export(spec, (lastId, limit) -> {
+                long after = Math.max(first, lastId);
+                return publicationArchive.findAfter(search, null, status, type, startDate, endDate, byId, after, after, limit);
+            }, format, out, this::convertToDTO);
+        }
+        return publicationExporter.export(spec, format, out, this::convertToDTO);
+    }
+
+    private static Sort.Order keysetOrder(Sort sort) {
+        Sort.Order order = sort.stream().findFirst().orElse(Sort.Order.desc("publishedAt"));
+        if (!PublicationCursor.SORT_PROPERTIES.contains(order.getProperty())) {
+            throw new IllegalArgumentException("Cursor pagination cannot sort by " + order.getProperty());
+        }
+        return order;
+    }
+
+    private Specification<Publication> filterSpecification(String search, PublicationStatus status, PublicationType type,
+                                                           LocalDateTime startDate, LocalDateTime endDate) {
         // Start with an empty specification
         Specification<Publication> spec = Specification.where(null);
 
         // Add each filter only if the parameter is provided
         if (search != null && !search.isEmpty()) {
-            spec = spec.and(PublicationSpecification.hasTitleOrDescriptionContaining(search));
+            spec = spec.and(searchIndex.isReady() ?
+                    PublicationSpecification.hasIdIn(searchIndex.searchForSorting(search, status, type, startDate, endDate)) :
+                    PublicationSpecification.hasTitleOrDescriptionContaining(search));
         }
 
         if (status != null) {
@@ -52,10 +319,182 @@ public class PublicationService implements IPublicationService {
             spec = spec.and(PublicationSpecification.publishedBetween(startDate, endDate));
         }
 
-        return publicationRepository.findAll(spec, pageable).map(this::convertToDTO);
+        return spec;
+    }
+
+    /**
+     * The publications of both tables, for filters the search index does not answer. Without a sort,
+     * those of the publication table come first, in the order they have without the archive; with
+     * one, the database sorts both together and only the rows of the page are loaded.
+     */
+    private Page<Publication> withArchived(String search, PublicationStatus status, PublicationType type,
+                                           LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            Page<Long> page = idsWithArchived(search, status, type, startDate, endDate, pageable);
+            return new PageImpl<>(findAllInOrder(page.getContent()), pageable, page.getTotalElements());
+        }
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int size = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        Specification<Publication> spec = filterSpecification(search, status, type, startDate, endDate);
+        long archivedCount = publicationArchive.count(search, status, type, startDate, endDate);
+        Page<Publication> current = publicationRepository.findAll(spec, pageable);
+        if (archivedCount == 0) {
+            return current;
+        }
+
+        List<Publication> content = new ArrayList<>(current.getContent());
+        if (content.size() < size) {
+            long archivedOffset = Math.max(0, offset - current.getTotalElements());
+            content.addAll(publicationArchive.findAll(search, status, type, startDate, endDate,
+                    archivedOffset, size - content.size(), Sort.unsorted()));
+        }
+        return new PageImpl<>(content, pageable, current.getTotalElements() + archivedCount);
+    }
+
+    /**
+     * The summaries of both tables in the order of {@link #withArchived} without a sort, each read
+     * with the columns of the fields alone.
+     */
+    private Page<PublicationSummaryDTO> summariesWithArchived(String search, PublicationStatus status, PublicationType type,
+                                                              LocalDateTime startDate, LocalDateTime endDate,
+                                                              Set<SummaryField> fields, int excerptLength, Pageable pageable) {
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int size = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        Specification<Publication> spec = filterSpecification(search, status, type, startDate, endDate);
+        long archivedCount = publicationArchive.count(search, status, type, startDate, endDate);
+        Page<PublicationSummaryDTO> current = publicationRepository.findSummaries(spec, fields, excerptLength, pageable);
+        if (archivedCount == 0) {
+            return current;
+        }
+
+        List<PublicationSummaryDTO> content = new ArrayList<>(current.getContent());
+        if (content.size() < size) {
+            long archivedOffset = Math.max(0, offset - current.getTotalElements());
+            content.addAll(publicationArchive.findSummaries(search, status, type, startDate, endDate,
+                    fields, excerptLength, archivedOffset, size - content.size()));
+        }
+        return new PageImpl<>(content, pageable, current.getTotalElements() + archivedCount);
+    }
+
+    /**
+     * One page of the ids of both tables in the sort of {@code pageable}, found by one query over
+     * their union. A search the index answers is narrowed to its hits first.
+     */
+    private Page<Long> idsWithArchived(String search, PublicationStatus status, PublicationType type,
+                                       LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+        List<Long> hits = search != null && !search.isEmpty() && searchIndex.isReady() ?
+                searchIndex.searchForSorting(search, status, type, startDate, endDate, InvertedIndex.Tier.ALL) : null;
+        List<Long> ids = publicationArchive.findIdsWithCurrent(search, hits, status, type, startDate, endDate,
+                pageable.getSort(), pageable.isPaged() ? pageable.getOffset() : 0,
+                pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE);
+        return PageableExecutionUtils.getPage(ids, pageable, () -> hits != null ? hits.size() :
+                publicationRepository.count(filterSpecification(search, status, type, startDate, endDate))
+                        + publicationArchive.count(search, status, type, startDate, endDate));
+    }
+
+    private Page<Publication> searchPublications(String search, PublicationStatus status, PublicationType type,
+                                                 LocalDateTime startDate, LocalDateTime endDate, Pageable pageable,
+                                                 InvertedIndex.Tier tier) {
+        // An explicit sort overrides the ranking: the index orders by the keys it holds, the
+        // database by the others, as long as the hits are few enough for one IN list
+        Sort sort = pageable.getSort();
+        if (sort.isSorted() && searchIndex.canSort(sort)) {
+            InvertedIndex.SortedHits page = searchIndex.search(search, status, type, startDate, endDate, sort,
+                    pageable.isPaged() ? pageable.getOffset() : 0, pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE,
+                    tier);
+            return new PageImpl<>(findAllInOrder(page.getIds()), pageable, page.getTotal());
+        }
+        if (sort.isSorted() && tier == InvertedIndex.Tier.CURRENT) {
+            List<Long> candidates = searchIndex.searchForSorting(search, status, type, startDate, endDate);
+            return publicationRepository.findAll(PublicationSpecification.hasIdIn(candidates), pageable);
+        }
+
+        if (sort.isSorted()) {
+            // The archive is not in the IN list query, so the capped hits of both tables are sorted by their union
+            Page<Long> page = idsWithArchived(search, status, type, startDate, endDate, pageable);
+            return new PageImpl<>(findAllInOrder(page.getContent()), pageable, page.getTotalElements());
+        }
+
+        Page<Long> page = slice(rankedHits(search, status, type, startDate, endDate, tier), pageable);
+        return new PageImpl<>(findAllInOrder(page.getContent()), pageable, page.getTotalElements());
+    }
+
+    /**
+     * The hits the index already filtered and ranked by term frequency, those of the publication
+     * table ahead of the archived ones.
+     */
+    private List<Long> rankedHits(String search, PublicationStatus status, PublicationType type,
+                                  LocalDateTime startDate, LocalDateTime endDate, InvertedIndex.Tier tier) {
+        List<Long> hits = searchIndex.search(search, status, type, startDate, endDate);
+        if (tier == InvertedIndex.Tier.ALL) {
+            hits = new ArrayList<>(hits);
+            hits.addAll(searchIndex.search(search, status, type, startDate, endDate, InvertedIndex.Tier.ARCHIVED));
+        }
+        return hits;
+    }
+
+    private static <T> Page<T> slice(List<T> rows, Pageable pageable) {
+        int from = pageable.isUnpaged() ? 0 : (int) Math.min(pageable.getOffset(), rows.size());
+        int to = pageable.isUnpaged() ? rows.size() : (int) Math.min((long) from + pageable.getPageSize(), rows.size());
+        return new PageImpl<>(rows.subList(from, to), pageable, rows.size());
+    }
+
+    /**
+     * The publications with the given ids in their order, looked up in the archive when they are not
+     * in the publication table.
+     */
+    private List<Publication> findAllInOrder(List<Long> ids) {
+        Map<Long, Publication> publicationsById = new HashMap<>();
+        for (Publication publication : publicationRepository.findAllById(ids)) {
+            publicationsById.put(publication.getId(), publication);
+        }
+        if (publicationsById.size() < ids.size()) {
+            List<Long> missing = new ArrayList<>();
+            for (Long id : ids) {
+                if (!publicationsById.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            for (Publication publication : publicationArchive.findAllById(missing)) {
+                publicationsById.put(publication.getId(), publication);
+            }
+        }
+
+        List<Publication> publications = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Publication publication = publicationsById.get(id);
+            if (publication != null) {
+                publications.add(publication);
+            }
+        }
+        return publications;
     }
 
     private PublicationDTO convertToDTO(Publication publication) {
+        return new PublicationDTO(
+                publication.getId(),
+                publication.getTitle(),
+                publication.getDescription(),
+                (int) (publication.getViewCount() + pendingViews(publication)),
+                publication.getPublishedAt(),
+                publication.getUpdatedAt(),
+                publication.getType(),
+                publication.getStatus(),
+                legacyKeywords.frequentWordsOf(publication),
+                publication.getKeywordState(),
+                publication.getVersion()
+        );
+    }
+
+    private long pendingViews(Publication publication) {
+        return publication.getId() == null ? 0 : viewCountBuffer.pendingViews(publication.getId());
+    }
+
+    /**
+     * The DTO kept in the cache: the stored view count only, and a frequent words map nobody can change.
+     */
+    private PublicationDTO toCachedDTO(Publication publication) {
+        Map<String, Integer> frequentWords = legacyKeywords.frequentWordsOf(publication);
         return new PublicationDTO(
                 publication.getId(),
                 publication.getTitle(),
@@ -65,13 +504,35 @@ public class PublicationService implements IPublicationService {
                 publication.getUpdatedAt(),
                 publication.getType(),
                 publication.getStatus(),
-                publication.getFrequentWords()
+                frequentWords == null ? null : Collections.unmodifiableMap(new LinkedHashMap<>(frequentWords)),
+                publication.getKeywordState(),
+                publication.getVersion()
+        );
+    }
+
+    private PublicationDTO withPendingViews(PublicationDTO publication) {
+        long pendingViews = viewCountBuffer.pendingViews(publication.getId());
+        if (pendingViews == 0) {
+            return publication;
+        }
+        return new PublicationDTO(
+                publication.getId(),
+                publication.getTitle(),
+                publication.getDescription(),
+                (int) (publication.getViewCount() + pendingViews),
+                publication.getPublishedAt(),
+                publication.getUpdatedAt(),
+                publication.getType(),
+                publication.getStatus(),
+                publication.getFrequentWords(),
+                publication.getKeywordState(),
+                publication.getVersion()
         );
     }
 
     @Override
     public PublicationDTO createPublication(PublicationRequest request, String username) {
-        AppUser userFromDb = appUserService.findByUsername(username);
+        AppUser owner = appUserService.getReferenceByUsername(username);
 
 
         String description = request.getDescription();
@@ -87,35 +548,62 @@ public class PublicationService implements IPublicationService {
         publication.setPublishedAt(LocalDateTime.now());
         publication.setUpdatedAt(LocalDateTime.now());
         publication.setViewCount(0);
-        publication.setAppUser(userFromDb);
-
-        Map<String, Integer> frequentWordsOfPublication = findFrequentWordsOfPublication(description);
-        publication.setFrequentWords(frequentWordsOfPublication);
+        publication.setAppUser(owner);
+        setKeywords(publication);
 
         Publication savedPublication = publicationRepository.save(publication);
+        statistics.recordCreated(savedPublication);
+        eventPublisher.publishEvent(new PublicationSavedEvent(savedPublication));
+        submitPendingKeywords(savedPublication);
         return convertToDTO(savedPublication);
     }
 
     @Override
-    public PublicationDTO updatePublication(Long id, PublicationRequest request) throws PublicationNotFoundException {
-        Optional<Publication> publicationById = publicationRepository.findById(id);
+    public PublicationDTO updatePublication(Long id, PublicationRequest request, Long expectedVersion)
+            throws PublicationNotFoundException {
+        return update(id, request, expectedVersion, false);
+    }
 
-        if (publicationById.isPresent()) {
-            String description = request.getDescription();
-            String title = request.getTitle();
-            PublicationType type = request.getType();
-            PublicationStatus status = request.getStatus();
+    @Override
+    public PublicationDTO patchPublication(Long id, PublicationRequest patch, Long expectedVersion)
+            throws PublicationNotFoundException {
+        return update(id, patch, expectedVersion, true);
+    }
 
-            Publication publication = publicationById.get();
-            publication.setTitle(title);
-            publication.setDescription(description);
-            publication.setType(type);
-            publication.setStatus(status);
+    /**
+     * Replaces the publication's fields with those of the request, or with its non-null ones if
+     * {@code partial}. The keywords are only extracted again if the description changed.
+     */
+    private PublicationDTO update(Long id, PublicationRequest request, Long expectedVersion, boolean partial)
+            throws PublicationNotFoundException {
+        Optional<Publication> publicationById = findForUpdate(id);
 
-            Map<String, Integer> frequentWordsOfPublication = findFrequentWordsOfPublication(description);
-            publication.setFrequentWords(frequentWordsOfPublication);
+        if (publicationById.isPresent()) {
+            Publication publication = publicationById.get();
+            checkVersion(publication, expectedVersion);
+            PublicationStatus previousStatus = publication.getStatus();
+            PublicationType previousType = publication.getType();
+            if (!partial || request.getTitle() != null) {
+                publication.setTitle(request.getTitle());
+            }
+            if (!partial || request.getType() != null) {
+                publication.setType(request.getType());
+            }
+            if (!partial || request.getStatus() != null) {
+                publication.setStatus(request.getStatus());
+            }
+            boolean contentChanged = (!partial || request.getDescription() != null)
+                    && publication.updateDescription(request.getDescription());
+            if (contentChanged) {
+                setKeywords(publication);
+            }
 
             Publication updatedPublication = publicationRepository.save(publication);
+            statistics.recordChanged(previousStatus, previousType, updatedPublication);
+            eventPublisher.publishEvent(new PublicationSavedEvent(updatedPublication, contentChanged));
+            if (contentChanged) {
+                submitPendingKeywords(updatedPublication);
+            }
             return convertToDTO(updatedPublication);
         } else {
             throw new PublicationNotFoundException("Publication with id " + id + " does not exist");
@@ -123,82 +611,157 @@ public class PublicationService implements IPublicationService {
     }
 
     @Override
-    public PublicationDTO updatePublicationStatus(Long id, PublicationStatus status) throws PublicationNotFoundException {
-        Optional<Publication> publicationById = publicationRepository.findById(id);
+    public PublicationDTO updatePublicationStatus(Long id, PublicationStatus status, Long expectedVersion)
+            throws PublicationNotFoundException {
+        Optional<Publication> publicationById = findForUpdate(id);
         if (publicationById.isPresent()) {
             Publication publication = publicationById.get();
+            checkVersion(publication, expectedVersion);
+            PublicationStatus previousStatus = publication.getStatus();
             publication.setStatus(status);
             Publication updatedPublication = publicationRepository.save(publication);
+            statistics.recordChanged(previousStatus, publication.getType(), updatedPublication);
+            eventPublisher.publishEvent(new PublicationSavedEvent(updatedPublication, false));
             return convertToDTO(updatedPublication);
         } else {
             throw new PublicationNotFoundException("Publication with id " + id + " does not exist");
         }
     }
 
-    @Override
-    public void incrementViewCount(Long id) {
-        publicationRepository.findById(id).ifPresent(publication -> {
-            publication.incrementViewCount();
-            publication.setUpdatedAt(LocalDateTime.now());
-            publicationRepository.save(publication);
-        });
+    /**
+     * The publication to change, moved back from the archive first if it is there.
+     */
+    private Optional<Publication> findForUpdate(Long id) {
+        Optional<Publication> publication = publicationRepository.findById(id);
+        if (publication.isEmpty() && publicationArchive.mayContain(null, null, null, null)) {
+            // Looked up again even if a concurrent update moved it back first
+            publicationArchive.restore(id);
+            publication = publicationRepository.findById(id);
+        }
+        return publication;
     }
 
-    @Override
-    public Map<String, Integer> findFrequentWordsOfPublication(String publicationDescription) {
-        if (isInvalidDescription(publicationDescription)) {
-            return Collections.emptyMap();
+    /**
+     * Rejects an update made against an older version. The version column guards the write itself,
+     * so a change that slips in between this check and the update fails there instead.
+     */
+    private static void checkVersion(Publication publication, Long expectedVersion) {
+        if (expectedVersion != null && publication.getVersion() != expectedVersion) {
+            throw new ObjectOptimisticLockingFailureException(Publication.class, publication.getId());
         }
+    }
 
-        String[] words = removeSpecialCharacters(publicationDescription).split("\\s+");
-
-        Map<String, Integer> wordCount = new HashMap<>();
-        for (String word : words) {
-            if (!word.isEmpty()) {
-                wordCount.put(word, wordCount.getOrDefault(word, 0) + 1);
-            }
+    /**
+     * Extracts the keywords of the publication's description now, or marks them pending for the
+     * {@link KeywordPipeline}, which keeps the previous keywords until it has replaced them.
+     */
+    private void setKeywords(Publication publication) {
+        if (keywordPipeline.shouldDefer()) {
+            publication.setKeywordState(KeywordState.PENDING);
+        } else {
+            publication.setFrequentWords(findFrequentWordsOfPublication(publication.getDescription()));
+            publication.setKeywordState(KeywordState.READY);
         }
+    }
 
-        PriorityQueue<Map.Entry<String, Integer>> minHeap =
-                new PriorityQueue<>(Comparator.comparingInt(Map.Entry::getValue));
-
-        for (Map.Entry<String, Integer> entry : wordCount.entrySet()) {
-            minHeap.offer(entry);
+    private void submitPendingKeywords(Publication publication) {
+        if (publication.getKeywordState() == KeywordState.PENDING) {
+            keywordPipeline.submit(publication.getId());
+        }
+    }
 
-            if (minHeap.size() > FREQUENT_WORDS_COUNT) {
-                minHeap.poll();
-            }
+    /**
+     * Views of unknown ids are rejected before they reach the buffer, whose flush would drop them
+     * while the statistics and the journal kept counting them.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void incrementViewCount(Long id) throws PublicationNotFoundException {
+        if (!exists(id)) {
+            throw new PublicationNotFoundException("Wrong ID!");
         }
+        viewCountBuffer.increment(id);
+        statistics.recordView();
+    }
 
-        return minHeap.stream()
-                .sorted(IncrementalSort())
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new));
+    /**
+     * Answers from memory for publications that are cached or indexed, and from the tables otherwise.
+     */
+    private boolean exists(Long id) {
+        return publicationCache.contains(id) || similarityIndex.contains(id) || publicationRepository.existsById(id)
+                || publicationArchive.findVersionById(id).isPresent();
     }
 
-    private static Comparator<Map.Entry<String, Integer>> IncrementalSort() {
-        return (a, b) -> b.getValue().compareTo(a.getValue());
+    @Override
+    public Map<String, Integer> findFrequentWordsOfPublication(String publicationDescription) {
+        return keywordExtractor.extract(publicationDescription);
     }
 
-    private static String removeSpecialCharacters(String publicationDescription) {
-        publicationDescription = publicationDescription.toLowerCase().replaceAll("[^a-zA-Z0-9 ]", "");
-        return publicationDescription;
+    @Override
+    public List<TrendingKeywordDTO> getTrendingKeywords(PublicationType type, Duration window, int limit) {
+        return trendingKeywords.top(type, window, limit);
     }
 
-    private static boolean isInvalidDescription(String publicationDescription) {
-        return publicationDescription == null || publicationDescription.isEmpty();
+    @Override
+    @Transactional(readOnly = true)
+    public List<SimilarPublicationDTO> getSimilarPublications(Long id, int limit) throws PublicationNotFoundException {
+        if (!exists(id)) {
+            throw new PublicationNotFoundException("Wrong ID!");
+        }
+        List<MinHashIndex.Match> matches = similarityIndex.similar(id, limit);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(matches.size());
+        for (MinHashIndex.Match match : matches) {
+            ids.add(match.getId());
+        }
+        Map<Long, Publication> publications = new HashMap<>();
+        for (Publication publication : publicationRepository.findAllById(ids)) {
+            publications.put(publication.getId(), publication);
+        }
+        List<SimilarPublicationDTO> similar = new ArrayList<>(matches.size());
+        for (MinHashIndex.Match match : matches) {
+            Publication publication = publications.get(match.getId());
+            if (publication != null) {
+                similar.add(new SimilarPublicationDTO(publication.getId(), publication.getTitle(), publication.getType(),
+                        publication.getStatus(), publication.getPublishedAt(), match.getSimilarity()));
+            }
+        }
+        return similar;
+    }
+
+    @Override
+    public PublicationStatsDTO getPublicationStats(LocalDate from, LocalDate to) {
+        return statistics.snapshot(from, to);
     }
 
+    /**
+     * Not transactional, so a cache hit takes no connection; a load runs in the repository's own.
+     */
     @Override
     public PublicationDTO getPublication(Long id) throws PublicationNotFoundException {
-        Optional<Publication> byId = publicationRepository.findById(id);
-        if (byId.isPresent()) {
-            return convertToDTO(byId.get());
+        // Cached entries live until the row changes, so they are loaded from the primary, never a lagging replica
+        PublicationDTO cached = publicationCache.get(id, key -> ReplicaRoutingDataSource.readFromPrimary(
+                () -> publicationRepository.findById(key)
+                        .or(() -> publicationArchive.findById(key))
+                        .map(this::toCachedDTO)
+                        .orElse(null)));
+        if (cached != null) {
+            return withPendingViews(cached);
         } else {
             throw new PublicationNotFoundException("Wrong ID!");
         }
     }
+
+    @Override
+    public long getPublicationVersion(Long id) throws PublicationNotFoundException {
+        PublicationDTO cached = publicationCache.getIfPresent(id);
+        if (cached != null) {
+            return cached.getVersion();
+        }
+        return publicationRepository.findVersionById(id)
+                .or(() -> publicationArchive.findVersionById(id))
+                .orElseThrow(() -> new PublicationNotFoundException("Wrong ID!"));
+    }
 }
@@ -0,0 +1,125 @@
+package mmf.publication.app.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of the registered usernames. {@link #mightContain} is false only for usernames that
+ * were never added, so registration can skip the duplicate check for them and go straight to
+ * hashing, while a true answer still has to be confirmed against the database. The filter is
+ * warmed from {@code app_user} once the application is ready and answers true until then.
+ * Bits are only ever set, so concurrent adds need no lock.
+ */
+@Component
+public class UsernameFilter {
+    private static final Logger log = LoggerFactory.getLogger(UsernameFilter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private volatile boolean warmed;
+
+    public UsernameFilter(DataSource dataSource, MeterRegistry meterRegistry,
+                          @Value("${publication.users.filter.expected-users:1000000}") long expectedUsers,
+                          @Value("${publication.users.filter.false-positive-rate:0.01}") double falsePositiveRate,
+                          @Value("${publication.users.filter.fetch-size:1000}") int fetchSize) {
+        if (expectedUsers < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The filter needs a positive size and a false positive rate below 1");
+        }
+        // A template of its own, so the fetch size does not apply to everybody else's queries
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        // m = -n·ln(p) / ln(2)² bits and k = m/n·ln(2) hashes minimise the false positive rate
+        long optimalBits = (long) Math.ceil(-expectedUsers * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE, (optimalBits + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedUsers * Math.log(2)));
+
+        Gauge.builder("publication.users.filter.fill", this, UsernameFilter::fillRatio)
+                .description("Share of the username filter's bits that are set")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        long start = System.nanoTime();
+        long[] count = {0};
+        jdbcTemplate.query("SELECT username FROM app_user", row -> {
+            add(row.getString(1));
+            count[0]++;
+        });
+        warmed = true;
+        log.info("Loaded {} usernames into the username filter in {} ms", count[0],
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void add(String username) {
+        long hash = hash(username);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = bit(hash, i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(String username) {
+        if (!warmed) {
+            return true;
+        }
+        long hash = hash(username);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = bit(hash, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isWarmed() {
+        return warmed;
+    }
+
+    private double fillRatio() {
+        long set = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            set += Long.bitCount(bits.get(i));
+        }
+        return (double) set / bitCount;
+    }
+
+    private long bit(long hash, int i) {
+        // Kirsch-Mitzenmacher: h1 + i·h2 is as good as k independent hashes for a Bloom filter
+        return Math.floorMod((hash & 0xFFFFFFFFL) + i * (hash >>> 32), bitCount);
+    }
+
+    private static long hash(String username) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < username.length(); i++) {
+            hash ^= username.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,313 @@
+package mmf.publication.app.service;
+
+import jakarta.annotation.PreDestroy;
+import mmf.publication.app.events.ViewCountsFlushedEvent;
+import mmf.publication.app.repository.PublicationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Write-behind accumulator for publication views. Views are counted in memory, split over
+ * lock stripes so concurrent viewers of different publications rarely contend, and recorded in a
+ * {@link ViewCountJournal} so they survive a crash. A scheduler periodically drains the stripes and
+ * adds the deltas to the database in batches of {@code view_count = view_count + ?} updates, then
+ * publishes a {@link ViewCountsFlushedEvent} for each batch written.
+ */
+@Component
+public class ViewCountBuffer {
+    private static final Logger log = LoggerFactory.getLogger(ViewCountBuffer.class);
+
+    private final PublicationRepository publicationRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ViewCountJournal journal;
+    private final int maxBatchSize;
+    private final Stripe[] stripes;
+    private final Map<Long, Long> inFlight = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    // Flushes that had views to write, guarded by flushLock
+    private long flushes;
+
+    public ViewCountBuffer(PublicationRepository publicationRepository, ApplicationEventPublisher eventPublisher,
+                           @Value("${publication.views.journal-dir:data/view-journal}") String journalDir,
+                           @Value("${publication.views.stripes:64}") int stripeCount,
+                           @Value("${publication.views.max-batch-size:500}") int maxBatchSize) {
+        this.publicationRepository = publicationRepository;
+        this.eventPublisher = eventPublisher;
+        this.maxBatchSize = maxBatchSize;
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        this.journal = new ViewCountJournal(Path.of(journalDir));
+        journal.replay().forEach(this::restore);
+    }
+
+    public void increment(long id) {
+        Stripe stripe = stripeFor(id);
+        stripe.lock.lock();
+        try {
+            stripe.deltas.computeIfAbsent(id, key -> new long[1])[0]++;
+            stripe.appendToJournal(id);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Views of the publication that are not yet reflected in its {@code view_count} column.
+     */
+    public long pendingViews(long id) {
+        Stripe stripe = stripeFor(id);
+        stripe.lock.lock();
+        try {
+            // Read under the stripe lock, which drain holds while it moves deltas in flight
+            long pending = inFlight.getOrDefault(id, 0L);
+            long[] delta = stripe.deltas.get(id);
+            return delta == null ? pending : pending + delta[0];
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Runs {@code storedViews}, which reads views from the {@code view_count} column, and adds every
+     * view still pending, so no view is missed or counted twice. The query does not hold off flushes
+     * or journal syncs; if a flush wrote views while it ran, the column may or may not hold them and
+     * nothing is returned. {@code counter}, views counted elsewhere, is read together with the
+     * pending views so that the two totals can be compared.
+     */
+    public Optional<ViewTotal> withPendingViews(LongSupplier storedViews, LongSupplier counter) {
+        long flushesBefore;
+        synchronized (flushLock) {
+            flushesBefore = flushes;
+        }
+        long total = storedViews.getAsLong();
+        synchronized (flushLock) {
+            if (flushes != flushesBefore) {
+                return Optional.empty();
+            }
+            for (long pending : inFlight.values()) {
+                total += pending;
+            }
+            for (Stripe stripe : stripes) {
+                stripe.lock.lock();
+            }
+            try {
+                for (Stripe stripe : stripes) {
+                    for (long[] delta : stripe.deltas.values()) {
+                        total += delta[0];
+                    }
+                }
+                return Optional.of(new ViewTotal(total, counter.getAsLong()));
+            } finally {
+                for (Stripe stripe : stripes) {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${publication.views.journal-sync-interval-ms:100}")
+    public void syncJournal() {
+        synchronized (flushLock) {
+            try {
+                for (Stripe stripe : stripes) {
+                    stripe.lock.lock();
+                    try {
+                        journal.append(stripe.journalIds, stripe.journalSize);
+                        stripe.journalSize = 0;
+                    } finally {
+                        stripe.lock.unlock();
+                    }
+                }
+                journal.sync();
+            } catch (IOException e) {
+                log.error("Could not sync the view count journal", e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${publication.views.flush-interval-ms:1000}")
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Long, Long> drained;
+            try {
+                drained = drain();
+            } catch (IOException e) {
+                log.error("Could not rotate the view count journal, postponing the flush", e);
+                return;
+            }
+            if (!drained.isEmpty()) {
+                flushes++;
+            }
+
+            Map<Long, Long> failed = new HashMap<>();
+            for (Map<Long, Long> batch : partition(drained)) {
+                LocalDateTime updatedAt = LocalDateTime.now();
+                try {
+                    publicationRepository.addViewCounts(batch, updatedAt);
+                } catch (RuntimeException e) {
+                    log.warn("Could not flush view counts of {} publications, retrying on the next flush", batch.size(), e);
+                    batch.forEach((id, delta) -> {
+                        restore(id, delta);
+                        removeInFlight(id, delta);
+                    });
+                    failed.putAll(batch);
+                    continue;
+                }
+
+                // Published while the deltas still count as pending, so readers may briefly see a
+                // view twice but never lose one
+                try {
+                    eventPublisher.publishEvent(new ViewCountsFlushedEvent(batch, updatedAt));
+                } catch (RuntimeException e) {
+                    log.error("A listener failed to handle flushed view counts", e);
+                }
+                batch.forEach(this::removeInFlight);
+            }
+
+            // The closed segments also hold the batches that did get written, so after a partial
+            // failure only the views still missing may survive them
+            try {
+                if (failed.isEmpty()) {
+                    journal.deleteClosedSegments();
+                } else {
+                    journal.checkpoint(failed);
+                }
+            } catch (IOException e) {
+                log.error("Could not replace flushed view count journal segments", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        flush();
+        synchronized (flushLock) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Moves every stripe's deltas to the in-flight map and closes the journal segment holding them.
+     * All stripes are locked together so the closed segment contains exactly the drained views.
+     */
+    private Map<Long, Long> drain() throws IOException {
+        Map<Long, Long> drained = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            for (Stripe stripe : stripes) {
+                journal.append(stripe.journalIds, stripe.journalSize);
+                stripe.journalSize = 0;
+            }
+            journal.rotate();
+
+            for (Stripe stripe : stripes) {
+                stripe.deltas.forEach((id, delta) -> {
+                    drained.merge(id, delta[0], Long::sum);
+                    inFlight.merge(id, delta[0], Long::sum);
+                });
+                stripe.deltas = new HashMap<>();
+            }
+        } finally {
+            for (Stripe stripe : stripes) {
+                stripe.lock.unlock();
+            }
+        }
+        return drained;
+    }
+
+    private List<Map<Long, Long>> partition(Map<Long, Long> drained) {
+        List<Map<Long, Long>> batches = new ArrayList<>();
+        Map<Long, Long> batch = new LinkedHashMap<>();
+        for (Map.Entry<Long, Long> delta : drained.entrySet()) {
+            batch.put(delta.getKey(), delta.getValue());
+            if (batch.size() == maxBatchSize) {
+                batches.add(batch);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Puts back views that are already journaled, either replayed at startup or from a failed flush.
+     */
+    private void restore(long id, long delta) {
+        Stripe stripe = stripeFor(id);
+        stripe.lock.lock();
+        try {
+            stripe.deltas.computeIfAbsent(id, key -> new long[1])[0] += delta;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void removeInFlight(long id, long delta) {
+        inFlight.computeIfPresent(id, (key, pending) -> pending == delta ? null : pending - delta);
+    }
+
+    private Stripe stripeFor(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (hash >>> 32) & (stripes.length - 1)];
+    }
+
+    /**
+     * Every view, stored or pending, and the views another counter held at the same time.
+     */
+    public static final class ViewTotal {
+        private final long views;
+        private final long counted;
+
+        private ViewTotal(long views, long counted) {
+            this.views = views;
+            this.counted = counted;
+        }
+
+        public long getViews() {
+            return views;
+        }
+
+        public long getCounted() {
+            return counted;
+        }
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<Long, long[]> deltas = new HashMap<>();
+        private long[] journalIds = new long[64];
+        private int journalSize;
+
+        private void appendToJournal(long id) {
+            if (journalSize == journalIds.length) {
+                journalIds = Arrays.copyOf(journalIds, journalSize << 1);
+            }
+            journalIds[journalSize++] = id;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package mmf.publication.app.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of publication ids that were viewed but not yet written to the database.
+ * Each record is the 8 byte id of one view. The log is split into numbered segments: the active
+ * segment receives new records, closed segments hold views that are being (or failed to be)
+ * flushed and are deleted once the database has them. When only part of a flush reaches the
+ * database, the views still missing are written to a checkpoint, a file of (id, count) records that
+ * replaces every segment up to its number.
+ */
+public class ViewCountJournal implements Closeable {
+    private static final String SEGMENT_PREFIX = "views-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final int RECORD_SIZE = Long.BYTES;
+
+    private final Path directory;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private long activeSegment;
+    private FileChannel activeChannel;
+
+    public ViewCountJournal(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            this.activeSegment = Math.max(latest(segmentNumbers(SEGMENT_SUFFIX)), latest(segmentNumbers(CHECKPOINT_SUFFIX))) + 1;
+            this.activeChannel = open(activeSegment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open view count journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Sums the views recorded in the latest checkpoint and every closed segment after it, i.e. views
+     * left over from a previous run. Trailing bytes of a record torn by a crash are ignored.
+     */
+    public synchronized Map<Long, Long> replay() {
+        Map<Long, Long> viewCounts = new HashMap<>();
+        ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+        try {
+            long checkpoint = latest(segmentNumbers(CHECKPOINT_SUFFIX));
+            if (checkpoint > 0) {
+                read(path(checkpoint, CHECKPOINT_SUFFIX), readBuffer, 2 * RECORD_SIZE,
+                        buffer -> viewCounts.merge(buffer.getLong(), buffer.getLong(), Long::sum));
+            }
+            for (Long segment : segmentNumbers(SEGMENT_SUFFIX)) {
+                if (segment > checkpoint && segment != activeSegment) {
+                    read(segmentPath(segment), readBuffer, RECORD_SIZE,
+                            buffer -> viewCounts.merge(buffer.getLong(), 1L, Long::sum));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay view count journal in " + directory, e);
+        }
+        return viewCounts;
+    }
+
+    public synchronized void append(long[] ids, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < RECORD_SIZE) {
+                writeBuffer();
+            }
+            buffer.putLong(ids[i]);
+        }
+    }
+
+    public synchronized void sync() throws IOException {
+        writeBuffer();
+        activeChannel.force(false);
+    }
+
+    /**
+     * Closes the active segment and starts a new one, so that everything appended so far can be
+     * deleted as a unit once it has been flushed.
+     */
+    public synchronized void rotate() throws IOException {
+        sync();
+        activeChannel.close();
+        activeSegment++;
+        activeChannel = open(activeSegment);
+    }
+
+    public synchronized void deleteClosedSegments() throws IOException {
+        deleteUpTo(activeSegment - 1);
+    }
+
+    /**
+     * Replaces every closed segment with a checkpoint of the given views, those of the closed
+     * segments that did not reach the database. The checkpoint is complete on disk before any
+     * segment is deleted, and a crash in between only leaves segments that replay skips.
+     */
+    public synchronized void checkpoint(Map<Long, Long> viewCounts) throws IOException {
+        long checkpoint = activeSegment - 1;
+        Path target = path(checkpoint, CHECKPOINT_SUFFIX);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        ByteBuffer writeBuffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<Long, Long> viewCount : viewCounts.entrySet()) {
+                if (writeBuffer.remaining() < 2 * RECORD_SIZE) {
+                    drainTo(channel, writeBuffer);
+                }
+                writeBuffer.putLong(viewCount.getKey()).putLong(viewCount.getValue());
+            }
+            drainTo(channel, writeBuffer);
+            channel.force(false);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deleteUpTo(checkpoint - 1);
+        Files.deleteIfExists(segmentPath(checkpoint));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        activeChannel.close();
+    }
+
+    private void writeBuffer() throws IOException {
+        drainTo(activeChannel, buffer);
+    }
+
+    private void deleteUpTo(long last) throws IOException {
+        for (String suffix : new String[]{SEGMENT_SUFFIX, CHECKPOINT_SUFFIX}) {
+            for (Long segment : segmentNumbers(suffix)) {
+                if (segment <= last) {
+                    Files.deleteIfExists(path(segment, suffix));
+                }
+            }
+        }
+    }
+
+    private static void drainTo(FileChannel channel, ByteBuffer source) throws IOException {
+        source.flip();
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+        source.clear();
+    }
+
+    private static void read(Path file, ByteBuffer readBuffer, int recordSize, Consumer<ByteBuffer> record) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            readBuffer.clear();
+            while (channel.read(readBuffer) > 0) {
+                readBuffer.flip();
+                while (readBuffer.remaining() >= recordSize) {
+                    record.accept(readBuffer);
+                }
+                readBuffer.compact();
+            }
+        }
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        return FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long segment) {
+        return path(segment, SEGMENT_SUFFIX);
+    }
+
+    private Path path(long segment, String suffix) {
+        return directory.resolve(SEGMENT_PREFIX + segment + suffix);
+    }
+
+    private static long latest(List<Long> segments) {
+        return segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+    }
+
+    private List<Long> segmentNumbers(String suffix) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(suffix))
+                    .forEach(name -> segments.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - suffix.length()))));
+        }
+        segments.sort(Long::compare);
+        return segments;
+    }
+}
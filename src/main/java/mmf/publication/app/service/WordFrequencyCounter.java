@@ -0,0 +1,275 @@
+package mmf.publication.app.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Single-pass word counter producing the same words as lower-casing the text, deleting everything
+ * but {@code [a-z0-9 ]} and splitting on spaces, without materializing any of those intermediate
+ * strings. Normalized word characters go to a reusable char arena and are counted in an
+ * open-addressing table of primitive arrays; only the top-K words become {@link String}s.
+ * <p>
+ * Instances keep their buffers between calls and are not thread-safe.
+ */
+public class WordFrequencyCounter {
+    private static final char DROP = 0;
+    private static final char SEPARATOR = ' ';
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int RETAINED_ARENA_SIZE = 1 << 16;
+
+    private final char[] asciiMapping = new char[128];
+
+    private char[] arena;
+    private int arenaLength;
+
+    // Open-addressing table, one slot per distinct word; offsets[slot] == -1 marks a free slot
+    private int[] offsets;
+    private int[] lengths;
+    private int[] hashes;
+    private int[] counts;
+    private int[] firstSeen;
+    private int size;
+
+    public WordFrequencyCounter() {
+        this(Locale.getDefault());
+    }
+
+    public WordFrequencyCounter(Locale locale) {
+        this(locale, RETAINED_ARENA_SIZE);
+    }
+
+    /**
+     * A counter whose buffers start out sized for a text of {@code expectedLength} chars, for one
+     * that is used once rather than kept.
+     */
+    public WordFrequencyCounter(Locale locale, int expectedLength) {
+        for (char c = 'a'; c <= 'z'; c++) {
+            asciiMapping[c] = c;
+            asciiMapping[c - 'a' + 'A'] = c;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            asciiMapping[c] = c;
+        }
+        asciiMapping[' '] = SEPARATOR;
+
+        // Turkic lower-casing maps 'I' to the dotless 'ı', which the old regex then deleted
+        String language = locale.getLanguage();
+        if (language.equals("tr") || language.equals("az")) {
+            asciiMapping['I'] = DROP;
+        }
+
+        int length = Math.max(16, Math.min(expectedLength, RETAINED_ARENA_SIZE));
+        arena = new char[length];
+        // Every word takes at least two chars with its separator, and the table stays half empty
+        allocateTable(Math.min(INITIAL_CAPACITY, Integer.highestOneBit(length - 1) << 1));
+    }
+
+    /**
+     * The {@code k} most frequent words, most frequent first. Words with equal counts are ordered by
+     * their first occurrence in the text.
+     */
+    public Map<String, Integer> topWords(String text, int k) {
+        count(text);
+        try {
+            return selectTop(k);
+        } finally {
+            reset();
+        }
+    }
+
+    private void count(String text) {
+        int wordStart = arenaLength;
+        int hash = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = normalize(text.charAt(i));
+            if (c == DROP) {
+                continue;
+            }
+            if (c == SEPARATOR) {
+                if (arenaLength > wordStart) {
+                    add(wordStart, arenaLength - wordStart, hash);
+                    wordStart = arenaLength;
+                    hash = 0;
+                }
+                continue;
+            }
+            if (arenaLength == arena.length) {
+                arena = Arrays.copyOf(arena, arena.length << 1);
+            }
+            arena[arenaLength++] = c;
+            hash = 31 * hash + c;
+        }
+        if (arenaLength > wordStart) {
+            add(wordStart, arenaLength - wordStart, hash);
+        }
+    }
+
+    private char normalize(char c) {
+        if (c < 128) {
+            return asciiMapping[c];
+        }
+        // The only non-ASCII characters whose lower case survives the [^a-zA-Z0-9 ] filter
+        if (c == '\u0130') {
+            return 'i';
+        }
+        if (c == '\u212A') {
+            return 'k';
+        }
+        return DROP;
+    }
+
+    /**
+     * Counts the word just written at the end of the arena, dropping those chars again if the word
+     * was seen before.
+     */
+    private void add(int offset, int length, int hash) {
+        int mask = offsets.length - 1;
+        int slot = mix(hash) & mask;
+        while (offsets[slot] != -1) {
+            if (hashes[slot] == hash && lengths[slot] == length
+                    && Arrays.equals(arena, offsets[slot], offsets[slot] + length, arena, offset, offset + length)) {
+                counts[slot]++;
+                arenaLength = offset;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        offsets[slot] = offset;
+        lengths[slot] = length;
+        hashes[slot] = hash;
+        counts[slot] = 1;
+        firstSeen[slot] = size++;
+        if (size * 2 > offsets.length) {
+            grow();
+        }
+    }
+
+    private Map<String, Integer> selectTop(int k) {
+        // Min-heap of slots, the root being the weakest of the best k seen so far
+        int[] heap = new int[Math.min(k, size)];
+        int heapSize = 0;
+        for (int slot = 0; slot < offsets.length && heap.length > 0; slot++) {
+            if (offsets[slot] == -1) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = slot;
+                siftUp(heap, heapSize++);
+            } else if (isStronger(slot, heap[0])) {
+                heap[0] = slot;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        String[] words = new String[heapSize];
+        int[] wordCounts = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            int slot = heap[0];
+            words[i] = new String(arena, offsets[slot], lengths[slot]);
+            wordCounts[i] = counts[slot];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize);
+        }
+
+        Map<String, Integer> topWords = new LinkedHashMap<>();
+        for (int i = 0; i < words.length; i++) {
+            topWords.put(words[i], wordCounts[i]);
+        }
+        return topWords;
+    }
+
+    private boolean isStronger(int slot, int other) {
+        return counts[slot] != counts[other] ? counts[slot] > counts[other] : firstSeen[slot] < firstSeen[other];
+    }
+
+    private void siftUp(int[] heap, int index) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isStronger(heap[parent], slot)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+
+    private void siftDown(int[] heap, int heapSize) {
+        if (heapSize == 0) {
+            return;
+        }
+        int index = 0;
+        int slot = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && isStronger(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!isStronger(slot, heap[child])) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+
+    private void grow() {
+        int[] oldOffsets = offsets;
+        int[] oldLengths = lengths;
+        int[] oldHashes = hashes;
+        int[] oldCounts = counts;
+        int[] oldFirstSeen = firstSeen;
+        allocateTable(oldOffsets.length << 1);
+
+        int mask = offsets.length - 1;
+        for (int i = 0; i < oldOffsets.length; i++) {
+            if (oldOffsets[i] == -1) {
+                continue;
+            }
+            int slot = mix(oldHashes[i]) & mask;
+            while (offsets[slot] != -1) {
+                slot = (slot + 1) & mask;
+            }
+            offsets[slot] = oldOffsets[i];
+            lengths[slot] = oldLengths[i];
+            hashes[slot] = oldHashes[i];
+            counts[slot] = oldCounts[i];
+            firstSeen[slot] = oldFirstSeen[i];
+        }
+    }
+
+    private void reset() {
+        arenaLength = 0;
+        size = 0;
+        if (arena.length > RETAINED_ARENA_SIZE) {
+            arena = new char[RETAINED_ARENA_SIZE];
+        }
+        if (offsets.length > INITIAL_CAPACITY * 16) {
+            allocateTable(INITIAL_CAPACITY);
+        } else {
+            Arrays.fill(offsets, -1);
+        }
+    }
+
+    private void allocateTable(int capacity) {
+        offsets = new int[capacity];
+        Arrays.fill(offsets, -1);
+        lengths = new int[capacity];
+        hashes = new int[capacity];
+        counts = new int[capacity];
+        firstSeen = new int[capacity];
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,119 @@
+package mmf.publication.app.similar;
+
+import java.util.Arrays;
+
+/**
+ * Map from long keys to non-negative ints, stored in two parallel arrays with linear probing, so
+ * neither keys nor values are boxed and there is no entry object per mapping. A free position holds
+ * the value {@value #MISSING}; removal shifts the following entries of the probe sequence back
+ * instead of leaving tombstones.
+ */
+final class LongIntMap {
+    static final int MISSING = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int shift;
+    private int size;
+
+    LongIntMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * The value of {@code key}, or {@value #MISSING} if it has none.
+     */
+    int get(long key) {
+        return values[find(key)];
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != MISSING;
+    }
+
+    void put(long key, int value) {
+        int position = find(key);
+        if (values[position] == MISSING) {
+            keys[position] = key;
+            size++;
+        }
+        values[position] = value;
+        if (size * 4 > values.length * 3) {
+            resize(values.length << 1);
+        }
+    }
+
+    /**
+     * Removes the mapping of {@code key} and returns its value, or {@value #MISSING} if it had none.
+     */
+    int remove(long key) {
+        int position = find(key);
+        int value = values[position];
+        if (value == MISSING) {
+            return MISSING;
+        }
+        int mask = values.length - 1;
+        int hole = position;
+        for (int next = (hole + 1) & mask; values[next] != MISSING; next = (next + 1) & mask) {
+            // An entry may fill the hole if the hole lies between its home position and itself
+            int home = home(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = MISSING;
+        size--;
+        return value;
+    }
+
+    void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long sizeInBytes() {
+        return 12L * values.length;
+    }
+
+    private int find(long key) {
+        int mask = values.length - 1;
+        int position = home(key);
+        while (values[position] != MISSING && keys[position] != key) {
+            position = (position + 1) & mask;
+        }
+        return position;
+    }
+
+    private int home(long key) {
+        // Fibonacci hashing: the top bits of the product depend on every bit of the key
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int position = find(oldKeys[i]);
+                keys[position] = oldKeys[i];
+                values[position] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        size = 0;
+    }
+}
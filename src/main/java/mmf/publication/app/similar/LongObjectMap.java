@@ -0,0 +1,117 @@
+package mmf.publication.app.similar;
+
+import java.util.function.Consumer;
+
+/**
+ * Map from long keys to non-null values, stored in two parallel arrays with linear probing, so keys
+ * are not boxed and there is no entry object per mapping. A free position holds a null value;
+ * removal shifts the following entries of the probe sequence back instead of leaving tombstones.
+ */
+final class LongObjectMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int shift;
+    private int size;
+
+    LongObjectMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * The value of {@code key}, or null if it has none.
+     */
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        return (V) values[find(key)];
+    }
+
+    void put(long key, V value) {
+        int position = find(key);
+        if (values[position] == null) {
+            keys[position] = key;
+            size++;
+        }
+        values[position] = value;
+        if (size * 4 > values.length * 3) {
+            resize(values.length << 1);
+        }
+    }
+
+    void remove(long key) {
+        int position = find(key);
+        if (values[position] == null) {
+            return;
+        }
+        int mask = values.length - 1;
+        int hole = position;
+        for (int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            // An entry may fill the hole if the hole lies between its home position and itself
+            int home = home(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = null;
+        size--;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<V> consumer) {
+        for (Object value : values) {
+            if (value != null) {
+                consumer.accept((V) value);
+            }
+        }
+    }
+
+    void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long sizeInBytes() {
+        return 12L * values.length;
+    }
+
+    private int find(long key) {
+        int mask = values.length - 1;
+        int position = home(key);
+        while (values[position] != null && keys[position] != key) {
+            position = (position + 1) & mask;
+        }
+        return position;
+    }
+
+    private int home(long key) {
+        // Fibonacci hashing: the top bits of the product depend on every bit of the key
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int position = find(oldKeys[i]);
+                keys[position] = oldKeys[i];
+                values[position] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        size = 0;
+    }
+}
@@ -0,0 +1,327 @@
+package mmf.publication.app.similar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Locality-sensitive index of token sets by MinHash signature. Every document is reduced to
+ * {@code bands × rows} minimum hashes, stored side by side in one {@code int[]}; the share of
+ * positions two signatures agree on estimates the Jaccard similarity of their token sets. The
+ * signature is cut into bands of {@code rows} hashes, and documents sharing any band land in a
+ * common bucket, so a lookup only compares the documents in the buckets of its own bands. Sets with
+ * similarity {@code s} share a band with probability {@code 1 - (1 - s^rows)^bands}: more bands
+ * raise recall, more rows raise precision.
+ * <p>
+ * Lookups examine at most {@code maxCandidates} documents, which keeps their cost bounded however
+ * large the corpus grows, at the price of missing matches when buckets are crowded. Slots and
+ * buckets are found through open-addressing maps keyed by primitive longs, so the index holds no
+ * boxed keys or map entries.
+ */
+public class MinHashIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int[] EMPTY_BUCKET = {0};
+
+    private final int bands;
+    private final int rows;
+    private final int hashes;
+    private final int maxCandidates;
+    private final long[] multipliers;
+    private final long[] increments;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Slot i holds document ids[i] and its signature at signatures[i * hashes ...]
+    private int[] signatures;
+    private long[] ids;
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+    private final LongIntMap slots = new LongIntMap();
+    // Band number in the high half and band hash in the low half of the key; values are
+    // [size, slot, slot, ...] with room to grow
+    private final LongObjectMap<int[]> buckets = new LongObjectMap<>();
+
+    public MinHashIndex(int bands, int rows, int maxCandidates, long seed) {
+        if (bands < 1 || rows < 1 || maxCandidates < 1) {
+            throw new IllegalArgumentException("The bands, rows and candidates of a MinHash index must be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.hashes = bands * rows;
+        this.maxCandidates = maxCandidates;
+        this.multipliers = new long[hashes];
+        this.increments = new long[hashes];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < hashes; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            increments[i] = random.nextLong();
+        }
+        this.signatures = new int[INITIAL_CAPACITY * hashes];
+        this.ids = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Indexes the document under the given tokens, replacing what it was indexed under before; a
+     * document without tokens is removed, as it cannot be similar to anything.
+     */
+    public void index(long id, Collection<String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            remove(id);
+            return;
+        }
+        int[] signature = signature(tokens);
+
+        lock.writeLock().lock();
+        try {
+            int existing = slots.get(id);
+            if (existing != LongIntMap.MISSING) {
+                if (Arrays.equals(signatures, existing * hashes, (existing + 1) * hashes, signature, 0, hashes)) {
+                    return;
+                }
+                removeUnlocked(id);
+            }
+            int slot = allocate();
+            ids[slot] = id;
+            System.arraycopy(signature, 0, signatures, slot * hashes, hashes);
+            slots.put(id, slot);
+            for (int band = 0; band < bands; band++) {
+                addToBucket(bucketKey(band, signature, 0), slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            slots.clear();
+            buckets.clear();
+            slotCount = 0;
+            freeSlotCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return slots.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The documents most similar to the given one, at least {@code minSimilarity} by their estimated
+     * Jaccard similarity, most similar first and then by id, newest first. Empty if the document
+     * is not indexed.
+     */
+    public List<Match> similar(long id, int limit, double minSimilarity) {
+        lock.readLock().lock();
+        try {
+            int slot = slots.get(id);
+            if (slot == LongIntMap.MISSING) {
+                return List.of();
+            }
+            int offset = slot * hashes;
+            Set<Integer> seen = new HashSet<>();
+            seen.add(slot);
+            List<Match> matches = new ArrayList<>();
+            int examined = 0;
+            for (int band = 0; band < bands && examined < maxCandidates; band++) {
+                int[] bucket = buckets.get(bucketKey(band, signatures, offset));
+                if (bucket == null) {
+                    bucket = EMPTY_BUCKET;
+                }
+                for (int i = 1; i <= bucket[0] && examined < maxCandidates; i++) {
+                    int candidate = bucket[i];
+                    if (seen.add(candidate)) {
+                        examined++;
+                        double similarity = similarity(offset, candidate * hashes);
+                        if (similarity >= minSimilarity) {
+                            matches.add(new Match(ids[candidate], similarity));
+                        }
+                    }
+                }
+            }
+            matches.sort((a, b) -> a.similarity != b.similarity
+                    ? Double.compare(b.similarity, a.similarity)
+                    : Long.compare(b.id, a.id));
+            return matches.size() > limit ? List.copyOf(matches.subList(0, limit)) : matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int documentCount() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimatedSizeInBytes() {
+        lock.readLock().lock();
+        try {
+            long size = 4L * signatures.length + 8L * ids.length + 4L * freeSlots.length;
+            size += slots.sizeInBytes() + buckets.sizeInBytes();
+            long[] bucketSize = {0};
+            buckets.forEachValue(bucket -> bucketSize[0] += 16 + 4L * bucket.length);
+            return size + bucketSize[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The exact Jaccard similarity of two token sets, which the signatures estimate.
+     */
+    public static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 0;
+        }
+        int shared = 0;
+        for (String token : a) {
+            if (b.contains(token)) {
+                shared++;
+            }
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    private int[] signature(Collection<String> tokens) {
+        int[] signature = new int[hashes];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String token : tokens) {
+            long x = mix(token.hashCode());
+            for (int i = 0; i < hashes; i++) {
+                // Multiply-shift: the high half of a random odd multiple is a universal hash
+                int hash = (int) ((multipliers[i] * x + increments[i]) >>> 33);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private double similarity(int offset, int otherOffset) {
+        int equal = 0;
+        for (int i = 0; i < hashes; i++) {
+            if (signatures[offset + i] == signatures[otherOffset + i]) {
+                equal++;
+            }
+        }
+        return (double) equal / hashes;
+    }
+
+    private long bucketKey(int band, int[] signature, int offset) {
+        int hash = band;
+        int start = offset + band * rows;
+        for (int i = start; i < start + rows; i++) {
+            hash = 31 * hash + signature[i];
+        }
+        return ((long) band << 32) | (mix(hash) & 0xffffffffL);
+    }
+
+    private int allocate() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotCount == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            signatures = Arrays.copyOf(signatures, ids.length * hashes);
+        }
+        return slotCount++;
+    }
+
+    private void removeUnlocked(long id) {
+        int slot = slots.remove(id);
+        if (slot == LongIntMap.MISSING) {
+            return;
+        }
+        for (int band = 0; band < bands; band++) {
+            removeFromBucket(bucketKey(band, signatures, slot * hashes), slot);
+        }
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private void addToBucket(long key, int slot) {
+        int[] bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new int[4];
+        } else if (bucket[0] + 1 == bucket.length) {
+            bucket = Arrays.copyOf(bucket, bucket.length * 2);
+        }
+        bucket[++bucket[0]] = slot;
+        buckets.put(key, bucket);
+    }
+
+    private void removeFromBucket(long key, int slot) {
+        int[] bucket = buckets.get(key);
+        if (bucket == null) {
+            return;
+        }
+        for (int i = 1; i <= bucket[0]; i++) {
+            if (bucket[i] == slot) {
+                bucket[i] = bucket[bucket[0]--];
+                break;
+            }
+        }
+        if (bucket[0] == 0) {
+            buckets.remove(key);
+        }
+    }
+
+    private static long mix(long x) {
+        // The finalizer of MurmurHash3, which spreads similar inputs over all bits
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    public static final class Match {
+        private final long id;
+        private final double similarity;
+
+        public Match(long id, double similarity) {
+            this.id = id;
+            this.similarity = similarity;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * The estimated Jaccard similarity of the two documents' tokens.
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package mmf.publication.app.similar;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.KeywordState;
+import mmf.publication.app.events.PublicationSavedEvent;
+import mmf.publication.app.events.PublicationsArchivedEvent;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.service.LegacyKeywordMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a {@link MinHashIndex} of the publications' frequent words in step with the publication
+ * table, the same way the search index is kept: rebuilt from the database once the application is
+ * up and updated whenever a publication's content is saved. Publications whose keywords are still
+ * pending keep their previous signature until the keyword pipeline saves the new keywords.
+ */
+@Component
+public class PublicationSimilarityIndex {
+    private static final Logger log = LoggerFactory.getLogger(PublicationSimilarityIndex.class);
+    private static final long SEED = 42;
+
+    private final MinHashIndex index;
+    private final PublicationRepository publicationRepository;
+    private final LegacyKeywordMigration legacyKeywords;
+    private final int rebuildBatchSize;
+    private final double minSimilarity;
+    private final Timer queryTimer;
+
+    public PublicationSimilarityIndex(PublicationRepository publicationRepository, LegacyKeywordMigration legacyKeywords,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${publication.similar.bands:20}") int bands,
+                                      @Value("${publication.similar.rows:2}") int rows,
+                                      @Value("${publication.similar.min-similarity:0.2}") double minSimilarity,
+                                      @Value("${publication.similar.max-candidates:2000}") int maxCandidates,
+                                      @Value("${publication.search.rebuild-batch-size:1000}") int rebuildBatchSize) {
+        this.index = new MinHashIndex(bands, rows, maxCandidates, SEED);
+        this.publicationRepository = publicationRepository;
+        this.legacyKeywords = legacyKeywords;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.minSimilarity = minSimilarity;
+        this.queryTimer = Timer.builder("publication.similar.query")
+                .description("Time to find similar publications in the MinHash index")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("publication.similar.index.documents", index, MinHashIndex::documentCount)
+                .register(meterRegistry);
+        Gauge.builder("publication.similar.index.size", index, MinHashIndex::estimatedSizeInBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        index.clear();
+
+        long lastId = 0;
+        List<Publication> batch;
+        do {
+            batch = publicationRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(rebuildBatchSize));
+            for (Publication publication : batch) {
+                index(publication, legacyKeywords.frequentWordsOf(publication));
+                lastId = publication.getId();
+            }
+        } while (batch.size() == rebuildBatchSize);
+
+        log.info("Similarity index rebuilt with {} publications in {} ms", index.documentCount(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @EventListener
+    public void onPublicationSaved(PublicationSavedEvent event) {
+        Publication publication = event.getPublication();
+        if (event.isContentChanged() && publication.getKeywordState() == KeywordState.READY) {
+            index(publication, publication.getFrequentWords());
+        }
+    }
+
+    @EventListener
+    public void onPublicationsArchived(PublicationsArchivedEvent event) {
+        event.getPublicationIds().forEach(index::remove);
+    }
+
+    public boolean contains(long id) {
+        return index.contains(id);
+    }
+
+    /**
+     * Up to {@code limit} publications whose frequent words resemble those of the given one, most
+     * similar first; empty if it has no keywords yet.
+     */
+    public List<MinHashIndex.Match> similar(long id, int limit) {
+        return queryTimer.record(() -> index.similar(id, limit, minSimilarity));
+    }
+
+    private void index(Publication publication, Map<String, Integer> frequentWords) {
+        index.index(publication.getId(), frequentWords == null ? null : frequentWords.keySet());
+    }
+}
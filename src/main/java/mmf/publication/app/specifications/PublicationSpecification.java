@@ -1,21 +1,64 @@
 package mmf.publication.app.specifications;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
 import mmf.publication.app.entity.Publication;
 import mmf.publication.app.enums.PublicationStatus;
 import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.search.InvertedIndex;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 public class PublicationSpecification {
+    /**
+     * The escape character of the patterns {@link #containing} builds.
+     */
+    public static final char LIKE_ESCAPE = '!';
+
+    /**
+     * Every word of {@code search}, split as the search index splits it, appears in the title or
+     * the description. The index matches words as prefixes of indexed words, this as any substring,
+     * so while the index is rebuilt a search may also find words merely containing the query.
+     */
     public static Specification<Publication> hasTitleOrDescriptionContaining(String search) {
-        return (root, query, criteriaBuilder) ->
-                (search == null || search.isEmpty()) ?
-                        criteriaBuilder.conjunction() :
-                        criteriaBuilder.or(
-                                criteriaBuilder.like(criteriaBuilder.lower(root.get("title")), "%" + search.toLowerCase() + "%"),
-                                criteriaBuilder.like(criteriaBuilder.lower(root.get("description")), "%" + search.toLowerCase() + "%")
-                        );
+        return (root, query, criteriaBuilder) -> {
+            if (search == null || search.isEmpty()) {
+                return criteriaBuilder.conjunction();
+            }
+            List<String> words = InvertedIndex.tokenize(search);
+            if (words.isEmpty()) {
+                return criteriaBuilder.disjunction();
+            }
+            Predicate[] matches = new Predicate[words.size()];
+            for (int i = 0; i < matches.length; i++) {
+                String pattern = containing(words.get(i));
+                matches[i] = criteriaBuilder.or(
+                        criteriaBuilder.like(criteriaBuilder.lower(root.get("title")), pattern, LIKE_ESCAPE),
+                        criteriaBuilder.like(criteriaBuilder.lower(root.get("description")), pattern, LIKE_ESCAPE)
+                );
+            }
+            return criteriaBuilder.and(matches);
+        };
+    }
+
+    /**
+     * A lower-case {@code LIKE} pattern for text containing {@code search} as it is, its wildcards
+     * escaped with {@link #LIKE_ESCAPE}.
+     */
+    public static String containing(String search) {
+        StringBuilder pattern = new StringBuilder(search.length() + 2).append('%');
+        for (char c : search.toLowerCase().toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
     }
 
     public static Specification<Publication> hasStatus(PublicationStatus status) {
@@ -45,4 +88,49 @@ public class PublicationSpecification {
             }
         };
     }
+
+    public static Specification<Publication> hasIdGreaterThan(Long id) {
+        return (root, query, criteriaBuilder) ->
+                (id == null) ?
+                        criteriaBuilder.conjunction() :
+                        criteriaBuilder.greaterThan(root.get("id"), id);
+    }
+
+    public static Specification<Publication> hasIdIn(Collection<Long> ids) {
+        return (root, query, criteriaBuilder) ->
+                ids.isEmpty() ?
+                        criteriaBuilder.disjunction() :
+                        root.get("id").in(ids);
+    }
+
+    /**
+     * Seek predicate for keyset pagination: rows strictly after {@code (value, id)} in the order
+     * {@code property direction, id direction}. With {@code backward} the rows strictly before it.
+     * The redundant leading range on {@code property} lets the database seek a composite index.
+     */
+    public static <Y extends Comparable<? super Y>> Specification<Publication> isBeyondKey(
+            String property, Sort.Direction direction, Y value, Long id, boolean backward) {
+        boolean descending = direction.isDescending() != backward;
+        return (root, query, criteriaBuilder) -> {
+            Expression<Long> idPath = root.get("id");
+            if (property.equals("id")) {
+                return beyond(criteriaBuilder, idPath, id, descending);
+            }
+
+            Expression<Y> path = root.get(property);
+            return criteriaBuilder.and(
+                    descending ? criteriaBuilder.lessThanOrEqualTo(path, value) : criteriaBuilder.greaterThanOrEqualTo(path, value),
+                    criteriaBuilder.or(
+                            beyond(criteriaBuilder, path, value, descending),
+                            beyond(criteriaBuilder, idPath, id, descending)
+                    )
+            );
+        };
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate beyond(CriteriaBuilder criteriaBuilder,
+                                                                      Expression<? extends Y> path, Y value,
+                                                                      boolean descending) {
+        return descending ? criteriaBuilder.lessThan(path, value) : criteriaBuilder.greaterThan(path, value);
+    }
 }
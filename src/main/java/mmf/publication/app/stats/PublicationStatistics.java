@@ -0,0 +1,241 @@
+package mmf.publication.app.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import mmf.publication.app.dto.PublicationAggregate;
+import mmf.publication.app.dto.PublicationStatsDTO;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.service.ViewCountBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publication counts by status, type and publish day, and the total views, kept in memory so the
+ * stats endpoint never has to scan the table. {@link mmf.publication.app.service.PublicationService}
+ * records every change it makes on {@link LongAdder}s, which take concurrent updates without a lock.
+ * <p>
+ * The aggregates are loaded with one {@code GROUP BY} query once the application is ready, and the
+ * same query runs periodically to correct any drift, for example from rows written behind the
+ * service's back. The counts are not corrected in a round if a change was recorded while it ran,
+ * since the database and the counters could then disagree about that change alone. The views are
+ * compared with the view counter as it stood when the pending views were added up, so they are
+ * only left alone if view counts were flushed during the query.
+ */
+@Component
+public class PublicationStatistics {
+    private static final Logger log = LoggerFactory.getLogger(PublicationStatistics.class);
+    private static final int MAX_REBUILD_ATTEMPTS = 10;
+    private static final PublicationStatus[] STATUSES = PublicationStatus.values();
+    private static final PublicationType[] TYPES = PublicationType.values();
+
+    private final PublicationRepository publicationRepository;
+    private final ViewCountBuffer viewCountBuffer;
+    private final LongAdder[] byStatus = adders(STATUSES.length);
+    private final LongAdder[] byType = adders(TYPES.length);
+    private final ConcurrentSkipListMap<LocalDate, LongAdder> byPublishDay = new ConcurrentSkipListMap<>();
+    private final LongAdder views = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+    private final Counter correctionCounter;
+    private final Counter skippedCounter;
+    private volatile LocalDateTime reconciledAt;
+
+    public PublicationStatistics(PublicationRepository publicationRepository, ViewCountBuffer viewCountBuffer, MeterRegistry meterRegistry) {
+        this.publicationRepository = publicationRepository;
+        this.viewCountBuffer = viewCountBuffer;
+        this.correctionCounter = Counter.builder("publication.stats.corrections")
+                .description("Drift between the in-memory statistics and the database, corrected by reconciliation")
+                .register(meterRegistry);
+        this.skippedCounter = Counter.builder("publication.stats.reconcile.skipped")
+                .description("Reconciliation rounds skipped because publications changed or view counts were flushed while they ran")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        // Starting from zero, the first round that sees no concurrent change loads everything
+        for (int attempt = 0; attempt < MAX_REBUILD_ATTEMPTS; attempt++) {
+            if (tryReconcile()) {
+                log.info("Publication statistics loaded in {} ms", (System.nanoTime() - start) / 1_000_000);
+                return;
+            }
+        }
+        log.warn("Publications kept changing while the statistics were loaded, leaving them to the next reconciliation");
+    }
+
+    /**
+     * Compares the counters with the database and adds the difference to them.
+     */
+    @Scheduled(initialDelayString = "${publication.stats.reconcile-interval-ms:300000}",
+            fixedDelayString = "${publication.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        tryReconcile();
+    }
+
+    /**
+     * @return false if the round was skipped, entirely or for the views, because publications
+     * changed or view counts were flushed meanwhile
+     */
+    private boolean tryReconcile() {
+        long changesBefore = changes.sum();
+
+        long[] storedByStatus = new long[STATUSES.length];
+        long[] storedByType = new long[TYPES.length];
+        Map<LocalDate, Long> storedByDay = new HashMap<>();
+        Optional<ViewCountBuffer.ViewTotal> viewTotal = viewCountBuffer.withPendingViews(() -> {
+            long viewSum = 0;
+            for (PublicationAggregate aggregate : publicationRepository.aggregateByStatusTypeAndPublishDay()) {
+                storedByStatus[aggregate.getStatus().ordinal()] += aggregate.getCount();
+                storedByType[aggregate.getType().ordinal()] += aggregate.getCount();
+                if (aggregate.getPublishDay() != null) {
+                    storedByDay.merge(aggregate.getPublishDay(), aggregate.getCount(), Long::sum);
+                }
+                viewSum += aggregate.getViews();
+            }
+            return viewSum;
+        }, views::sum);
+
+        boolean countsSettled = changes.sum() == changesBefore;
+        boolean viewsSettled = viewTotal.isPresent();
+        if (countsSettled) {
+            for (int i = 0; i < byStatus.length; i++) {
+                correct(byStatus[i], storedByStatus[i]);
+            }
+            for (int i = 0; i < byType.length; i++) {
+                correct(byType[i], storedByType[i]);
+            }
+            for (Map.Entry<LocalDate, LongAdder> day : byPublishDay.entrySet()) {
+                correct(day.getValue(), storedByDay.getOrDefault(day.getKey(), 0L));
+            }
+            storedByDay.forEach((day, count) -> {
+                if (!byPublishDay.containsKey(day)) {
+                    correct(dayCounter(day), count);
+                }
+            });
+        }
+        if (viewsSettled) {
+            correct(views, viewTotal.get().getViews(), viewTotal.get().getCounted());
+        }
+
+        if (countsSettled && viewsSettled) {
+            reconciledAt = LocalDateTime.now();
+            return true;
+        }
+        skippedCounter.increment();
+        return false;
+    }
+
+    public void recordCreated(Publication publication) {
+        changes.increment();
+        byStatus[publication.getStatus().ordinal()].increment();
+        byType[publication.getType().ordinal()].increment();
+        dayCounter(publication.getPublishedAt().toLocalDate()).increment();
+    }
+
+    /**
+     * Moves a publication from its previous status and type to its current ones; the publish day
+     * never changes.
+     */
+    public void recordChanged(PublicationStatus previousStatus, PublicationType previousType, Publication publication) {
+        if (previousStatus == publication.getStatus() && previousType == publication.getType()) {
+            return;
+        }
+        changes.increment();
+        if (previousStatus != publication.getStatus()) {
+            byStatus[previousStatus.ordinal()].decrement();
+            byStatus[publication.getStatus().ordinal()].increment();
+        }
+        if (previousType != publication.getType()) {
+            byType[previousType.ordinal()].decrement();
+            byType[publication.getType().ordinal()].increment();
+        }
+    }
+
+    public void recordView() {
+        views.increment();
+    }
+
+    /**
+     * The current statistics, with the publish days limited to {@code from} and {@code to}
+     * inclusive when they are given.
+     */
+    public PublicationStatsDTO snapshot(LocalDate from, LocalDate to) {
+        Map<PublicationStatus, Long> statuses = new EnumMap<>(PublicationStatus.class);
+        long total = 0;
+        for (PublicationStatus status : STATUSES) {
+            long count = byStatus[status.ordinal()].sum();
+            statuses.put(status, count);
+            total += count;
+        }
+        Map<PublicationType, Long> types = new EnumMap<>(PublicationType.class);
+        for (PublicationType type : TYPES) {
+            types.put(type, byType[type.ordinal()].sum());
+        }
+
+        NavigableMap<LocalDate, LongAdder> days = byPublishDay;
+        if (from != null) {
+            days = days.tailMap(from, true);
+        }
+        if (to != null) {
+            days = days.headMap(to, true);
+        }
+        Map<LocalDate, Long> publishDays = new LinkedHashMap<>();
+        days.forEach((day, counter) -> {
+            long count = counter.sum();
+            if (count != 0) {
+                publishDays.put(day, count);
+            }
+        });
+
+        return new PublicationStatsDTO(total, statuses, types, publishDays, views.sum(), reconciledAt);
+    }
+
+    private void correct(LongAdder counter, long stored) {
+        correct(counter, stored, counter.sum());
+    }
+
+    /**
+     * Corrects {@code counter} by the difference between {@code stored} and {@code counted}, what
+     * it held when {@code stored} was read.
+     */
+    private void correct(LongAdder counter, long stored, long counted) {
+        long drift = stored - counted;
+        if (drift != 0) {
+            counter.add(drift);
+            // The first load is not drift
+            if (reconciledAt != null) {
+                correctionCounter.increment(Math.abs(drift));
+            }
+        }
+    }
+
+    private LongAdder dayCounter(LocalDate day) {
+        return byPublishDay.computeIfAbsent(day, key -> new LongAdder());
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
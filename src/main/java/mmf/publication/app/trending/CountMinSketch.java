@@ -0,0 +1,117 @@
+package mmf.publication.app.trending;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Approximate frequency table of strings in {@code depth × width} counters. An estimate is never
+ * below the true count and, with probability {@code 1 - δ}, exceeds it by at most {@code ε·N},
+ * where {@code N} is the total added, {@code width = ⌈e/ε⌉} and {@code depth = ⌈ln(1/δ)⌉}.
+ * Updates are conservative: only the counters holding the current minimum are raised, which keeps
+ * estimates tighter than raising every row. Hashes depend only on the string, so sketches of the
+ * same dimensions can be summed and saved across restarts.
+ */
+public class CountMinSketch {
+    private final int depth;
+    private final int width;
+    private final long[] counters;
+    private long total;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || width < 1) {
+            throw new IllegalArgumentException("Sketch dimensions must be positive");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.counters = new long[depth * width];
+    }
+
+    public static int widthFor(double epsilon) {
+        return (int) Math.ceil(Math.E / epsilon);
+    }
+
+    public static int depthFor(double confidence) {
+        return Math.max(1, (int) Math.ceil(Math.log(1 / (1 - confidence))));
+    }
+
+    public void add(String item, long count) {
+        long hash = hash(item);
+        int[] cells = new int[depth];
+        long minimum = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            cells[row] = cell(hash, row);
+            minimum = Math.min(minimum, counters[cells[row]]);
+        }
+
+        long target = minimum + count;
+        for (int cell : cells) {
+            if (counters[cell] < target) {
+                counters[cell] = target;
+            }
+        }
+        total += count;
+    }
+
+    public long estimate(String item) {
+        long hash = hash(item);
+        long minimum = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            minimum = Math.min(minimum, counters[cell(hash, row)]);
+        }
+        return minimum;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public long estimatedSizeInBytes() {
+        return 32 + 16 + (long) counters.length * Long.BYTES;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(total);
+        for (long counter : counters) {
+            out.writeLong(counter);
+        }
+    }
+
+    static CountMinSketch readFrom(DataInput in, int depth, int width) throws IOException {
+        CountMinSketch sketch = new CountMinSketch(depth, width);
+        sketch.total = in.readLong();
+        for (int i = 0; i < sketch.counters.length; i++) {
+            sketch.counters[i] = in.readLong();
+        }
+        return sketch;
+    }
+
+    private int cell(long hash, int row) {
+        // Kirsch-Mitzenmacher: the row hashes h1 + i·h2 are as good as independent ones here
+        int combined = (int) hash + row * (int) (hash >>> 32);
+        return row * width + Math.floorMod(combined, width);
+    }
+
+    private static long hash(String item) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < item.length(); i++) {
+            hash ^= item.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // The FNV-1a bits are poorly mixed, so finish with MurmurHash3's avalanche step
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,133 @@
+package mmf.publication.app.trending;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy-hitters summary that monitors at most {@code capacity} strings. When a new
+ * string arrives and the summary is full, it takes over the counter of the least frequent one and
+ * inherits that count as its possible overcount. Every string seen more than {@code N/capacity}
+ * times is guaranteed to be monitored.
+ */
+public class SpaceSaving {
+    private static final Comparator<Counter> BY_COUNT = Comparator.comparingLong((Counter counter) -> counter.count)
+            .thenComparing(counter -> counter.item);
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> ordered = new TreeSet<>(BY_COUNT);
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public void offer(String item, long count) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            ordered.remove(counter);
+            counter.count += count;
+            ordered.add(counter);
+            return;
+        }
+
+        if (counters.size() < capacity) {
+            counter = new Counter(item, count, 0);
+        } else {
+            Counter evicted = ordered.pollFirst();
+            counters.remove(evicted.item);
+            counter = new Counter(item, evicted.count + count, evicted.count);
+        }
+        counters.put(item, counter);
+        ordered.add(counter);
+    }
+
+    public Set<String> items() {
+        return counters.keySet();
+    }
+
+    /**
+     * The {@code limit} most frequent monitored strings with their counts, highest first.
+     */
+    public List<Counter> top(int limit) {
+        List<Counter> top = new ArrayList<>(Math.min(limit, ordered.size()));
+        for (Counter counter : ordered.descendingSet()) {
+            if (top.size() == limit) {
+                break;
+            }
+            top.add(counter);
+        }
+        return top;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(counters.size());
+        for (Counter counter : ordered) {
+            out.writeUTF(counter.item);
+            out.writeLong(counter.count);
+            out.writeLong(counter.error);
+        }
+    }
+
+    static SpaceSaving readFrom(DataInput in, int capacity) throws IOException {
+        SpaceSaving summary = new SpaceSaving(capacity);
+        int size = in.readInt();
+        if (size > capacity) {
+            throw new IOException("Summary holds " + size + " items but the capacity is " + capacity);
+        }
+        for (int i = 0; i < size; i++) {
+            Counter counter = new Counter(in.readUTF(), in.readLong(), in.readLong());
+            summary.counters.put(counter.item, counter);
+            summary.ordered.add(counter);
+        }
+        return summary;
+    }
+
+    public static final class Counter {
+        private final String item;
+        private long count;
+        private final long error;
+
+        private Counter(String item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getItem() {
+            return item;
+        }
+
+        /**
+         * Upper bound on the true count.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * How much of {@link #getCount()} may belong to strings this counter monitored before.
+         */
+        public long getError() {
+            return error;
+        }
+    }
+}
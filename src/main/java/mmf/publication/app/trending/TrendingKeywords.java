@@ -0,0 +1,393 @@
+package mmf.publication.app.trending;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import mmf.publication.app.dto.TrendingKeywordDTO;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.KeywordState;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.events.PublicationSavedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The most used keywords per publication type over recent time windows. Time is cut into fixed
+ * buckets kept in a ring that spans the retention period; each bucket holds, per type, a
+ * {@link CountMinSketch} of keyword counts and a {@link SpaceSaving} summary of its heaviest
+ * keywords. A window query takes the union of the summaries of the buckets it spans as candidates
+ * and ranks them by their summed sketch estimates. A keyword used more than {@code N/capacity}
+ * times in the window is over that share in at least one of its buckets, so it is never missed.
+ * <p>
+ * A keyword counts once for every publication created or updated with it among its frequent
+ * words. Memory is bounded by {@code buckets × types × (sketch + summary)} however many keywords
+ * there are, and the state is saved to a snapshot file periodically and on shutdown so that a
+ * restart keeps the windows it had.
+ */
+@Component
+public class TrendingKeywords {
+    private static final Logger log = LoggerFactory.getLogger(TrendingKeywords.class);
+    private static final int SNAPSHOT_MAGIC = 0x54524e44;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final PublicationType[] TYPES = PublicationType.values();
+    private static final int SUMMARY_ENTRY_SIZE = 160;
+
+    private final Clock clock;
+    private final long bucketMillis;
+    private final Duration retention;
+    private final double epsilon;
+    private final int depth;
+    private final int width;
+    private final int capacity;
+    private final Bucket[] buckets;
+    private final Path snapshotPath;
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean dirty;
+
+    @Autowired
+    public TrendingKeywords(MeterRegistry meterRegistry,
+                            @Value("${publication.trending.bucket:10m}") Duration bucket,
+                            @Value("${publication.trending.retention:24h}") Duration retention,
+                            @Value("${publication.trending.epsilon:0.002}") double epsilon,
+                            @Value("${publication.trending.confidence:0.99}") double confidence,
+                            @Value("${publication.trending.capacity:200}") int capacity,
+                            @Value("${publication.trending.snapshot-path:data/trending-keywords.snapshot}") String snapshotPath) {
+        this(meterRegistry, bucket, retention, epsilon, confidence, capacity, Path.of(snapshotPath), Clock.systemUTC());
+    }
+
+    TrendingKeywords(MeterRegistry meterRegistry, Duration bucket, Duration retention, double epsilon,
+                     double confidence, int capacity, Path snapshotPath, Clock clock) {
+        if (bucket.isNegative() || bucket.isZero() || retention.compareTo(bucket) < 0) {
+            throw new IllegalArgumentException("The trending bucket must be positive and no longer than the retention");
+        }
+        if (epsilon <= 0 || epsilon >= 1 || confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("The trending epsilon and confidence must be between 0 and 1");
+        }
+        this.clock = clock;
+        this.bucketMillis = bucket.toMillis();
+        this.retention = retention;
+        this.epsilon = epsilon;
+        this.depth = CountMinSketch.depthFor(confidence);
+        this.width = CountMinSketch.widthFor(epsilon);
+        this.capacity = capacity;
+        this.buckets = new Bucket[(int) Math.ceil((double) retention.toMillis() / bucketMillis)];
+        this.snapshotPath = snapshotPath;
+
+        restore();
+        Gauge.builder("publication.trending.size", this, TrendingKeywords::estimatedSizeInBytes)
+                .description("Estimated heap used by the trending keyword sketches")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        log.info("Trending keywords use {} buckets of {} ms with {}x{} sketches, at most {} bytes",
+                buckets.length, bucketMillis, depth, width, maxSizeInBytes());
+    }
+
+    @EventListener
+    public void onPublicationSaved(PublicationSavedEvent event) {
+        Publication publication = event.getPublication();
+        // Publications with pending keywords are counted once the pipeline has extracted them
+        if (event.isContentChanged() && publication.getKeywordState() == KeywordState.READY
+                && publication.getFrequentWords() != null) {
+            record(publication.getType(), publication.getFrequentWords().keySet());
+        }
+    }
+
+    public void record(PublicationType type, Collection<String> keywords) {
+        if (type == null || keywords.isEmpty()) {
+            return;
+        }
+        long index = currentIndex();
+        lock.lock();
+        try {
+            Sketches sketches = bucket(index).sketches(type);
+            for (String keyword : keywords) {
+                sketches.frequencies.add(keyword, 1);
+                sketches.heavyHitters.offer(keyword, 1);
+            }
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The {@code limit} most used keywords of {@code type}, or of every type when it is null, over
+     * the buckets that cover the last {@code window}: the current bucket and as many before it as
+     * the window needs, so the span is rounded up to whole buckets.
+     *
+     * @throws IllegalArgumentException if the window is not positive or longer than the retention
+     */
+    public List<TrendingKeywordDTO> top(PublicationType type, Duration window, int limit) {
+        if (window.isNegative() || window.isZero() || window.compareTo(retention) > 0) {
+            throw new IllegalArgumentException("The window must be positive and at most " + retention);
+        }
+        int spanned = (int) Math.min(buckets.length, Math.ceil((double) window.toMillis() / bucketMillis));
+        long current = currentIndex();
+
+        lock.lock();
+        try {
+            List<Sketches> inWindow = new ArrayList<>();
+            for (long index = current - spanned + 1; index <= current; index++) {
+                Bucket bucket = buckets[slot(index)];
+                if (bucket == null || bucket.index != index) {
+                    continue;
+                }
+                for (PublicationType bucketType : TYPES) {
+                    Sketches sketches = bucket.sketches[bucketType.ordinal()];
+                    if (sketches != null && (type == null || type == bucketType)) {
+                        inWindow.add(sketches);
+                    }
+                }
+            }
+
+            Set<String> candidates = new HashSet<>();
+            long total = 0;
+            for (Sketches sketches : inWindow) {
+                candidates.addAll(sketches.heavyHitters.items());
+                total += sketches.frequencies.total();
+            }
+
+            long maxError = (long) Math.ceil(epsilon * total);
+            List<TrendingKeywordDTO> ranked = new ArrayList<>(candidates.size());
+            for (String keyword : candidates) {
+                long count = 0;
+                for (Sketches sketches : inWindow) {
+                    count += sketches.frequencies.estimate(keyword);
+                }
+                ranked.add(new TrendingKeywordDTO(keyword, count, maxError));
+            }
+            ranked.sort(Comparator.comparingLong(TrendingKeywordDTO::getCount).reversed()
+                    .thenComparing(TrendingKeywordDTO::getKeyword));
+            return ranked.subList(0, Math.min(limit, ranked.size()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long estimatedSizeInBytes() {
+        lock.lock();
+        try {
+            long size = 0;
+            for (Bucket bucket : buckets) {
+                if (bucket == null) {
+                    continue;
+                }
+                for (Sketches sketches : bucket.sketches) {
+                    if (sketches != null) {
+                        size += sketches.frequencies.estimatedSizeInBytes()
+                                + (long) sketches.heavyHitters.size() * SUMMARY_ENTRY_SIZE;
+                    }
+                }
+            }
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the buckets to the snapshot file if anything was recorded since the last snapshot.
+     * The state is copied under the lock and compressed outside it, and the file is replaced
+     * atomically so a crash mid-write leaves the previous snapshot intact.
+     */
+    @Scheduled(fixedDelayString = "${publication.trending.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        byte[] state;
+        lock.lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            state = serialize();
+            dirty = false;
+        } catch (IOException e) {
+            log.error("Could not serialize the trending keywords", e);
+            return;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            Path directory = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, snapshotPath.getFileName().toString(), ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary), 64 * 1024)) {
+                out.write(state);
+            }
+            Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            lock.lock();
+            try {
+                dirty = true;
+            } finally {
+                lock.unlock();
+            }
+            log.error("Could not write the trending keywords snapshot to {}", snapshotPath, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        snapshot();
+    }
+
+    private long maxSizeInBytes() {
+        return (long) buckets.length * TYPES.length
+                * (new CountMinSketch(depth, width).estimatedSizeInBytes() + (long) capacity * SUMMARY_ENTRY_SIZE);
+    }
+
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeLong(bucketMillis);
+        out.writeInt(depth);
+        out.writeInt(width);
+        out.writeInt(capacity);
+
+        List<Bucket> saved = new ArrayList<>();
+        for (Bucket bucket : buckets) {
+            if (bucket != null) {
+                saved.add(bucket);
+            }
+        }
+        out.writeInt(saved.size());
+        for (Bucket bucket : saved) {
+            out.writeLong(bucket.index);
+            List<PublicationType> types = new ArrayList<>();
+            for (PublicationType type : TYPES) {
+                if (bucket.sketches[type.ordinal()] != null) {
+                    types.add(type);
+                }
+            }
+            out.writeInt(types.size());
+            for (PublicationType type : types) {
+                Sketches sketches = bucket.sketches[type.ordinal()];
+                out.writeUTF(type.name());
+                sketches.frequencies.writeTo(out);
+                sketches.heavyHitters.writeTo(out);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void restore() {
+        try (InputStream file = Files.newInputStream(snapshotPath);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file), 64 * 1024))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Ignoring {}: not a trending keywords snapshot", snapshotPath);
+                return;
+            }
+            if (in.readLong() != bucketMillis || in.readInt() != depth || in.readInt() != width
+                    || in.readInt() != capacity) {
+                log.warn("Ignoring {}: it was taken with different trending settings", snapshotPath);
+                return;
+            }
+
+            long current = currentIndex();
+            int restored = 0;
+            int bucketCount = in.readInt();
+            for (int i = 0; i < bucketCount; i++) {
+                Bucket bucket = new Bucket(in.readLong());
+                int typeCount = in.readInt();
+                for (int j = 0; j < typeCount; j++) {
+                    String typeName = in.readUTF();
+                    Sketches sketches = new Sketches(CountMinSketch.readFrom(in, depth, width),
+                            SpaceSaving.readFrom(in, capacity));
+                    for (PublicationType type : TYPES) {
+                        if (type.name().equals(typeName)) {
+                            bucket.sketches[type.ordinal()] = sketches;
+                        }
+                    }
+                }
+                if (bucket.index > current - buckets.length && bucket.index <= current) {
+                    buckets[slot(bucket.index)] = bucket;
+                    restored++;
+                }
+            }
+            log.info("Restored {} trending keyword buckets from {}", restored, snapshotPath);
+        } catch (NoSuchFileException e) {
+            // First start, nothing to restore
+        } catch (IOException e) {
+            Arrays.fill(buckets, null);
+            log.warn("Could not restore the trending keywords from {}, starting empty", snapshotPath, e);
+        }
+    }
+
+    private long currentIndex() {
+        return Math.floorDiv(clock.millis(), bucketMillis);
+    }
+
+    private int slot(long index) {
+        return (int) Math.floorMod(index, buckets.length);
+    }
+
+    private Bucket bucket(long index) {
+        int slot = slot(index);
+        Bucket bucket = buckets[slot];
+        if (bucket == null || bucket.index != index) {
+            bucket = new Bucket(index);
+            buckets[slot] = bucket;
+        }
+        return bucket;
+    }
+
+    private final class Bucket {
+        private final long index;
+        private final Sketches[] sketches = new Sketches[TYPES.length];
+
+        private Bucket(long index) {
+            this.index = index;
+        }
+
+        private Sketches sketches(PublicationType type) {
+            Sketches typeSketches = sketches[type.ordinal()];
+            if (typeSketches == null) {
+                typeSketches = new Sketches(new CountMinSketch(depth, width), new SpaceSaving(capacity));
+                sketches[type.ordinal()] = typeSketches;
+            }
+            return typeSketches;
+        }
+    }
+
+    private static final class Sketches {
+        private final CountMinSketch frequencies;
+        private final SpaceSaving heavyHitters;
+
+        private Sketches(CountMinSketch frequencies, SpaceSaving heavyHitters) {
+            this.frequencies = frequencies;
+            this.heavyHitters = heavyHitters;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package mmf.publication.app;
+
+import mmf.publication.app.metrics.SqlStatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records every statement Hibernate prepares, so tests can assert how many queries an operation runs.
+ */
+public class SqlStatementRecorder extends SqlStatementInspector {
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return super.inspect(sql);
+    }
+
+    public static void clear() {
+        STATEMENTS.clear();
+    }
+
+    public static List<String> statements() {
+        return List.copyOf(STATEMENTS);
+    }
+}
@@ -0,0 +1,292 @@
+package mmf.publication.app.archive;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.dto.CursorPage;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.dto.PublicationSummaryDTO;
+import mmf.publication.app.enums.ExportFormat;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.enums.SummaryField;
+import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.service.IAppUserService;
+import mmf.publication.app.service.IPublicationService;
+import mmf.publication.app.service.ViewCountBuffer;
+import mmf.publication.app.stats.PublicationStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "publication.archive.enabled=true",
+        "publication.archive.inactive-for=30d",
+        "publication.archive.max-age=365d",
+        "publication.archive.max-age-types=NEWS",
+        "publication.archive.interval-ms=3600000",
+        "publication.archive.batch-size=2",
+        "publication.archive.max-batches-per-run=2",
+        "publication.archive.batch-pause=0ms"
+})
+public class ArchiveTieringShould {
+    @Autowired
+    private PublicationArchiver archiver;
+
+    @Autowired
+    private PublicationArchive archive;
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private IAppUserService appUserService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private ViewCountBuffer viewCountBuffer;
+
+    @Autowired
+    private PublicationStatistics statistics;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private long recent;
+    private long recentlyInactive;
+    private long longInactive;
+    private long oldJournal;
+    private long oldNews;
+
+    @BeforeEach
+    void setup() {
+        appUserService.registerUser(new AppUserDTO("archivist", "password"));
+        recent = create("Recent", PublicationType.NEWS, PublicationStatus.ACTIVE, now.minusDays(1), now);
+        recentlyInactive = create("Recently inactive", PublicationType.NEWS, PublicationStatus.INACTIVE, now.minusDays(2), now.minusDays(1));
+        longInactive = create("Long inactive", PublicationType.JOURNAL, PublicationStatus.INACTIVE, now.minusDays(10), now.minusDays(60));
+        oldJournal = create("Old journal", PublicationType.JOURNAL, PublicationStatus.ACTIVE, now.minusDays(700), now);
+        oldNews = create("Old news", PublicationType.NEWS, PublicationStatus.ACTIVE, now.minusDays(800), now);
+        // Other tests delete their publications behind the service's back
+        statistics.reconcile();
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM publication_archive");
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+        archive.refresh();
+    }
+
+    @Test
+    void move_long_inactive_and_old_publications_to_the_archive() throws PublicationNotFoundException {
+        double corrections = meterRegistry.get("publication.stats.corrections").counter().count();
+
+        assertEquals(2, archiver.archive());
+
+        assertFalse(publicationRepository.existsById(longInactive));
+        assertFalse(publicationRepository.existsById(oldNews));
+        assertTrue(publicationRepository.existsById(recentlyInactive));
+        assertTrue(publicationRepository.existsById(oldJournal));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM publication_archive", Integer.class));
+        assertEquals("Old news", publicationService.getPublication(oldNews).getTitle());
+
+        // Archived publications still count
+        statistics.reconcile();
+        assertEquals(corrections, meterRegistry.get("publication.stats.corrections").counter().count());
+    }
+
+    @Test
+    void query_the_archive_only_when_the_filters_can_match_archived_publications() {
+        archiver.archive();
+        double queries = meterRegistry.get("publication.archive.queries").counter().count();
+
+        assertEquals(1, publicationService.getPublications(null, PublicationStatus.ACTIVE, PublicationType.JOURNAL,
+                null, null, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(1, publicationService.getPublications(null, PublicationStatus.ACTIVE, PublicationType.NEWS,
+                now.minusDays(30), null, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(queries, meterRegistry.get("publication.archive.queries").counter().count());
+
+        Page<PublicationDTO> inactive = publicationService.getPublications(null, PublicationStatus.INACTIVE, null,
+                null, null, PageRequest.of(0, 10));
+        assertEquals(2, inactive.getTotalElements());
+        assertEquals(List.of(recentlyInactive, longInactive), ids(inactive));
+        assertTrue(meterRegistry.get("publication.archive.queries").counter().count() > queries);
+    }
+
+    @Test
+    void merge_archived_publications_into_sorted_pages() {
+        archiver.archive();
+        Sort newestFirst = Sort.by(Sort.Direction.DESC, "publishedAt");
+
+        Page<PublicationDTO> first = publicationService.getPublications(null, null, null, null, null, PageRequest.of(0, 3, newestFirst));
+        Page<PublicationDTO> second = publicationService.getPublications(null, null, null, null, null, PageRequest.of(1, 3, newestFirst));
+
+        assertEquals(5, first.getTotalElements());
+        assertEquals(List.of(recent, recentlyInactive, longInactive), ids(first));
+        assertEquals(List.of(oldJournal, oldNews), ids(second));
+    }
+
+    @Test
+    void sort_both_tables_in_one_query_however_deep_the_page() {
+        archiver.archive();
+        Sort byTitle = Sort.by("title");
+
+        Page<PublicationDTO> last = publicationService.getPublications(null, null, null, null, null, PageRequest.of(4, 1, byTitle));
+        Page<PublicationSummaryDTO> summaries = publicationService.getPublicationSummaries(null, null, null, null, null,
+                Set.of(SummaryField.TITLE), 100, PageRequest.of(0, 3, byTitle));
+
+        assertEquals(5, last.getTotalElements());
+        assertEquals(List.of(recentlyInactive), ids(last));
+        assertEquals(List.of("Long inactive", "Old journal", "Old news"), summaries.getContent().stream().map(PublicationSummaryDTO::getTitle).toList());
+    }
+
+    @Test
+    void page_through_archived_publications_with_a_cursor() {
+        archiver.archive();
+        Sort newestFirst = Sort.by(Sort.Direction.DESC, "publishedAt");
+
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<PublicationDTO> page = publicationService.getPublicationsByCursor(null, null, null, null, null,
+                    cursor, 2, newestFirst);
+            page.getContent().forEach(publication -> ids.add(publication.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of(recent, recentlyInactive, longInactive, oldJournal, oldNews), ids);
+    }
+
+    @Test
+    void summarize_archived_publications() {
+        archiver.archive();
+
+        Page<PublicationSummaryDTO> inactive = publicationService.getPublicationSummaries(null, PublicationStatus.INACTIVE,
+                null, null, null, Set.of(SummaryField.TITLE), 100, PageRequest.of(0, 10));
+
+        assertEquals(List.of(recentlyInactive, longInactive), inactive.getContent().stream().map(PublicationSummaryDTO::getId).toList());
+        assertEquals("Long inactive", inactive.getContent().get(1).getTitle());
+    }
+
+    @Test
+    void export_archived_publications_in_id_order() throws IOException {
+        archiver.archive();
+
+        assertEquals(List.of(recent, recentlyInactive, longInactive, oldJournal, oldNews), exported(null));
+        assertEquals(List.of(oldJournal, oldNews), exported("old"));
+    }
+
+    @Test
+    void search_archived_publications() {
+        archiver.archive();
+
+        Page<PublicationDTO> found = publicationService.getPublications("old", null, null, null, null, PageRequest.of(0, 10));
+
+        assertEquals(2, found.getTotalElements());
+        assertEquals(List.of(oldJournal, oldNews), ids(found));
+        assertEquals(List.of(oldNews, oldJournal), ids(publicationService.getPublications("old", null, null, null, null,
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "title")))));
+    }
+
+    @Test
+    void match_every_word_of_an_archive_search() {
+        archiver.archive();
+
+        assertEquals(1, archive.count("news old", null, null, null, null));
+        assertEquals(0, archive.count("news journal", null, null, null, null));
+        assertEquals(0, archive.count("%", null, null, null, null));
+    }
+
+    @Test
+    void move_an_archived_publication_back_when_it_is_changed() throws PublicationNotFoundException {
+        archiver.archive();
+        long version = publicationService.getPublicationVersion(oldNews);
+
+        PublicationRequest patch = new PublicationRequest();
+        patch.setTitle("Old news, revisited");
+        PublicationDTO patched = publicationService.patchPublication(oldNews, patch, version);
+
+        assertEquals("Old news, revisited", patched.getTitle());
+        assertEquals(version + 1, patched.getVersion());
+        assertTrue(publicationRepository.existsById(oldNews));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM publication_archive", Integer.class));
+    }
+
+    @Test
+    void add_the_views_of_archived_publications_to_the_archive() throws PublicationNotFoundException {
+        publicationService.incrementViewCount(oldNews);
+        archiver.archive();
+        publicationService.incrementViewCount(oldNews);
+
+        viewCountBuffer.flush();
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT view_count FROM publication_archive WHERE id = ?",
+                Integer.class, oldNews));
+        assertEquals(2, publicationService.getPublication(oldNews).getViewCount());
+    }
+
+    @Test
+    void resume_a_throttled_run_where_the_previous_one_stopped() {
+        for (int i = 0; i < 6; i++) {
+            create("Older news " + i, PublicationType.NEWS, PublicationStatus.ACTIVE, now.minusDays(900 + i), now);
+        }
+
+        // Two batches of two per run
+        assertEquals(4, archiver.archive());
+        assertEquals(4, archiver.archive());
+        assertEquals(0, archiver.archive());
+        assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM publication_archive", Integer.class));
+    }
+
+    private long create(String title, PublicationType type, PublicationStatus status,
+                        LocalDateTime publishedAt, LocalDateTime updatedAt) {
+        long id = publicationService.createPublication(new PublicationRequest(title, title + " words", type, status),
+                "archivist").getId();
+        jdbcTemplate.update("UPDATE publication SET published_at = ?, updated_at = ? WHERE id = ?", publishedAt, updatedAt, id);
+        return id;
+    }
+
+    private List<Long> exported(String search) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        publicationService.exportPublications(search, null, null, null, null, null, ExportFormat.CSV, out);
+        List<Long> ids = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\r\n")) {
+            if (!line.isEmpty() && Character.isDigit(line.charAt(0))) {
+                ids.add(Long.parseLong(line.substring(0, line.indexOf(','))));
+            }
+        }
+        return ids;
+    }
+
+    private static List<Long> ids(Page<PublicationDTO> page) {
+        return page.getContent().stream().map(PublicationDTO::getId).toList();
+    }
+}
@@ -0,0 +1,38 @@
+package mmf.publication.app.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * On a real server the filter is built while the web server starts, before the connection pool
+ * has, which MockMvc tests never see. The two streaming permits come out of the default pool of ten.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class AdmissionControlConfigShould {
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter;
+
+    @Test
+    void admit_requests_when_built_before_the_pool_starts() throws Exception {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/publications")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode(), response.body());
+        assertEquals(8, admissionControlFilter.getFilter().getMaxConcurrent());
+        assertEquals(2, admissionControlFilter.getFilter().getMaxStreaming());
+    }
+}
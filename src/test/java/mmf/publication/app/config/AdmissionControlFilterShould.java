@@ -0,0 +1,113 @@
+package mmf.publication.app.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlFilterShould {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void reject_requests_beyond_the_queue_with_503() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 0, 1000, meterRegistry);
+        CountDownLatch admitted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> run(filter, blockingChain(admitted, release)));
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse response = run(filter, new MockFilterChain());
+
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(1, meterRegistry.get("publication.admission.rejected").counter().count());
+        release.countDown();
+        holder.join();
+    }
+
+    @Test
+    void let_a_queued_request_in_once_a_permit_is_released() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 1, 5000, meterRegistry);
+        CountDownLatch admitted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> run(filter, blockingChain(admitted, release)));
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse[] queued = new MockHttpServletResponse[1];
+        Thread waiter = Thread.ofVirtual().start(() -> queued[0] = run(filter, new MockFilterChain()));
+        while (meterRegistry.get("publication.admission.queue").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        holder.join();
+        waiter.join();
+
+        assertEquals(200, queued[0].getStatus());
+        assertEquals(0, meterRegistry.get("publication.admission.active").gauge().value());
+    }
+
+    @Test
+    void turn_a_request_away_when_its_wait_runs_out() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 10, 50, meterRegistry);
+        CountDownLatch admitted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> run(filter, blockingChain(admitted, release)));
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse response = run(filter, new MockFilterChain());
+
+        assertEquals(503, response.getStatus());
+        assertTrue(meterRegistry.get("publication.admission.wait").timer().max(TimeUnit.MILLISECONDS) >= 50);
+        release.countDown();
+        holder.join();
+    }
+
+    @Test
+    void keep_exempt_and_streaming_requests_off_the_request_permits() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, 1, 0, 1000,
+                request -> request.getRequestURI().equals("/api/publications/stats"),
+                request -> request.getRequestURI().equals("/api/publications/export"), meterRegistry);
+        CountDownLatch admitted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> run(filter, blockingChain(admitted, release)));
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+
+        assertEquals(200, run(filter, new MockFilterChain(), "/api/publications/stats").getStatus());
+        assertEquals(200, run(filter, new MockFilterChain(), "/api/publications/export").getStatus());
+        assertEquals(503, run(filter, new MockFilterChain()).getStatus());
+        release.countDown();
+        holder.join();
+    }
+
+    private static FilterChain blockingChain(CountDownLatch admitted, CountDownLatch release) {
+        return (request, response) -> {
+            admitted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private static MockHttpServletResponse run(AdmissionControlFilter filter, FilterChain chain) {
+        return run(filter, chain, "/api/publications");
+    }
+
+    private static MockHttpServletResponse run(AdmissionControlFilter filter, FilterChain chain, String uri) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(new MockHttpServletRequest("GET", uri), response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,165 @@
+package mmf.publication.app.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.service.IAppUserService;
+import mmf.publication.app.service.IPublicationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.compression.enabled=true",
+        "server.compression.mime-types=application/json,application/x-jackson-smile,application/cbor",
+        "server.compression.min-response-size=2KB"
+})
+public class ContentNegotiationShould {
+    private static final String SMILE = "application/x-jackson-smile";
+    private static final String CBOR = "application/cbor";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper json = new ObjectMapper();
+    private final SmileMapper smile = new SmileMapper();
+    private final CBORMapper cbor = new CBORMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private IAppUserService appUserService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @BeforeEach
+    void setup() {
+        appUserService.registerUser(new AppUserDTO("negotiator", "password"));
+    }
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void answer_in_json_unless_asked_for_another_format() throws Exception {
+        long id = create("Plain");
+
+        HttpResponse<byte[]> response = send(get("/api/publications/" + id).build());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/json", contentType(response));
+        assertEquals("Plain", json.readTree(response.body()).get("title").asText());
+    }
+
+    @Test
+    void answer_in_smile_or_cbor_when_asked() throws Exception {
+        long id = create("Binary");
+
+        HttpResponse<byte[]> smiled = send(get("/api/publications/" + id).header("Accept", SMILE).build());
+        HttpResponse<byte[]> cbored = send(get("/api/publications/" + id).header("Accept", CBOR).build());
+
+        assertEquals(SMILE, contentType(smiled));
+        assertEquals("Binary", smile.readTree(smiled.body()).get("title").asText());
+        assertEquals(CBOR, contentType(cbored));
+        assertEquals("Binary", cbor.readTree(cbored.body()).get("title").asText());
+        // Tomcat lower-cases the field names when it adds its own for compression
+        assertTrue(smiled.headers().allValues("Vary").stream().flatMap(vary -> Arrays.stream(vary.split(",")))
+                .anyMatch(field -> field.trim().equalsIgnoreCase("Accept")));
+        // One version goes out in every format, so its tag is weak and responses stay compressible
+        assertTrue(smiled.headers().firstValue("ETag").orElseThrow().startsWith("W/"));
+        assertTrue(smiled.headers().allValues("Vary").stream().anyMatch(vary -> vary.contains("accept-encoding")));
+    }
+
+    @Test
+    void read_publication_requests_in_smile_and_cbor() throws Exception {
+        byte[] created = smile.writeValueAsBytes(
+                new PublicationRequest("Sent in Smile", "smile words", PublicationType.NEWS, PublicationStatus.ACTIVE));
+        HttpResponse<byte[]> response = send(request("/api/publications/negotiator")
+                .header("Content-Type", SMILE).header("Accept", SMILE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(created)).build());
+        long id = smile.readTree(response.body()).get("id").asLong();
+
+        PublicationRequest patch = new PublicationRequest();
+        patch.setTitle("Patched in CBOR");
+        HttpResponse<byte[]> patched = send(request("/api/publications/" + id)
+                .header("Content-Type", CBOR)
+                .method("PATCH", HttpRequest.BodyPublishers.ofByteArray(cbor.writeValueAsBytes(patch))).build());
+
+        assertEquals(200, patched.statusCode());
+        JsonNode publication = json.readTree(patched.body());
+        assertEquals("Patched in CBOR", publication.get("title").asText());
+        assertEquals("smile words", publication.get("description").asText());
+    }
+
+    @Test
+    void send_smaller_pages_in_smile_and_compress_large_ones() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            create("Publication " + i);
+        }
+
+        byte[] jsonPage = send(get("/api/publications?size=50").build()).body();
+        byte[] smilePage = send(get("/api/publications?size=50").header("Accept", SMILE).build()).body();
+        HttpResponse<byte[]> gzipped = send(get("/api/publications?size=50")
+                .header("Accept", SMILE).header("Accept-Encoding", "gzip").build());
+
+        assertEquals(50, smile.readTree(smilePage).get("content").size());
+        assertTrue(smilePage.length < jsonPage.length, smilePage.length + " >= " + jsonPage.length);
+        assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElse(null));
+        assertTrue(gzipped.body().length < smilePage.length);
+        try (GZIPInputStream unzipped = new GZIPInputStream(new ByteArrayInputStream(gzipped.body()))) {
+            assertEquals(50, smile.readTree(unzipped).get("content").size());
+        }
+    }
+
+    private long create(String title) {
+        return publicationService.createPublication(new PublicationRequest(title,
+                "Words about " + title + " and a few more words", PublicationType.JOURNAL, PublicationStatus.ACTIVE),
+                "negotiator").getId();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return request(path).GET();
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static String contentType(HttpResponse<?> response) {
+        return response.headers().firstValue("Content-Type").orElse("").split(";")[0];
+    }
+}
@@ -0,0 +1,186 @@
+package mmf.publication.app.datasource;
+
+import jakarta.servlet.http.Cookie;
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.service.IAppUserService;
+import mmf.publication.app.service.IPublicationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two embedded databases stand in for the primary and the replica. Replication is left out: each
+ * holds a publication of its own, so every read shows which of them served it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "publication.datasource.replica.url=" + ReplicaRoutingShould.REPLICA_URL + ";IFEXISTS=TRUE",
+        "publication.datasource.replica.hikari.connection-timeout=250",
+        "publication.datasource.replica.health-check-interval-ms=3600000",
+        "publication.datasource.replica.sticky-window=1h"})
+@AutoConfigureMockMvc
+public class ReplicaRoutingShould {
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL";
+    private static final String PUBLICATION = "{\"title\":\"Written\",\"description\":\"Fresh words\",\"type\":\"NEWS\",\"status\":\"ACTIVE\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private IAppUserService appUserService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Replica replica;
+
+    static {
+        // The replica url only opens an existing database, so it has to exist before the pool connects
+        try {
+            DriverManager.getConnection(REPLICA_URL + ";DB_CLOSE_DELAY=-1", "sa", "").close();
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @BeforeEach
+    void setup() throws SQLException {
+        createReplica();
+        appUserService.registerUser(new AppUserDTO("routed", "password"));
+        publicationService.createPublication(new PublicationRequest("From the primary", "Original words",
+                PublicationType.NEWS, PublicationStatus.ACTIVE), "routed");
+    }
+
+    private void createReplica() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL + ";DB_CLOSE_DELAY=-1", "sa", "");
+             Statement statement = connection.createStatement()) {
+            for (Map<String, Object> line : jdbcTemplate.queryForList("SCRIPT NODATA")) {
+                statement.execute(line.values().iterator().next().toString());
+            }
+            statement.execute("INSERT INTO app_user (id, username, password) VALUES (1, 'replicated', 'password')");
+            statement.execute("INSERT INTO publication (id, title, description, view_count, published_at, updated_at, " +
+                    "type, status, keyword_state, version, app_user_id) VALUES (1, 'From the replica', 'Replicated words', " +
+                    "0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 'NEWS', 'ACTIVE', 'READY', 0, 1)");
+        }
+        replica.check();
+    }
+
+    @AfterEach
+    void cleanup() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL + ";IFEXISTS=TRUE", "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            // Already shut down by the test
+        }
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void read_from_the_replica_in_read_only_calls_and_write_to_the_primary() {
+        assertEquals(List.of("From the replica"), titles());
+        assertEquals(List.of("From the primary"),
+                jdbcTemplate.queryForList("SELECT title FROM publication", String.class));
+    }
+
+    @Test
+    void keep_a_client_on_the_primary_after_it_writes() throws Exception {
+        MvcResult write = mockMvc.perform(post("/api/publications/routed")
+                        .contentType(MediaType.APPLICATION_JSON).content(PUBLICATION))
+                .andExpect(status().isOk()).andReturn();
+        Cookie sticky = write.getResponse().getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertNotNull(sticky);
+
+        mockMvc.perform(get("/api/publications?sort=title").cookie(sticky))
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].title").value("From the primary"))
+                .andExpect(jsonPath("$.content[1].title").value("Written"));
+
+        // Other clients, and this one once the window is over, read from the replica
+        mockMvc.perform(get("/api/publications"))
+                .andExpect(jsonPath("$.content[0].title").value("From the replica"));
+        Cookie expired = new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() - 1));
+        mockMvc.perform(get("/api/publications").cookie(expired))
+                .andExpect(jsonPath("$.content[0].title").value("From the replica"));
+    }
+
+    @Test
+    void load_cached_publications_from_the_primary() throws PublicationNotFoundException {
+        long id = jdbcTemplate.queryForObject("SELECT id FROM publication", Long.class);
+
+        assertEquals("From the primary", publicationService.getPublication(id).getTitle());
+    }
+
+    @Test
+    void leave_a_client_that_only_counts_a_view_on_the_replica() throws Exception {
+        long id = jdbcTemplate.queryForObject("SELECT id FROM publication", Long.class);
+
+        MvcResult view = mockMvc.perform(patch("/api/publications/" + id + "/view")).andReturn();
+
+        assertNull(view.getResponse().getCookie(ReadYourWritesFilter.COOKIE_NAME));
+    }
+
+    @Test
+    void fall_back_to_the_primary_while_the_replica_is_down() throws SQLException, PublicationNotFoundException {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL + ";IFEXISTS=TRUE", "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+
+        replica.check();
+        assertFalse(replica.isUp());
+        assertEquals(List.of("From the primary"), titles());
+        PublicationDTO publication = publicationService.getPublication(
+                publicationRepository.findAll().get(0).getId());
+        assertEquals("From the primary", publication.getTitle());
+
+        createReplica();
+        assertTrue(replica.isUp());
+        assertEquals(List.of("From the replica"), titles());
+    }
+
+    private List<String> titles() {
+        return publicationService.getPublications(null, null, null, null, null, PageRequest.of(0, 10))
+                .map(PublicationDTO::getTitle).getContent();
+    }
+}
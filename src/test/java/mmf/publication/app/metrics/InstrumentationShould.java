@@ -0,0 +1,98 @@
+package mmf.publication.app.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.service.IAppUserService;
+import mmf.publication.app.service.IPublicationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "management.endpoints.web.exposure.include=prometheus",
+        "publication.metrics.slow-request.enabled=true",
+        "publication.metrics.slow-request.threshold=0ms"})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ExtendWith(OutputCaptureExtension.class)
+public class InstrumentationShould {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private IAppUserService appUserService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void count_the_statements_and_entities_of_each_request() throws Exception {
+        appUserService.registerUser(new AppUserDTO("instrumented", "password"));
+        long id = publicationService.createPublication(new PublicationRequest("Title", "Measured words",
+                PublicationType.NEWS, PublicationStatus.ACTIVE), "instrumented").getId();
+
+        mockMvc.perform(get("/api/publications/{id}", id)).andExpect(status().isOk());
+
+        assertEquals(1, meterRegistry.get("publication.request.statements").tag("uri", "/api/publications/{id}")
+                .summary().totalAmount());
+        assertEquals(1, meterRegistry.get("publication.request.entities").tag("uri", "/api/publications/{id}")
+                .summary().totalAmount());
+        assertEquals(1, meterRegistry.get("publication.service").tag("method", "getPublication")
+                .tag("exception", "none").timer().count());
+    }
+
+    @Test
+    void log_slow_requests_with_their_filters_and_sql(CapturedOutput output) throws Exception {
+        mockMvc.perform(get("/api/publications?status=ACTIVE&type=NEWS&startDate=2025-01-01T00:00:00"))
+                .andExpect(status().isOk());
+
+        String log = output.getOut();
+        assertTrue(log.contains("Slow request GET /api/publications?status=ACTIVE&type=NEWS"), log);
+        assertTrue(log.contains("call: getPublications(search=null, status=ACTIVE, type=NEWS, " +
+                "startDate=2025-01-01T00:00, endDate=null"), log);
+        assertTrue(log.contains("sql: select"), log);
+    }
+
+    @Test
+    void expose_the_metrics_in_prometheus_format() throws Exception {
+        mockMvc.perform(get("/api/publications")).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(scrape.contains("publication_service_seconds_bucket{"), scrape);
+        assertTrue(scrape.contains("publication_request_statements_count{"), scrape);
+        assertTrue(scrape.contains("spring_data_repository_invocations_seconds_count{"), scrape);
+    }
+}
@@ -0,0 +1,24 @@
+package mmf.publication.app.repository;
+
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.repository.memory.InMemoryPublicationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "publication.storage=memory")
+public class InMemoryPublicationRepositoryShould extends PublicationRepositoryContract {
+    @Test
+    void replace_the_database_backed_repository() {
+        assertInstanceOf(InMemoryPublicationRepository.class, publicationRepository);
+    }
+
+    @Test
+    void reject_criteria_it_cannot_evaluate() {
+        Specification<Publication> spec = (root, query, criteriaBuilder) ->
+                criteriaBuilder.isEmpty(root.get("frequentWords"));
+        assertThrows(RuntimeException.class, () -> publicationRepository.findAll(spec));
+    }
+}
@@ -0,0 +1,7 @@
+package mmf.publication.app.repository;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+public class JpaPublicationRepositoryShould extends PublicationRepositoryContract {
+}
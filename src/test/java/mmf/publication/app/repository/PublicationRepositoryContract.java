@@ -0,0 +1,259 @@
+package mmf.publication.app.repository;
+
+import mmf.publication.app.dto.PublicationAggregate;
+import mmf.publication.app.dto.PublicationSummaryDTO;
+import mmf.publication.app.entity.AppUser;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.enums.SummaryField;
+import mmf.publication.app.specifications.PublicationSpecification;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * What the service layer relies on from a {@link PublicationRepository}, whichever storage backs it.
+ * Each storage runs these tests in a subclass.
+ */
+abstract class PublicationRepositoryContract {
+    private static final LocalDateTime NOON = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Autowired
+    protected PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private AppUser user;
+
+    @BeforeEach
+    void setup() {
+        user = appUserRepository.save(new AppUser("contract", "password", new ArrayList<>()));
+    }
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void save_new_publications_and_find_them_by_id() {
+        Publication saved = publicationRepository.save(publication("First", NOON, PublicationType.NEWS, PublicationStatus.ACTIVE));
+
+        assertNotNull(saved.getId());
+        assertEquals(0, saved.getVersion());
+        Publication found = publicationRepository.findById(saved.getId()).orElseThrow();
+        assertEquals("First", found.getTitle());
+        assertEquals("Words of First", found.getDescription());
+        assertEquals(Publication.hashOf("Words of First"), found.getDescriptionHash());
+        assertEquals(NOON, found.getPublishedAt());
+        assertEquals(Map.of("words", 1), found.getFrequentWords());
+        assertEquals(Optional.of(0L), publicationRepository.findVersionById(saved.getId()));
+        assertTrue(publicationRepository.existsById(saved.getId()));
+        assertEquals(1, publicationRepository.count());
+        assertTrue(publicationRepository.findById(saved.getId() + 1).isEmpty());
+
+        publicationRepository.deleteById(saved.getId());
+        assertTrue(publicationRepository.findById(saved.getId()).isEmpty());
+    }
+
+    @Test
+    void raise_the_version_on_changes_and_reject_stale_writes() {
+        long id = publicationRepository.save(publication("Draft", NOON, PublicationType.NEWS, PublicationStatus.ACTIVE)).getId();
+        Publication stale = publicationRepository.findById(id).orElseThrow();
+        Publication current = publicationRepository.findById(id).orElseThrow();
+
+        current.setTitle("Final");
+        current.setStatus(PublicationStatus.INACTIVE);
+        current = publicationRepository.save(current);
+        assertEquals(1, current.getVersion());
+        assertEquals(Optional.of(1L), publicationRepository.findVersionById(id));
+
+        stale.setTitle("Lost");
+        assertThrows(OptimisticLockingFailureException.class, () -> publicationRepository.save(stale));
+        Publication found = publicationRepository.findById(id).orElseThrow();
+        assertEquals("Final", found.getTitle());
+        assertEquals(List.of(), publicationRepository.findAll(PublicationSpecification.hasStatus(PublicationStatus.ACTIVE)));
+    }
+
+    @Test
+    void filter_by_status_type_and_publish_date_in_publish_order() {
+        for (int i = 0; i < 8; i++) {
+            publicationRepository.save(publication("Hour " + i, NOON.plusHours(i),
+                    i % 2 == 0 ? PublicationType.NEWS : PublicationType.JOURNAL,
+                    i == 4 ? PublicationStatus.INACTIVE : PublicationStatus.ACTIVE));
+        }
+        Specification<Publication> spec = Specification.where(PublicationSpecification.hasStatus(PublicationStatus.ACTIVE))
+                .and(PublicationSpecification.hasType(PublicationType.NEWS))
+                .and(PublicationSpecification.publishedBetween(NOON.plusHours(1), NOON.plusHours(7)));
+
+        Page<Publication> first = publicationRepository.findAll(spec, PageRequest.of(0, 1, Sort.by("publishedAt").descending()));
+        assertEquals(List.of("Hour 6"), titles(first.getContent()));
+        assertEquals(2, first.getTotalElements());
+        Page<Publication> second = publicationRepository.findAll(spec, PageRequest.of(1, 1, Sort.by("publishedAt").descending()));
+        assertEquals(List.of("Hour 2"), titles(second.getContent()));
+        assertEquals(2, publicationRepository.count(spec));
+
+        assertEquals(List.of("Hour 5", "Hour 7"), titles(publicationRepository.findAll(
+                PublicationSpecification.hasType(PublicationType.JOURNAL)
+                        .and(PublicationSpecification.publishedBetween(NOON.plusHours(4), null)), Sort.by("publishedAt"))));
+        assertEquals(7, publicationRepository.count(PublicationSpecification.hasStatus(PublicationStatus.ACTIVE)));
+        assertEquals(List.of("Hour 1", "Hour 3"), titles(publicationRepository.findAll(
+                PublicationSpecification.hasIdIn(List.of(id("Hour 3"), id("Hour 1"), -1L)), Sort.by("id"))));
+        assertEquals(List.of(), publicationRepository.findAll(PublicationSpecification.hasIdIn(List.of())));
+    }
+
+    @Test
+    void search_titles_and_descriptions_ignoring_case_and_sort_by_any_column() {
+        Publication needle = publication("Haystack", NOON, PublicationType.NEWS, PublicationStatus.ACTIVE);
+        needle.setDescription("A needle in it");
+        needle.setViewCount(3);
+        publicationRepository.save(needle);
+        Publication titled = publication("Needles", NOON.plusHours(1), PublicationType.NEWS, PublicationStatus.ACTIVE);
+        titled.setViewCount(7);
+        publicationRepository.save(titled);
+        publicationRepository.save(publication("Straw", NOON.plusHours(2), PublicationType.NEWS, PublicationStatus.ACTIVE));
+
+        assertEquals(List.of("Haystack", "Needles"), titles(publicationRepository.findAll(
+                PublicationSpecification.hasTitleOrDescriptionContaining("NEEDLE"), Sort.by("title"))));
+        assertEquals(List.of("Needles", "Haystack", "Straw"), titles(publicationRepository.findAll(
+                Sort.by(Sort.Order.desc("viewCount"), Sort.Order.asc("id")))));
+        assertEquals(List.of("Straw"), titles(publicationRepository.findAll(Specification.not(
+                PublicationSpecification.hasTitleOrDescriptionContaining("needle")))));
+        // Every word has to appear, in either column and any order; wildcards match nothing
+        assertEquals(List.of("Haystack"), titles(publicationRepository.findAll(
+                PublicationSpecification.hasTitleOrDescriptionContaining("needle, HAY"))));
+        assertEquals(List.of(), titles(publicationRepository.findAll(
+                PublicationSpecification.hasTitleOrDescriptionContaining("needle straw"))));
+        assertEquals(List.of(), titles(publicationRepository.findAll(
+                PublicationSpecification.hasTitleOrDescriptionContaining("%_"))));
+    }
+
+    @Test
+    void seek_past_a_key_in_both_directions() {
+        // Two publications share each time, so the id breaks the ties
+        for (int i = 0; i < 6; i++) {
+            publicationRepository.save(publication("Seek " + i, NOON.plusHours(i / 2), PublicationType.NEWS, PublicationStatus.ACTIVE));
+        }
+        Publication key = publicationRepository.findById(id("Seek 3")).orElseThrow();
+        Sort descending = Sort.by(Sort.Order.desc("publishedAt"), Sort.Order.desc("id"));
+
+        Slice<Publication> older = publicationRepository.findSlice(PublicationSpecification.isBeyondKey(
+                "publishedAt", Sort.Direction.DESC, key.getPublishedAt(), key.getId(), false), descending, 2);
+        assertEquals(List.of("Seek 2", "Seek 1"), titles(older.getContent()));
+        assertTrue(older.hasNext());
+
+        Slice<Publication> newer = publicationRepository.findSlice(PublicationSpecification.isBeyondKey(
+                "publishedAt", Sort.Direction.DESC, key.getPublishedAt(), key.getId(), true), descending.reverse(), 5);
+        assertEquals(List.of("Seek 4", "Seek 5"), titles(newer.getContent()));
+        assertFalse(newer.hasNext());
+
+        assertEquals(List.of("Seek 4", "Seek 5"), titles(publicationRepository.findByIdGreaterThanOrderByIdAsc(
+                key.getId(), Limit.of(10))));
+        assertEquals(List.of("Seek 4"), titles(publicationRepository.findByIdGreaterThanOrderByIdAsc(key.getId(), Limit.of(1))));
+    }
+
+    @Test
+    void insert_in_batches_add_views_and_scroll_in_order() {
+        List<Publication> batch = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            batch.add(publication("Batch " + i, NOON.plusDays(i % 2), PublicationType.JOURNAL, PublicationStatus.ACTIVE));
+        }
+        publicationRepository.insertAll(batch);
+        batch.forEach(publication -> assertNotNull(publication.getId()));
+
+        long id = batch.get(1).getId();
+        publicationRepository.addViewCounts(Map.of(id, 5L), NOON.plusDays(3));
+        Publication viewed = publicationRepository.findById(id).orElseThrow();
+        assertEquals(5, viewed.getViewCount());
+        assertEquals(NOON.plusDays(3), viewed.getUpdatedAt());
+        assertEquals(0, viewed.getVersion());
+
+        List<String> scrolled = new ArrayList<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> publicationRepository.scroll(
+                PublicationSpecification.hasType(PublicationType.JOURNAL), Sort.by("id").descending(), 2,
+                publication -> scrolled.add(publication.getTitle())));
+        assertEquals(List.of("Batch 2", "Batch 1", "Batch 0"), scrolled);
+
+        long views = 0;
+        long count = 0;
+        for (PublicationAggregate aggregate : publicationRepository.aggregateByStatusTypeAndPublishDay()) {
+            assertEquals(PublicationType.JOURNAL, aggregate.getType());
+            if (aggregate.getPublishDay().equals(NOON.toLocalDate())) {
+                assertEquals(2, aggregate.getCount());
+            }
+            count += aggregate.getCount();
+            views += aggregate.getViews();
+        }
+        assertEquals(3, count);
+        assertEquals(5, views);
+    }
+
+    @Test
+    void project_summaries_of_the_requested_fields() {
+        publicationRepository.save(publication("Short", NOON, PublicationType.NEWS, PublicationStatus.ACTIVE));
+        Publication longer = publication("Long", NOON.plusHours(1), PublicationType.NEWS, PublicationStatus.ACTIVE);
+        longer.setDescription("Words that go on");
+        publicationRepository.save(longer);
+
+        Page<PublicationSummaryDTO> summaries = publicationRepository.findSummaries(
+                PublicationSpecification.hasType(PublicationType.NEWS), EnumSet.of(SummaryField.TITLE, SummaryField.EXCERPT),
+                14, PageRequest.of(0, 10, Sort.by("publishedAt").descending()));
+
+        assertEquals(2, summaries.getTotalElements());
+        PublicationSummaryDTO first = summaries.getContent().get(0);
+        assertEquals("Long", first.getTitle());
+        assertEquals("Words that go", first.getExcerpt().stripTrailing());
+        assertTrue(first.getTruncated());
+        assertNull(first.getViewCount());
+        PublicationSummaryDTO second = summaries.getContent().get(1);
+        assertEquals("Words of Short", second.getExcerpt());
+        assertFalse(second.getTruncated());
+
+        List<PublicationSummaryDTO> byId = publicationRepository.findSummariesById(List.of(longer.getId()),
+                EnumSet.of(SummaryField.STATUS), 10);
+        assertEquals(1, byId.size());
+        assertEquals(PublicationStatus.ACTIVE, byId.get(0).getStatus());
+        assertNull(byId.get(0).getTitle());
+    }
+
+    private Publication publication(String title, LocalDateTime publishedAt, PublicationType type, PublicationStatus status) {
+        Publication publication = new Publication(title, "Words of " + title, 0, publishedAt, publishedAt, type, status,
+                Map.of("words", 1));
+        publication.setAppUser(user);
+        return publication;
+    }
+
+    private long id(String title) {
+        return publicationRepository.findAll().stream().filter(publication -> publication.getTitle().equals(title))
+                .findFirst().orElseThrow().getId();
+    }
+
+    private static List<String> titles(List<Publication> publications) {
+        return publications.stream().map(Publication::getTitle).toList();
+    }
+}
@@ -0,0 +1,93 @@
+package mmf.publication.app.search;
+
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvertedIndexShould {
+    private static final LocalDateTime JANUARY = LocalDateTime.of(2025, 1, 15, 0, 0);
+    private static final LocalDateTime MARCH = LocalDateTime.of(2025, 3, 15, 0, 0);
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new InvertedIndex();
+        index.index(1L, "Spring news", "Spring Boot 3.4 is out", PublicationStatus.ACTIVE, PublicationType.NEWS, JANUARY);
+        index.index(2L, "Java journal", "Virtual threads in Java, spring and beyond", PublicationStatus.ACTIVE, PublicationType.JOURNAL, MARCH);
+        index.index(3L, "Old news", "Nothing about the framework", PublicationStatus.INACTIVE, PublicationType.NEWS, MARCH);
+    }
+
+    @Test
+    void rank_hits_by_term_frequency() {
+        assertEquals(List.of(1L, 2L), index.search("spring", null, null, null, null));
+    }
+
+    @Test
+    void require_every_query_term() {
+        assertEquals(List.of(2L), index.search("SPRING java", null, null, null, null));
+    }
+
+    @Test
+    void match_query_terms_as_prefixes() {
+        assertEquals(List.of(3L), index.search("frame", null, null, null, null));
+    }
+
+    @Test
+    void apply_status_type_and_date_filters() {
+        assertEquals(List.of(1L), index.search("spring", PublicationStatus.ACTIVE, PublicationType.NEWS, null, null));
+        assertEquals(List.of(2L), index.search("spring", null, null, MARCH.minusDays(1), null));
+        assertEquals(List.of(), index.search("news", PublicationStatus.ACTIVE, null, null, JANUARY.minusDays(1)));
+    }
+
+    @Test
+    void replace_the_terms_of_a_reindexed_document() {
+        index.index(1L, "Renamed", "Completely different", PublicationStatus.ACTIVE, PublicationType.NEWS, JANUARY);
+
+        assertEquals(List.of(2L), index.search("spring", null, null, null, null));
+        assertEquals(List.of(1L), index.search("different", null, null, null, null));
+    }
+
+    @Test
+    void keep_postings_ordered_when_an_older_document_is_added_later() {
+        index.remove(1L);
+        index.index(1L, "Spring again", "spring spring", PublicationStatus.ACTIVE, PublicationType.NEWS, JANUARY);
+
+        assertEquals(List.of(1L, 2L), index.search("spring", null, null, null, null));
+        assertEquals(3, index.documentCount());
+    }
+
+    @Test
+    void page_hits_in_publication_time_order_and_count_them_all() {
+        InvertedIndex.SortedHits newestFirst = index.search("spring", null, null, null, null,
+                InvertedIndex.SortKey.PUBLISHED_AT, false, false, 0, 1);
+
+        assertEquals(List.of(2L), newestFirst.getIds());
+        assertEquals(2, newestFirst.getTotal());
+        assertEquals(List.of(2L), index.search("spring", null, null, null, null,
+                InvertedIndex.SortKey.ID, true, true, 1, 10).getIds());
+    }
+
+    @Test
+    void keep_postings_ordered_across_blocks_when_documents_change_out_of_order() {
+        InvertedIndex large = new InvertedIndex();
+        for (long id = 1000; id >= 1; id--) {
+            large.index(id, "common", id % 2 == 0 ? "even" : "odd", PublicationStatus.ACTIVE, PublicationType.NEWS, JANUARY);
+        }
+        for (long id = 2; id <= 1000; id += 4) {
+            large.remove(id);
+        }
+
+        InvertedIndex.SortedHits even = large.search("common even", null, null, null, null,
+                InvertedIndex.SortKey.ID, true, true, 0, 3);
+        assertEquals(List.of(4L, 8L, 12L), even.getIds());
+        assertEquals(250, even.getTotal());
+        assertEquals(750, large.search("common", null, null, null, null).size());
+    }
+}
@@ -0,0 +1,62 @@
+package mmf.publication.app.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mmf.publication.app.archive.PublicationArchive;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.events.PublicationSavedEvent;
+import mmf.publication.app.repository.PublicationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class PublicationSearchIndexShould {
+    private PublicationRepository publicationRepository;
+    private PublicationSearchIndex searchIndex;
+
+    @BeforeEach
+    void setup() {
+        publicationRepository = mock(PublicationRepository.class);
+        searchIndex = new PublicationSearchIndex(publicationRepository, mock(PublicationArchive.class), new SimpleMeterRegistry(), 10, 1);
+    }
+
+    @Test
+    void not_overwrite_a_publication_saved_while_rebuilding_with_the_older_row() {
+        Publication stale = publication(1L, "Stale title");
+        when(publicationRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            // Saved after the batch was read but before it is indexed
+            searchIndex.onPublicationSaved(new PublicationSavedEvent(publication(1L, "Fresh title")));
+            return List.of(stale);
+        });
+
+        searchIndex.rebuild();
+
+        assertEquals(List.of(1L), searchIndex.search("fresh", null, null, null, null));
+        assertEquals(List.of(), searchIndex.search("stale", null, null, null, null));
+    }
+
+    @Test
+    void refuse_to_hand_more_hits_to_the_database_than_it_may_sort() {
+        when(publicationRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class)))
+                .thenReturn(List.of(publication(1L, "Spring one"), publication(2L, "Spring two")));
+        searchIndex.rebuild();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> searchIndex.searchForSorting("spring", null, null, null, null));
+        assertEquals(List.of(2L), searchIndex.searchForSorting("two", null, null, null, null));
+    }
+
+    private static Publication publication(long id, String title) {
+        return new Publication(id, title, "", 0, LocalDateTime.of(2025, 1, 15, 0, 0), LocalDateTime.of(2025, 1, 15, 0, 0),
+                PublicationType.NEWS, PublicationStatus.ACTIVE, null);
+    }
+}
@@ -0,0 +1,109 @@
+package mmf.publication.app.service;
+
+import mmf.publication.app.SqlStatementRecorder;
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ChangeAwareUpdateShould {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private IAppUserService appUserService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    private long id;
+
+    @BeforeEach
+    void setup() {
+        appUserService.registerUser(new AppUserDTO("editor", "password"));
+        id = publicationService.createPublication(new PublicationRequest("Title", "words words about things",
+                PublicationType.NEWS, PublicationStatus.ACTIVE), "editor").getId();
+    }
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void write_only_the_changed_columns_when_the_description_is_unchanged() throws PublicationNotFoundException {
+        SqlStatementRecorder.clear();
+
+        PublicationDTO updated = publicationService.updatePublication(id, new PublicationRequest("Retitled",
+                "words words about things", PublicationType.NEWS, PublicationStatus.ACTIVE));
+
+        String update = SqlStatementRecorder.statements().stream().filter(sql -> sql.startsWith("update"))
+                .findFirst().orElseThrow();
+        assertTrue(update.contains("title="), update);
+        assertFalse(update.contains("description"), update);
+        assertFalse(update.contains("frequent_words"), update);
+        assertEquals("Retitled", updated.getTitle());
+        assertEquals(Map.of("words", 2, "about", 1, "things", 1), updated.getFrequentWords());
+    }
+
+    @Test
+    void extract_the_keywords_again_when_the_description_changes() throws PublicationNotFoundException {
+        PublicationDTO updated = publicationService.updatePublication(id, new PublicationRequest("Title",
+                "other other text", PublicationType.NEWS, PublicationStatus.ACTIVE));
+
+        assertEquals(Map.of("other", 2, "text", 1), updated.getFrequentWords());
+        Publication stored = publicationRepository.findById(id).orElseThrow();
+        assertEquals(Publication.hashOf("other other text"), stored.getDescriptionHash());
+    }
+
+    @Test
+    void patch_only_the_fields_in_the_body() throws Exception {
+        SqlStatementRecorder.clear();
+
+        mockMvc.perform(patch("/api/publications/{id}", id).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType("application/merge-patch+json").content("{\"status\":\"INACTIVE\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.status").value("INACTIVE"))
+                .andExpect(jsonPath("$.title").value("Title"))
+                .andExpect(jsonPath("$.description").value("words words about things"));
+
+        List<String> updates = SqlStatementRecorder.statements().stream().filter(sql -> sql.startsWith("update")).toList();
+        assertEquals(1, updates.size(), updates.toString());
+        assertFalse(updates.get(0).contains("description"), updates.get(0));
+        mockMvc.perform(patch("/api/publications/{id}", id).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType("application/merge-patch+json").content("{\"title\":\"Late\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+}
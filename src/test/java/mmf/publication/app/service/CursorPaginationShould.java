@@ -0,0 +1,133 @@
+package mmf.publication.app.service;
+
+import mmf.publication.app.dto.CursorPage;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.entity.AppUser;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.search.PublicationSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class CursorPaginationShould {
+    private static final LocalDateTime NOON = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private PublicationSearchIndex searchIndex;
+
+    @BeforeEach
+    void setup() {
+        AppUser user = appUserRepository.save(new AppUser("cursor", "password", new ArrayList<>()));
+        // Two publications share each timestamp so the id tie-breaker is exercised
+        for (int i = 0; i < 7; i++) {
+            Publication publication = new Publication(null, "Title " + i, "Description " + i, 0,
+                    NOON.plusHours(i / 2), NOON, i % 3 == 0 ? PublicationType.JOURNAL : PublicationType.NEWS,
+                    PublicationStatus.ACTIVE, null);
+            publication.setAppUser(user);
+            publicationRepository.save(publication);
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void walk_forward_through_every_publication_in_order() {
+        List<String> titles = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<PublicationDTO> page = publicationService.getPublicationsByCursor(null, null, null, null, null,
+                    cursor, 3, Sort.by(Sort.Direction.DESC, "publishedAt"));
+            page.getContent().forEach(publication -> titles.add(publication.getTitle()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of("Title 6", "Title 5", "Title 4", "Title 3", "Title 2", "Title 1", "Title 0"), titles);
+    }
+
+    @Test
+    void walk_back_to_the_previous_page() {
+        CursorPage<PublicationDTO> first = publicationService.getPublicationsByCursor(null, null, null, null, null,
+                null, 3, Sort.unsorted());
+        CursorPage<PublicationDTO> second = publicationService.getPublicationsByCursor(null, null, null, null, null,
+                first.getNextCursor(), 3, Sort.unsorted());
+        CursorPage<PublicationDTO> back = publicationService.getPublicationsByCursor(null, null, null, null, null,
+                second.getPreviousCursor(), 3, Sort.unsorted());
+
+        assertNull(first.getPreviousCursor());
+        assertEquals(titles(first), titles(back));
+        assertNull(back.getPreviousCursor());
+        assertNotNull(back.getNextCursor());
+    }
+
+    @Test
+    void combine_the_cursor_with_filters() {
+        CursorPage<PublicationDTO> first = publicationService.getPublicationsByCursor(null, null, PublicationType.NEWS,
+                null, null, null, 2, Sort.by(Sort.Direction.ASC, "id"));
+        CursorPage<PublicationDTO> second = publicationService.getPublicationsByCursor(null, null, PublicationType.NEWS,
+                null, null, first.getNextCursor(), 2, Sort.unsorted());
+
+        assertEquals(List.of("Title 1", "Title 2"), titles(first));
+        assertEquals(List.of("Title 4", "Title 5"), titles(second));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void walk_search_hits_in_both_directions_through_the_index() {
+        searchIndex.rebuild();
+        List<String> titles = new ArrayList<>();
+        CursorPage<PublicationDTO> page = null;
+        String cursor = null;
+        do {
+            page = publicationService.getPublicationsByCursor("descr", null, null, null, null,
+                    cursor, 3, Sort.by(Sort.Direction.DESC, "publishedAt"));
+            page.getContent().forEach(publication -> titles.add(publication.getTitle()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        CursorPage<PublicationDTO> back = publicationService.getPublicationsByCursor("descr", null, null, null, null,
+                page.getPreviousCursor(), 3, Sort.unsorted());
+
+        assertEquals(List.of("Title 6", "Title 5", "Title 4", "Title 3", "Title 2", "Title 1", "Title 0"), titles);
+        assertEquals(List.of("Title 3", "Title 2", "Title 1"), titles(back));
+    }
+
+    @Test
+    void reject_a_cursor_whose_key_is_not_a_date() {
+        String tampered = Base64.getUrlEncoder().encodeToString("publishedAt|DESC|yesterday|1|F".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> publicationService.getPublicationsByCursor(null, null, null,
+                null, null, tampered, 3, Sort.unsorted()));
+    }
+
+    private static List<String> titles(CursorPage<PublicationDTO> page) {
+        return page.getContent().stream().map(PublicationDTO::getTitle).toList();
+    }
+}
@@ -0,0 +1,109 @@
+package mmf.publication.app.service;
+
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.entity.AppUser;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.KeywordState;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"publication.keywords.async=true", "publication.keywords.pipeline.sweep-interval-ms=3600000"})
+public class KeywordPipelineShould {
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private KeywordPipeline keywordPipeline;
+
+    @Autowired
+    private IAppUserService appUserService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    private AppUser user;
+
+    @BeforeEach
+    void setup() {
+        user = appUserService.registerUser(new AppUserDTO("pipeline", "password"));
+    }
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void extract_the_keywords_after_the_publication_is_saved() throws InterruptedException, PublicationNotFoundException {
+        PublicationDTO created = publicationService.createPublication(request("gamma gamma delta"), "pipeline");
+
+        assertEquals(KeywordState.PENDING, created.getKeywordState());
+        assertNull(created.getFrequentWords());
+
+        PublicationDTO ready = awaitKeywords(created.getId());
+        assertEquals(KeywordState.READY, ready.getKeywordState());
+        assertEquals(Map.of("gamma", 2, "delta", 1), ready.getFrequentWords());
+    }
+
+    @Test
+    void keep_the_previous_keywords_until_the_new_ones_are_ready() throws InterruptedException, PublicationNotFoundException {
+        long id = publicationService.createPublication(request("alpha alpha"), "pipeline").getId();
+        awaitKeywords(id);
+
+        PublicationDTO updated = publicationService.updatePublication(id, request("omega"));
+
+        assertEquals(KeywordState.PENDING, updated.getKeywordState());
+        assertEquals(Map.of("alpha", 2), updated.getFrequentWords());
+        assertEquals(Map.of("omega", 1), awaitKeywords(id).getFrequentWords());
+    }
+
+    @Test
+    void pick_up_publications_left_pending_by_a_previous_run() throws InterruptedException, PublicationNotFoundException {
+        Publication publication = new Publication("Left over", "kappa kappa kappa", 0, LocalDateTime.now(),
+                LocalDateTime.now(), PublicationType.JOURNAL, PublicationStatus.ACTIVE, null);
+        publication.setAppUser(user);
+        publication.setKeywordState(KeywordState.PENDING);
+        long id = publicationRepository.save(publication).getId();
+
+        keywordPipeline.sweep();
+
+        assertEquals(Map.of("kappa", 3), awaitKeywords(id).getFrequentWords());
+    }
+
+    private PublicationDTO awaitKeywords(long id) throws InterruptedException, PublicationNotFoundException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (publicationRepository.findById(id).orElseThrow().getKeywordState() != KeywordState.READY) {
+            assertTrue(System.nanoTime() < deadline, "Keywords were not extracted in time");
+            Thread.sleep(20);
+        }
+        return publicationService.getPublication(id);
+    }
+
+    private static PublicationRequest request(String description) {
+        PublicationRequest request = new PublicationRequest();
+        request.setTitle("Title");
+        request.setDescription(description);
+        request.setType(PublicationType.NEWS);
+        request.setStatus(PublicationStatus.ACTIVE);
+        return request;
+    }
+}
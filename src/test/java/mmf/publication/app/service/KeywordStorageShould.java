@@ -0,0 +1,133 @@
+package mmf.publication.app.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mmf.publication.app.SqlStatementRecorder;
+import mmf.publication.app.dto.CursorPage;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.entity.AppUser;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class KeywordStorageShould {
+    private static final LocalDateTime NOON = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        List<AppUser> users = List.of(
+                appUserRepository.save(new AppUser("keywords-1", "password", new ArrayList<>())),
+                appUserRepository.save(new AppUser("keywords-2", "password", new ArrayList<>())));
+        for (int i = 0; i < 25; i++) {
+            Map<String, Integer> frequentWords = new LinkedHashMap<>();
+            frequentWords.put("word" + i, 3);
+            frequentWords.put("common", 1);
+            Publication publication = new Publication(null, "Title " + i, "Description " + i, 0,
+                    NOON.plusMinutes(i), NOON, PublicationType.NEWS, PublicationStatus.ACTIVE, frequentWords);
+            publication.setAppUser(users.get(i % 2));
+            ids.add(publicationRepository.save(publication).getId());
+        }
+        SqlStatementRecorder.clear();
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS publication_keywords");
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void list_a_cursor_page_with_a_single_statement() {
+        CursorPage<PublicationDTO> page = publicationService.getPublicationsByCursor(null, null, null, null, null,
+                null, 20, Sort.unsorted());
+
+        assertEquals(1, SqlStatementRecorder.statements().size(), SqlStatementRecorder.statements().toString());
+        assertEquals(20, page.getContent().size());
+        assertEquals(Map.of("word24", 3, "common", 1), page.getContent().get(0).getFrequentWords());
+    }
+
+    @Test
+    void list_an_offset_page_with_one_select_and_one_count() {
+        Page<PublicationDTO> page = publicationService.getPublications(null, PublicationStatus.ACTIVE, null, null, null,
+                PageRequest.of(0, 20));
+
+        assertEquals(2, SqlStatementRecorder.statements().size(), SqlStatementRecorder.statements().toString());
+        assertEquals(25, page.getTotalElements());
+        page.getContent().forEach(publication -> assertEquals(2, publication.getFrequentWords().size()));
+    }
+
+    @Test
+    void update_keywords_in_place_with_a_single_update() throws PublicationNotFoundException {
+        publicationService.updatePublication(ids.get(0),
+                new PublicationRequest("Title", "alpha beta alpha", PublicationType.NEWS, PublicationStatus.ACTIVE));
+
+        List<String> statements = SqlStatementRecorder.statements();
+        assertEquals(1, statements.stream().filter(sql -> sql.startsWith("update")).count(), statements.toString());
+        assertTrue(statements.stream().noneMatch(sql -> sql.contains("publication_keywords")), statements.toString());
+        assertEquals(Map.of("alpha", 2, "beta", 1), publicationRepository.findById(ids.get(0)).orElseThrow().getFrequentWords());
+    }
+
+    @Test
+    void read_and_migrate_keywords_left_in_the_legacy_table() {
+        jdbcTemplate.execute("CREATE TABLE publication_keywords (publication_id BIGINT NOT NULL, " +
+                "keyword VARCHAR(255) NOT NULL, frequency INT)");
+        Long legacyId = ids.get(3);
+        jdbcTemplate.update("UPDATE publication SET frequent_words = NULL WHERE id = ?", legacyId);
+        jdbcTemplate.update("INSERT INTO publication_keywords VALUES (?, 'rare', 1), (?, 'often', 5), (?, 'some', 2)",
+                legacyId, legacyId, legacyId);
+
+        LegacyKeywordMigration migration = new LegacyKeywordMigration(jdbcTemplate, transactionManager, new SimpleMeterRegistry(), 2);
+        Publication unmigrated = publicationRepository.findById(legacyId).orElseThrow();
+
+        assertTrue(migration.isPending());
+        assertEquals(List.of("often", "some", "rare"), new ArrayList<>(migration.frequentWordsOf(unmigrated).keySet()));
+
+        migration.migrate();
+
+        Publication migrated = publicationRepository.findById(legacyId).orElseThrow();
+        assertFalse(migration.isPending());
+        assertEquals(List.of("often", "some", "rare"), new ArrayList<>(migrated.getFrequentWords().keySet()));
+        assertEquals(Map.of("word4", 3, "common", 1), publicationRepository.findById(ids.get(4)).orElseThrow().getFrequentWords());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM publication_keywords", Integer.class));
+    }
+}
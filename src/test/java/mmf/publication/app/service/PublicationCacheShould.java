@@ -0,0 +1,103 @@
+package mmf.publication.app.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mmf.publication.app.dto.PublicationDTO;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.events.PublicationSavedEvent;
+import mmf.publication.app.events.ViewCountsFlushedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PublicationCacheShould {
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, PublicationDTO> loader = id -> {
+        loads.incrementAndGet();
+        return publication(id);
+    };
+
+    @Test
+    void load_a_publication_once_until_it_is_saved() {
+        PublicationCache cache = new PublicationCache(new SimpleMeterRegistry(), 1 << 20);
+
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+        Publication saved = new Publication();
+        saved.setId(1L);
+        cache.onPublicationSaved(new PublicationSavedEvent(saved));
+        cache.get(1L, loader);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void add_flushed_views_to_cached_publications_without_reloading_them() {
+        PublicationCache cache = new PublicationCache(new SimpleMeterRegistry(), 1 << 20);
+        int viewCount = cache.get(1L, loader).getViewCount();
+        cache.get(2L, loader);
+
+        cache.onViewCountsFlushed(new ViewCountsFlushedEvent(Map.of(1L, 3L, 9L, 1L), NOW.plusHours(1)));
+        PublicationDTO viewed = cache.get(1L, loader);
+        cache.get(2L, loader);
+
+        assertEquals(viewCount + 3, viewed.getViewCount());
+        assertEquals(NOW.plusHours(1), viewed.getUpdatedAt());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void not_cache_missing_publications() {
+        PublicationCache cache = new PublicationCache(new SimpleMeterRegistry(), 1 << 20);
+
+        assertNull(cache.get(1L, id -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void stay_within_its_size_limit() {
+        long limit = 50 * PublicationCache.estimateSize(publication(1L));
+        PublicationCache cache = new PublicationCache(new SimpleMeterRegistry(), limit);
+
+        for (long id = 1; id <= 1000; id++) {
+            cache.get(id, loader);
+        }
+
+        assertTrue(cache.size() <= 50);
+        assertTrue(cache.estimatedSizeInBytes() <= limit);
+    }
+
+    @Test
+    void keep_frequently_read_publications_during_a_scan() {
+        PublicationCache cache = new PublicationCache(new SimpleMeterRegistry(),
+                50 * PublicationCache.estimateSize(publication(1L)), Runnable::run);
+        AtomicInteger hotLoads = new AtomicInteger();
+        Function<Long, PublicationDTO> hotLoader = id -> {
+            hotLoads.incrementAndGet();
+            return publication(id);
+        };
+
+        for (long id = 2; id <= 5000; id++) {
+            cache.get(id, loader);
+            if (id % 10 == 0) {
+                cache.get(1L, hotLoader);
+            }
+        }
+
+        assertEquals(1, hotLoads.get());
+    }
+
+    private static PublicationDTO publication(long id) {
+        return new PublicationDTO(id, "Title " + id, "A description of publication " + id, 0, NOW, NOW,
+                PublicationType.NEWS, PublicationStatus.ACTIVE, Map.of("description", 1, "publication", 1));
+    }
+}
@@ -0,0 +1,145 @@
+package mmf.publication.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mmf.publication.app.entity.AppUser;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.ExportFormat;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.search.PublicationSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "publication.export.fetch-size=2")
+public class PublicationExportShould {
+    private static final LocalDateTime NOON = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PublicationSearchIndex searchIndex;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        AppUser user = appUserRepository.save(new AppUser("export", "password", new ArrayList<>()));
+        for (int i = 0; i < 5; i++) {
+            Publication publication = new Publication(null, "Title " + i, "Description " + i, i, NOON, NOON,
+                    i % 2 == 0 ? PublicationType.NEWS : PublicationType.JOURNAL, PublicationStatus.ACTIVE, null);
+            publication.setAppUser(user);
+            ids.add(publicationRepository.save(publication).getId());
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void write_every_publication_as_one_json_line_in_id_order() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = publicationService.exportPublications(null, null, null, null, null, null, ExportFormat.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5, count);
+        assertEquals(5, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            JsonNode publication = objectMapper.readTree(lines[i]);
+            assertEquals(ids.get(i), publication.get("id").asLong());
+            assertEquals("Title " + i, publication.get("title").asText());
+        }
+    }
+
+    @Test
+    void resume_after_the_last_exported_id_and_apply_filters() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = publicationService.exportPublications(null, null, PublicationType.NEWS, null, null, ids.get(1),
+                ExportFormat.NDJSON, out);
+
+        List<String> titles = out.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readTree(line).get("title").asText();
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                })
+                .toList();
+        assertEquals(2, count);
+        assertEquals(List.of("Title 2", "Title 4"), titles);
+    }
+
+    @Test
+    void quote_csv_fields_that_contain_separators() throws IOException {
+        Publication publication = publicationRepository.findById(ids.get(0)).orElseThrow();
+        publication.setTitle("Commas, \"quotes\"");
+        publication.setDescription("two\nlines");
+        Map<String, Integer> words = new LinkedHashMap<>();
+        words.put("alpha", 2);
+        words.put("beta", 1);
+        publication.setFrequentWords(words);
+        publicationRepository.save(publication);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        publicationService.exportPublications(null, null, null, null, null, null, ExportFormat.CSV, out);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.startsWith(PublicationExporter.CSV_HEADER + "\r\n"));
+        assertTrue(csv.contains(ids.get(0) + ",\"Commas, \"\"quotes\"\"\",\"two\nlines\",0,2025-06-01T12:00,"));
+        assertTrue(csv.contains(",NEWS,ACTIVE,alpha:2 beta:1\r\n"));
+        assertEquals(6, csv.split("\r\n").length);
+    }
+
+    @Test
+    void stream_search_hits_from_the_index_a_chunk_at_a_time() throws IOException {
+        searchIndex.rebuild();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = publicationService.exportPublications("description", null, null, null, null, ids.get(0),
+                ExportFormat.NDJSON, out);
+
+        List<Long> exported = out.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readTree(line).get("id").asLong();
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                })
+                .toList();
+        assertEquals(4, count);
+        assertEquals(ids.subList(1, 5), exported);
+    }
+}
@@ -0,0 +1,110 @@
+package mmf.publication.app.service;
+
+import mmf.publication.app.SqlStatementRecorder;
+import mmf.publication.app.dto.BatchIngestResult;
+import mmf.publication.app.entity.AppUser;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.search.PublicationSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"publication.ingest.batch-size=2", "publication.ingest.max-reported-errors=2"})
+public class PublicationIngestShould {
+    @Autowired
+    private IPublicationIngestService ingestService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private PublicationSearchIndex searchIndex;
+
+    @BeforeEach
+    void setup() {
+        appUserRepository.save(new AppUser("ingest-1", "password", new ArrayList<>()));
+        appUserRepository.save(new AppUser("ingest-2", "password", new ArrayList<>()));
+    }
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void store_every_valid_line_with_its_keywords() throws IOException {
+        BatchIngestResult result = ingest(
+                line("ingest-1", "First", "alpha beta alpha"),
+                line("ingest-2", "Second", "gamma"),
+                "",
+                line("ingest-1", "Third", "delta delta"));
+
+        assertEquals(3, result.getReceived());
+        assertEquals(3, result.getAccepted());
+        assertEquals(0, result.getRejected());
+
+        List<Publication> publications = publicationRepository.findAll(Sort.by("id"));
+        assertEquals(List.of("First", "Second", "Third"), publications.stream().map(Publication::getTitle).toList());
+        assertEquals(Map.of("alpha", 2, "beta", 1), publications.get(0).getFrequentWords());
+        assertEquals(List.of(publications.get(2).getId()), searchIndex.search("delta", null, null, null, null));
+    }
+
+    @Test
+    void report_rejected_lines_and_keep_going() throws IOException {
+        BatchIngestResult result = ingest(
+                line("ingest-1", "Good", "text"),
+                "{not json",
+                line("nobody", "Orphan", "text"),
+                line("ingest-2", "", "text"),
+                line("ingest-2", "Also good", "text"));
+
+        assertEquals(5, result.getReceived());
+        assertEquals(2, result.getAccepted());
+        assertEquals(3, result.getRejected());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(2, result.getErrors().get(0).getLine());
+        assertEquals(3, result.getErrors().get(1).getLine());
+        assertTrue(result.getErrors().get(1).getMessage().contains("nobody"));
+        assertEquals(2, publicationRepository.count());
+    }
+
+    @Test
+    void look_up_each_username_once() throws IOException {
+        SqlStatementRecorder.clear();
+
+        ingest(line("ingest-1", "1", "a"), line("ingest-1", "2", "b"),
+                line("ingest-1", "3", "c"), line("ingest-2", "4", "d"),
+                line("ingest-1", "5", "e"), line("ingest-2", "6", "f"));
+
+        // One lookup for the first chunk, one for ingest-2 in the second, none for the third
+        assertEquals(2, SqlStatementRecorder.statements().stream().filter(sql -> sql.contains("app_user")).count());
+    }
+
+    private BatchIngestResult ingest(String... lines) throws IOException {
+        byte[] ndjson = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return ingestService.ingest(new ByteArrayInputStream(ndjson));
+    }
+
+    private static String line(String username, String title, String description) {
+        return "{\"username\":\"" + username + "\",\"title\":\"" + title + "\",\"description\":\"" + description +
+                "\",\"type\":\"NEWS\",\"status\":\"ACTIVE\"}";
+    }
+}
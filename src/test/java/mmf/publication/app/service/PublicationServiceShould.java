@@ -1,26 +1,38 @@
 package mmf.publication.app.service;
 
+import mmf.publication.app.archive.PublicationArchive;
 import mmf.publication.app.dto.PublicationDTO;
 import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.dto.SimilarPublicationDTO;
 import mmf.publication.app.entity.Publication;
 import mmf.publication.app.enums.PublicationStatus;
 import mmf.publication.app.enums.PublicationType;
 import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.events.PublicationSavedEvent;
 import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.search.InvertedIndex;
+import mmf.publication.app.search.PublicationSearchIndex;
+import mmf.publication.app.similar.MinHashIndex;
+import mmf.publication.app.similar.PublicationSimilarityIndex;
+import mmf.publication.app.stats.PublicationStatistics;
+import mmf.publication.app.trending.TrendingKeywords;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -32,12 +44,52 @@ public class PublicationServiceShould {
     @Mock
     private AppUserService appUserService;
 
+    @Mock
+    private ViewCountBuffer viewCountBuffer;
+
+    @Mock
+    private PublicationSearchIndex searchIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private KeywordExtractor keywordExtractor;
+
+    @Mock
+    private PublicationCache publicationCache;
+
+    @Mock
+    private LegacyKeywordMigration legacyKeywords;
+
+    @Mock
+    private PublicationExporter publicationExporter;
+
+    @Mock
+    private TrendingKeywords trendingKeywords;
+
+    @Mock
+    private KeywordPipeline keywordPipeline;
+
+    @Mock
+    private PublicationStatistics statistics;
+
+    @Mock
+    private PublicationSimilarityIndex similarityIndex;
+
+    @Mock
+    private PublicationArchive publicationArchive;
+
     @InjectMocks
     private PublicationService publicationService;
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
+        when(publicationCache.get(anyLong(), any())).thenAnswer(invocation ->
+                invocation.<Function<Long, PublicationDTO>>getArgument(1).apply(invocation.getArgument(0)));
+        when(legacyKeywords.frequentWordsOf(any())).thenAnswer(invocation ->
+                invocation.<Publication>getArgument(0).getFrequentWords());
     }
 
     @Test
@@ -66,6 +118,7 @@ public class PublicationServiceShould {
         assertEquals("Test Description", result.getDescription());
         assertEquals(PublicationType.NEWS, result.getType());
         assertEquals(PublicationStatus.ACTIVE, result.getStatus());
+        verify(eventPublisher, times(1)).publishEvent(any(PublicationSavedEvent.class));
     }
 
     @Test
@@ -112,7 +165,29 @@ public class PublicationServiceShould {
     }
 
     @Test
-    void increment_number_of_views_for_a_publication() {
+    void increment_number_of_views_for_a_publication() throws PublicationNotFoundException {
+        Long publicationId = 1L;
+        when(publicationCache.contains(publicationId)).thenReturn(true);
+
+        publicationService.incrementViewCount(publicationId);
+
+        verify(viewCountBuffer, times(1)).increment(publicationId);
+        verifyNoInteractions(publicationRepository);
+    }
+
+    @Test
+    void not_count_views_of_unknown_publications() {
+        Long publicationId = 404L;
+        when(publicationRepository.existsById(publicationId)).thenReturn(false);
+        when(publicationArchive.findVersionById(publicationId)).thenReturn(Optional.empty());
+
+        assertThrows(PublicationNotFoundException.class, () -> publicationService.incrementViewCount(publicationId));
+
+        verifyNoInteractions(viewCountBuffer);
+    }
+
+    @Test
+    void include_unflushed_views_when_getting_a_publication() throws PublicationNotFoundException {
         Long publicationId = 1L;
 
         Publication publication = new Publication();
@@ -120,11 +195,11 @@ public class PublicationServiceShould {
         publication.setViewCount(5);
 
         when(publicationRepository.findById(publicationId)).thenReturn(Optional.of(publication));
+        when(viewCountBuffer.pendingViews(publicationId)).thenReturn(3L);
 
-        publicationService.incrementViewCount(publicationId);
+        PublicationDTO result = publicationService.getPublication(publicationId);
 
-        assertEquals(6, publication.getViewCount());
-        verify(publicationRepository, times(1)).save(publication);
+        assertEquals(8, result.getViewCount());
     }
 
     @Test
@@ -151,4 +226,76 @@ public class PublicationServiceShould {
         assertEquals("Title 1", result.getContent().get(0).getTitle());
         assertEquals("Title 2", result.getContent().get(1).getTitle());
     }
+
+    @Test
+    void get_searched_publications_from_the_index_in_ranking_order() {
+        Pageable pageable = PageRequest.of(0, 2);
+        Publication publication2 = new Publication();
+        publication2.setId(2L);
+        publication2.setTitle("Title 2");
+
+        Publication publication3 = new Publication();
+        publication3.setId(3L);
+        publication3.setTitle("Title 3");
+
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("title", PublicationStatus.ACTIVE, null, null, null)).thenReturn(List.of(3L, 2L, 1L));
+        when(publicationRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(publication2, publication3));
+
+        Page<PublicationDTO> result = publicationService.getPublications("title", PublicationStatus.ACTIVE, null, null, null, pageable);
+
+        assertEquals(3, result.getTotalElements());
+        assertEquals("Title 3", result.getContent().get(0).getTitle());
+        assertEquals("Title 2", result.getContent().get(1).getTitle());
+        verify(publicationRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void let_the_index_order_a_search_sorted_by_publication_time() {
+        Sort newestFirst = Sort.by(Sort.Direction.DESC, "publishedAt");
+        Pageable pageable = PageRequest.of(1, 1, newestFirst);
+        Publication publication2 = new Publication();
+        publication2.setId(2L);
+        publication2.setTitle("Title 2");
+
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.canSort(newestFirst)).thenReturn(true);
+        when(searchIndex.search("title", null, null, null, null, newestFirst, 1, 1,
+                InvertedIndex.Tier.CURRENT))
+                .thenReturn(new InvertedIndex.SortedHits(List.of(2L), 3));
+        when(publicationRepository.findAllById(List.of(2L))).thenReturn(List.of(publication2));
+
+        Page<PublicationDTO> result = publicationService.getPublications("title", null, null, null, null, pageable);
+
+        assertEquals(3, result.getTotalElements());
+        assertEquals("Title 2", result.getContent().get(0).getTitle());
+        verify(publicationRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void get_similar_publications_in_similarity_order() throws PublicationNotFoundException {
+        Publication publication2 = new Publication();
+        publication2.setId(2L);
+        publication2.setTitle("Title 2");
+
+        Publication publication3 = new Publication();
+        publication3.setId(3L);
+        publication3.setTitle("Title 3");
+
+        when(similarityIndex.contains(1L)).thenReturn(true);
+        when(similarityIndex.similar(1L, 10)).thenReturn(List.of(new MinHashIndex.Match(3L, 0.75), new MinHashIndex.Match(2L, 0.5)));
+        when(publicationRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(publication2, publication3));
+
+        List<SimilarPublicationDTO> result = publicationService.getSimilarPublications(1L, 10);
+
+        assertEquals(List.of("Title 3", "Title 2"), result.stream().map(SimilarPublicationDTO::getTitle).toList());
+        assertEquals(0.75, result.get(0).getSimilarity());
+    }
+
+    @Test
+    void throw_exception_when_getting_publications_similar_to_a_non_existing_one() {
+        when(publicationRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(PublicationNotFoundException.class, () -> publicationService.getSimilarPublications(1L, 10));
+    }
 }
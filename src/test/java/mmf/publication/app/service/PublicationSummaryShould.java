@@ -0,0 +1,129 @@
+package mmf.publication.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mmf.publication.app.SqlStatementRecorder;
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.search.PublicationSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PublicationSummaryShould {
+    private static final String LONG_DESCRIPTION = "word ".repeat(1000);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private IAppUserService appUserService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private PublicationSearchIndex searchIndex;
+
+    @BeforeEach
+    void setup() {
+        appUserService.registerUser(new AppUserDTO("summarized", "password"));
+        publicationService.createPublication(new PublicationRequest("Long", LONG_DESCRIPTION,
+                PublicationType.NEWS, PublicationStatus.ACTIVE), "summarized");
+        publicationService.createPublication(new PublicationRequest("Short", "Few words",
+                PublicationType.JOURNAL, PublicationStatus.ACTIVE), "summarized");
+    }
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void let_the_database_cut_the_excerpt_instead_of_reading_the_description() throws Exception {
+        SqlStatementRecorder.clear();
+
+        JsonNode page = summaries("/api/publications/summaries?fields=title,excerpt&excerptLength=20&sort=title");
+
+        List<String> selects = SqlStatementRecorder.statements().stream()
+                .filter(sql -> sql.startsWith("select")).toList();
+        // The description is only read through the substring
+        assertTrue(selects.get(0).matches("select .*substring\\(\\w+\\.description,.* from .*"), selects.toString());
+        assertFalse(selects.get(0).replaceFirst("substring\\(\\w+\\.description", "").contains(".description"),
+                selects.toString());
+
+        JsonNode content = page.get("content");
+        assertEquals(2, page.get("totalElements").asInt());
+        assertEquals("Long", content.get(0).get("title").asText());
+        assertEquals(LONG_DESCRIPTION.substring(0, 20), content.get(0).get("excerpt").asText());
+        assertTrue(content.get(0).get("truncated").asBoolean());
+        assertEquals("Few words", content.get(1).get("excerpt").asText());
+        assertFalse(content.get(1).get("truncated").asBoolean());
+    }
+
+    @Test
+    void leave_the_fields_that_were_not_requested_out_of_the_json() throws Exception {
+        JsonNode summary = summaries("/api/publications/summaries?fields=title,viewCount&type=JOURNAL")
+                .get("content").get(0);
+
+        assertEquals("Short", summary.get("title").asText());
+        assertEquals(0, summary.get("viewCount").asInt());
+        assertTrue(summary.has("id"));
+        assertFalse(summary.has("excerpt"));
+        assertFalse(summary.has("status"));
+        assertFalse(summary.has("publishedAt"));
+    }
+
+    @Test
+    void reject_unknown_fields_and_excerpt_lengths_out_of_range() throws Exception {
+        mockMvc.perform(get("/api/publications/summaries?fields=title,description"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/publications/summaries?excerptLength=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/publications/summaries?excerptLength=2001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void page_search_hits_sorted_by_id_in_the_index() throws Exception {
+        searchIndex.rebuild();
+
+        JsonNode page = summaries("/api/publications/summaries?fields=title&search=word&sort=id,desc&size=1");
+
+        assertEquals(2, page.get("totalElements").asInt());
+        assertEquals(1, page.get("content").size());
+        assertEquals("Short", page.get("content").get(0).get("title").asText());
+    }
+
+    private JsonNode summaries(String uri) throws Exception {
+        String body = mockMvc.perform(get(uri)).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
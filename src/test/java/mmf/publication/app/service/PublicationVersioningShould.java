@@ -0,0 +1,124 @@
+package mmf.publication.app.service;
+
+import mmf.publication.app.SqlStatementRecorder;
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PublicationVersioningShould {
+    private static final String UPDATE = "{\"title\":\"New title\",\"description\":\"New words\",\"type\":\"NEWS\",\"status\":\"ACTIVE\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private IAppUserService appUserService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    private long id;
+
+    @BeforeEach
+    void setup() {
+        appUserService.registerUser(new AppUserDTO("versioned", "password"));
+        id = publicationService.createPublication(new PublicationRequest("Title", "Some words",
+                PublicationType.NEWS, PublicationStatus.ACTIVE), "versioned").getId();
+    }
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void answer_an_unchanged_publication_with_304_after_reading_only_its_version() throws Exception {
+        SqlStatementRecorder.clear();
+
+        mockMvc.perform(get("/api/publications/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "W/\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"0\""));
+
+        List<String> statements = SqlStatementRecorder.statements();
+        assertEquals(1, statements.size(), statements.toString());
+        assertTrue(statements.get(0).matches("select \\w+\\.version from publication .*"), statements.toString());
+
+        // A strong tag of the same version, as writes return, matches too
+        mockMvc.perform(get("/api/publications/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/publications/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"0\""));
+    }
+
+    @Test
+    void update_only_the_version_named_in_if_match() throws Exception {
+        mockMvc.perform(put("/api/publications/{id}", id).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(UPDATE))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        // A client still holding version 0 would overwrite the update it never saw
+        mockMvc.perform(put("/api/publications/{id}", id).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(UPDATE))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/api/publications/{id}", id).header(HttpHeaders.IF_MATCH, "W/\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(UPDATE))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals(1, publicationRepository.findById(id).orElseThrow().getVersion());
+
+        mockMvc.perform(put("/api/publications/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON).content(UPDATE.replace("New words", "Other words")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+    }
+
+    @Test
+    void answer_an_unchanged_page_with_304_until_a_publication_on_it_changes() throws Exception, PublicationNotFoundException {
+        MvcResult first = mockMvc.perform(get("/api/publications")).andExpect(status().isOk()).andReturn();
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        mockMvc.perform(get("/api/publications").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        assertEquals(0, mockMvc.perform(get("/api/publications").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andReturn().getResponse().getContentLength());
+
+        publicationService.updatePublicationStatus(id, PublicationStatus.INACTIVE);
+
+        MvcResult changed = mockMvc.perform(get("/api/publications").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk()).andReturn();
+        assertNotEquals(eTag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+}
@@ -0,0 +1,146 @@
+package mmf.publication.app.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mmf.publication.app.controller.AuthController;
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.entity.AppUser;
+import mmf.publication.app.exceptions.UsernameTakenException;
+import mmf.publication.app.repository.AppUserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class RegistrationShould {
+    @Autowired
+    private AuthController authController;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @AfterEach
+    void cleanup() {
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void reject_a_taken_username_with_409_without_hashing_its_password() {
+        assertEquals(200, authController.register(new AppUserDTO("taken", "password")).getStatusCode().value());
+        long hashed = meterRegistry.get("publication.auth.hashing").timer().count();
+
+        assertEquals(409, authController.register(new AppUserDTO("taken", "other")).getStatusCode().value());
+        assertEquals(hashed, meterRegistry.get("publication.auth.hashing").timer().count());
+        assertEquals(1, appUserRepository.count());
+    }
+
+    @Test
+    void reject_a_missing_or_overlong_username_and_an_empty_password_with_400() {
+        assertEquals(400, authController.register(new AppUserDTO(null, "password")).getStatusCode().value());
+        assertEquals(400, authController.register(new AppUserDTO(" ", "password")).getStatusCode().value());
+        assertEquals(400, authController.register(new AppUserDTO("x".repeat(51), "password")).getStatusCode().value());
+        assertEquals(400, authController.register(new AppUserDTO("nopassword", null)).getStatusCode().value());
+        assertEquals(0, appUserRepository.count());
+    }
+
+    @Test
+    void answer_409_when_the_unique_key_catches_a_name_the_filter_missed() {
+        UsernameFilter filter = new UsernameFilter(dataSource, new SimpleMeterRegistry(), 1000, 0.01, 100);
+        filter.warm();
+        appUserRepository.save(new AppUser("raced", "hash", null));
+        AppUserService service = new AppUserService(appUserRepository, passwordHasher, filter, new SimpleMeterRegistry(),
+                100, Duration.ofHours(1), Duration.ofSeconds(30));
+
+        assertThrows(UsernameTakenException.class, () -> service.registerUser(new AppUserDTO("raced", "password")));
+    }
+
+    @Test
+    void never_forget_a_username_and_rarely_claim_an_unknown_one() {
+        for (int i = 0; i < 500; i++) {
+            appUserRepository.save(new AppUser("warm" + i, "hash", null));
+        }
+        UsernameFilter filter = new UsernameFilter(dataSource, new SimpleMeterRegistry(), 1000, 0.01, 100);
+        assertTrue(filter.mightContain("anybody"), "An unwarmed filter cannot rule anything out");
+
+        filter.warm();
+        for (int i = 0; i < 1000; i++) {
+            filter.add("added" + i);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            assertTrue(filter.mightContain("warm" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("added" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("unknown" + i)) {
+                falsePositives++;
+            }
+        }
+        // Filled to 1.5 times its expected size, the rate rises to about 4%
+        assertTrue(falsePositives < 800, falsePositives + " false positives");
+    }
+
+    @Test
+    void reject_hashes_beyond_the_queue() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PasswordHasher hasher = new PasswordHasher(blockingEncoder(started, release), registry, 1, 1);
+        Thread running = Thread.ofVirtual().start(() -> hasher.hash("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread queued = Thread.ofVirtual().start(() -> hasher.hash("second"));
+        while (registry.get("publication.auth.hashing.queue").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(RejectedExecutionException.class, () -> hasher.hash("third"));
+        assertEquals(1, registry.get("publication.auth.hashing.rejected").counter().count());
+        release.countDown();
+        running.join();
+        queued.join();
+        assertEquals("hashed:second", hasher.hash("second"));
+        hasher.close();
+    }
+
+    private static PasswordEncoder blockingEncoder(CountDownLatch started, CountDownLatch release) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hashed:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encode(rawPassword).equals(encodedPassword);
+            }
+        };
+    }
+}
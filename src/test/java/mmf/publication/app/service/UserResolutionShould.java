@@ -0,0 +1,90 @@
+package mmf.publication.app.service;
+
+import mmf.publication.app.SqlStatementRecorder;
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class UserResolutionShould {
+    // The app_user table itself, not the app_user_id column of publication
+    private static final Pattern APP_USER_TABLE = Pattern.compile("\\bapp_user\\b(?!_)");
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private IAppUserService appUserService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void create_a_publication_with_a_single_insert_once_the_owner_is_known() {
+        appUserService.registerUser(new AppUserDTO("resolver", "password"));
+        SqlStatementRecorder.clear();
+
+        long id = publicationService.createPublication(request(), "resolver").getId();
+
+        List<String> statements = SqlStatementRecorder.statements();
+        assertEquals(1, statements.size(), statements.toString());
+        assertTrue(statements.get(0).startsWith("insert"));
+        assertEquals("resolver", appUserRepository.findById(
+                publicationRepository.findById(id).orElseThrow().getAppUser().getId()).orElseThrow().getUsername());
+    }
+
+    @Test
+    void look_up_an_unknown_username_only_once_until_it_is_registered() {
+        SqlStatementRecorder.clear();
+
+        assertThrows(UsernameNotFoundException.class, () -> publicationService.createPublication(request(), "latecomer"));
+        assertThrows(UsernameNotFoundException.class, () -> publicationService.createPublication(request(), "latecomer"));
+        assertEquals(1, SqlStatementRecorder.statements().size(), SqlStatementRecorder.statements().toString());
+
+        appUserService.registerUser(new AppUserDTO("latecomer", "password"));
+        assertNotNull(publicationService.createPublication(request(), "latecomer").getId());
+    }
+
+    @Test
+    void read_publications_without_loading_their_owner() throws PublicationNotFoundException {
+        appUserService.registerUser(new AppUserDTO("reader", "password"));
+        long id = publicationService.createPublication(request(), "reader").getId();
+        SqlStatementRecorder.clear();
+
+        publicationService.getPublication(id);
+        publicationService.getPublicationsByCursor(null, null, null, null, null, null, 20, Sort.unsorted());
+
+        List<String> statements = SqlStatementRecorder.statements();
+        assertEquals(2, statements.size(), statements.toString());
+        assertTrue(statements.stream().noneMatch(sql -> APP_USER_TABLE.matcher(sql).find()), statements.toString());
+    }
+
+    private static PublicationRequest request() {
+        return new PublicationRequest("Title", "Some words about some things", PublicationType.NEWS,
+                PublicationStatus.ACTIVE);
+    }
+}
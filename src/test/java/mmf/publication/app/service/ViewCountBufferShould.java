@@ -0,0 +1,135 @@
+package mmf.publication.app.service;
+
+import mmf.publication.app.events.ViewCountsFlushedEvent;
+import mmf.publication.app.repository.PublicationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class ViewCountBufferShould {
+    @TempDir
+    Path journalDir;
+
+    private PublicationRepository publicationRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private ViewCountBuffer viewCountBuffer;
+
+    @BeforeEach
+    void setup() {
+        publicationRepository = mock(PublicationRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        viewCountBuffer = new ViewCountBuffer(publicationRepository, eventPublisher, journalDir.toString(), 4, 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_accumulated_views_as_deltas() {
+        viewCountBuffer.increment(1L);
+        viewCountBuffer.increment(1L);
+        viewCountBuffer.increment(2L);
+
+        assertEquals(2, viewCountBuffer.pendingViews(1L));
+
+        viewCountBuffer.flush();
+
+        ArgumentCaptor<Map<Long, Long>> batch = ArgumentCaptor.forClass(Map.class);
+        verify(publicationRepository, times(1)).addViewCounts(batch.capture(), any());
+        assertEquals(Map.of(1L, 2L, 2L, 1L), batch.getValue());
+        assertEquals(0, viewCountBuffer.pendingViews(1L));
+
+        ArgumentCaptor<ViewCountsFlushedEvent> event = ArgumentCaptor.forClass(ViewCountsFlushedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(Map.of(1L, 2L, 2L, 1L), event.getValue().getViewCountDeltas());
+    }
+
+    @Test
+    void split_flushes_into_batches_of_the_maximum_size() {
+        viewCountBuffer.increment(1L);
+        viewCountBuffer.increment(2L);
+        viewCountBuffer.increment(3L);
+
+        viewCountBuffer.flush();
+
+        verify(publicationRepository, times(2)).addViewCounts(anyMap(), any());
+    }
+
+    @Test
+    void keep_views_pending_when_the_flush_fails() {
+        doThrow(new RuntimeException("database is down")).when(publicationRepository).addViewCounts(anyMap(), any());
+        viewCountBuffer.increment(1L);
+
+        viewCountBuffer.flush();
+
+        assertEquals(1, viewCountBuffer.pendingViews(1L));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void recover_unflushed_views_from_the_journal_after_a_crash() {
+        viewCountBuffer.increment(1L);
+        viewCountBuffer.increment(1L);
+        viewCountBuffer.syncJournal();
+
+        ViewCountBuffer restarted = new ViewCountBuffer(publicationRepository, eventPublisher, journalDir.toString(), 4, 2);
+
+        assertEquals(2, restarted.pendingViews(1L));
+    }
+
+    @Test
+    void not_replay_views_that_were_already_flushed() throws Exception {
+        viewCountBuffer.increment(1L);
+        viewCountBuffer.flush();
+        viewCountBuffer.close();
+
+        ViewCountBuffer restarted = new ViewCountBuffer(publicationRepository, eventPublisher, journalDir.toString(), 4, 2);
+
+        assertEquals(0, restarted.pendingViews(1L));
+    }
+
+    @Test
+    void replay_only_the_batches_that_failed_after_a_partial_flush() {
+        doThrow(new RuntimeException("database is down")).when(publicationRepository)
+                .addViewCounts(argThat(batch -> batch.containsKey(3L)), any());
+        viewCountBuffer.increment(1L);
+        viewCountBuffer.increment(2L);
+        viewCountBuffer.increment(3L);
+
+        viewCountBuffer.flush();
+
+        ViewCountBuffer restarted = new ViewCountBuffer(publicationRepository, eventPublisher, journalDir.toString(), 4, 2);
+
+        assertEquals(0, restarted.pendingViews(1L));
+        assertEquals(0, restarted.pendingViews(2L));
+        assertEquals(1, restarted.pendingViews(3L));
+    }
+
+    @Test
+    void add_views_made_during_the_query_and_give_up_when_a_flush_wrote_meanwhile() {
+        viewCountBuffer.increment(1L);
+
+        // The journal syncs while the query runs; a view arriving then is pending afterwards
+        ViewCountBuffer.ViewTotal total = viewCountBuffer.withPendingViews(() -> {
+            viewCountBuffer.syncJournal();
+            viewCountBuffer.increment(2L);
+            return 10;
+        }, () -> 7).orElseThrow();
+        assertEquals(12, total.getViews());
+        assertEquals(7, total.getCounted());
+
+        assertTrue(viewCountBuffer.withPendingViews(() -> {
+            viewCountBuffer.flush();
+            return 12;
+        }, () -> 7).isEmpty());
+    }
+}
@@ -0,0 +1,139 @@
+package mmf.publication.app.service;
+
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.IntRange;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WordFrequencyCounterShould {
+    private static final String[] WORDS = {"java", "Java", "spring", "boot", "news", "the", "a", "i18n", "x"};
+
+    private final WordFrequencyCounter counter = new WordFrequencyCounter();
+
+    @Test
+    void order_words_by_frequency_then_first_occurrence() {
+        Map<String, Integer> topWords = counter.topWords("b a c a b d", 3);
+
+        assertEquals(List.of("b", "a", "c"), new ArrayList<>(topWords.keySet()));
+        assertEquals(List.of(2, 2, 1), new ArrayList<>(topWords.values()));
+    }
+
+    @Test
+    void join_words_split_only_by_removed_characters() {
+        Map<String, Integer> topWords = counter.topWords("Don't stop,\nme-now DONT", 5);
+
+        assertEquals(Map.of("dont", 2, "stopmenow", 1), topWords);
+    }
+
+    @Test
+    void keep_non_ascii_characters_that_lower_case_to_ascii() {
+        Map<String, Integer> topWords = counter.topWords("İstanbul Kelvin café", 5);
+
+        assertEquals(Map.of("istanbul", 1, "kelvin", 1, "caf", 1), topWords);
+    }
+
+    @Test
+    void grow_buffers_sized_for_a_shorter_text() {
+        WordFrequencyCounter small = new WordFrequencyCounter(Locale.ROOT, 4);
+
+        Map<String, Integer> topWords = small.topWords("b a c a b d e f g h i j k l m n o p q r s t u v a", 2);
+
+        assertEquals(Map.of("a", 3, "b", 2), topWords);
+    }
+
+    @Property
+    void find_the_same_words_as_the_regex_implementation(@ForAll("descriptions") String description,
+                                                         @ForAll @IntRange(min = 0, max = 8) int k) {
+        Map<String, Integer> expected = LegacyFrequentWords.topWords(description, k);
+        Map<String, Integer> allCounts = LegacyFrequentWords.countWords(description);
+
+        Map<String, Integer> actual = counter.topWords(description, k);
+
+        // Ties at the cut-off were broken arbitrarily before, so compare counts rather than words
+        assertEquals(sortedCounts(expected), new ArrayList<>(actual.values()));
+        actual.forEach((word, count) -> assertEquals(allCounts.get(word), count, word));
+        int weakest = actual.values().stream().mapToInt(Integer::intValue).min().orElse(Integer.MAX_VALUE);
+        expected.forEach((word, count) -> {
+            if (count > weakest) {
+                assertTrue(actual.containsKey(word), word);
+            }
+        });
+    }
+
+    @Property
+    void be_reusable_across_calls(@ForAll("descriptions") String first, @ForAll("descriptions") String second) {
+        counter.topWords(first, 5);
+
+        assertEquals(sortedCounts(LegacyFrequentWords.topWords(second, 5)),
+                new ArrayList<>(counter.topWords(second, 5).values()));
+    }
+
+    @Provide
+    Arbitrary<String> descriptions() {
+        Arbitrary<String> words = Arbitraries.of(WORDS);
+        Arbitrary<String> noise = Arbitraries.strings()
+                .withChars("aAzZ09 \t\n.,'-_éİKß")
+                .withCharRange('\u0000', 'ÿ')
+                .ofMaxLength(12);
+        Arbitrary<String> separators = Arbitraries.of(" ", "  ", "\n", ", ", "-", "\t ");
+        Arbitrary<String> tokens = Arbitraries.frequencyOf(Tuple.of(5, words), Tuple.of(1, noise));
+
+        return Combinators.combine(tokens.list().ofMaxSize(60), separators.list().ofMaxSize(60))
+                .as((tokenList, separatorList) -> {
+                    StringBuilder description = new StringBuilder();
+                    for (int i = 0; i < tokenList.size(); i++) {
+                        description.append(tokenList.get(i));
+                        if (!separatorList.isEmpty()) {
+                            description.append(separatorList.get(i % separatorList.size()));
+                        }
+                    }
+                    return description.toString();
+                });
+    }
+
+    private static List<Integer> sortedCounts(Map<String, Integer> words) {
+        return words.values().stream().sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+
+    /**
+     * The regex, HashMap and PriorityQueue implementation the counter replaced, kept as the oracle.
+     */
+    static final class LegacyFrequentWords {
+        static Map<String, Integer> countWords(String description) {
+            String[] words = description.toLowerCase().replaceAll("[^a-zA-Z0-9 ]", "").split("\\s+");
+
+            Map<String, Integer> wordCount = new HashMap<>();
+            for (String word : words) {
+                if (!word.isEmpty()) {
+                    wordCount.put(word, wordCount.getOrDefault(word, 0) + 1);
+                }
+            }
+            return wordCount;
+        }
+
+        static Map<String, Integer> topWords(String description, int k) {
+            PriorityQueue<Map.Entry<String, Integer>> minHeap =
+                    new PriorityQueue<>(Comparator.comparingInt(Map.Entry::getValue));
+
+            for (Map.Entry<String, Integer> entry : countWords(description).entrySet()) {
+                minHeap.offer(entry);
+
+                if (minHeap.size() > k) {
+                    minHeap.poll();
+                }
+            }
+
+            return minHeap.stream()
+                    .sorted((a, b) -> b.getValue().compareTo(a.getValue()))
+                    .collect(Collectors.toMap(
+                            Map.Entry::getKey,
+                            Map.Entry::getValue,
+                            (e1, e2) -> e1,
+                            LinkedHashMap::new));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package mmf.publication.app.similar;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MinHashIndexShould {
+    private MinHashIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new MinHashIndex(50, 2, 1000, 42);
+        index.index(1L, List.of("spring", "boot", "java", "threads", "virtual"));
+        index.index(2L, List.of("spring", "boot", "java", "threads", "kotlin"));
+        index.index(3L, List.of("spring", "boot", "gradle", "maven", "build"));
+        index.index(4L, List.of("cooking", "pasta", "tomato", "basil", "garlic"));
+    }
+
+    @Test
+    void find_the_most_similar_documents_first() {
+        List<Long> ids = ids(index.similar(1L, 10, 0.1));
+
+        assertEquals(List.of(2L, 3L), ids);
+    }
+
+    @Test
+    void leave_out_matches_below_the_minimum_similarity_and_beyond_the_limit() {
+        assertEquals(List.of(2L), ids(index.similar(1L, 10, 0.5)));
+        assertEquals(List.of(2L), ids(index.similar(1L, 1, 0.1)));
+    }
+
+    @Test
+    void estimate_the_jaccard_similarity() {
+        Random random = new Random(7);
+        MinHashIndex precise = new MinHashIndex(100, 2, 1000, 42);
+        Set<String> base = words(random, 30);
+        Set<String> other = new HashSet<>(base);
+        other.removeAll(List.copyOf(base).subList(0, 10));
+        other.addAll(words(random, 10));
+        precise.index(1L, base);
+        precise.index(2L, other);
+
+        double estimate = precise.similar(1L, 1, 0).get(0).getSimilarity();
+
+        assertEquals(MinHashIndex.jaccard(base, other), estimate, 0.1);
+    }
+
+    @Test
+    void replace_the_signature_of_a_reindexed_document() {
+        index.index(2L, List.of("cooking", "pasta", "tomato", "basil", "olive"));
+
+        assertEquals(List.of(3L), ids(index.similar(1L, 10, 0.1)));
+        assertEquals(List.of(2L), ids(index.similar(4L, 10, 0.1)));
+    }
+
+    @Test
+    void remove_documents_indexed_without_tokens() {
+        index.index(2L, List.of());
+
+        assertFalse(index.contains(2L));
+        assertEquals(List.of(), index.similar(2L, 10, 0));
+        assertEquals(List.of(3L), ids(index.similar(1L, 10, 0.1)));
+    }
+
+    @Test
+    void reuse_the_slots_of_removed_documents() {
+        for (long id = 10; id < 3000; id++) {
+            index.index(id, List.of("filler" + id));
+        }
+        for (long id = 10; id < 3000; id++) {
+            index.remove(id);
+        }
+        index.index(5L, List.of("spring", "boot", "java", "threads", "virtual"));
+
+        assertEquals(5, index.documentCount());
+        assertEquals(5L, index.similar(1L, 1, 0.1).get(0).getId());
+    }
+
+    @Test
+    void keep_finding_the_documents_left_between_removed_ones() {
+        for (long id = 10; id < 3000; id++) {
+            index.index(id, List.of("filler" + id, "shared" + id % 7));
+        }
+        for (long id = 10; id < 3000; id += 2) {
+            index.remove(id);
+        }
+
+        assertEquals(4 + 1495, index.documentCount());
+        for (long id = 10; id < 3000; id++) {
+            assertEquals(id % 2 == 1, index.contains(id), "document " + id);
+        }
+        assertTrue(ids(index.similar(11L, 3000, 0.1)).stream().allMatch(id -> id % 2 == 1 && id % 7 == 4));
+    }
+
+    @Test
+    void examine_no_more_than_the_maximum_candidates() {
+        MinHashIndex bounded = new MinHashIndex(10, 2, 2, 42);
+        for (long id = 1; id <= 10; id++) {
+            bounded.index(id, List.of("same", "tokens"));
+        }
+
+        assertEquals(2, bounded.similar(1L, 10, 0).size());
+    }
+
+    private static List<Long> ids(List<MinHashIndex.Match> matches) {
+        return matches.stream().map(MinHashIndex.Match::getId).toList();
+    }
+
+    private static Set<String> words(Random random, int count) {
+        Set<String> words = new HashSet<>();
+        while (words.size() < count) {
+            words.add("word" + random.nextInt(100_000));
+        }
+        return words;
+    }
+}
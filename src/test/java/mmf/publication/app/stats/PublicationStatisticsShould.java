@@ -0,0 +1,135 @@
+package mmf.publication.app.stats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mmf.publication.app.SqlStatementRecorder;
+import mmf.publication.app.dto.AppUserDTO;
+import mmf.publication.app.dto.PublicationRequest;
+import mmf.publication.app.dto.PublicationStatsDTO;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.exceptions.PublicationNotFoundException;
+import mmf.publication.app.repository.AppUserRepository;
+import mmf.publication.app.repository.PublicationRepository;
+import mmf.publication.app.service.IAppUserService;
+import mmf.publication.app.service.IPublicationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PublicationStatisticsShould {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PublicationStatistics statistics;
+
+    @Autowired
+    private IPublicationService publicationService;
+
+    @Autowired
+    private IAppUserService appUserService;
+
+    @Autowired
+    private PublicationRepository publicationRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        appUserService.registerUser(new AppUserDTO("counted", "password"));
+        // Other tests delete their publications behind the service's back
+        statistics.reconcile();
+    }
+
+    @AfterEach
+    void cleanup() {
+        publicationRepository.deleteAll();
+        appUserRepository.deleteAll();
+    }
+
+    @Test
+    void follow_creates_status_changes_and_views_without_querying_the_database() throws PublicationNotFoundException, Exception {
+        PublicationStatsDTO before = publicationService.getPublicationStats(null, null);
+
+        long id = create(PublicationType.NEWS, PublicationStatus.ACTIVE);
+        create(PublicationType.JOURNAL, PublicationStatus.ACTIVE);
+        publicationService.updatePublicationStatus(id, PublicationStatus.INACTIVE);
+        publicationService.incrementViewCount(id);
+        publicationService.incrementViewCount(id);
+
+        SqlStatementRecorder.clear();
+        PublicationStatsDTO after = publicationService.getPublicationStats(null, null);
+        assertTrue(SqlStatementRecorder.statements().isEmpty(), SqlStatementRecorder.statements().toString());
+
+        assertEquals(before.getTotal() + 2, after.getTotal());
+        assertEquals(before.getByStatus().get(PublicationStatus.ACTIVE) + 1, after.getByStatus().get(PublicationStatus.ACTIVE));
+        assertEquals(before.getByStatus().get(PublicationStatus.INACTIVE) + 1, after.getByStatus().get(PublicationStatus.INACTIVE));
+        assertEquals(before.getByType().get(PublicationType.JOURNAL) + 1, after.getByType().get(PublicationType.JOURNAL));
+        assertEquals(before.getByPublishDay().getOrDefault(LocalDate.now(), 0L) + 2, after.getByPublishDay().get(LocalDate.now()));
+        assertEquals(before.getTotalViews() + 2, after.getTotalViews());
+
+        // Reconciling against the database finds nothing to correct
+        double corrections = meterRegistry.get("publication.stats.corrections").counter().count();
+        statistics.reconcile();
+        assertEquals(corrections, meterRegistry.get("publication.stats.corrections").counter().count());
+    }
+
+    @Test
+    void correct_the_drift_of_rows_changed_behind_the_service() {
+        long id = create(PublicationType.NEWS, PublicationStatus.ACTIVE);
+        long active = publicationService.getPublicationStats(null, null).getByStatus().get(PublicationStatus.ACTIVE);
+
+        jdbcTemplate.update("UPDATE publication SET status = 'INACTIVE', published_at = ? WHERE id = ?",
+                LocalDate.of(2020, 2, 29).atStartOfDay(), id);
+        assertEquals(active, publicationService.getPublicationStats(null, null).getByStatus().get(PublicationStatus.ACTIVE));
+
+        double corrections = meterRegistry.get("publication.stats.corrections").counter().count();
+        statistics.reconcile();
+
+        PublicationStatsDTO stats = publicationService.getPublicationStats(null, null);
+        assertEquals(active - 1, stats.getByStatus().get(PublicationStatus.ACTIVE));
+        assertEquals(1, stats.getByPublishDay().get(LocalDate.of(2020, 2, 29)));
+        assertTrue(meterRegistry.get("publication.stats.corrections").counter().count() > corrections);
+    }
+
+    @Test
+    void limit_the_publish_days_to_the_requested_range() throws Exception {
+        long id = create(PublicationType.NEWS, PublicationStatus.ACTIVE);
+        jdbcTemplate.update("UPDATE publication SET published_at = ? WHERE id = ?",
+                LocalDate.of(2021, 6, 1).atStartOfDay(), id);
+        create(PublicationType.NEWS, PublicationStatus.ACTIVE);
+        statistics.reconcile();
+
+        mockMvc.perform(get("/api/publications/stats?from=2021-01-01&to=2021-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.byPublishDay.length()").value(1))
+                .andExpect(jsonPath("$.byPublishDay['2021-06-01']").value(1))
+                .andExpect(jsonPath("$.reconciledAt").exists());
+    }
+
+    private long create(PublicationType type, PublicationStatus status) {
+        return publicationService.createPublication(new PublicationRequest("Title", "Counted words", type, status),
+                "counted").getId();
+    }
+}
@@ -0,0 +1,165 @@
+package mmf.publication.app.trending;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mmf.publication.app.dto.TrendingKeywordDTO;
+import mmf.publication.app.entity.Publication;
+import mmf.publication.app.enums.PublicationStatus;
+import mmf.publication.app.enums.PublicationType;
+import mmf.publication.app.events.PublicationSavedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrendingKeywordsShould {
+    private static final Duration BUCKET = Duration.ofMinutes(10);
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-06-01T12:00:00Z"));
+
+    @Test
+    void never_underestimate_and_stay_within_the_error_bound() {
+        CountMinSketch sketch = new CountMinSketch(CountMinSketch.depthFor(0.99), CountMinSketch.widthFor(0.01));
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            // Skewed towards low numbers, like word frequencies
+            String word = "w" + (int) Math.pow(random.nextInt(1000), 2) / 1000;
+            sketch.add(word, 1);
+            exact.merge(word, 1L, Long::sum);
+        }
+
+        long bound = (long) Math.ceil(0.01 * sketch.total());
+        exact.forEach((word, count) -> {
+            assertTrue(sketch.estimate(word) >= count);
+            assertTrue(sketch.estimate(word) - count <= bound);
+        });
+    }
+
+    @Test
+    void keep_every_keyword_above_its_share_of_the_stream() {
+        SpaceSaving summary = new SpaceSaving(10);
+        for (int i = 0; i < 1000; i++) {
+            summary.offer("rare" + i, 1);
+            if (i % 5 == 0) {
+                summary.offer("hot", 1);
+            }
+        }
+
+        // 200 of 1200 offers, above 1200 / 10
+        assertTrue(summary.items().contains("hot"));
+        assertEquals("hot", summary.top(1).get(0).getItem());
+        assertTrue(summary.top(1).get(0).getCount() - summary.top(1).get(0).getError() <= 200);
+    }
+
+    @Test
+    void rank_keywords_by_type_within_the_window() {
+        TrendingKeywords trending = trending();
+        record(trending, PublicationType.NEWS, 5, "election", "vote");
+        record(trending, PublicationType.NEWS, 2, "weather");
+        record(trending, PublicationType.JOURNAL, 4, "protein");
+
+        assertEquals(List.of("election", "vote", "weather"), keywords(trending.top(PublicationType.NEWS, Duration.ofHours(1), 10)));
+        assertEquals(List.of("election", "vote", "protein"), keywords(trending.top(null, Duration.ofHours(1), 3)));
+        assertEquals(5, trending.top(PublicationType.NEWS, Duration.ofHours(1), 1).get(0).getCount());
+    }
+
+    @Test
+    void drop_buckets_that_fall_out_of_the_window() {
+        TrendingKeywords trending = trending();
+        record(trending, PublicationType.NEWS, 3, "old");
+        clock.advance(Duration.ofMinutes(30));
+        record(trending, PublicationType.NEWS, 1, "new");
+
+        assertEquals(List.of("new"), keywords(trending.top(PublicationType.NEWS, Duration.ofMinutes(10), 10)));
+        assertEquals(List.of("old", "new"), keywords(trending.top(PublicationType.NEWS, Duration.ofHours(1), 10)));
+
+        clock.advance(Duration.ofHours(2));
+        assertTrue(trending.top(PublicationType.NEWS, Duration.ofHours(2), 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> trending.top(null, Duration.ofHours(3), 10));
+    }
+
+    @Test
+    void count_created_and_updated_publications_but_not_status_changes() {
+        TrendingKeywords trending = trending();
+        Publication publication = new Publication(1L, "Title", "Description", 0, LocalDateTime.now(),
+                LocalDateTime.now(), PublicationType.NEWS, PublicationStatus.ACTIVE, Map.of("budget", 2));
+
+        trending.onPublicationSaved(new PublicationSavedEvent(publication));
+        trending.onPublicationSaved(new PublicationSavedEvent(publication));
+        trending.onPublicationSaved(new PublicationSavedEvent(publication, false));
+
+        assertEquals(2, trending.top(null, Duration.ofHours(1), 1).get(0).getCount());
+    }
+
+    @Test
+    void restore_its_windows_from_the_snapshot() {
+        TrendingKeywords trending = trending();
+        record(trending, PublicationType.JOURNAL, 3, "genome");
+        clock.advance(BUCKET);
+        record(trending, PublicationType.JOURNAL, 2, "genome", "cell");
+        trending.close();
+
+        TrendingKeywords restored = trending();
+
+        List<TrendingKeywordDTO> top = restored.top(PublicationType.JOURNAL, Duration.ofHours(1), 10);
+        assertEquals(List.of("genome", "cell"), keywords(top));
+        assertEquals(5, top.get(0).getCount());
+    }
+
+    private TrendingKeywords trending() {
+        return new TrendingKeywords(new SimpleMeterRegistry(), BUCKET, Duration.ofHours(2), 0.01, 0.99, 20,
+                directory.resolve("trending.snapshot"), clock);
+    }
+
+    private static void record(TrendingKeywords trending, PublicationType type, int times, String... keywords) {
+        for (int i = 0; i < times; i++) {
+            trending.record(type, List.of(keywords));
+        }
+    }
+
+    private static List<String> keywords(List<TrendingKeywordDTO> trending) {
+        return trending.stream().map(TrendingKeywordDTO::getKeyword).toList();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}